@@ -109,8 +109,13 @@ public class GCMClient extends AbstractClient {
             // Send request
             sendToServer(request);
 
-            // Wait for response (30 second timeout)
-            Response response = responseQueue.poll(30, TimeUnit.SECONDS);
+            // Wait for response (30 second timeout), skipping frames pushed
+            // for other requests (e.g. report job progress)
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            Response response;
+            do {
+                response = responseQueue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } while (response != null && !request.getRequestId().equals(response.getRequestId()));
 
             if (response == null) {
                 System.err.println("GCMClient: Request timed out");
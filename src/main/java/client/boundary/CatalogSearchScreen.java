@@ -1,5 +1,6 @@
 package client.boundary;
 
+import client.control.PurchaseControl;
 import client.control.SearchControl;
 import common.dto.CitySearchResult;
 import common.dto.MapSummary;
@@ -82,6 +83,7 @@ public class CatalogSearchScreen implements SearchControl.SearchResultCallback {
     private Label tourCountLabel;
 
     private SearchControl searchControl;
+    private PurchaseControl purchaseControl;
     private ObservableList<CitySearchResult> searchResults;
     private ObservableList<MapSummary> mapsList;
 
@@ -151,6 +153,7 @@ public class CatalogSearchScreen implements SearchControl.SearchResultCallback {
         try {
             searchControl = new SearchControl("localhost", 5555);
             searchControl.setResultCallback(this);
+            purchaseControl = new PurchaseControl(client.GCMClient.getInstance());
             updateStatus("✅ Connected to server. Ready to search!", "#27ae60");
         } catch (IOException e) {
             updateStatus("❌ Could not connect to server. Is it running?", "#e74c3c");
@@ -331,36 +334,24 @@ public class CatalogSearchScreen implements SearchControl.SearchResultCallback {
             return;
         }
 
-        // Send request
-        try {
-            common.Request req;
-            if (months == 0) {
-                req = new common.Request(common.MessageType.PURCHASE_ONE_TIME, new common.dto.PurchaseRequest(cityId));
-            } else {
-                req = new common.Request(common.MessageType.PURCHASE_SUBSCRIPTION,
-                        new common.dto.PurchaseRequest(cityId, months));
+        if (purchaseControl == null) {
+            updateStatus("❌ Not connected to server", "#e74c3c");
+            return;
+        }
+
+        // A retry after a timeout re-sends the same request, so it is never charged twice
+        updateStatus("Purchase request sent...", "blue");
+        purchaseControl.purchase(cityId, months, new PurchaseControl.PurchaseCallback() {
+            @Override
+            public void onSuccess(common.dto.PurchaseResponse response) {
+                updateStatus("✅ " + response.getMessage(), "#27ae60");
             }
-            // Use searchControl to access client, but searchControl is designed for simple
-            // search.
-            // We need to access the client connection.
-            // SearchControl hides the client. Adding a helper getter or executing raw
-            // command.
-            // Unfortunate coupling here.
-            // Actually SearchControl has getClient() ? No.
-            // We can add sendRequest to SearchControl.
-
-            // For now, let's assume we can't easily buy from CatalogSearchScreen without
-            // modifying SearchControl
-            // to support generic requests or exposing client.
-            // Let's modify SearchControl really quick to support sending arbitrary requests
-            // or add sendPurchaseRequest.
-            if (searchControl != null) {
-                searchControl.sendPurchaseRequest(req);
-                updateStatus("Purchase request sent!", "blue");
+
+            @Override
+            public void onError(String message) {
+                updateStatus("Purchase failed: " + message, "red");
             }
-        } catch (Exception e) {
-            updateStatus("Purchase failed: " + e.getMessage(), "red");
-        }
+        });
     }
 
     private void showMapDetails(MapSummary map) {
@@ -84,7 +84,15 @@ public class MapApprovalsScreen implements ContentManagementControl.ContentCallb
         userLabel.setText("Submitted by: " + request.getUsername());
         dateLabel.setText("Date: " + (request.getCreatedAt() != null ? request.getCreatedAt().toString() : "Unknown"));
 
-        changesArea.setText(generateSummary(request.getChanges()));
+        // The list only carries counts; fetch the full changes for this request
+        changesArea.setText(generateCountSummary(request) + "\nLoading details...");
+        control.getMapEditDetails(request.getId());
+    }
+
+    private String generateCountSummary(MapEditRequestDTO request) {
+        return String.format("POIs: +%d / ~%d / -%d\nTours: +%d / ~%d / -%d\n",
+                request.getAddedPoiCount(), request.getUpdatedPoiCount(), request.getDeletedPoiCount(),
+                request.getAddedTourCount(), request.getUpdatedTourCount(), request.getDeletedTourCount());
     }
 
     private String generateSummary(MapChanges changes) {
@@ -169,6 +177,22 @@ public class MapApprovalsScreen implements ContentManagementControl.ContentCallb
         });
     }
 
+    /**
+     * Merge all pending requests for the selected request's map; the preview
+     * comes back in onMergedMapEditReceived.
+     */
+    @FXML
+    private void handleMergePending() {
+        if (selectedRequest == null)
+            return;
+        if (selectedRequest.getMapId() <= 0) {
+            showError("Requests that create a new map must be approved on their own");
+            return;
+        }
+        setStatus("Merging pending requests...");
+        control.previewMergedMapEdits(selectedRequest.getMapId());
+    }
+
     @FXML
     private void handleBack() {
         if (control != null)
@@ -194,6 +218,45 @@ public class MapApprovalsScreen implements ContentManagementControl.ContentCallb
         });
     }
 
+    @Override
+    public void onMapEditDetailsReceived(MapEditRequestDTO request) {
+        Platform.runLater(() -> {
+            if (selectedRequest != null && selectedRequest.getId() == request.getId()) {
+                changesArea.setText(generateSummary(request.getChanges()));
+            }
+        });
+    }
+
+    @Override
+    public void onMergedMapEditReceived(MergedMapEdit merged) {
+        Platform.runLater(() -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Merged ").append(merged.getRequestIds().size()).append(" requests ")
+                    .append(merged.getRequestIds()).append("\n")
+                    .append("Operations: ").append(merged.getOperationsBefore()).append(" -> ")
+                    .append(merged.getOperationsAfter()).append("\n\n");
+            if (!merged.getConflicts().isEmpty()) {
+                sb.append("Conflicts (resolved in favour of the later request):\n");
+                merged.getConflicts().forEach(c -> sb.append("  ! ").append(c).append("\n"));
+                sb.append("\n");
+            }
+            sb.append(generateSummary(merged.getChanges()));
+            changesArea.setText(sb.toString());
+            setStatus("Merge preview ready");
+
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Confirm Merged Approval");
+            confirm.setHeaderText("Approve " + merged.getRequestIds().size() + " requests as one version?");
+            confirm.setContentText("The net changes will be applied in one step and customers notified once.");
+            confirm.showAndWait().ifPresent(type -> {
+                if (type == ButtonType.OK) {
+                    setStatus("Approving merged requests...");
+                    control.approveMergedMapEdits(merged);
+                }
+            });
+        });
+    }
+
     @Override
     public void onValidationResult(ValidationResult result) {
         Platform.runLater(() -> {
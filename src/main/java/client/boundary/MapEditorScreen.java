@@ -760,6 +760,16 @@ public class MapEditorScreen implements ContentManagementControl.ContentCallback
         // Not used in this screen
     }
 
+    @Override
+    public void onMapEditDetailsReceived(MapEditRequestDTO request) {
+        // Not used in this screen
+    }
+
+    @Override
+    public void onMergedMapEditReceived(MergedMapEdit merged) {
+        // Not used in this screen
+    }
+
     // ==================== Helpers ====================
 
     private void setStatus(String message) {
@@ -1,6 +1,8 @@
 package client.boundary;
 
 import client.GCMClient;
+import client.LoginController;
+import client.control.MapDownloadControl;
 import common.MessageType;
 import common.Request;
 import common.Response;
@@ -18,6 +20,7 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -138,12 +141,33 @@ public class MyPurchasesScreen implements GCMClient.MessageHandler {
     private void handleDownload(PurchaseItem item) {
         if (gcmClient == null)
             return;
-        try {
-            gcmClient.sendToServer(new Request(MessageType.DOWNLOAD_MAP_VERSION, item.cityId));
-            statusLabel.setText("Downloading " + item.cityName + "...");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        statusLabel.setText("Downloading " + item.cityName + "...");
+        statusLabel.setStyle("");
+        new MapDownloadControl(gcmClient, LoginController.currentSessionToken).downloadCity(item.cityId,
+                new MapDownloadControl.DownloadListener() {
+                    @Override
+                    public void onProgress(String mapName, long received, long total) {
+                        Platform.runLater(() -> statusLabel.setText("Downloading " + mapName + " ("
+                                + (total == 0 ? 100 : received * 100 / total) + "%)"));
+                    }
+
+                    @Override
+                    public void onComplete(List<Path> files) {
+                        Platform.runLater(() -> {
+                            statusLabel.setText("Download Complete!");
+                            statusLabel.setStyle("-fx-text-fill: green;");
+                            showAlert("Success", "Downloaded " + files.size() + " map(s) successfully!");
+                        });
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        Platform.runLater(() -> {
+                            statusLabel.setText("Download failed: " + message);
+                            statusLabel.setStyle("-fx-text-fill: red;");
+                        });
+                    }
+                });
     }
 
     @FXML
@@ -175,17 +199,20 @@ public class MyPurchasesScreen implements GCMClient.MessageHandler {
         Platform.runLater(() -> {
             if (msg instanceof Response) {
                 Response response = (Response) msg;
+
+                // Download traffic is handled by MapDownloadControl
+                if (response.getRequestType() == MessageType.DOWNLOAD_MAP_VERSION
+                        || response.getRequestType() == MessageType.DOWNLOAD_PACKAGE_CHUNK) {
+                    return;
+                }
+
                 if (!response.isOk()) {
                     statusLabel.setText("Error: " + response.getErrorMessage());
                     statusLabel.setStyle("-fx-text-fill: red;");
                     return;
                 }
 
-                if (response.getRequestType() == MessageType.DOWNLOAD_MAP_VERSION) {
-                    statusLabel.setText("Download Complete!");
-                    statusLabel.setStyle("-fx-text-fill: green;");
-                    showAlert("Success", "Map downloaded successfully!");
-                } else if (response.getRequestType() == MessageType.GET_MY_PURCHASES) {
+                if (response.getRequestType() == MessageType.GET_MY_PURCHASES) {
                     Object payload = response.getPayload();
                     if (payload instanceof List) {
                         List<EntitlementInfo> items = (List<EntitlementInfo>) payload;
@@ -2,6 +2,7 @@ package client.boundary;
 
 import client.GCMClient;
 import client.LoginController;
+import client.control.MapDownloadControl;
 import common.MessageType;
 import common.Request;
 import common.Response;
@@ -20,6 +21,7 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.NumberFormat;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -279,15 +281,25 @@ public class ProfileScreen implements GCMClient.MessageHandler {
         if (gcmClient == null)
             return;
 
-        try {
-            String token = LoginController.currentSessionToken;
-            Request request = new Request(MessageType.DOWNLOAD_MAP_VERSION, row.cityId, token);
-            gcmClient.sendToServer(request);
-            showInfo("Download started for " + row.cityName);
-        } catch (IOException e) {
-            showError("Download failed");
-            e.printStackTrace();
-        }
+        showInfo("Download started for " + row.cityName);
+        new MapDownloadControl(gcmClient, LoginController.currentSessionToken).downloadCity(row.cityId,
+                new MapDownloadControl.DownloadListener() {
+                    @Override
+                    public void onProgress(String mapName, long received, long total) {
+                        Platform.runLater(() -> showInfo("Downloading " + mapName + " ("
+                                + (total == 0 ? 100 : received * 100 / total) + "%)"));
+                    }
+
+                    @Override
+                    public void onComplete(List<Path> files) {
+                        Platform.runLater(() -> showInfo("Download complete! " + files.size() + " map(s) saved"));
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        Platform.runLater(() -> showError("Download failed: " + message));
+                    }
+                });
     }
 
     @Override
@@ -298,6 +310,12 @@ public class ProfileScreen implements GCMClient.MessageHandler {
 
             Response response = (Response) msg;
 
+            // Download traffic is handled by MapDownloadControl
+            if (response.getRequestType() == MessageType.DOWNLOAD_MAP_VERSION
+                    || response.getRequestType() == MessageType.DOWNLOAD_PACKAGE_CHUNK) {
+                return;
+            }
+
             if (!response.isOk()) {
                 showError(response.getErrorMessage());
                 saveBtn.setDisable(false);
@@ -312,9 +330,6 @@ public class ProfileScreen implements GCMClient.MessageHandler {
                 case GET_MY_PURCHASES:
                     handlePurchasesResponse(response);
                     break;
-                case DOWNLOAD_MAP_VERSION:
-                    showInfo("Download complete!");
-                    break;
                 default:
                     break;
             }
@@ -6,6 +6,7 @@ import common.DailyStat;
 import common.MessageType;
 import common.Request;
 import common.Response;
+import common.dto.ReportJobUpdate;
 import common.dto.ReportRequest;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -17,6 +18,8 @@ import javafx.scene.Scene;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
@@ -25,7 +28,12 @@ import javafx.util.StringConverter;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class ReportsController implements GCMClient.MessageHandler {
 
@@ -38,13 +46,26 @@ public class ReportsController implements GCMClient.MessageHandler {
     @FXML
     private ComboBox<City> cityComboBox;
 
+    @FXML
+    private CheckBox perCityCheckBox;
+
     @FXML
     private BarChart<String, Number> activityChart;
 
+    @FXML
+    private Button cancelReportButton;
+
     @FXML
     private Label statusLabel;
 
     private GCMClient client;
+    private boolean lastReportPerCity = false; // Shape of the report being waited for
+
+    // Report job in progress: frames are matched by the START_REPORT_JOB request ID
+    private UUID currentJobRequestId;
+    private Integer currentJobId;
+    private boolean currentJobStarted = false;
+    private final List<DailyStat> receivedRows = new ArrayList<>();
     // We navigate to new Dashboard instance on back, so we don't strictly need the
     // old controller
     // unless we want to preserve state. For simplicity, we navigate fresh.
@@ -117,12 +138,102 @@ public class ReportsController implements GCMClient.MessageHandler {
         } else if (response.getRequestType() == MessageType.GET_ACTIVITY_REPORT) {
             if (response.isOk()) {
                 List<DailyStat> stats = (List<DailyStat>) response.getPayload();
-                updateChart(stats);
+                if (lastReportPerCity) {
+                    updateBreakdownChart(stats);
+                } else {
+                    updateChart(stats);
+                }
                 statusLabel.setText("Report generated successfully.");
             } else {
                 statusLabel.setText("Error: " + response.getErrorMessage());
                 showAlert("Error", "Failed to generate report: " + response.getErrorMessage());
             }
+        } else if (response.getRequestType() == MessageType.START_REPORT_JOB
+                || response.getRequestType() == MessageType.REPORT_JOB_UPDATE) {
+            if (currentJobRequestId == null || !currentJobRequestId.equals(response.getRequestId())) {
+                return; // Frame of a finished or replaced job
+            }
+            if (response.isOk()) {
+                handleJobUpdate((ReportJobUpdate) response.getPayload());
+            } else {
+                finishJob();
+                statusLabel.setText("Error: " + response.getErrorMessage());
+                showAlert("Error", "Failed to generate report: " + response.getErrorMessage());
+            }
+        } else if (response.getRequestType() == MessageType.CANCEL_REPORT_JOB && !response.isOk()) {
+            statusLabel.setText("Could not cancel: " + response.getErrorMessage());
+        }
+    }
+
+    /**
+     * Progress of the current report job: add the chunk's rows and redraw
+     * the chart with everything received so far.
+     */
+    private void handleJobUpdate(ReportJobUpdate update) {
+        currentJobId = update.getJobId();
+        if (!update.getRows().isEmpty()) {
+            receivedRows.addAll(update.getRows());
+            if (lastReportPerCity) {
+                updateBreakdownChart(receivedRows);
+            } else {
+                updateChart(receivedRows);
+            }
+        }
+
+        switch (update.getStatus()) {
+            case ReportJobUpdate.STATUS_QUEUED:
+                if (!currentJobStarted) {
+                    statusLabel.setText("Report queued...");
+                    cancelReportButton.setDisable(false);
+                }
+                break;
+            case ReportJobUpdate.STATUS_RUNNING:
+                currentJobStarted = true;
+                cancelReportButton.setDisable(false);
+                statusLabel.setText("Generating report... (" + update.getCompletedChunks() + "/"
+                        + update.getTotalChunks() + ")");
+                break;
+            case ReportJobUpdate.STATUS_COMPLETED:
+                finishJob();
+                statusLabel.setText("Report generated successfully.");
+                break;
+            case ReportJobUpdate.STATUS_CANCELLED:
+                finishJob();
+                statusLabel.setText("Report cancelled (" + update.getCompletedChunks() + "/"
+                        + update.getTotalChunks() + " parts shown).");
+                break;
+            case ReportJobUpdate.STATUS_FAILED:
+                finishJob();
+                statusLabel.setText("Error: " + update.getError());
+                showAlert("Error", "Failed to generate report: " + update.getError());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void finishJob() {
+        currentJobRequestId = null;
+        currentJobId = null;
+        currentJobStarted = false;
+        cancelReportButton.setDisable(true);
+    }
+
+    @FXML
+    void handleCancelReport(ActionEvent event) {
+        cancelCurrentJob();
+    }
+
+    private void cancelCurrentJob() {
+        if (currentJobId == null || client == null) {
+            return;
+        }
+        try {
+            client.sendToServer(new Request(MessageType.CANCEL_REPORT_JOB, currentJobId));
+            statusLabel.setText("Cancelling...");
+        } catch (IOException e) {
+            statusLabel.setText("Error sending request");
+            e.printStackTrace();
         }
     }
 
@@ -142,15 +253,30 @@ public class ReportsController implements GCMClient.MessageHandler {
             return;
         }
 
-        Integer cityId = selectedCity != null ? selectedCity.getId() : null;
-        ReportRequest reqPayload = new ReportRequest(from, to, cityId);
-        Request request = new Request(MessageType.GET_ACTIVITY_REPORT, reqPayload);
+        ReportRequest reqPayload;
+        if (perCityCheckBox.isSelected()) {
+            reqPayload = new ReportRequest(from, to, true);
+        } else {
+            Integer cityId = selectedCity != null ? selectedCity.getId() : null;
+            reqPayload = new ReportRequest(from, to, cityId);
+        }
+        lastReportPerCity = reqPayload.isPerCity();
+
+        // A new report replaces the one still running
+        cancelCurrentJob();
+        finishJob();
+        receivedRows.clear();
+        activityChart.getData().clear();
+
+        Request request = new Request(MessageType.START_REPORT_JOB, reqPayload);
+        currentJobRequestId = request.getRequestId();
 
         statusLabel.setText("Generating report...");
 
         try {
             client.sendToServer(request);
         } catch (IOException e) {
+            finishJob();
             statusLabel.setText("Error sending request");
             e.printStackTrace();
         }
@@ -188,6 +314,55 @@ public class ReportsController implements GCMClient.MessageHandler {
         activityChart.getData().add(series);
     }
 
+    /**
+     * One bar per city for each metric. Rows of the same city (from
+     * different parts of a report job) are added up.
+     */
+    private void updateBreakdownChart(List<DailyStat> stats) {
+        activityChart.getData().clear();
+
+        Map<Integer, int[]> perCity = new LinkedHashMap<>();
+        for (DailyStat s : stats) {
+            int[] values = perCity.computeIfAbsent(s.getCityId(), id -> new int[6]);
+            values[0] += s.getMapsCount();
+            values[1] += s.getOneTimePurchases();
+            values[2] += s.getSubscriptions();
+            values[3] += s.getRenewals();
+            values[4] += s.getViews();
+            values[5] += s.getDownloads();
+        }
+
+        Map<Integer, String> cityNames = new HashMap<>();
+        for (City city : cityComboBox.getItems()) {
+            cityNames.put(city.getId(), city.getName());
+        }
+
+        String[] metrics = { "Maps", "Purchases", "Subscriptions", "Renewals", "Views", "Downloads" };
+        List<XYChart.Series<String, Number>> seriesList = new ArrayList<>();
+        for (String metric : metrics) {
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName(metric);
+            seriesList.add(series);
+        }
+
+        for (Map.Entry<Integer, int[]> entry : perCity.entrySet()) {
+            String city = cityNames.getOrDefault(entry.getKey(), "City " + entry.getKey());
+            int[] values = entry.getValue();
+            for (int i = 0; i < values.length; i++) {
+                seriesList.get(i).getData().add(new XYChart.Data<>(city, values[i]));
+            }
+        }
+
+        activityChart.getData().addAll(seriesList);
+    }
+
+    @FXML
+    void handlePerCityToggle(ActionEvent event) {
+        // The breakdown always covers every city
+        cityComboBox.setDisable(perCityCheckBox.isSelected());
+        activityChart.setLegendVisible(perCityCheckBox.isSelected());
+    }
+
     @FXML
     void handleBack(ActionEvent event) {
         try {
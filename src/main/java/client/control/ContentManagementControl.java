@@ -12,6 +12,7 @@ import common.dto.TourDTO;
 import common.dto.TourStopDTO;
 import common.dto.ValidationResult;
 import common.dto.MapEditRequestDTO;
+import common.dto.MergedMapEdit;
 
 import client.GCMClient;
 
@@ -43,6 +44,10 @@ public class ContentManagementControl implements GCMClient.MessageHandler {
 
         void onPendingRequestsReceived(List<MapEditRequestDTO> requests);
 
+        void onMapEditDetailsReceived(MapEditRequestDTO request);
+
+        void onMergedMapEditReceived(MergedMapEdit merged);
+
         void onError(String errorCode, String errorMessage);
     }
 
@@ -105,6 +110,14 @@ public class ContentManagementControl implements GCMClient.MessageHandler {
         sendRequest(request);
     }
 
+    /**
+     * Get the content of an approved map version as it was approved.
+     */
+    public void getMapVersionContent(int versionId) {
+        Request request = new Request(MessageType.GET_MAP_VERSION_CONTENT, versionId);
+        sendRequest(request);
+    }
+
     /**
      * Create a new map.
      */
@@ -207,6 +220,11 @@ public class ContentManagementControl implements GCMClient.MessageHandler {
         sendRequest(request);
     }
 
+    public void getMapEditDetails(int requestId) {
+        Request request = new Request(MessageType.GET_MAP_EDIT_DETAILS, requestId);
+        sendRequest(request);
+    }
+
     public void approveMapEdit(int requestId) {
         Request request = new Request(MessageType.APPROVE_MAP_EDIT, requestId);
         sendRequest(request);
@@ -217,6 +235,16 @@ public class ContentManagementControl implements GCMClient.MessageHandler {
         sendRequest(request);
     }
 
+    public void previewMergedMapEdits(int mapId) {
+        Request request = new Request(MessageType.PREVIEW_MERGED_MAP_EDITS, mapId);
+        sendRequest(request);
+    }
+
+    public void approveMergedMapEdits(MergedMapEdit merged) {
+        Request request = new Request(MessageType.APPROVE_MERGED_MAP_EDITS, merged);
+        sendRequest(request);
+    }
+
     // ==================== Internal Methods ====================
 
     private void sendRequest(Request request) {
@@ -284,6 +312,10 @@ public class ContentManagementControl implements GCMClient.MessageHandler {
             }
         } else if (payload instanceof MapContent) {
             callback.onMapContentReceived((MapContent) payload);
+        } else if (payload instanceof MapEditRequestDTO) {
+            callback.onMapEditDetailsReceived((MapEditRequestDTO) payload);
+        } else if (payload instanceof MergedMapEdit) {
+            callback.onMergedMapEditReceived((MergedMapEdit) payload);
         } else if (payload instanceof ValidationResult) {
             callback.onValidationResult((ValidationResult) payload);
         }
@@ -0,0 +1,181 @@
+package client.control;
+
+import client.GCMClient;
+import common.MessageType;
+import common.Request;
+import common.Response;
+import common.dto.MapPackageManifest;
+import common.dto.PackageChunk;
+import common.dto.PackageChunkRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client-side controller for downloading purchased city maps.
+ *
+ * Asks the server for the city's package manifests, then pulls each package
+ * in chunks into a ".part" file. An interrupted download resumes from the
+ * bytes already on disk, and a package is only kept once its SHA-256
+ * matches the manifest.
+ */
+public class MapDownloadControl {
+
+    private static final Path DOWNLOAD_DIR = Paths.get(System.getProperty("user.home"), "GCM", "downloads");
+    private static final int MAX_RETRIES = 3;
+
+    private final GCMClient client;
+    private final String sessionToken;
+
+    /**
+     * Callback interface for download progress. Called from the download
+     * thread; screens should hop to the FX thread.
+     */
+    public interface DownloadListener {
+        void onProgress(String mapName, long received, long total);
+
+        void onComplete(List<Path> files);
+
+        void onError(String message);
+    }
+
+    public MapDownloadControl(GCMClient client, String sessionToken) {
+        this.client = client;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Download every map of a city in the background.
+     */
+    public void downloadCity(int cityId, DownloadListener listener) {
+        Thread worker = new Thread(() -> runDownload(cityId, listener), "MapDownload-" + cityId);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runDownload(int cityId, DownloadListener listener) {
+        try {
+            Response response = send(new Request(MessageType.DOWNLOAD_MAP_VERSION, cityId, sessionToken));
+            if (!(response.getPayload() instanceof List)) {
+                listener.onError("Unexpected download response");
+                return;
+            }
+
+            List<Path> files = new ArrayList<>();
+            for (MapPackageManifest manifest : (List<MapPackageManifest>) response.getPayload()) {
+                files.add(downloadPackage(manifest, listener));
+            }
+            listener.onComplete(files);
+
+        } catch (IOException e) {
+            listener.onError(e.getMessage());
+        }
+    }
+
+    /**
+     * Download (or resume) one package and verify its checksum.
+     */
+    private Path downloadPackage(MapPackageManifest manifest, DownloadListener listener) throws IOException {
+        Files.createDirectories(DOWNLOAD_DIR);
+        Path target = DOWNLOAD_DIR.resolve(manifest.getPackageId() + ".gcmp");
+        if (Files.exists(target) && manifest.getSha256().equals(sha256(target))) {
+            listener.onProgress(manifest.getMapName(), manifest.getSize(), manifest.getSize());
+            return target;
+        }
+
+        Path part = DOWNLOAD_DIR.resolve(manifest.getPackageId() + ".gcmp.part");
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = channel.size();
+            if (offset > manifest.getSize()) {
+                channel.truncate(0);
+                offset = 0;
+            }
+            if (offset > 0) {
+                System.out.println("MapDownloadControl: Resuming " + manifest.getPackageId() + " at byte " + offset);
+            }
+
+            while (offset < manifest.getSize()) {
+                Response response = send(new Request(MessageType.DOWNLOAD_PACKAGE_CHUNK,
+                        new PackageChunkRequest(manifest.getPackageId(), offset, manifest.getChunkSize()),
+                        sessionToken));
+                if (!(response.getPayload() instanceof PackageChunk)) {
+                    throw new IOException("Unexpected chunk response");
+                }
+                PackageChunk chunk = (PackageChunk) response.getPayload();
+                if (chunk.getOffset() != offset || chunk.getData().length == 0) {
+                    throw new IOException("Package changed on the server, please retry");
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(chunk.getData());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+                offset += chunk.getData().length;
+                listener.onProgress(manifest.getMapName(), offset, manifest.getSize());
+            }
+            channel.force(false);
+        }
+
+        if (!manifest.getSha256().equals(sha256(part))) {
+            Files.deleteIfExists(part);
+            throw new IOException("Checksum mismatch for " + manifest.getMapName() + ", please retry");
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("MapDownloadControl: Saved " + target);
+        return target;
+    }
+
+    /**
+     * Send a request and wait for a successful response, reconnecting and
+     * retrying if the connection drops.
+     */
+    private Response send(Request request) throws IOException {
+        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            if (!client.isConnected()) {
+                client.openConnection();
+            }
+            Response response = client.sendRequestSync(request);
+            if (response != null) {
+                if (!response.isOk()) {
+                    throw new IOException(response.getErrorMessage());
+                }
+                return response;
+            }
+            System.out.println("MapDownloadControl: No response (attempt " + attempt + ")");
+        }
+        throw new IOException("Connection lost - start the download again to resume");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -1,14 +1,17 @@
 package client.control;
 
 import client.GCMClient;
+import client.LoginController;
 import common.MessageType;
 import common.Request;
+import common.Response;
 import common.dto.CityPriceInfo;
 import common.dto.EntitlementInfo;
 import common.dto.PurchaseRequest;
 import common.dto.PurchaseResponse;
 
 import java.io.IOException;
+import java.util.Objects;
 
 /**
  * Client-side controller for purchase operations.
@@ -16,6 +19,9 @@ import java.io.IOException;
 public class PurchaseControl {
     private GCMClient client;
 
+    // Purchase sent but not answered yet (its request ID is the idempotency key)
+    private Request pendingPurchase;
+
     public PurchaseControl(GCMClient client) {
         this.client = client;
     }
@@ -72,30 +78,77 @@ public class PurchaseControl {
     }
 
     /**
-     * Send purchase request.
+     * Buy a city (months = 0) or subscribe to it, in the background.
+     *
+     * The server charges each request ID at most once. Until a purchase is
+     * answered, asking for the same purchase again (e.g. after a timeout)
+     * re-sends the same Request, so a retry returns the original outcome
+     * instead of charging again.
      */
-    public void purchaseOneTime(int cityId) {
-        Request request = new Request(MessageType.PURCHASE_ONE_TIME, new PurchaseRequest(cityId));
-        send(request);
+    public void purchase(int cityId, int months, PurchaseCallback callback) {
+        Request request = purchaseRequest(cityId, months);
+        Thread worker = new Thread(() -> {
+            Response response = client.sendRequestSync(request);
+            if (response == null) {
+                callback.onError("No answer from the server. Try again - you will not be charged twice.");
+                return;
+            }
+            answered(request);
+            if (response.isOk() && response.getPayload() instanceof PurchaseResponse) {
+                callback.onSuccess((PurchaseResponse) response.getPayload());
+            } else {
+                callback.onError(response.getErrorMessage());
+            }
+        }, "Purchase-" + cityId);
+        worker.setDaemon(true);
+        worker.start();
     }
 
-    public void purchaseSubscription(int cityId, int months) {
-        Request request = new Request(MessageType.PURCHASE_SUBSCRIPTION, new PurchaseRequest(cityId, months));
-        send(request);
+    public void purchaseOneTime(int cityId, PurchaseCallback callback) {
+        purchase(cityId, 0, callback);
+    }
+
+    public void purchaseSubscription(int cityId, int months, PurchaseCallback callback) {
+        purchase(cityId, months, callback);
+    }
+
+    /**
+     * The unanswered request for this purchase, or a new one.
+     */
+    private synchronized Request purchaseRequest(int cityId, int months) {
+        String token = LoginController.currentSessionToken;
+        if (pendingPurchase != null) {
+            PurchaseRequest pending = (PurchaseRequest) pendingPurchase.getPayload();
+            if (pending.getCityId() == cityId && pending.getMonths() == months
+                    && Objects.equals(pendingPurchase.getSessionToken(), token)) {
+                System.out.println("PurchaseControl: Re-sending unanswered purchase " + pendingPurchase.getRequestId());
+                return pendingPurchase;
+            }
+        }
+        pendingPurchase = months == 0
+                ? new Request(MessageType.PURCHASE_ONE_TIME, new PurchaseRequest(cityId), token)
+                : new Request(MessageType.PURCHASE_SUBSCRIPTION, new PurchaseRequest(cityId, months), token);
+        return pendingPurchase;
+    }
+
+    private synchronized void answered(Request request) {
+        if (pendingPurchase == request) {
+            pendingPurchase = null;
+        }
     }
 
     public void getEntitlement(int cityId) {
-        Request request = new Request(MessageType.GET_ENTITLEMENT, cityId);
+        Request request = new Request(MessageType.GET_ENTITLEMENT, cityId, LoginController.currentSessionToken);
         send(request);
     }
 
     public void checkCanDownload(int cityId) {
-        Request request = new Request(MessageType.CAN_DOWNLOAD, cityId);
+        Request request = new Request(MessageType.CAN_DOWNLOAD, cityId, LoginController.currentSessionToken);
         send(request);
     }
 
     public void downloadMapVersion(int cityId) {
-        Request request = new Request(MessageType.DOWNLOAD_MAP_VERSION, cityId);
+        Request request = new Request(MessageType.DOWNLOAD_MAP_VERSION, cityId, LoginController.currentSessionToken);
         send(request);
     }
 
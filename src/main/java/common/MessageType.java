@@ -19,6 +19,15 @@ public enum MessageType {
     /** Search maps by both city and POI name */
     SEARCH_BY_CITY_AND_POI,
 
+    /** Find the k POIs nearest to a coordinate */
+    SEARCH_POIS_NEAR,
+
+    /** Find POIs inside a lat/lng bounding box */
+    SEARCH_POIS_IN_BBOX,
+
+    /** Filter POIs by category/accessibility/city with per-facet counts */
+    SEARCH_POIS_FACETED,
+
     // ==================== MAP EDITING (Phase 2) ====================
     /** Get all cities for editor */
     GET_CITIES,
@@ -29,6 +38,9 @@ public enum MessageType {
     /** Get full map content for editing */
     GET_MAP_CONTENT,
 
+    /** Get the frozen content of an approved map version (payload: version ID) */
+    GET_MAP_VERSION_CONTENT,
+
     /** Submit map changes (create/update) */
     SUBMIT_MAP_CHANGES,
 
@@ -97,6 +109,9 @@ public enum MessageType {
     /** Reject a pending map version */
     REJECT_MAP_VERSION,
 
+    /** Structural diff between two approved versions of a map */
+    DIFF_MAP_VERSIONS,
+
     // ==================== PURCHASE (Phase 5) ====================
     /** Get city pricing information */
     GET_CITY_PRICE,
@@ -113,9 +128,12 @@ public enum MessageType {
     /** Check if user can download map */
     CAN_DOWNLOAD,
 
-    /** Record map version download event */
+    /** Authorize a city download; returns the map package manifests */
     DOWNLOAD_MAP_VERSION,
 
+    /** Read a byte range of a map package (resumable download) */
+    DOWNLOAD_PACKAGE_CHUNK,
+
     /** Record map view event */
     RECORD_VIEW_EVENT,
 
@@ -217,12 +235,44 @@ public enum MessageType {
     GET_ACTIVITY_REPORT,
 
     // ==================== MAP EDIT APPROVALS ====================
-    /** List all pending map edit requests */
+    /** List all pending map edit requests (change summary only) */
     GET_PENDING_MAP_EDITS,
 
+    /** Get one map edit request with its full changes */
+    GET_MAP_EDIT_DETAILS,
+
     /** Approve a map edit request */
     APPROVE_MAP_EDIT,
 
     /** Reject a map edit request */
-    REJECT_MAP_EDIT
+    REJECT_MAP_EDIT,
+
+    /** Merge all pending edit requests for a map into one net change set (preview) */
+    PREVIEW_MERGED_MAP_EDITS,
+
+    /** Approve merged edit requests as one version */
+    APPROVE_MERGED_MAP_EDITS,
+
+    // ==================== BULK IMPORT / EXPORT ====================
+    /** Start (or resume) importing a CSV/GeoJSON file from the server import directory */
+    START_BULK_IMPORT,
+
+    /** Get progress of an import job */
+    GET_IMPORT_STATUS,
+
+    /** Export cities' full content and history to a compressed archive on the server */
+    START_CITY_EXPORT,
+
+    /** Get progress of an export job */
+    GET_EXPORT_STATUS,
+
+    // ==================== REPORT JOBS ====================
+    /** Start an activity report in the background; progress and rows are pushed as REPORT_JOB_UPDATE */
+    START_REPORT_JOB,
+
+    /** Cancel a running report job (payload: job ID) */
+    CANCEL_REPORT_JOB,
+
+    /** Server push: progress and the next chunk of rows of a report job */
+    REPORT_JOB_UPDATE
 }
@@ -89,6 +89,14 @@ public class Response implements Serializable {
         return new Response(request.getRequestId(), payload, request.getType());
     }
 
+    /**
+     * Creates a frame pushed by the server after the response to a request
+     * (e.g. report job progress), tagged with that request's ID.
+     */
+    public static Response push(Request request, MessageType type, Object payload) {
+        return new Response(request.getRequestId(), payload, type);
+    }
+
     // ==================== Common Error Codes ====================
     public static final String ERR_NOT_FOUND = "NOT_FOUND";
     public static final String ERR_UNAUTHORIZED = "UNAUTHORIZED";
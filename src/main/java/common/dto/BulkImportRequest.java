@@ -0,0 +1,58 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * DTO for starting a bulk import.
+ * Used as payload in START_BULK_IMPORT requests.
+ *
+ * The file is read from the server's import directory; fileName is a plain
+ * name inside it. Set resumeJobId to continue a failed job from its last
+ * checkpoint instead of starting a new one.
+ */
+public class BulkImportRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Format {
+        CSV, GEOJSON
+    }
+
+    private String fileName;
+
+    /** null = detect from the file extension */
+    private Format format;
+
+    private Integer resumeJobId;
+
+    public BulkImportRequest() {
+    }
+
+    public BulkImportRequest(String fileName, Format format) {
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    public static BulkImportRequest resume(int jobId) {
+        BulkImportRequest request = new BulkImportRequest();
+        request.resumeJobId = jobId;
+        return request;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Integer getResumeJobId() {
+        return resumeJobId;
+    }
+
+    @Override
+    public String toString() {
+        return resumeJobId != null ? "BulkImportRequest{resume #" + resumeJobId + "}"
+                : "BulkImportRequest{" + fileName + ", " + format + "}";
+    }
+}
@@ -21,6 +21,7 @@ public class EntitlementInfo implements Serializable {
     private LocalDate expiryDate; // Null for one-time or none
     private boolean canView;
     private boolean canDownload;
+    private long expiresAtMillis; // Exact subscription end (epoch ms); 0 for one-time or none
 
     public EntitlementInfo(int cityId, EntitlementType type, LocalDate expiryDate, boolean canView,
             boolean canDownload) {
@@ -69,6 +70,14 @@ public class EntitlementInfo implements Serializable {
         return canDownload;
     }
 
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public void setExpiresAtMillis(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
     public boolean isSubscription() {
         return type == EntitlementType.SUBSCRIPTION;
     }
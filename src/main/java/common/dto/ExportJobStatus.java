@@ -0,0 +1,111 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO reporting the progress of a city export job.
+ * Returned by START_CITY_EXPORT and GET_EXPORT_STATUS.
+ */
+public class ExportJobStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private int jobId;
+    private List<Integer> cityIds = new ArrayList<>();
+    private String status;
+
+    /** Archive name in the server export directory */
+    private String fileName;
+    private long fileSize;
+
+    /** Rows written per table, in export order */
+    private LinkedHashMap<String, Long> rowCounts = new LinkedHashMap<>();
+
+    private String error;
+
+    public ExportJobStatus() {
+    }
+
+    public ExportJobStatus(int jobId, List<Integer> cityIds) {
+        this.jobId = jobId;
+        this.cityIds = new ArrayList<>(cityIds);
+        this.status = STATUS_RUNNING;
+    }
+
+    /**
+     * Copy for sending to a client while the job keeps updating the original.
+     */
+    public synchronized ExportJobStatus snapshot() {
+        ExportJobStatus copy = new ExportJobStatus(jobId, cityIds);
+        copy.status = status;
+        copy.fileName = fileName;
+        copy.fileSize = fileSize;
+        copy.rowCounts = new LinkedHashMap<>(rowCounts);
+        copy.error = error;
+        return copy;
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public List<Integer> getCityIds() {
+        return cityIds;
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    public synchronized void setStatus(String status) {
+        this.status = status;
+    }
+
+    public synchronized String getFileName() {
+        return fileName;
+    }
+
+    public synchronized void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public synchronized long getFileSize() {
+        return fileSize;
+    }
+
+    public synchronized void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public synchronized Map<String, Long> getRowCounts() {
+        return rowCounts;
+    }
+
+    public synchronized void setRowCount(String table, long rows) {
+        rowCounts.put(table, rows);
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    public synchronized void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJobStatus{#" + jobId + " " + status + ", " + fileName + ", rows=" + rowCounts + "}";
+    }
+}
@@ -0,0 +1,31 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for exporting cities.
+ * Used as payload in START_CITY_EXPORT requests.
+ */
+public class ExportRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<Integer> cityIds = new ArrayList<>();
+
+    public ExportRequest() {
+    }
+
+    public ExportRequest(List<Integer> cityIds) {
+        this.cityIds = cityIds;
+    }
+
+    public List<Integer> getCityIds() {
+        return cityIds;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportRequest{cities=" + cityIds + "}";
+    }
+}
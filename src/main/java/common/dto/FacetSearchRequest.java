@@ -0,0 +1,83 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for faceted POI search parameters.
+ * Used as payload in SEARCH_POIS_FACETED requests.
+ *
+ * Values inside one facet are OR-ed (Beach OR Museum); different facets are
+ * AND-ed (category AND accessibility AND city).
+ */
+public class FacetSearchRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Cities to include (empty = all cities) */
+    private List<Integer> cityIds;
+
+    /** Categories to include (empty = all categories) */
+    private List<String> categories;
+
+    /** Accessibility filter (null = any) */
+    private Boolean accessible;
+
+    public FacetSearchRequest() {
+        this.cityIds = new ArrayList<>();
+        this.categories = new ArrayList<>();
+    }
+
+    /**
+     * Creates an unfiltered request (counts for every facet value).
+     */
+    public static FacetSearchRequest all() {
+        return new FacetSearchRequest();
+    }
+
+    /**
+     * Creates a request with the given filters.
+     */
+    public static FacetSearchRequest of(List<Integer> cityIds, List<String> categories, Boolean accessible) {
+        FacetSearchRequest req = new FacetSearchRequest();
+        if (cityIds != null) {
+            req.cityIds.addAll(cityIds);
+        }
+        if (categories != null) {
+            req.categories.addAll(categories);
+        }
+        req.accessible = accessible;
+        return req;
+    }
+
+    // Getters and Setters
+    public List<Integer> getCityIds() {
+        return cityIds;
+    }
+
+    public void setCityIds(List<Integer> cityIds) {
+        this.cityIds = cityIds;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<String> categories) {
+        this.categories = categories;
+    }
+
+    public Boolean getAccessible() {
+        return accessible;
+    }
+
+    public void setAccessible(Boolean accessible) {
+        this.accessible = accessible;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetSearchRequest{cityIds=" + cityIds + ", categories=" + categories +
+                ", accessible=" + accessible + "}";
+    }
+}
@@ -0,0 +1,93 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO containing faceted POI search results.
+ * Holds the matching cities/maps plus per-facet counts, so the UI can show
+ * how many POIs each filter value would select.
+ */
+public class FacetSearchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Cities with maps that contain matching POIs */
+    private List<CitySearchResult> results;
+
+    /** Number of POIs matching all filters */
+    private int matchingPoiCount;
+
+    /** Category → POI count (ignoring the category filter itself) */
+    private Map<String, Integer> categoryCounts;
+
+    /** Accessible / not accessible POI counts (ignoring the accessibility filter) */
+    private int accessibleCount;
+    private int notAccessibleCount;
+
+    /** City ID → POI count (ignoring the city filter) */
+    private Map<Integer, Integer> cityCounts;
+
+    public FacetSearchResult() {
+        this.results = new ArrayList<>();
+        this.categoryCounts = new LinkedHashMap<>();
+        this.cityCounts = new LinkedHashMap<>();
+    }
+
+    // Getters and Setters
+    public List<CitySearchResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CitySearchResult> results) {
+        this.results = results;
+    }
+
+    public int getMatchingPoiCount() {
+        return matchingPoiCount;
+    }
+
+    public void setMatchingPoiCount(int matchingPoiCount) {
+        this.matchingPoiCount = matchingPoiCount;
+    }
+
+    public Map<String, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public void setCategoryCounts(Map<String, Integer> categoryCounts) {
+        this.categoryCounts = categoryCounts;
+    }
+
+    public int getAccessibleCount() {
+        return accessibleCount;
+    }
+
+    public void setAccessibleCount(int accessibleCount) {
+        this.accessibleCount = accessibleCount;
+    }
+
+    public int getNotAccessibleCount() {
+        return notAccessibleCount;
+    }
+
+    public void setNotAccessibleCount(int notAccessibleCount) {
+        this.notAccessibleCount = notAccessibleCount;
+    }
+
+    public Map<Integer, Integer> getCityCounts() {
+        return cityCounts;
+    }
+
+    public void setCityCounts(Map<Integer, Integer> cityCounts) {
+        this.cityCounts = cityCounts;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetSearchResult{matching=" + matchingPoiCount + ", cities=" + results.size() +
+                ", categories=" + categoryCounts + "}";
+    }
+}
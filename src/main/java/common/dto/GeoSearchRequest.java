@@ -0,0 +1,139 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * DTO for geographic POI search parameters.
+ * Used as payload in SEARCH_POIS_NEAR and SEARCH_POIS_IN_BBOX requests.
+ */
+public class GeoSearchRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Restrict the search to one city (null = all cities) */
+    private Integer cityId;
+
+    /** Query point (SEARCH_POIS_NEAR) */
+    private double latitude;
+    private double longitude;
+
+    /** Number of neighbours to return (SEARCH_POIS_NEAR) */
+    private int k;
+
+    /** Bounding box corners (SEARCH_POIS_IN_BBOX) */
+    private double minLatitude;
+    private double minLongitude;
+    private double maxLatitude;
+    private double maxLongitude;
+
+    /** Maximum number of results for a bounding box search */
+    private int limit;
+
+    public GeoSearchRequest() {
+    }
+
+    /**
+     * Creates a k-nearest search around a point.
+     */
+    public static GeoSearchRequest near(Integer cityId, double latitude, double longitude, int k) {
+        GeoSearchRequest req = new GeoSearchRequest();
+        req.cityId = cityId;
+        req.latitude = latitude;
+        req.longitude = longitude;
+        req.k = k;
+        return req;
+    }
+
+    /**
+     * Creates a bounding box search.
+     */
+    public static GeoSearchRequest inBox(Integer cityId, double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int limit) {
+        GeoSearchRequest req = new GeoSearchRequest();
+        req.cityId = cityId;
+        req.minLatitude = minLatitude;
+        req.minLongitude = minLongitude;
+        req.maxLatitude = maxLatitude;
+        req.maxLongitude = maxLongitude;
+        req.limit = limit;
+        return req;
+    }
+
+    // Getters and Setters
+    public Integer getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Integer cityId) {
+        this.cityId = cityId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public void setK(int k) {
+        this.k = k;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public void setMinLatitude(double minLatitude) {
+        this.minLatitude = minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public void setMinLongitude(double minLongitude) {
+        this.minLongitude = minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public void setMaxLatitude(double maxLatitude) {
+        this.maxLatitude = maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public void setMaxLongitude(double maxLongitude) {
+        this.maxLongitude = maxLongitude;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return "GeoSearchRequest{cityId=" + cityId + ", point=(" + latitude + "," + longitude + "), k=" + k +
+                ", box=(" + minLatitude + "," + minLongitude + " - " + maxLatitude + "," + maxLongitude + ")}";
+    }
+}
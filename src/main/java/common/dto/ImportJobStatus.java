@@ -0,0 +1,136 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO reporting the progress of a bulk import job.
+ * Returned by START_BULK_IMPORT and GET_IMPORT_STATUS.
+ */
+public class ImportJobStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private int jobId;
+    private String fileName;
+    private String format;
+    private String status;
+
+    /** Rows committed so far; a resumed job skips this many rows */
+    private long rowsProcessed;
+    private long poisImported;
+    private long rowsRejected;
+
+    /** First few rejected rows, "row N: reason" */
+    private List<String> rejections = new ArrayList<>();
+
+    private String lastError;
+    private Timestamp createdAt;
+    private Timestamp updatedAt;
+
+    public ImportJobStatus() {
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(int jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public long getPoisImported() {
+        return poisImported;
+    }
+
+    public void setPoisImported(long poisImported) {
+        this.poisImported = poisImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public void setRowsRejected(long rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<String> rejections) {
+        this.rejections = rejections;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportJobStatus{#" + jobId + " " + status + ", rows=" + rowsProcessed +
+                ", imported=" + poisImported + ", rejected=" + rowsRejected + "}";
+    }
+}
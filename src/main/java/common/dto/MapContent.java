@@ -27,6 +27,10 @@ public class MapContent implements Serializable {
     private String createdAt;
     private String updatedAt;
 
+    // Approved version this content was frozen from (null = live tables)
+    private Integer versionId;
+    private int versionNumber;
+
     public MapContent() {
         this.pois = new ArrayList<>();
         this.tours = new ArrayList<>();
@@ -124,6 +128,22 @@ public class MapContent implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    public Integer getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(Integer versionId) {
+        this.versionId = versionId;
+    }
+
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    public void setVersionNumber(int versionNumber) {
+        this.versionNumber = versionNumber;
+    }
+
     @Override
     public String toString() {
         return mapName + " [" + pois.size() + " POIs, " + tours.size() + " Tours]";
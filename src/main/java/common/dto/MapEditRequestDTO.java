@@ -18,6 +18,14 @@ public class MapEditRequestDTO implements Serializable {
     private String status;
     private Date createdAt;
 
+    // Change summary (filled for list views, where changes is not loaded)
+    private int addedPoiCount;
+    private int updatedPoiCount;
+    private int deletedPoiCount;
+    private int addedTourCount;
+    private int updatedTourCount;
+    private int deletedTourCount;
+
     public MapEditRequestDTO() {
     }
 
@@ -100,4 +108,52 @@ public class MapEditRequestDTO implements Serializable {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+
+    public int getAddedPoiCount() {
+        return addedPoiCount;
+    }
+
+    public void setAddedPoiCount(int addedPoiCount) {
+        this.addedPoiCount = addedPoiCount;
+    }
+
+    public int getUpdatedPoiCount() {
+        return updatedPoiCount;
+    }
+
+    public void setUpdatedPoiCount(int updatedPoiCount) {
+        this.updatedPoiCount = updatedPoiCount;
+    }
+
+    public int getDeletedPoiCount() {
+        return deletedPoiCount;
+    }
+
+    public void setDeletedPoiCount(int deletedPoiCount) {
+        this.deletedPoiCount = deletedPoiCount;
+    }
+
+    public int getAddedTourCount() {
+        return addedTourCount;
+    }
+
+    public void setAddedTourCount(int addedTourCount) {
+        this.addedTourCount = addedTourCount;
+    }
+
+    public int getUpdatedTourCount() {
+        return updatedTourCount;
+    }
+
+    public void setUpdatedTourCount(int updatedTourCount) {
+        this.updatedTourCount = updatedTourCount;
+    }
+
+    public int getDeletedTourCount() {
+        return deletedTourCount;
+    }
+
+    public void setDeletedTourCount(int deletedTourCount) {
+        this.deletedTourCount = deletedTourCount;
+    }
 }
@@ -0,0 +1,78 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * DTO describing one downloadable map package.
+ * Returned (as a list) by DOWNLOAD_MAP_VERSION; the client then fetches the
+ * bytes with DOWNLOAD_PACKAGE_CHUNK and verifies them against sha256.
+ */
+public class MapPackageManifest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String packageId;
+    private int cityId;
+    private int mapId;
+    private String mapName;
+
+    /** Approved version the package was built from (null = live content) */
+    private Integer versionId;
+
+    private long size;
+    private String sha256;
+
+    /** Preferred chunk size for DOWNLOAD_PACKAGE_CHUNK requests */
+    private int chunkSize;
+
+    public MapPackageManifest() {
+    }
+
+    public MapPackageManifest(String packageId, int cityId, int mapId, String mapName, Integer versionId,
+            long size, String sha256, int chunkSize) {
+        this.packageId = packageId;
+        this.cityId = cityId;
+        this.mapId = mapId;
+        this.mapName = mapName;
+        this.versionId = versionId;
+        this.size = size;
+        this.sha256 = sha256;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getPackageId() {
+        return packageId;
+    }
+
+    public int getCityId() {
+        return cityId;
+    }
+
+    public int getMapId() {
+        return mapId;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public Integer getVersionId() {
+        return versionId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return "MapPackageManifest{" + packageId + ", " + size + " bytes}";
+    }
+}
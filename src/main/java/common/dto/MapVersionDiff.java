@@ -0,0 +1,190 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural difference between two versions of a map.
+ * Returned by DIFF_MAP_VERSIONS.
+ *
+ * POIs and tours are matched by ID. Entities that did not change are only
+ * counted, not listed.
+ */
+public class MapVersionDiff implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String ADDED = "ADDED";
+    public static final String REMOVED = "REMOVED";
+    public static final String MODIFIED = "MODIFIED";
+
+    /**
+     * One changed field, with its values rendered as text (null if absent).
+     */
+    public static class FieldChange implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String field;
+        private final String oldValue;
+        private final String newValue;
+
+        public FieldChange(String field, String oldValue, String newValue) {
+            this.field = field;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        public String getNewValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            return field + ": " + oldValue + " -> " + newValue;
+        }
+    }
+
+    /**
+     * An added, removed or modified POI or tour. Added and removed entities
+     * list all their fields; modified ones only the fields that changed.
+     */
+    public static class EntityChange implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String kind;
+        private final int entityId;
+        private final String name;
+        private final List<FieldChange> fields = new ArrayList<>();
+
+        public EntityChange(String kind, int entityId, String name) {
+            this.kind = kind;
+            this.entityId = entityId;
+            this.name = name;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public int getEntityId() {
+            return entityId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<FieldChange> getFields() {
+            return fields;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + entityId + " '" + name + "' " + fields;
+        }
+    }
+
+    private int mapId;
+    private int fromVersionId;
+    private int fromVersionNumber;
+    private int toVersionId;
+    private int toVersionNumber;
+
+    private List<FieldChange> mapChanges = new ArrayList<>();
+    private List<EntityChange> poiChanges = new ArrayList<>();
+    private List<EntityChange> tourChanges = new ArrayList<>();
+    private int unchangedPois;
+    private int unchangedTours;
+
+    public MapVersionDiff() {
+    }
+
+    public boolean hasChanges() {
+        return !mapChanges.isEmpty() || !poiChanges.isEmpty() || !tourChanges.isEmpty();
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public int getMapId() {
+        return mapId;
+    }
+
+    public void setMapId(int mapId) {
+        this.mapId = mapId;
+    }
+
+    public int getFromVersionId() {
+        return fromVersionId;
+    }
+
+    public void setFromVersionId(int fromVersionId) {
+        this.fromVersionId = fromVersionId;
+    }
+
+    public int getFromVersionNumber() {
+        return fromVersionNumber;
+    }
+
+    public void setFromVersionNumber(int fromVersionNumber) {
+        this.fromVersionNumber = fromVersionNumber;
+    }
+
+    public int getToVersionId() {
+        return toVersionId;
+    }
+
+    public void setToVersionId(int toVersionId) {
+        this.toVersionId = toVersionId;
+    }
+
+    public int getToVersionNumber() {
+        return toVersionNumber;
+    }
+
+    public void setToVersionNumber(int toVersionNumber) {
+        this.toVersionNumber = toVersionNumber;
+    }
+
+    public List<FieldChange> getMapChanges() {
+        return mapChanges;
+    }
+
+    public List<EntityChange> getPoiChanges() {
+        return poiChanges;
+    }
+
+    public List<EntityChange> getTourChanges() {
+        return tourChanges;
+    }
+
+    public int getUnchangedPois() {
+        return unchangedPois;
+    }
+
+    public void setUnchangedPois(int unchangedPois) {
+        this.unchangedPois = unchangedPois;
+    }
+
+    public int getUnchangedTours() {
+        return unchangedTours;
+    }
+
+    public void setUnchangedTours(int unchangedTours) {
+        this.unchangedTours = unchangedTours;
+    }
+
+    @Override
+    public String toString() {
+        return "MapVersionDiff{map=" + mapId + ", v" + fromVersionNumber + " -> v" + toVersionNumber +
+                ", pois=" + poiChanges.size() + " changed/" + unchangedPois + " unchanged" +
+                ", tours=" + tourChanges.size() + " changed/" + unchangedTours + " unchanged}";
+    }
+}
@@ -0,0 +1,43 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * Request DTO for comparing two approved versions of a map.
+ * Used as payload in DIFF_MAP_VERSIONS requests.
+ */
+public class MapVersionDiffRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int fromVersionId;
+    private int toVersionId;
+
+    public MapVersionDiffRequest() {
+    }
+
+    public MapVersionDiffRequest(int fromVersionId, int toVersionId) {
+        this.fromVersionId = fromVersionId;
+        this.toVersionId = toVersionId;
+    }
+
+    public int getFromVersionId() {
+        return fromVersionId;
+    }
+
+    public void setFromVersionId(int fromVersionId) {
+        this.fromVersionId = fromVersionId;
+    }
+
+    public int getToVersionId() {
+        return toVersionId;
+    }
+
+    public void setToVersionId(int toVersionId) {
+        this.toVersionId = toVersionId;
+    }
+
+    @Override
+    public String toString() {
+        return "MapVersionDiffRequest{" + fromVersionId + " -> " + toVersionId + "}";
+    }
+}
@@ -0,0 +1,82 @@
+package common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Net change set of several pending map edit requests for one map.
+ * Returned by PREVIEW_MERGED_MAP_EDITS and sent back as the payload of
+ * APPROVE_MERGED_MAP_EDITS (the server only uses mapId and requestIds from
+ * it and merges the stored requests again).
+ */
+public class MergedMapEdit implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int mapId;
+    private List<Integer> requestIds = new ArrayList<>();
+    private MapChanges changes;
+    private int operationsBefore;
+    private int operationsAfter;
+
+    // Overlapping edits and how they were resolved
+    private List<String> conflicts = new ArrayList<>();
+
+    public MergedMapEdit() {
+    }
+
+    public int getMapId() {
+        return mapId;
+    }
+
+    public void setMapId(int mapId) {
+        this.mapId = mapId;
+    }
+
+    public List<Integer> getRequestIds() {
+        return requestIds;
+    }
+
+    public void setRequestIds(List<Integer> requestIds) {
+        this.requestIds = requestIds;
+    }
+
+    public MapChanges getChanges() {
+        return changes;
+    }
+
+    public void setChanges(MapChanges changes) {
+        this.changes = changes;
+    }
+
+    public int getOperationsBefore() {
+        return operationsBefore;
+    }
+
+    public void setOperationsBefore(int operationsBefore) {
+        this.operationsBefore = operationsBefore;
+    }
+
+    public int getOperationsAfter() {
+        return operationsAfter;
+    }
+
+    public void setOperationsAfter(int operationsAfter) {
+        this.operationsAfter = operationsAfter;
+    }
+
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<String> conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    @Override
+    public String toString() {
+        return "MergedMapEdit{map=" + mapId + ", requests=" + requestIds +
+                ", operations=" + operationsBefore + " -> " + operationsAfter +
+                ", conflicts=" + conflicts.size() + "}";
+    }
+}
@@ -0,0 +1,49 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * DTO carrying one byte range of a map package.
+ * Returned by DOWNLOAD_PACKAGE_CHUNK.
+ */
+public class PackageChunk implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String packageId;
+    private long offset;
+    private byte[] data;
+    private long totalSize;
+
+    public PackageChunk() {
+    }
+
+    public PackageChunk(String packageId, long offset, byte[] data, long totalSize) {
+        this.packageId = packageId;
+        this.offset = offset;
+        this.data = data;
+        this.totalSize = totalSize;
+    }
+
+    public String getPackageId() {
+        return packageId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * True if this chunk reaches the end of the package.
+     */
+    public boolean isLast() {
+        return offset + data.length >= totalSize;
+    }
+}
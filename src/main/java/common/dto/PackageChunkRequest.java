@@ -0,0 +1,41 @@
+package common.dto;
+
+import java.io.Serializable;
+
+/**
+ * DTO for requesting a byte range of a map package.
+ * Used as payload in DOWNLOAD_PACKAGE_CHUNK requests.
+ */
+public class PackageChunkRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String packageId;
+    private long offset;
+    private int length;
+
+    public PackageChunkRequest() {
+    }
+
+    public PackageChunkRequest(String packageId, long offset, int length) {
+        this.packageId = packageId;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getPackageId() {
+        return packageId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "PackageChunkRequest{" + packageId + " @" + offset + "+" + length + "}";
+    }
+}
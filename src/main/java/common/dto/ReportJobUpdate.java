@@ -0,0 +1,86 @@
+package common.dto;
+
+import common.DailyStat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO reporting the state of an asynchronous report job.
+ * Returned by START_REPORT_JOB and CANCEL_REPORT_JOB, and pushed as
+ * REPORT_JOB_UPDATE frames (tagged with the START_REPORT_JOB request ID)
+ * while the job runs. Each frame carries only the rows of the chunk just
+ * computed; the report is the sum of all chunks' rows.
+ */
+public class ReportJobUpdate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private int jobId;
+    private String status;
+    private int completedChunks;
+    private int totalChunks;
+    private boolean perCity;
+
+    /** Rows of the chunk this frame reports (empty for status-only frames) */
+    private List<DailyStat> rows = new ArrayList<>();
+
+    private String error;
+
+    public ReportJobUpdate() {
+    }
+
+    public ReportJobUpdate(int jobId, String status, int completedChunks, int totalChunks, boolean perCity) {
+        this.jobId = jobId;
+        this.status = status;
+        this.completedChunks = completedChunks;
+        this.totalChunks = totalChunks;
+        this.perCity = perCity;
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status) || STATUS_CANCELLED.equals(status);
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public boolean isPerCity() {
+        return perCity;
+    }
+
+    public List<DailyStat> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<DailyStat> rows) {
+        this.rows = rows;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -9,6 +9,7 @@ public class ReportRequest implements Serializable {
     private LocalDate fromDate;
     private LocalDate toDate;
     private Integer cityId; // Null means all cities
+    private boolean perCity; // One row per city instead of totals
 
     public ReportRequest() {
     }
@@ -19,6 +20,11 @@ public class ReportRequest implements Serializable {
         this.cityId = cityId;
     }
 
+    public ReportRequest(LocalDate fromDate, LocalDate toDate, boolean perCity) {
+        this(fromDate, toDate, null);
+        this.perCity = perCity;
+    }
+
     public LocalDate getFromDate() {
         return fromDate;
     }
@@ -42,4 +48,12 @@ public class ReportRequest implements Serializable {
     public void setCityId(Integer cityId) {
         this.cityId = cityId;
     }
+
+    public boolean isPerCity() {
+        return perCity;
+    }
+
+    public void setPerCity(boolean perCity) {
+        this.perCity = perCity;
+    }
 }
@@ -4,6 +4,7 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
@@ -70,6 +71,7 @@ public class DBConnector {
             config.addDataSourceProperty("prepStmtCacheSize", "250");
             config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
             config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
 
             dataSource = new HikariDataSource(config);
             poolInitialized = true;
@@ -117,6 +119,23 @@ public class DBConnector {
         }
     }
 
+    /**
+     * Open a connection outside the pool for long streaming reads (exports),
+     * so they never hold one of the pool's connections for minutes.
+     * Server-side cursors are enabled, so setFetchSize bounds the rows held
+     * in memory. Caller must close it.
+     *
+     * @return Dedicated connection, or null on failure
+     */
+    public static Connection openStreamingConnection() {
+        try {
+            return DriverManager.getConnection(URL + "&useCursorFetch=true", USER, PASS);
+        } catch (SQLException e) {
+            System.err.println("Failed to open streaming connection: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Get pool statistics for monitoring.
      * 
@@ -15,6 +15,8 @@ import server.handler.CustomerHandler;
 import server.handler.NotificationHandler;
 import server.handler.PricingHandler;
 import server.handler.SupportHandler;
+import server.scheduler.ContentStatsReconciler;
+import server.scheduler.OutboxDispatcher;
 import server.scheduler.SubscriptionScheduler;
 
 import java.io.IOException;
@@ -75,9 +77,9 @@ public class GCMServer extends AbstractServer {
                 System.out.println("Processing Request: " + request.getType());
 
                 try {
-                    Response response = dispatchRequest(request, clientId);
+                    Response response = dispatchRequest(request, clientId, client);
                     System.out.println("Sending Response: " + (response.isOk() ? "OK" : "ERROR"));
-                    client.sendToClient(response);
+                    send(client, response);
                 } catch (Exception e) {
                     System.out.println("!!! EXCEPTION in request handling: " + e.getMessage());
                     e.printStackTrace();
@@ -99,6 +101,16 @@ public class GCMServer extends AbstractServer {
         }
     }
 
+    /**
+     * Send to a client. Request threads and report jobs may write to the
+     * same connection at once, so writes are serialized per connection.
+     */
+    private static void send(ConnectionToClient client, Object msg) throws IOException {
+        synchronized (client) {
+            client.sendToClient(msg);
+        }
+    }
+
     /**
      * Get unique client identifier for session tracking.
      */
@@ -109,8 +121,9 @@ public class GCMServer extends AbstractServer {
     /**
      * Dispatch a Request to the appropriate handler.
      * Phase 13: Pass clientId for session-connection linking.
+     * The connection is used by handlers that push frames after responding.
      */
-    private Response dispatchRequest(Request request, String clientId) {
+    private Response dispatchRequest(Request request, String clientId, ConnectionToClient client) {
         MessageType type = request.getType();
 
         // Search handlers (no authentication required)
@@ -172,9 +185,20 @@ public class GCMServer extends AbstractServer {
             return SupportHandler.handle(request);
         }
 
+        // Bulk import handlers
+        if (server.handler.BulkImportHandler.canHandle(type)) {
+            return server.handler.BulkImportHandler.handle(request);
+        }
+
+        // City export handlers
+        if (server.handler.CityExportHandler.canHandle(type)) {
+            return server.handler.CityExportHandler.handle(request);
+        }
+
         // Report handlers (Phase 10)
         if (server.handler.ReportHandler.canHandle(type)) {
-            return server.handler.ReportHandler.handle(request);
+            return server.handler.ReportHandler.handle(request, clientId,
+                    update -> send(client, Response.push(request, MessageType.REPORT_JOB_UPDATE, update)));
         }
 
         // Legacy handlers (for backward compatibility)
@@ -277,6 +301,27 @@ public class GCMServer extends AbstractServer {
 
         // Start subscription expiry scheduler (Phase 7)
         SubscriptionScheduler.getInstance().start();
+
+        // Seed and periodically repair denormalized content counters
+        ContentStatsReconciler.getInstance().start();
+
+        // Apply post-commit side effects (notifications, audit, stats)
+        OutboxDispatcher.getInstance().start();
+
+        // Write-behind daily stats counters (replays the journal after a crash)
+        server.service.DailyStatsCounters.getInstance().start();
+
+        // Reports are answered from memory once daily_stats is loaded
+        server.service.StatsColumnStore.getInstance().loadAsync();
+
+        // Batch view and download events in the background
+        server.service.UsageEventPipeline.getInstance().start();
+
+        // Monthly event tables: pre-create, roll up, expire
+        server.scheduler.UsageEventRetentionJob.getInstance().start();
+
+        // Imports interrupted by a restart become resumable
+        server.service.BulkImportService.getInstance().recoverInterruptedJobs();
     }
 
     @Override
@@ -293,6 +338,21 @@ public class GCMServer extends AbstractServer {
             requestExecutor.shutdownNow();
         }
 
+        ContentStatsReconciler.getInstance().stop();
+        server.scheduler.UsageEventRetentionJob.getInstance().stop();
+        OutboxDispatcher.getInstance().stop();
+        server.service.UsageEventPipeline.getInstance().stop();
+        server.service.DailyStatsCounters.getInstance().stop();
+        server.service.BulkImportService.getInstance().shutdown();
+        server.service.CityExportService.getInstance().shutdown();
+        server.service.ReportJobService.getInstance().shutdown();
+        server.service.CityBreakdownReportGenerator.shutdown();
+        System.out.println(server.service.SearchResultCache.getInstance().getStats());
+        System.out.println(server.service.EntitlementCache.getInstance().getStats());
+        System.out.println(server.service.ReportCache.getInstance().getStats());
+        System.out.println(server.service.StatsColumnStore.getInstance().getStats());
+        System.out.println(server.service.ReportJobService.getInstance().getStats());
+
         // Close connection pool (Phase 12)
         DBConnector.closePool();
 
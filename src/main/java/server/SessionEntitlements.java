@@ -0,0 +1,128 @@
+package server;
+
+import common.dto.EntitlementInfo;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * What a logged-in customer owns, held on their session so entitlement
+ * checks need no query.
+ *
+ * One-time purchases are a bitmap indexed by city ID; subscriptions are a
+ * small sorted array of city IDs with a parallel array of end times (epoch
+ * ms), searched with binary search. The state is an immutable snapshot
+ * replaced on every change (purchases are rare, checks are frequent), so
+ * readers never lock.
+ *
+ * Loaded with one query at LOGIN and updated in place on purchase.
+ */
+public class SessionEntitlements {
+
+    private static final class State {
+        final BitSet oneTime;
+        final int[] subCities; // sorted
+        final long[] subEnds;
+
+        State(BitSet oneTime, int[] subCities, long[] subEnds) {
+            this.oneTime = oneTime;
+            this.subCities = subCities;
+            this.subEnds = subEnds;
+        }
+    }
+
+    private volatile State state = new State(new BitSet(), new int[0], new long[0]);
+
+    public SessionEntitlements() {
+    }
+
+    /**
+     * End of the user's subscription to a city (epoch ms), or 0 if none.
+     */
+    public long subscriptionEnd(int cityId) {
+        State s = state;
+        int i = Arrays.binarySearch(s.subCities, cityId);
+        return i >= 0 ? s.subEnds[i] : 0;
+    }
+
+    public boolean canView(int cityId, long now) {
+        return subscriptionEnd(cityId) > now;
+    }
+
+    public boolean canDownload(int cityId, long now) {
+        return canView(cityId, now) || (cityId >= 0 && state.oneTime.get(cityId));
+    }
+
+    /**
+     * Entitlement for a city, with the same precedence as
+     * PurchaseDAO.getEntitlement: an active subscription, then a one-time
+     * purchase.
+     */
+    public EntitlementInfo get(int cityId, long now) {
+        long end = subscriptionEnd(cityId);
+        if (end > now) {
+            EntitlementInfo info = new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.SUBSCRIPTION,
+                    Instant.ofEpochMilli(end).atZone(ZoneId.systemDefault()).toLocalDate(), true, true);
+            info.setExpiresAtMillis(end);
+            return info;
+        }
+        if (cityId >= 0 && state.oneTime.get(cityId)) {
+            return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.ONE_TIME, null, false, true);
+        }
+        return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.NONE, null, false, false);
+    }
+
+    public synchronized void addOneTime(int cityId) {
+        State s = state;
+        BitSet oneTime = (BitSet) s.oneTime.clone();
+        oneTime.set(cityId);
+        state = new State(oneTime, s.subCities, s.subEnds);
+    }
+
+    /**
+     * Record a subscription; a later end replaces an earlier one.
+     */
+    public synchronized void addSubscription(int cityId, long endMillis) {
+        State s = state;
+        int i = Arrays.binarySearch(s.subCities, cityId);
+        if (i >= 0) {
+            if (s.subEnds[i] >= endMillis) {
+                return;
+            }
+            long[] ends = s.subEnds.clone();
+            ends[i] = endMillis;
+            state = new State(s.oneTime, s.subCities, ends);
+            return;
+        }
+
+        int at = -i - 1;
+        int[] cities = new int[s.subCities.length + 1];
+        long[] ends = new long[cities.length];
+        System.arraycopy(s.subCities, 0, cities, 0, at);
+        System.arraycopy(s.subEnds, 0, ends, 0, at);
+        cities[at] = cityId;
+        ends[at] = endMillis;
+        System.arraycopy(s.subCities, at, cities, at + 1, s.subCities.length - at);
+        System.arraycopy(s.subEnds, at, ends, at + 1, s.subEnds.length - at);
+        state = new State(s.oneTime, cities, ends);
+    }
+
+    /**
+     * Record an entitlement read from the database.
+     */
+    public void add(EntitlementInfo info) {
+        if (info.getType() == EntitlementInfo.EntitlementType.SUBSCRIPTION) {
+            addSubscription(info.getCityId(), info.getExpiresAtMillis());
+        } else if (info.getType() == EntitlementInfo.EntitlementType.ONE_TIME) {
+            addOneTime(info.getCityId());
+        }
+    }
+
+    @Override
+    public String toString() {
+        State s = state;
+        return "SessionEntitlements{oneTime=" + s.oneTime + ", subscriptions=" + Arrays.toString(s.subCities) + "}";
+    }
+}
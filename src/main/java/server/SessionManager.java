@@ -47,6 +47,7 @@ public class SessionManager {
         public final String role;
         public final long createdAt;
         public String connectionId; // Mutable - set when login completes
+        public final SessionEntitlements entitlements = new SessionEntitlements(); // Filled at LOGIN
 
         public SessionInfo(int userId, String username, String role) {
             this.userId = userId;
@@ -171,4 +171,37 @@ public class CityDAO {
 
         return false;
     }
+
+    /**
+     * Find a city by name (case-insensitive) on the caller's connection.
+     *
+     * @return city ID, or -1 if there is none
+     */
+    public static int getCityIdByName(Connection conn, String name) throws SQLException {
+        String query = "SELECT id FROM cities WHERE LOWER(name) = LOWER(?) ORDER BY id LIMIT 1";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Get a city's name on the caller's connection (sees a city created in
+     * the caller's transaction).
+     *
+     * @return name, or null if there is no such city
+     */
+    public static String getCityName(Connection conn, int cityId) throws SQLException {
+        String query = "SELECT name FROM cities WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, cityId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
 }
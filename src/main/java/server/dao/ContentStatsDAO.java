@@ -0,0 +1,253 @@
+package server.dao;
+
+import server.DBConnector;
+
+import java.sql.*;
+import java.util.Collection;
+
+/**
+ * Data Access Object for denormalized content counters.
+ *
+ * map_stats.poi_count and city_stats.map_count / tour_count replace the
+ * COUNT(*) subqueries on search and catalog reads. Writers adjust them on
+ * their own connection, inside the same transaction as the change, and
+ * ContentStatsReconciler periodically repairs any drift.
+ */
+public class ContentStatsDAO {
+
+    static {
+        createTables();
+    }
+
+    private static void createTables() {
+        String mapStats = "CREATE TABLE IF NOT EXISTS map_stats (" +
+                "map_id INT PRIMARY KEY, " +
+                "poi_count INT NOT NULL DEFAULT 0, " +
+                "FOREIGN KEY (map_id) REFERENCES maps(id) ON DELETE CASCADE" +
+                ")";
+        String cityStats = "CREATE TABLE IF NOT EXISTS city_stats (" +
+                "city_id INT PRIMARY KEY, " +
+                "map_count INT NOT NULL DEFAULT 0, " +
+                "tour_count INT NOT NULL DEFAULT 0, " +
+                "FOREIGN KEY (city_id) REFERENCES cities(id) ON DELETE CASCADE" +
+                ")";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(mapStats);
+                stmt.execute(cityStats);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating content stats tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the counter tables exist (forces class initialization).
+     */
+    public static void init() {
+        // Tables are created by the static initializer
+    }
+
+    // ==================== Transactional Adjustments ====================
+
+    /**
+     * Add delta to a map's POI count (creates the row if missing).
+     */
+    public static void adjustMapPoiCount(Connection conn, int mapId, int delta) throws SQLException {
+        String query = "INSERT INTO map_stats (map_id, poi_count) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE poi_count = poi_count + ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, mapId);
+            stmt.setInt(2, Math.max(delta, 0));
+            stmt.setInt(3, delta);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Decrement the POI count of every map a POI is linked to.
+     * Call before the POI's map_pois rows are removed.
+     */
+    public static void decrementMapsOfPoi(Connection conn, int poiId) throws SQLException {
+        String query = "UPDATE map_stats ms JOIN map_pois mp ON mp.map_id = ms.map_id " +
+                "SET ms.poi_count = ms.poi_count - 1 WHERE mp.poi_id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, poiId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Add delta to a city's map count (creates the row if missing).
+     */
+    public static void adjustCityMapCount(Connection conn, int cityId, int delta) throws SQLException {
+        String query = "INSERT INTO city_stats (city_id, map_count, tour_count) VALUES (?, ?, 0) " +
+                "ON DUPLICATE KEY UPDATE map_count = map_count + ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, cityId);
+            stmt.setInt(2, Math.max(delta, 0));
+            stmt.setInt(3, delta);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Add delta to a city's tour count (creates the row if missing).
+     */
+    public static void adjustCityTourCount(Connection conn, int cityId, int delta) throws SQLException {
+        String query = "INSERT INTO city_stats (city_id, map_count, tour_count) VALUES (?, 0, ?) " +
+                "ON DUPLICATE KEY UPDATE tour_count = tour_count + ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, cityId);
+            stmt.setInt(2, Math.max(delta, 0));
+            stmt.setInt(3, delta);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Decrement the map count of the city owning a map.
+     * Call before the map row is deleted.
+     */
+    public static void decrementCityOfMap(Connection conn, int mapId) throws SQLException {
+        String query = "UPDATE city_stats cs JOIN maps m ON m.city_id = cs.city_id " +
+                "SET cs.map_count = cs.map_count - 1 WHERE m.id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, mapId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Decrement the tour count of the city owning a tour.
+     * Call before the tour row is deleted.
+     */
+    public static void decrementCityOfTour(Connection conn, int tourId) throws SQLException {
+        String query = "UPDATE city_stats cs JOIN tours t ON t.city_id = cs.city_id " +
+                "SET cs.tour_count = cs.tour_count - 1 WHERE t.id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, tourId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Decrement map POI counts for a group of POIs about to be deleted.
+     * Call before their map_pois rows are removed.
+     */
+    public static void decrementMapsOfPois(Connection conn, Collection<Integer> poiIds) throws SQLException {
+        if (poiIds.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE map_stats ms JOIN (" +
+                "  SELECT map_id, COUNT(*) AS n FROM map_pois " +
+                "  WHERE poi_id IN (" + SqlLists.placeholders(poiIds.size()) + ") " +
+                "  GROUP BY map_id" +
+                ") x ON x.map_id = ms.map_id " +
+                "SET ms.poi_count = ms.poi_count - x.n";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            SqlLists.setInts(stmt, poiIds);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute the POI count of specific maps from map_pois.
+     * Used after batched link/unlink, where per-row update counts are not
+     * reliable.
+     */
+    public static void recountMaps(Connection conn, Collection<Integer> mapIds) throws SQLException {
+        if (mapIds.isEmpty()) {
+            return;
+        }
+        String in = SqlLists.placeholders(mapIds.size());
+        String seed = "INSERT IGNORE INTO map_stats (map_id, poi_count) SELECT id, 0 FROM maps WHERE id IN (" + in + ")";
+        String recount = "UPDATE map_stats ms SET ms.poi_count = " +
+                "(SELECT COUNT(*) FROM map_pois mp WHERE mp.map_id = ms.map_id) " +
+                "WHERE ms.map_id IN (" + in + ")";
+
+        try (PreparedStatement stmt = conn.prepareStatement(seed)) {
+            SqlLists.setInts(stmt, mapIds);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(recount)) {
+            SqlLists.setInts(stmt, mapIds);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Decrement city tour counts for a group of tours about to be deleted.
+     * Call before the tour rows are deleted.
+     */
+    public static void decrementCitiesOfTours(Connection conn, Collection<Integer> tourIds) throws SQLException {
+        if (tourIds.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE city_stats cs JOIN (" +
+                "  SELECT city_id, COUNT(*) AS n FROM tours " +
+                "  WHERE id IN (" + SqlLists.placeholders(tourIds.size()) + ") " +
+                "  GROUP BY city_id" +
+                ") x ON x.city_id = cs.city_id " +
+                "SET cs.tour_count = cs.tour_count - x.n";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            SqlLists.setInts(stmt, tourIds);
+            stmt.executeUpdate();
+        }
+    }
+
+    // ==================== Reconciliation ====================
+
+    /**
+     * Recompute every counter from the base tables and fix rows that drifted.
+     *
+     * @return number of counter rows repaired, or -1 on failure
+     */
+    public static int reconcile() {
+        String seedMaps = "INSERT IGNORE INTO map_stats (map_id, poi_count) SELECT id, 0 FROM maps";
+        String seedCities = "INSERT IGNORE INTO city_stats (city_id, map_count, tour_count) SELECT id, 0, 0 FROM cities";
+
+        String repairMaps = "UPDATE map_stats ms JOIN (" +
+                "  SELECT m.id, COUNT(mp.poi_id) AS actual FROM maps m " +
+                "  LEFT JOIN map_pois mp ON mp.map_id = m.id GROUP BY m.id" +
+                ") a ON a.id = ms.map_id " +
+                "SET ms.poi_count = a.actual WHERE ms.poi_count <> a.actual";
+
+        String repairCities = "UPDATE city_stats cs JOIN (" +
+                "  SELECT c.id, " +
+                "    (SELECT COUNT(*) FROM maps WHERE city_id = c.id) AS maps_actual, " +
+                "    (SELECT COUNT(*) FROM tours WHERE city_id = c.id) AS tours_actual " +
+                "  FROM cities c" +
+                ") a ON a.id = cs.city_id " +
+                "SET cs.map_count = a.maps_actual, cs.tour_count = a.tours_actual " +
+                "WHERE cs.map_count <> a.maps_actual OR cs.tour_count <> a.tours_actual";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return -1;
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(seedMaps);
+                stmt.executeUpdate(seedCities);
+                int repaired = stmt.executeUpdate(repairMaps);
+                repaired += stmt.executeUpdate(repairCities);
+                return repaired;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("ContentStatsDAO: Reconciliation failed - " + e.getMessage());
+            return -1;
+        }
+    }
+}
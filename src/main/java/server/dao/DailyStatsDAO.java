@@ -2,15 +2,25 @@ package server.dao;
 
 import common.DailyStat;
 import server.DBConnector;
+import server.service.DailyStatsCounters;
+import server.service.ReportCache;
+import server.service.StatsColumnStore;
+import server.service.ReportRangePlanner.Granularity;
+import server.service.ReportRangePlanner.Segment;
 
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 public class DailyStatsDAO {
 
@@ -35,32 +45,319 @@ public class DailyStatsDAO {
     }
 
     /**
-     * Increment a specific metric for the current date and given city.
-     * Uses ON DUPLICATE KEY UPDATE to handle non-existent rows atomically.
+     * Summed increments of every metric for one date and city, written by
+     * DailyStatsCounters.
      */
-    public static void increment(int cityId, Metric metric) {
-        String col = metric.getColumnName();
-        // date, city_id are key
-        // if row exists, increment col. if not, insert row with col=1 (others default
-        // 0)
-        String query = "INSERT INTO daily_stats (stat_date, city_id, " + col + ") VALUES (?, ?, 1) " +
-                "ON DUPLICATE KEY UPDATE " + col + " = " + col + " + 1";
-
-        try {
-            Connection conn = DBConnector.getConnection();
+    public static class Delta {
+        public final LocalDate date;
+        public final int cityId;
+        public final long[] counts = new long[Metric.values().length]; // Indexed by Metric.ordinal()
+
+        public Delta(LocalDate date, int cityId) {
+            this.date = date;
+            this.cityId = cityId;
+        }
+    }
+
+    // Rollups of daily_stats, kept in step with it by every write
+    private static final String WEEKLY_TABLE = "daily_stats_weekly";
+    private static final String MONTHLY_TABLE = "daily_stats_monthly";
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    static {
+        createFlushStateTable();
+        createRollupTable(WEEKLY_TABLE, Granularity.WEEK);
+        createRollupTable(MONTHLY_TABLE, Granularity.MONTH);
+    }
+
+    private static void createFlushStateTable() {
+        String table = "CREATE TABLE IF NOT EXISTS stats_flush_state (" +
+                "id TINYINT PRIMARY KEY, " +
+                "last_seq BIGINT NOT NULL" +
+                ")";
+        String row = "INSERT IGNORE INTO stats_flush_state (id, last_seq) VALUES (1, 0)";
+
+        try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(table);
+                stmt.execute(row);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating stats flush state table: " + e.getMessage());
+        }
+    }
 
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setDate(1, Date.valueOf(LocalDate.now())); // Current date
-            stmt.setInt(2, cityId);
+    /**
+     * Create a rollup table keyed by period start and city. When the table
+     * is new it is filled from daily_stats; if that fails it is dropped so
+     * the next start builds it again.
+     */
+    private static void createRollupTable(String table, Granularity granularity) {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE " + table + " (period_start DATE NOT NULL, " +
+                "city_id INT NOT NULL");
+        for (Metric metric : Metric.values()) {
+            ddl.append(", ").append(metric.getColumnName()).append(" BIGINT NOT NULL DEFAULT 0");
+        }
+        ddl.append(", PRIMARY KEY (period_start, city_id))");
+
+        String period = granularity == Granularity.WEEK
+                ? "DATE_SUB(stat_date, INTERVAL WEEKDAY(stat_date) DAY)"
+                : "DATE_SUB(stat_date, INTERVAL DAYOFMONTH(stat_date) - 1 DAY)";
+        StringBuilder sums = new StringBuilder();
+        StringBuilder cols = new StringBuilder();
+        for (Metric metric : Metric.values()) {
+            cols.append(", ").append(metric.getColumnName());
+            sums.append(", SUM(").append(metric.getColumnName()).append(")");
+        }
+        String backfill = "INSERT INTO " + table + " (period_start, city_id" + cols + ") " +
+                "SELECT " + period + ", city_id" + sums + " FROM daily_stats GROUP BY 1, city_id";
 
-            stmt.executeUpdate();
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (PreparedStatement stmt = conn.prepareStatement("SHOW TABLES LIKE ?")) {
+                stmt.setString(1, table);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return;
+                    }
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(ddl.toString());
+                try {
+                    int rows = stmt.executeUpdate(backfill);
+                    System.out.println("DailyStatsDAO: Built " + table + " (" + rows + " rows)");
+                } catch (SQLException e) {
+                    stmt.execute("DROP TABLE IF EXISTS " + table);
+                    throw e;
+                }
+            }
         } catch (SQLException e) {
-            System.out.println("Error incrementing stat " + metric + ": " + e.getMessage());
-            // Since table might not exist in early dev, fail silently or log
-            e.printStackTrace();
+            System.err.println("Error creating " + table + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the flush state and rollup tables exist (forces class
+     * initialization).
+     */
+    public static void init() {
+        // Table is created by the static initializer
+    }
+
+    /**
+     * Increment a specific metric for the current date and given city.
+     * Counted in memory and written in batches by DailyStatsCounters.
+     */
+    public static void increment(int cityId, Metric metric) {
+        DailyStatsCounters.getInstance().increment(cityId, metric);
+    }
+
+    /**
+     * Sequence number of the last batch applied by applyDeltas.
+     */
+    public static long getLastFlushSeq() throws SQLException {
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT last_seq FROM stats_flush_state WHERE id = 1");
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong("last_seq") : 0;
+        }
+    }
+
+    /**
+     * Add a batch of deltas in one transaction, as one batched upsert of
+     * all metric columns per (date, city). The batch's sequence number is
+     * recorded in the same transaction, so a batch replayed after a crash is
+     * applied only once. Committed deltas are added to StatsColumnStore and
+     * invalidate ReportCache.
+     *
+     * @return false if a batch with this sequence number was already applied
+     */
+    public static boolean applyDeltas(long flushSeq, Collection<Delta> deltas) throws SQLException {
+        Lock commitLock = StatsColumnStore.getInstance().commitLock();
+        commitLock.lock();
+        try (Connection conn = DBConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT last_seq FROM stats_flush_state WHERE id = 1 FOR UPDATE");
+                        ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && rs.getLong("last_seq") >= flushSeq) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+
+                for (Granularity granularity : Granularity.values()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(upsertSql(granularity))) {
+                        for (Delta delta : deltas) {
+                            stmt.setDate(1, Date.valueOf(granularity.periodStart(delta.date)));
+                            stmt.setInt(2, delta.cityId);
+                            for (int i = 0; i < delta.counts.length; i++) {
+                                stmt.setLong(3 + i, delta.counts[i]);
+                            }
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE stats_flush_state SET last_seq = ? WHERE id = 1")) {
+                    stmt.setLong(1, flushSeq);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                StatsColumnStore.getInstance().add(deltas);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            commitLock.unlock();
+        }
+
+        Set<LocalDate> dates = new HashSet<>();
+        for (Delta delta : deltas) {
+            if (dates.add(delta.date)) {
+                ReportCache.getInstance().invalidate(delta.date);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Upsert adding every metric column to daily_stats or one of its
+     * rollups. Parameters: period start, city, then one count per Metric.
+     */
+    private static String upsertSql(Granularity granularity) {
+        StringBuilder cols = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        StringBuilder updates = new StringBuilder();
+        for (Metric metric : Metric.values()) {
+            String col = metric.getColumnName();
+            cols.append(", ").append(col);
+            params.append(", ?");
+            updates.append(updates.length() == 0 ? "" : ", ").append(col).append(" = ").append(col)
+                    .append(" + VALUES(").append(col).append(")");
         }
+        return "INSERT INTO " + tableFor(granularity) + " (" + keyColumn(granularity) + ", city_id" + cols +
+                ") VALUES (?, ?" + params + ") ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    private static String tableFor(Granularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return WEEKLY_TABLE;
+            case MONTH:
+                return MONTHLY_TABLE;
+            default:
+                return "daily_stats";
+        }
+    }
+
+    private static String keyColumn(Granularity granularity) {
+        return granularity == Granularity.DAY ? "stat_date" : "period_start";
+    }
+
+    /**
+     * Add delta to a metric for a given date and city on the caller's
+     * connection, together with its week and month rollups. Used by
+     * OutboxDispatcher, which sums a batch of increments per (date, city,
+     * metric) first and updates StatsColumnStore and ReportCache once it
+     * commits.
+     */
+    public static void increment(Connection conn, LocalDate date, int cityId, Metric metric, int delta)
+            throws SQLException {
+        String col = metric.getColumnName();
+        for (Granularity granularity : Granularity.values()) {
+            String query = "INSERT INTO " + tableFor(granularity) + " (" + keyColumn(granularity) + ", city_id, " +
+                    col + ") VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE " + col + " = " + col + " + ?";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setDate(1, Date.valueOf(granularity.periodStart(date)));
+                stmt.setInt(2, cityId);
+                stmt.setInt(3, delta);
+                stmt.setInt(4, delta);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Receives daily_stats rows one at a time.
+     */
+    public interface StatsRowHandler {
+        /**
+         * @param counts one count per Metric, by ordinal; reused between rows
+         */
+        void row(LocalDate date, int cityId, int[] counts);
+    }
+
+    /**
+     * Stream every daily_stats row, oldest first, for loading
+     * StatsColumnStore. Reads through a streaming connection with a bounded
+     * fetch size, so no row list is ever built.
+     *
+     * @return rows read
+     */
+    public static long forEachStat(StatsRowHandler handler) throws SQLException {
+        Metric[] metrics = Metric.values();
+        int[] counts = new int[metrics.length];
+        long rows = 0;
+        try (Connection conn = DBConnector.openStreamingConnection()) {
+            if (conn == null) {
+                throw new SQLException("No streaming connection");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM daily_stats ORDER BY stat_date",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        for (Metric metric : metrics) {
+                            counts[metric.ordinal()] = rs.getInt(metric.getColumnName());
+                        }
+                        handler.row(rs.getDate("stat_date").toLocalDate(), rs.getInt("city_id"), counts);
+                        rows++;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of every period of a planned segment, one per period and city,
+     * dated at the period start. Read by ReportCache.
+     */
+    public static List<DailyStat> getPeriodRows(Segment segment) throws SQLException {
+        List<DailyStat> results = new ArrayList<>();
+        String key = keyColumn(segment.granularity);
+        String query = "SELECT * FROM " + tableFor(segment.granularity) + " WHERE " + key + " BETWEEN ? AND ?";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setDate(1, Date.valueOf(segment.start));
+            stmt.setDate(2, Date.valueOf(segment.end));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    results.add(new DailyStat(
+                            rs.getDate(key).toLocalDate(),
+                            rs.getInt("city_id"),
+                            rs.getInt("maps_count"),
+                            rs.getInt("one_time_purchases"),
+                            rs.getInt("subscriptions"),
+                            rs.getInt("renewals"),
+                            rs.getInt("views"),
+                            rs.getInt("downloads")));
+                }
+            }
+        }
+        return results;
     }
 
     /**
@@ -87,8 +384,7 @@ public class DailyStatsDAO {
             query += " ORDER BY stat_date, city_id";
         }
 
-        try {
-            Connection conn = DBConnector.getConnection();
+        try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return results;
 
@@ -142,8 +438,7 @@ public class DailyStatsDAO {
                 "GROUP BY stat_date " +
                 "ORDER BY stat_date";
 
-        try {
-            Connection conn = DBConnector.getConnection();
+        try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return results;
 
@@ -0,0 +1,167 @@
+package server.dao;
+
+import common.dto.ImportJobStatus;
+import server.DBConnector;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Data Access Object for bulk import jobs.
+ *
+ * A job row doubles as the import checkpoint: BulkImportService updates it on
+ * the batch connection, in the same transaction as the rows it inserted, so
+ * rows_processed always matches what is committed.
+ */
+public class ImportJobDAO {
+
+    static {
+        createTable();
+    }
+
+    private static void createTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS import_jobs (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "file_name VARCHAR(255) NOT NULL, " +
+                "format VARCHAR(10) NOT NULL, " +
+                "status VARCHAR(20) NOT NULL DEFAULT 'RUNNING', " +
+                "rows_processed BIGINT NOT NULL DEFAULT 0, " +
+                "pois_imported BIGINT NOT NULL DEFAULT 0, " +
+                "rows_rejected BIGINT NOT NULL DEFAULT 0, " +
+                "rejections TEXT, " +
+                "last_error VARCHAR(500), " +
+                "created_by INT, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                ")";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating import_jobs table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a RUNNING job.
+     *
+     * @return new job ID, or -1 on failure
+     */
+    public static int createJob(String fileName, String format, int createdBy) {
+        String sql = "INSERT INTO import_jobs (file_name, format, created_by) VALUES (?, ?, ?)";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, fileName);
+            stmt.setString(2, format);
+            stmt.setInt(3, createdBy);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating import job: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Get a job by ID.
+     */
+    public static ImportJobStatus getJob(int jobId) {
+        String sql = "SELECT * FROM import_jobs WHERE id = ?";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, jobId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToStatus(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting import job: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Record progress on the batch connection, inside the batch transaction.
+     */
+    public static void checkpoint(Connection conn, ImportJobStatus job) throws SQLException {
+        String sql = "UPDATE import_jobs SET rows_processed = ?, pois_imported = ?, rows_rejected = ?, " +
+                "rejections = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, job.getRowsProcessed());
+            stmt.setLong(2, job.getPoisImported());
+            stmt.setLong(3, job.getRowsRejected());
+            stmt.setString(4, String.join("\n", job.getRejections()));
+            stmt.setInt(5, job.getJobId());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Set a job's status (and error message, for FAILED).
+     */
+    public static boolean updateStatus(int jobId, String status, String error) {
+        String sql = "UPDATE import_jobs SET status = ?, last_error = ? WHERE id = ?";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setString(2, error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+            stmt.setInt(3, jobId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating import job status: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Mark jobs left RUNNING by a previous server process as FAILED so they
+     * can be resumed.
+     *
+     * @return number of jobs marked
+     */
+    public static int failInterruptedJobs() {
+        String sql = "UPDATE import_jobs SET status = 'FAILED', last_error = 'Interrupted by server restart' " +
+                "WHERE status = 'RUNNING'";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error failing interrupted import jobs: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static ImportJobStatus mapResultSetToStatus(ResultSet rs) throws SQLException {
+        ImportJobStatus job = new ImportJobStatus();
+        job.setJobId(rs.getInt("id"));
+        job.setFileName(rs.getString("file_name"));
+        job.setFormat(rs.getString("format"));
+        job.setStatus(rs.getString("status"));
+        job.setRowsProcessed(rs.getLong("rows_processed"));
+        job.setPoisImported(rs.getLong("pois_imported"));
+        job.setRowsRejected(rs.getLong("rows_rejected"));
+        String rejections = rs.getString("rejections");
+        job.setRejections(rejections == null || rejections.isEmpty() ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(rejections.split("\n"))));
+        job.setLastError(rs.getString("last_error"));
+        job.setCreatedAt(rs.getTimestamp("created_at"));
+        job.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return job;
+    }
+}
@@ -22,9 +22,11 @@ public class MapDAO {
         List<MapSummary> maps = new ArrayList<>();
 
         String query = "SELECT m.id, m.name, m.short_description, " +
-                "(SELECT COUNT(*) FROM map_pois WHERE map_id = m.id) as poi_count, " +
-                "(SELECT COUNT(*) FROM tours WHERE city_id = m.city_id) as tour_count " +
-                "FROM maps m WHERE m.city_id = ? ORDER BY m.name";
+                "COALESCE(ms.poi_count, 0) as poi_count, COALESCE(cs.tour_count, 0) as tour_count " +
+                "FROM maps m " +
+                "LEFT JOIN map_stats ms ON ms.map_id = m.id " +
+                "LEFT JOIN city_stats cs ON cs.city_id = m.city_id " +
+                "WHERE m.city_id = ? ORDER BY m.name";
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
@@ -56,22 +58,41 @@ public class MapDAO {
      * Get complete map content for editing.
      */
     public static MapContent getMapContent(int mapId) {
-        MapContent content = null;
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return null;
 
+            return getMapContent(conn, mapId);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Get complete map content on an existing connection (sees uncommitted
+     * changes of the caller's transaction).
+     * Everything is read with a fixed number of queries (header, POIs, tours,
+     * stops) regardless of how many tours the city has.
+     *
+     * @return content, or null if the map does not exist
+     */
+    public static MapContent getMapContent(Connection conn, int mapId) throws SQLException {
         String mapQuery = "SELECT m.id, m.city_id, c.name as city_name, m.name, m.short_description, " +
                 "m.created_at, m.updated_at " +
                 "FROM maps m JOIN cities c ON c.id = m.city_id WHERE m.id = ?";
 
-        try (Connection conn = DBConnector.getConnection()) {
-            if (conn == null)
-                return null;
+        MapContent content;
 
-            // Get map basic info
-            PreparedStatement stmt = conn.prepareStatement(mapQuery);
+        // Get map basic info
+        try (PreparedStatement stmt = conn.prepareStatement(mapQuery)) {
             stmt.setInt(1, mapId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
                 content = new MapContent(
                         rs.getInt("id"),
                         rs.getInt("city_id"),
@@ -80,23 +101,19 @@ public class MapDAO {
                         rs.getString("short_description"));
                 content.setCreatedAt(rs.getString("created_at"));
                 content.setUpdatedAt(rs.getString("updated_at"));
-
-                // Get POIs for this map
-                List<Poi> pois = PoiDAO.getPoisForMap(mapId);
-                content.setPois(pois);
-
-                // Get tours for this city
-                List<TourDTO> tours = TourDAO.getToursForCity(content.getCityId());
-                content.setTours(tours);
-
-                System.out.println("MapDAO: Retrieved content for map " + mapId +
-                        " with " + pois.size() + " POIs and " + tours.size() + " tours");
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
 
+        // Get POIs for this map
+        List<Poi> pois = PoiDAO.getPoisForMap(conn, mapId);
+        content.setPois(pois);
+
+        // Get tours (with all their stops) for this city
+        List<TourDTO> tours = TourDAO.getToursForCity(conn, content.getCityId());
+        content.setTours(tours);
+
+        System.out.println("MapDAO: Retrieved content for map " + mapId +
+                " with " + pois.size() + " POIs and " + tours.size() + " tours");
         return content;
     }
 
@@ -120,6 +137,8 @@ public class MapDAO {
             if (keys.next()) {
                 int mapId = keys.getInt(1);
                 System.out.println("MapDAO: Created map with ID " + mapId);
+                ContentStatsDAO.adjustMapPoiCount(conn, mapId, 0);
+                ContentStatsDAO.adjustCityMapCount(conn, cityId, 1);
                 return mapId;
             }
         }
@@ -128,13 +147,21 @@ public class MapDAO {
     }
 
     /**
-     * Create a new map (standalone).
+     * Create a new map (standalone, map + counters in one transaction).
      */
     public static int createMap(int cityId, String name, String description) {
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return -1;
-            return createMap(conn, cityId, name, description);
+            conn.setAutoCommit(false);
+            try {
+                int mapId = createMap(conn, cityId, name, description);
+                conn.commit();
+                return mapId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
             return -1;
@@ -177,12 +204,21 @@ public class MapDAO {
             if (conn == null)
                 return false;
 
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, mapId);
+            conn.setAutoCommit(false);
+            try {
+                ContentStatsDAO.decrementCityOfMap(conn, mapId);
 
-            int affected = stmt.executeUpdate();
-            System.out.println("MapDAO: Deleted map " + mapId + ", affected: " + affected);
-            return affected > 0;
+                PreparedStatement stmt = conn.prepareStatement(query);
+                stmt.setInt(1, mapId);
+
+                int affected = stmt.executeUpdate();
+                conn.commit();
+                System.out.println("MapDAO: Deleted map " + mapId + ", affected: " + affected);
+                return affected > 0;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -215,4 +251,22 @@ public class MapDAO {
 
         return false;
     }
+
+    /**
+     * Find a map by name (case-insensitive) within a city on the caller's
+     * connection.
+     *
+     * @return map ID, or -1 if there is none
+     */
+    public static int getMapIdByName(Connection conn, int cityId, String name) throws SQLException {
+        String query = "SELECT id FROM maps WHERE city_id = ? AND LOWER(name) = LOWER(?) ORDER BY id LIMIT 1";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, cityId);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
 }
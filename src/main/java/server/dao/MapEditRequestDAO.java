@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import common.dto.MapChanges;
 import common.dto.MapEditRequestDTO;
 import server.DBConnector;
+import server.service.MapChangesCodec;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,8 +14,13 @@ public class MapEditRequestDAO {
 
     private static final Gson gson = new Gson();
 
+    // Columns read by list views (everything except the change payload)
+    private static final String SUMMARY_COLUMNS = "r.id, r.map_id, r.city_id, r.user_id, r.status, r.created_at, " +
+            "r.added_pois, r.updated_pois, r.deleted_pois, r.added_tours, r.updated_tours, r.deleted_tours";
+
     static {
         createTable();
+        migrateToBinaryChanges();
     }
 
     private static void createTable() {
@@ -24,6 +30,13 @@ public class MapEditRequestDAO {
                 "city_id INT, " +
                 "user_id INT, " +
                 "changes_json MEDIUMTEXT, " +
+                "changes_blob MEDIUMBLOB, " +
+                "added_pois INT NOT NULL DEFAULT 0, " +
+                "updated_pois INT NOT NULL DEFAULT 0, " +
+                "deleted_pois INT NOT NULL DEFAULT 0, " +
+                "added_tours INT NOT NULL DEFAULT 0, " +
+                "updated_tours INT NOT NULL DEFAULT 0, " +
+                "deleted_tours INT NOT NULL DEFAULT 0, " +
                 "status VARCHAR(20) DEFAULT 'PENDING', " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "INDEX (status)" +
@@ -37,16 +50,101 @@ public class MapEditRequestDAO {
         }
     }
 
+    /**
+     * Add the binary change column and summary columns to tables created
+     * before they existed, then convert pending JSON rows.
+     */
+    private static void migrateToBinaryChanges() {
+        String check = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'map_edit_requests' AND COLUMN_NAME = 'changes_blob'";
+        String alter = "ALTER TABLE map_edit_requests " +
+                "ADD COLUMN changes_blob MEDIUMBLOB AFTER changes_json, " +
+                "ADD COLUMN added_pois INT NOT NULL DEFAULT 0, " +
+                "ADD COLUMN updated_pois INT NOT NULL DEFAULT 0, " +
+                "ADD COLUMN deleted_pois INT NOT NULL DEFAULT 0, " +
+                "ADD COLUMN added_tours INT NOT NULL DEFAULT 0, " +
+                "ADD COLUMN updated_tours INT NOT NULL DEFAULT 0, " +
+                "ADD COLUMN deleted_tours INT NOT NULL DEFAULT 0";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery(check)) {
+                if (rs.next() && rs.getInt(1) == 0) {
+                    stmt.execute(alter);
+                    System.out.println("MapEditRequestDAO: Added binary changes and summary columns");
+                }
+            }
+
+            // Convert legacy JSON rows still waiting for review
+            List<Integer> ids = new ArrayList<>();
+            List<String> jsons = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, changes_json FROM map_edit_requests " +
+                            "WHERE status = 'PENDING' AND changes_blob IS NULL AND changes_json IS NOT NULL");
+                    ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                    jsons.add(rs.getString("changes_json"));
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                MapChanges changes = fromJson(jsons.get(i));
+                if (changes != null) {
+                    storeChanges(conn, ids.get(i), changes);
+                }
+            }
+            if (!ids.isEmpty()) {
+                System.out.println("MapEditRequestDAO: Converted " + ids.size() + " pending requests to binary changes");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error migrating map_edit_requests: " + e.getMessage());
+        }
+    }
+
+    private static void storeChanges(Connection conn, int id, MapChanges changes) throws SQLException {
+        String sql = "UPDATE map_edit_requests SET changes_blob = ?, changes_json = NULL, " +
+                "added_pois = ?, updated_pois = ?, deleted_pois = ?, " +
+                "added_tours = ?, updated_tours = ?, deleted_tours = ? WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, MapChangesCodec.encode(changes));
+            setSummary(stmt, 2, changes);
+            stmt.setInt(8, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Bind the six summary counts starting at the given parameter index.
+     */
+    private static void setSummary(PreparedStatement stmt, int index, MapChanges changes) throws SQLException {
+        stmt.setInt(index, sizeOf(changes.getAddedPois()));
+        stmt.setInt(index + 1, sizeOf(changes.getUpdatedPois()));
+        stmt.setInt(index + 2, sizeOf(changes.getDeletedPoiIds()));
+        stmt.setInt(index + 3, sizeOf(changes.getAddedTours()));
+        stmt.setInt(index + 4, sizeOf(changes.getUpdatedTours()));
+        stmt.setInt(index + 5, sizeOf(changes.getDeletedTourIds()));
+    }
+
+    private static int sizeOf(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
     public static int createRequest(Connection conn, int mapId, int cityId, int userId, MapChanges changes)
             throws SQLException {
-        String json = gson.toJson(changes);
-        String sql = "INSERT INTO map_edit_requests (map_id, city_id, user_id, changes_json, status) VALUES (?, ?, ?, ?, 'PENDING')";
+        String sql = "INSERT INTO map_edit_requests (map_id, city_id, user_id, changes_blob, " +
+                "added_pois, updated_pois, deleted_pois, added_tours, updated_tours, deleted_tours, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDING')";
 
         try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setObject(1, mapId > 0 ? mapId : null, Types.INTEGER);
             stmt.setObject(2, cityId > 0 ? cityId : null, Types.INTEGER);
             stmt.setInt(3, userId);
-            stmt.setString(4, json);
+            stmt.setBytes(4, MapChangesCodec.encode(changes));
+            setSummary(stmt, 5, changes);
 
             int affected = stmt.executeUpdate();
             if (affected > 0) {
@@ -59,9 +157,13 @@ public class MapEditRequestDAO {
         return -1;
     }
 
+    /**
+     * List pending requests with their change summary only; the change
+     * payload is not read or decoded.
+     */
     public static List<MapEditRequestDTO> getPendingRequests() {
         List<MapEditRequestDTO> requests = new ArrayList<>();
-        String sql = "SELECT r.*, u.username, m.name as map_name, c.name as city_name " +
+        String sql = "SELECT " + SUMMARY_COLUMNS + ", u.username, m.name as map_name, c.name as city_name " +
                 "FROM map_edit_requests r " +
                 "LEFT JOIN users u ON r.user_id = u.id " +
                 "LEFT JOIN maps m ON r.map_id = m.id " +
@@ -76,7 +178,7 @@ public class MapEditRequestDAO {
                 ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                requests.add(mapResultSetToDTO(rs));
+                requests.add(mapResultSetToDTO(rs, false));
             }
             System.out.println("MapEditRequestDAO: Found " + requests.size() + " pending requests");
         } catch (SQLException e) {
@@ -86,8 +188,11 @@ public class MapEditRequestDAO {
         return requests;
     }
 
+    /**
+     * Get one request with its full, decoded changes.
+     */
     public static MapEditRequestDTO getRequest(int id) {
-        String sql = "SELECT r.*, u.username, m.name as map_name, c.name as city_name " +
+        String sql = "SELECT " + SUMMARY_COLUMNS + ", r.changes_blob, r.changes_json, u.username, m.name as map_name, c.name as city_name " +
                 "FROM map_edit_requests r " +
                 "LEFT JOIN users u ON r.user_id = u.id " +
                 "LEFT JOIN maps m ON r.map_id = m.id " +
@@ -100,7 +205,7 @@ public class MapEditRequestDAO {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return mapResultSetToDTO(rs);
+                return mapResultSetToDTO(rs, true);
             }
         } catch (SQLException e) {
             System.err.println("Error getting request: " + e.getMessage());
@@ -108,6 +213,57 @@ public class MapEditRequestDAO {
         return null;
     }
 
+    /**
+     * Get the pending requests for one map with their full, decoded changes,
+     * in submission order.
+     */
+    public static List<MapEditRequestDTO> getPendingRequestsForMap(int mapId) {
+        List<MapEditRequestDTO> requests = new ArrayList<>();
+        String sql = "SELECT " + SUMMARY_COLUMNS + ", r.changes_blob, r.changes_json, u.username, m.name as map_name, c.name as city_name " +
+                "FROM map_edit_requests r " +
+                "LEFT JOIN users u ON r.user_id = u.id " +
+                "LEFT JOIN maps m ON r.map_id = m.id " +
+                "LEFT JOIN cities c ON r.city_id = c.id " +
+                "WHERE r.status = 'PENDING' AND r.map_id = ? " +
+                "ORDER BY r.id";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, mapId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    requests.add(mapResultSetToDTO(rs, true));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting pending requests for map " + mapId + ": " + e.getMessage());
+        }
+        return requests;
+    }
+
+    /**
+     * Mark requests APPROVED, but only those still PENDING, so a request
+     * approved or rejected concurrently is not applied twice.
+     *
+     * @return true if every request was still pending
+     */
+    public static boolean approvePending(Connection conn, List<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE map_edit_requests SET status = 'APPROVED' " +
+                "WHERE status = 'PENDING' AND id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            return stmt.executeUpdate() == ids.size();
+        }
+    }
+
     public static boolean updateStatus(Connection conn, int id, String status) throws SQLException {
         String sql = "UPDATE map_edit_requests SET status = ? WHERE id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -117,7 +273,7 @@ public class MapEditRequestDAO {
         }
     }
 
-    private static MapEditRequestDTO mapResultSetToDTO(ResultSet rs) throws SQLException {
+    private static MapEditRequestDTO mapResultSetToDTO(ResultSet rs, boolean withChanges) throws SQLException {
         MapEditRequestDTO dto = new MapEditRequestDTO();
         dto.setId(rs.getInt("id"));
         dto.setMapId(rs.getInt("map_id"));
@@ -130,15 +286,31 @@ public class MapEditRequestDAO {
         dto.setMapName(rs.getString("map_name"));
         dto.setCityName(rs.getString("city_name"));
 
-        String json = rs.getString("changes_json");
-        if (json != null && !json.isEmpty()) {
-            try {
-                dto.setChanges(gson.fromJson(json, MapChanges.class));
-            } catch (Exception e) {
-                System.err.println("Error deserializing map changes: " + e.getMessage());
-            }
+        dto.setAddedPoiCount(rs.getInt("added_pois"));
+        dto.setUpdatedPoiCount(rs.getInt("updated_pois"));
+        dto.setDeletedPoiCount(rs.getInt("deleted_pois"));
+        dto.setAddedTourCount(rs.getInt("added_tours"));
+        dto.setUpdatedTourCount(rs.getInt("updated_tours"));
+        dto.setDeletedTourCount(rs.getInt("deleted_tours"));
+
+        if (withChanges) {
+            byte[] blob = rs.getBytes("changes_blob");
+            // Rows written before the binary format still carry JSON
+            dto.setChanges(blob != null ? MapChangesCodec.decode(blob) : fromJson(rs.getString("changes_json")));
         }
 
         return dto;
     }
+
+    private static MapChanges fromJson(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(json, MapChanges.class);
+        } catch (Exception e) {
+            System.err.println("Error deserializing map changes: " + e.getMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package server.dao;
+
+import common.dto.MapContent;
+import server.DBConnector;
+import server.service.MapSnapshotCodec;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data Access Object for frozen map content.
+ *
+ * Every APPROVED map version gets one immutable row holding its MapContent
+ * as compressed JSON, written in the same transaction as the approval.
+ * Reading any version (latest or historical) is then a single primary-key
+ * lookup instead of rebuilding the content from the live tables.
+ */
+public class MapSnapshotDAO {
+
+    static {
+        createTable();
+    }
+
+    private static void createTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS map_version_snapshots (" +
+                "version_id INT PRIMARY KEY, " +
+                "map_id INT NOT NULL, " +
+                "content MEDIUMBLOB NOT NULL, " +
+                "content_hash CHAR(64) NOT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_snapshot_map (map_id, version_id), " +
+                "FOREIGN KEY (version_id) REFERENCES map_versions(id) ON DELETE CASCADE" +
+                ")";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating map_version_snapshots table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Freeze the current content of a map as the snapshot of a version.
+     * Call inside the approval transaction, after the changes were applied.
+     * Snapshots are immutable: an existing row for the version is kept.
+     *
+     * @return true if a snapshot exists for the version afterwards
+     */
+    public static boolean createSnapshot(Connection conn, int versionId, int mapId) throws SQLException {
+        MapContent content = MapDAO.getMapContent(conn, mapId);
+        if (content == null) {
+            return false;
+        }
+        content.setVersionId(versionId);
+        content.setVersionNumber(getVersionNumber(conn, versionId));
+
+        byte[] data = MapSnapshotCodec.encode(content);
+        String sql = "INSERT IGNORE INTO map_version_snapshots (version_id, map_id, content, content_hash) " +
+                "VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, versionId);
+            stmt.setInt(2, mapId);
+            stmt.setBytes(3, data);
+            stmt.setString(4, MapSnapshotCodec.hash(data));
+            stmt.executeUpdate();
+        }
+
+        System.out.println("MapSnapshotDAO: Stored snapshot for version " + versionId +
+                " of map " + mapId + " (" + data.length + " bytes)");
+        return true;
+    }
+
+    private static int getVersionNumber(Connection conn, int versionId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT version_number FROM map_versions WHERE id = ?")) {
+            stmt.setInt(1, versionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Get the snapshot of a specific version.
+     *
+     * @return content, or null if the version has no snapshot
+     */
+    public static MapContent getSnapshot(int versionId) {
+        String sql = "SELECT content FROM map_version_snapshots WHERE version_id = ?";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return null;
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, versionId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return MapSnapshotCodec.decode(rs.getBytes("content"));
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting snapshot for version " + versionId + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Get the latest snapshotted version of every map in a city that has one
+     * (ids only, no content).
+     *
+     * @return map ID -> version ID, or null on database error
+     */
+    public static Map<Integer, Integer> getLatestVersionIdsForCity(int cityId) {
+        Map<Integer, Integer> versions = new HashMap<>();
+
+        String sql = "SELECT s.map_id, MAX(s.version_id) AS version_id " +
+                "FROM map_version_snapshots s JOIN maps m ON m.id = s.map_id " +
+                "WHERE m.city_id = ? GROUP BY s.map_id";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return null;
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, cityId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        versions.put(rs.getInt("map_id"), rs.getInt("version_id"));
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting snapshot versions for city " + cityId + ": " + e.getMessage());
+            return null;
+        }
+        return versions;
+    }
+}
@@ -137,29 +137,31 @@ public class NotificationDAO {
     }
 
     /**
-     * Notify all customers who purchased a city about a map update.
-     * 
+     * Create the same notification for many users in one batch.
+     *
      * @param conn    Database connection
-     * @param cityId  City ID
-     * @param mapName Name of the updated map
+     * @param userIds Target user IDs
+     * @param title   Notification title
+     * @param body    Notification body
      * @return Number of notifications created
      */
-    public static int notifyCustomersAboutMapUpdate(Connection conn, int cityId, String mapName)
+    public static int createNotifications(Connection conn, List<Integer> userIds, String title, String body)
             throws SQLException {
-        List<Integer> customerUserIds = getCustomersWhoPurchasedCity(cityId);
-        int count = 0;
-
-        String title = "Map Updated: " + mapName;
-        String body = "A new version of the map '" + mapName + "' is now available. " +
-                "Download the latest version to see the updates.";
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO notifications (user_id, channel, title, body) VALUES (?, 'IN_APP', ?, ?)";
 
-        for (int userId : customerUserIds) {
-            if (createNotification(conn, userId, title, body) > 0) {
-                count++;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int userId : userIds) {
+                stmt.setInt(1, userId);
+                stmt.setString(2, title);
+                stmt.setString(3, body);
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         }
-
-        return count;
+        return userIds.size();
     }
 
     /**
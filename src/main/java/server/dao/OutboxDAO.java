@@ -0,0 +1,248 @@
+package server.dao;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import server.DBConnector;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the transactional outbox.
+ *
+ * Handlers enqueue side effects (notifications, audit entries, stat
+ * increments) on their own connection, inside the transaction that makes the
+ * change, so an event exists if and only if the change committed.
+ * OutboxDispatcher applies them later, marking each event processed in the
+ * same transaction as its effect.
+ */
+public class OutboxDAO {
+
+    // Event types
+    public static final String TYPE_NOTIFY_CITY_CUSTOMERS = "NOTIFY_CITY_CUSTOMERS";
+    public static final String TYPE_NOTIFY_USER = "NOTIFY_USER";
+    public static final String TYPE_AUDIT = "AUDIT";
+    public static final String TYPE_STAT_INCREMENT = "STAT_INCREMENT";
+
+    // Events are marked FAILED after this many attempts
+    public static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * A pending outbox event.
+     */
+    public static class OutboxEvent {
+        public final long id;
+        public final String type;
+        public final JsonObject payload;
+        public final int attempts;
+
+        public OutboxEvent(long id, String type, JsonObject payload, int attempts) {
+            this.id = id;
+            this.type = type;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+
+    static {
+        createTable();
+    }
+
+    private static void createTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS outbox_events (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "event_type VARCHAR(40) NOT NULL, " +
+                "payload TEXT NOT NULL, " +
+                "status ENUM('PENDING', 'PROCESSED', 'FAILED') NOT NULL DEFAULT 'PENDING', " +
+                "attempts INT NOT NULL DEFAULT 0, " +
+                "last_error VARCHAR(500), " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "processed_at TIMESTAMP NULL, " +
+                "INDEX idx_outbox_status (status, id)" +
+                ")";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating outbox table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the outbox table exists (forces class initialization).
+     */
+    public static void init() {
+        // Table is created by the static initializer
+    }
+
+    // ==================== Enqueue (inside the caller's transaction) ====================
+
+    /**
+     * Enqueue an event on the caller's connection.
+     */
+    public static void enqueue(Connection conn, String type, JsonObject payload) throws SQLException {
+        String sql = "INSERT INTO outbox_events (event_type, payload) VALUES (?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, type);
+            stmt.setString(2, payload.toString());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Notify every customer entitled to a city (resolved at dispatch time).
+     */
+    public static void enqueueCityNotification(Connection conn, int cityId, String title, String body)
+            throws SQLException {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("cityId", cityId);
+        payload.addProperty("title", title);
+        payload.addProperty("body", body);
+        enqueue(conn, TYPE_NOTIFY_CITY_CUSTOMERS, payload);
+    }
+
+    /**
+     * Notify a single user.
+     */
+    public static void enqueueUserNotification(Connection conn, int userId, String title, String body)
+            throws SQLException {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("userId", userId);
+        payload.addProperty("title", title);
+        payload.addProperty("body", body);
+        enqueue(conn, TYPE_NOTIFY_USER, payload);
+    }
+
+    /**
+     * Write an audit log entry. keyValues are detail pairs, as in AuditLogDAO.log.
+     */
+    public static void enqueueAudit(Connection conn, String action, int actorId,
+            String entityType, int entityId, String... keyValues) throws SQLException {
+        JsonObject details = new JsonObject();
+        for (int i = 0; i < keyValues.length - 1; i += 2) {
+            details.addProperty(keyValues[i], keyValues[i + 1]);
+        }
+        JsonObject payload = new JsonObject();
+        payload.addProperty("action", action);
+        payload.addProperty("actorId", actorId);
+        payload.addProperty("entityType", entityType);
+        payload.addProperty("entityId", entityId);
+        payload.addProperty("details", details.toString());
+        enqueue(conn, TYPE_AUDIT, payload);
+    }
+
+    /**
+     * Increment a daily stat. The date is fixed now, so a late dispatch still
+     * counts on the day the change happened.
+     */
+    public static void enqueueStatIncrement(Connection conn, int cityId, DailyStatsDAO.Metric metric)
+            throws SQLException {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("cityId", cityId);
+        payload.addProperty("metric", metric.name());
+        payload.addProperty("date", LocalDate.now().toString());
+        enqueue(conn, TYPE_STAT_INCREMENT, payload);
+    }
+
+    // ==================== Dispatch ====================
+
+    /**
+     * Get the oldest pending events.
+     */
+    public static List<OutboxEvent> getPendingEvents(int limit) {
+        List<OutboxEvent> events = new ArrayList<>();
+        String sql = "SELECT id, event_type, payload, attempts FROM outbox_events " +
+                "WHERE status = 'PENDING' ORDER BY id LIMIT ?";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    JsonObject payload;
+                    try {
+                        payload = JsonParser.parseString(rs.getString("payload")).getAsJsonObject();
+                    } catch (RuntimeException e) {
+                        payload = new JsonObject();
+                    }
+                    events.add(new OutboxEvent(rs.getLong("id"), rs.getString("event_type"),
+                            payload, rs.getInt("attempts")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading outbox: " + e.getMessage());
+        }
+        return events;
+    }
+
+    /**
+     * Mark events processed on the dispatcher's connection, in the same
+     * transaction as their effects.
+     *
+     * @return false if any event was already processed by someone else; the
+     *         caller must then roll back
+     */
+    public static boolean markProcessed(Connection conn, List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            in.append(i == 0 ? "?" : ",?");
+        }
+        String sql = "UPDATE outbox_events SET status = 'PROCESSED', processed_at = NOW() " +
+                "WHERE status = 'PENDING' AND id IN (" + in + ")";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (long id : ids) {
+                stmt.setLong(i++, id);
+            }
+            return stmt.executeUpdate() == ids.size();
+        }
+    }
+
+    /**
+     * Record a failed attempt; the event is parked as FAILED after MAX_ATTEMPTS.
+     */
+    public static void recordFailure(long id, String error) {
+        String sql = "UPDATE outbox_events SET attempts = attempts + 1, last_error = ?, " +
+                "status = IF(attempts >= ?, 'FAILED', status) WHERE id = ? AND status = 'PENDING'";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+            stmt.setInt(2, MAX_ATTEMPTS);
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error recording outbox failure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete processed events older than the given number of days.
+     *
+     * @return rows deleted, or -1 on failure
+     */
+    public static int purgeProcessed(int olderThanDays) {
+        String sql = "DELETE FROM outbox_events WHERE status = 'PROCESSED' " +
+                "AND processed_at < DATE_SUB(NOW(), INTERVAL ? DAY)";
+
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, olderThanDays);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error purging outbox: " + e.getMessage());
+            return -1;
+        }
+    }
+}
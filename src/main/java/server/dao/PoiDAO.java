@@ -1,11 +1,16 @@
 package server.dao;
 
 import common.Poi;
+import common.dto.MapChanges;
 import server.DBConnector;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for POI operations.
@@ -16,6 +21,23 @@ public class PoiDAO {
      * Get all POIs linked to a map.
      */
     public static List<Poi> getPoisForMap(int mapId) {
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return new ArrayList<>();
+
+            return getPoisForMap(conn, mapId);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get all POIs for a specific map on an existing connection.
+     */
+    public static List<Poi> getPoisForMap(Connection conn, int mapId) throws SQLException {
         List<Poi> pois = new ArrayList<>();
 
         String query = "SELECT p.* FROM pois p " +
@@ -23,12 +45,32 @@ public class PoiDAO {
                 "WHERE mp.map_id = ? " +
                 "ORDER BY mp.display_order";
 
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, mapId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    pois.add(extractPoi(rs));
+                }
+            }
+        }
+
+        return pois;
+    }
+
+    /**
+     * Get all POIs for a city (not linked to any specific map).
+     */
+    public static List<Poi> getPoisForCity(int cityId) {
+        List<Poi> pois = new ArrayList<>();
+
+        String query = "SELECT * FROM pois WHERE city_id = ? ORDER BY name";
+
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return pois;
 
             PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, mapId);
+            stmt.setInt(1, cityId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -43,19 +85,20 @@ public class PoiDAO {
     }
 
     /**
-     * Get all POIs for a city (not linked to any specific map).
+     * Get every POI in the system (used to build in-memory search indexes).
+     *
+     * @return all POIs, or null if the database is unavailable
      */
-    public static List<Poi> getPoisForCity(int cityId) {
+    public static List<Poi> getAllPois() {
         List<Poi> pois = new ArrayList<>();
 
-        String query = "SELECT * FROM pois WHERE city_id = ? ORDER BY name";
+        String query = "SELECT * FROM pois ORDER BY city_id, id";
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
-                return pois;
+                return null;
 
             PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, cityId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -64,11 +107,42 @@ public class PoiDAO {
 
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
 
         return pois;
     }
 
+    /**
+     * Get every POI-map link (used to build in-memory search indexes).
+     *
+     * @return all links, or null if the database is unavailable
+     */
+    public static List<MapChanges.PoiMapLink> getAllPoiMapLinks() {
+        List<MapChanges.PoiMapLink> links = new ArrayList<>();
+
+        String query = "SELECT map_id, poi_id, display_order FROM map_pois";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return null;
+
+            PreparedStatement stmt = conn.prepareStatement(query);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                links.add(new MapChanges.PoiMapLink(rs.getInt("map_id"), rs.getInt("poi_id"),
+                        rs.getInt("display_order")));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return links;
+    }
+
     /**
      * Create a new POI.
      * 
@@ -158,7 +232,8 @@ public class PoiDAO {
             throw new SQLException("Cannot delete POI " + poiId + " - it is used in a tour");
         }
 
-        // First unlink from all maps
+        // First unlink from all maps (keeping map POI counters in step)
+        ContentStatsDAO.decrementMapsOfPoi(conn, poiId);
         unlinkPoiFromAllMaps(conn, poiId);
 
         // Then delete the POI
@@ -202,21 +277,36 @@ public class PoiDAO {
     }
 
     /**
-     * Link a POI to a map.
+     * Link a POI to a map, or update its display order if already linked.
+     * Only a new link changes the map's POI count.
      */
     public static boolean linkPoiToMap(Connection conn, int mapId, int poiId, int displayOrder) throws SQLException {
-        String query = "INSERT INTO map_pois (map_id, poi_id, display_order) VALUES (?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE display_order = ?";
-
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setInt(1, mapId);
-        stmt.setInt(2, poiId);
-        stmt.setInt(3, displayOrder);
-        stmt.setInt(4, displayOrder);
+        // Check first: in found-rows mode an upsert reports 1 for an unchanged row too
+        PreparedStatement existsStmt = conn.prepareStatement(
+                "SELECT 1 FROM map_pois WHERE map_id = ? AND poi_id = ? FOR UPDATE");
+        existsStmt.setInt(1, mapId);
+        existsStmt.setInt(2, poiId);
+        boolean exists = existsStmt.executeQuery().next();
+
+        PreparedStatement stmt;
+        if (exists) {
+            stmt = conn.prepareStatement("UPDATE map_pois SET display_order = ? WHERE map_id = ? AND poi_id = ?");
+            stmt.setInt(1, displayOrder);
+            stmt.setInt(2, mapId);
+            stmt.setInt(3, poiId);
+        } else {
+            stmt = conn.prepareStatement("INSERT INTO map_pois (map_id, poi_id, display_order) VALUES (?, ?, ?)");
+            stmt.setInt(1, mapId);
+            stmt.setInt(2, poiId);
+            stmt.setInt(3, displayOrder);
+        }
+        stmt.executeUpdate();
 
-        int affected = stmt.executeUpdate();
+        if (!exists) {
+            ContentStatsDAO.adjustMapPoiCount(conn, mapId, 1);
+        }
         System.out.println("PoiDAO: Linked POI " + poiId + " to map " + mapId);
-        return affected > 0;
+        return true;
     }
 
     /**
@@ -230,10 +320,226 @@ public class PoiDAO {
         stmt.setInt(2, poiId);
 
         int affected = stmt.executeUpdate();
+        if (affected > 0) {
+            ContentStatsDAO.adjustMapPoiCount(conn, mapId, -affected);
+        }
         System.out.println("PoiDAO: Unlinked POI " + poiId + " from map " + mapId);
         return affected > 0;
     }
 
+    // ==================== Batched Operations ====================
+    // Used when applying large change sets inside one transaction: a fixed
+    // number of round trips per chunk instead of several per row.
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Create many POIs with multi-row inserts.
+     *
+     * @return created POI IDs, in input order
+     */
+    public static int[] createPois(Connection conn, List<Poi> pois) throws SQLException {
+        int[] ids = new int[pois.size()];
+        for (int from = 0; from < pois.size(); from += BATCH_SIZE) {
+            List<Poi> chunk = pois.subList(from, Math.min(from + BATCH_SIZE, pois.size()));
+
+            StringBuilder query = new StringBuilder(
+                    "INSERT INTO pois (city_id, name, location, category, short_explanation, is_accessible) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                query.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(query.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (Poi poi : chunk) {
+                    stmt.setInt(p++, poi.getCityId());
+                    stmt.setString(p++, poi.getName());
+                    stmt.setString(p++, poi.getLocation());
+                    stmt.setString(p++, poi.getCategory());
+                    stmt.setString(p++, poi.getShortExplanation());
+                    stmt.setBoolean(p++, poi.isAccessible());
+                }
+                stmt.executeUpdate();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    int i = from;
+                    while (keys.next() && i < from + chunk.size()) {
+                        ids[i++] = keys.getInt(1);
+                    }
+                    if (i != from + chunk.size()) {
+                        throw new SQLException("Expected " + chunk.size() + " generated POI keys");
+                    }
+                }
+            }
+        }
+        System.out.println("PoiDAO: Created " + pois.size() + " POIs (batched)");
+        return ids;
+    }
+
+    /**
+     * Update many POIs in one JDBC batch.
+     */
+    public static void updatePois(Connection conn, List<Poi> pois) throws SQLException {
+        if (pois.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE pois SET name = ?, location = ?, category = ?, " +
+                "short_explanation = ?, is_accessible = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (Poi poi : pois) {
+                stmt.setString(1, poi.getName());
+                stmt.setString(2, poi.getLocation());
+                stmt.setString(3, poi.getCategory());
+                stmt.setString(4, poi.getShortExplanation());
+                stmt.setBoolean(5, poi.isAccessible());
+                stmt.setInt(6, poi.getId());
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        System.out.println("PoiDAO: Updated " + pois.size() + " POIs (batched)");
+    }
+
+    /**
+     * Delete many POIs, unlinking them from their maps first.
+     * Fails (like deletePoi) if any of them is used in a tour.
+     */
+    public static void deletePois(Connection conn, List<Integer> poiIds) throws SQLException {
+        for (int from = 0; from < poiIds.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = poiIds.subList(from, Math.min(from + BATCH_SIZE, poiIds.size()));
+            String in = SqlLists.placeholders(chunk.size());
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT poi_id FROM tour_stops WHERE poi_id IN (" + in + ") LIMIT 1")) {
+                SqlLists.setInts(stmt, chunk);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        throw new SQLException("Cannot delete POI " + rs.getInt(1) + " - it is used in a tour");
+                    }
+                }
+            }
+
+            ContentStatsDAO.decrementMapsOfPois(conn, chunk);
+
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM map_pois WHERE poi_id IN (" + in + ")")) {
+                SqlLists.setInts(stmt, chunk);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM pois WHERE id IN (" + in + ")")) {
+                SqlLists.setInts(stmt, chunk);
+                stmt.executeUpdate();
+            }
+        }
+        System.out.println("PoiDAO: Deleted " + poiIds.size() + " POIs (batched)");
+    }
+
+    /**
+     * Link many POIs to maps in one JDBC batch, then recount the touched maps.
+     */
+    public static void linkPoisToMaps(Connection conn, List<MapChanges.PoiMapLink> links) throws SQLException {
+        if (links.isEmpty()) {
+            return;
+        }
+        String query = "INSERT INTO map_pois (map_id, poi_id, display_order) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE display_order = VALUES(display_order)";
+
+        Set<Integer> mapIds = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (MapChanges.PoiMapLink link : links) {
+                stmt.setInt(1, link.mapId);
+                stmt.setInt(2, link.poiId);
+                stmt.setInt(3, link.displayOrder);
+                stmt.addBatch();
+                mapIds.add(link.mapId);
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        // Rewritten batches do not report per-row counts, so recount instead
+        ContentStatsDAO.recountMaps(conn, mapIds);
+        System.out.println("PoiDAO: Linked " + links.size() + " POIs (batched)");
+    }
+
+    /**
+     * Link POIs that were just created to maps, in one JDBC batch. Every link
+     * is new, so each map's POI count grows by its number of links and no
+     * recount is needed (used by bulk import, where recounting per batch
+     * would rescan a growing map over and over).
+     */
+    public static void linkNewPoisToMaps(Connection conn, List<MapChanges.PoiMapLink> links) throws SQLException {
+        if (links.isEmpty()) {
+            return;
+        }
+        String query = "INSERT INTO map_pois (map_id, poi_id, display_order) VALUES (?, ?, ?)";
+
+        Map<Integer, Integer> linksPerMap = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (MapChanges.PoiMapLink link : links) {
+                stmt.setInt(1, link.mapId);
+                stmt.setInt(2, link.poiId);
+                stmt.setInt(3, link.displayOrder);
+                stmt.addBatch();
+                linksPerMap.merge(link.mapId, 1, Integer::sum);
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : linksPerMap.entrySet()) {
+            ContentStatsDAO.adjustMapPoiCount(conn, entry.getKey(), entry.getValue());
+        }
+        System.out.println("PoiDAO: Linked " + links.size() + " new POIs (batched)");
+    }
+
+    /**
+     * Unlink many POIs from maps in one JDBC batch, then recount the touched maps.
+     */
+    public static void unlinkPoisFromMaps(Connection conn, List<MapChanges.PoiMapLink> links) throws SQLException {
+        if (links.isEmpty()) {
+            return;
+        }
+        String query = "DELETE FROM map_pois WHERE map_id = ? AND poi_id = ?";
+
+        Set<Integer> mapIds = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (MapChanges.PoiMapLink link : links) {
+                stmt.setInt(1, link.mapId);
+                stmt.setInt(2, link.poiId);
+                stmt.addBatch();
+                mapIds.add(link.mapId);
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        ContentStatsDAO.recountMaps(conn, mapIds);
+        System.out.println("PoiDAO: Unlinked " + links.size() + " POIs (batched)");
+    }
+
     /**
      * Unlink a POI from all maps.
      */
@@ -3,17 +3,45 @@ package server.dao;
 import common.dto.CityPriceInfo;
 import common.dto.EntitlementInfo;
 import server.DBConnector;
+import server.SessionEntitlements;
+import server.dao.UsageEventDAO.UsageEvent;
+import server.service.EntitlementCache;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Data Access Object for purchases and subscriptions.
  */
 public class PurchaseDAO {
 
+    // Subscription price = base price x multiplier, by number of months (1-6)
+    private static final double[] SUBSCRIPTION_MULTIPLIERS = { 0, 1.2, 2.4, 3.2, 4.4, 5.5, 6.0 };
+
+    /**
+     * Outcome of a purchase: what the user now owns.
+     */
+    public static class PurchaseOutcome {
+        public final EntitlementInfo.EntitlementType type;
+        public final Timestamp endDate; // Subscriptions only
+        public final boolean replayed; // An earlier request with the same ID did the purchase
+
+        public PurchaseOutcome(EntitlementInfo.EntitlementType type, Timestamp endDate, boolean replayed) {
+            this.type = type;
+            this.endDate = endDate;
+            this.replayed = replayed;
+        }
+    }
+
+    static {
+        createRequestTable();
+    }
+
     /**
      * Get pricing info for a city.
      */
@@ -30,17 +58,12 @@ public class PurchaseDAO {
                 String name = rs.getString("name");
                 double price = rs.getDouble("price");
 
-                // Calculate subscription prices (mock calculation based on base price)
-                // 1 Month: 1.2 x Base
-                // 3 Months: 3.2 x Base (discounted)
-                // 6 Months: 6.0 x Base (discounted)
+                // Subscription prices are a multiple of the base price
+                // (discounted for longer subscriptions)
                 Map<Integer, Double> subPrices = new HashMap<>();
-                subPrices.put(1, price * 1.2);
-                subPrices.put(2, price * 2.4);
-                subPrices.put(3, price * 3.2);
-                subPrices.put(4, price * 4.4);
-                subPrices.put(5, price * 5.5);
-                subPrices.put(6, price * 6.0);
+                for (int months = 1; months < SUBSCRIPTION_MULTIPLIERS.length; months++) {
+                    subPrices.put(months, price * SUBSCRIPTION_MULTIPLIERS[months]);
+                }
 
                 return new CityPriceInfo(cityId, name, price, subPrices);
             }
@@ -54,172 +77,279 @@ public class PurchaseDAO {
      * Record a one-time purchase.
      */
     public static boolean purchaseOneTime(int userId, int cityId) {
-        // First check price
-        CityPriceInfo priceInfo = getCityPrice(cityId);
-        if (priceInfo == null)
-            return false;
-
-        // Get current approved version of the city map (if any)
-        // For simplicity in Phase 5, we'll just store NULL if no specific version logic
-        // yet,
-        // or we could fetch the latest approved version from map_versions.
-        // Let's keep it simple for now.
-
-        String query = "INSERT INTO purchases (user_id, city_id, price_paid) VALUES (?, ?, ?)";
-
-        try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(query)) {
+        return purchase(UUID.randomUUID().toString(), userId, cityId, 0) != null;
+    }
 
-            stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            stmt.setDouble(3, priceInfo.getOneTimePrice());
+    /**
+     * Record a subscription purchase.
+     */
+    public static boolean purchaseSubscription(int userId, int cityId, int months) {
+        return months > 0 && purchase(UUID.randomUUID().toString(), userId, cityId, months) != null;
+    }
 
-            int affected = stmt.executeUpdate();
-            return affected > 0;
+    /**
+     * Record a purchase in one transaction on one connection: claim the
+     * request ID, read the price and whether this is a renewal, insert the
+     * purchase and enqueue its stat increment.
+     *
+     * Idempotent per request ID: a retry of a committed purchase returns the
+     * original outcome without charging again, and a retry racing the
+     * original waits on the request row until the original commits or rolls
+     * back.
+     *
+     * @param requestId ID of the client request (Request.getRequestId())
+     * @param months    0 for a one-time purchase, 1-6 for a subscription
+     * @return the outcome, or null if nothing was recorded
+     */
+    public static PurchaseOutcome purchase(String requestId, int userId, int cityId, int months) {
+        if (months < 0 || months >= SUBSCRIPTION_MULTIPLIERS.length)
+            return null;
+
+        // End date is fixed when the request is claimed, so a replay returns
+        // the same one
+        Timestamp endDate = months > 0 ? Timestamp.valueOf(LocalDateTime.now().plusMonths(months)) : null;
+
+        try (Connection conn = DBConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!claimRequest(conn, requestId, userId, cityId, months, endDate)) {
+                    conn.rollback();
+                    return getPreviousOutcome(conn, requestId, userId, cityId, months);
+                }
+
+                String priceQuery = "SELECT c.price, " +
+                        "EXISTS (SELECT 1 FROM subscriptions s WHERE s.user_id = ? AND s.city_id = c.id) AS renewal " +
+                        "FROM cities c WHERE c.id = ?";
+                double price;
+                boolean renewal;
+                try (PreparedStatement stmt = conn.prepareStatement(priceQuery)) {
+                    stmt.setInt(1, userId);
+                    stmt.setInt(2, cityId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return null;
+                        }
+                        price = rs.getDouble("price");
+                        renewal = rs.getBoolean("renewal");
+                    }
+                }
+
+                DailyStatsDAO.Metric metric;
+                if (months == 0) {
+                    String insert = "INSERT INTO purchases (user_id, city_id, price_paid) VALUES (?, ?, ?)";
+                    try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+                        stmt.setInt(1, userId);
+                        stmt.setInt(2, cityId);
+                        stmt.setDouble(3, price);
+                        stmt.executeUpdate();
+                    }
+                    metric = DailyStatsDAO.Metric.PURCHASE_ONE_TIME;
+                } else {
+                    String insert = "INSERT INTO subscriptions (user_id, city_id, months, price_paid, end_date) " +
+                            "VALUES (?, ?, ?, ?, ?)";
+                    try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+                        stmt.setInt(1, userId);
+                        stmt.setInt(2, cityId);
+                        stmt.setInt(3, months);
+                        stmt.setDouble(4, price * SUBSCRIPTION_MULTIPLIERS[months]);
+                        stmt.setTimestamp(5, endDate);
+                        stmt.executeUpdate();
+                    }
+                    // Counted as RENEWAL if user had previous subscription, otherwise SUBSCRIPTION
+                    metric = renewal ? DailyStatsDAO.Metric.RENEWAL : DailyStatsDAO.Metric.PURCHASE_SUBSCRIPTION;
+                }
+
+                // Stat increment is applied by OutboxDispatcher after commit
+                OutboxDAO.enqueueStatIncrement(conn, cityId, metric);
+                conn.commit();
+                EntitlementCache.getInstance().invalidate(userId, cityId);
+                return outcomeOf(months, endDate, false);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             System.err.println("Error recording purchase: " + e.getMessage());
-            return false;
+            return null;
         }
     }
 
     /**
-     * Check if user has any previous subscription for this city.
+     * Insert the request row; false if a request with this ID was already
+     * recorded. Blocks while another transaction holds the same ID.
      */
-    public static boolean hasPreviousSubscription(int userId, int cityId) {
-        String sql = "SELECT 1 FROM subscriptions WHERE user_id = ? AND city_id = ? LIMIT 1";
-        try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            return stmt.executeQuery().next();
-        } catch (SQLException e) {
-            System.err.println("Error checking previous subscription: " + e.getMessage());
-            return false;
+    private static boolean claimRequest(Connection conn, String requestId, int userId, int cityId, int months,
+            Timestamp endDate) throws SQLException {
+        String sql = "INSERT IGNORE INTO purchase_requests (request_id, user_id, city_id, months, end_date) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, cityId);
+            stmt.setInt(4, months);
+            stmt.setTimestamp(5, endDate);
+            return stmt.executeUpdate() > 0;
         }
     }
 
     /**
-     * Record a subscription purchase.
+     * Outcome of an already recorded request, or null if the ID was used
+     * for a different purchase.
      */
-    public static boolean purchaseSubscription(int userId, int cityId, int months) {
-        if (months < 1 || months > 6)
-            return false;
-
-        CityPriceInfo priceInfo = getCityPrice(cityId);
-        if (priceInfo == null)
-            return false;
+    private static PurchaseOutcome getPreviousOutcome(Connection conn, String requestId, int userId, int cityId,
+            int months) throws SQLException {
+        String sql = "SELECT user_id, city_id, months, end_date FROM purchase_requests WHERE request_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt("user_id") == userId && rs.getInt("city_id") == cityId
+                        && rs.getInt("months") == months) {
+                    return outcomeOf(months, rs.getTimestamp("end_date"), true);
+                }
+            }
+        }
+        System.err.println("Purchase request " + requestId + " reused for a different purchase");
+        return null;
+    }
 
-        Double price = priceInfo.getSubscriptionPrices().get(months);
-        if (price == null)
-            return false; // Should not happen given logic above
+    private static PurchaseOutcome outcomeOf(int months, Timestamp endDate, boolean replayed) {
+        return months == 0
+                ? new PurchaseOutcome(EntitlementInfo.EntitlementType.ONE_TIME, null, replayed)
+                : new PurchaseOutcome(EntitlementInfo.EntitlementType.SUBSCRIPTION, endDate, replayed);
+    }
 
-        String query = "INSERT INTO subscriptions (user_id, city_id, months, price_paid, end_date) " +
-                "VALUES (?, ?, ?, ?, DATE_ADD(NOW(), INTERVAL ? MONTH))";
+    /**
+     * Delete request IDs older than the given number of days; retries never
+     * arrive that late.
+     *
+     * @return number of rows deleted
+     */
+    public static int purgePurchaseRequests(int days) {
+        String sql = "DELETE FROM purchase_requests WHERE created_at < NOW() - INTERVAL ? DAY";
 
         try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            stmt.setInt(3, months);
-            stmt.setDouble(4, price);
-            stmt.setInt(5, months);
-
-            int affected = stmt.executeUpdate();
-            return affected > 0;
-
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, days);
+            return stmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error recording subscription: " + e.getMessage());
-            return false;
+            System.err.println("Error purging purchase requests: " + e.getMessage());
+            return 0;
         }
     }
 
     /**
      * Get user's entitlement for a city.
-     * Checks both active subscriptions and past one-time purchases.
+     * Checks both active subscriptions and past one-time purchases, in one query.
+     * Callers on the request path should go through EntitlementCache.
+     *
+     * @return entitlement, or null if the database could not be read
      */
     public static EntitlementInfo getEntitlement(int userId, int cityId) {
-        // 1. Check active subscription
-        String subQuery = "SELECT end_date FROM subscriptions " +
-                "WHERE user_id = ? AND city_id = ? AND is_active = TRUE " +
-                "AND end_date > NOW() ORDER BY end_date DESC LIMIT 1";
-
-        try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(subQuery)) {
-
-            stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                LocalDate expiryDate = rs.getTimestamp("end_date").toLocalDateTime().toLocalDate();
-                return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.SUBSCRIPTION,
-                        expiryDate, true, true);
-            }
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return null;
+            return getEntitlement(conn, userId, cityId);
         } catch (SQLException e) {
-            System.err.println("Error checking subscription: " + e.getMessage());
+            System.err.println("Error checking entitlement: " + e.getMessage());
         }
+        return null;
+    }
 
-        // 2. Check one-time purchase
-        String purchaseQuery = "SELECT purchased_at FROM purchases " +
-                "WHERE user_id = ? AND city_id = ? LIMIT 1";
-
-        try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(purchaseQuery)) {
+    /**
+     * Get user's entitlement for a city on the caller's connection.
+     */
+    public static EntitlementInfo getEntitlement(Connection conn, int userId, int cityId) throws SQLException {
+        String query = "SELECT " +
+                "(SELECT MAX(end_date) FROM subscriptions WHERE user_id = ? AND city_id = ? " +
+                "  AND is_active = TRUE AND end_date > NOW()) AS sub_end, " +
+                "EXISTS (SELECT 1 FROM purchases WHERE user_id = ? AND city_id = ?) AS purchased";
 
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             stmt.setInt(2, cityId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                // One-time purchase allows view (no expiry) and download
-                // Note: Requirement says "One-time: downloads approved version at purchase
-                // time."
-                // But typically users expect to be able to download it again.
-                // For this implementation, we allow download if purchased.
-                return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.ONE_TIME,
-                        null, false, true); // Can download, but CANNOT view (viewing is sub only)
+            stmt.setInt(3, userId);
+            stmt.setInt(4, cityId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    // 1. Active subscription: view and download until end_date
+                    Timestamp subEnd = rs.getTimestamp("sub_end");
+                    if (subEnd != null) {
+                        EntitlementInfo info = new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.SUBSCRIPTION,
+                                subEnd.toLocalDateTime().toLocalDate(), true, true);
+                        info.setExpiresAtMillis(subEnd.getTime());
+                        return info;
+                    }
+
+                    // 2. One-time purchase allows download (no expiry) but not view
+                    // Note: Requirement says "One-time: downloads approved version at purchase
+                    // time."
+                    // But typically users expect to be able to download it again.
+                    // For this implementation, we allow download if purchased.
+                    if (rs.getBoolean("purchased")) {
+                        return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.ONE_TIME,
+                                null, false, true); // Can download, but CANNOT view (viewing is sub only)
+                    }
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Error checking purchase: " + e.getMessage());
         }
-
         return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.NONE, null, false, false);
     }
 
     /**
-     * Record a download event.
+     * Load everything a user owns into a session, in one query: the latest
+     * end of each active subscription, and each city bought one-time.
+     *
+     * @return false if the entitlements could not be read
      */
-    public static void recordDownload(int userId, int cityId) {
-        String query = "INSERT INTO download_events (user_id, city_id) VALUES (?, ?)";
+    public static boolean loadSessionEntitlements(int userId, SessionEntitlements entitlements) {
+        String query = "SELECT city_id, MAX(end_date) AS sub_end FROM subscriptions " +
+                "WHERE user_id = ? AND is_active = TRUE AND end_date > NOW() GROUP BY city_id " +
+                "UNION ALL " +
+                "SELECT DISTINCT city_id, NULL FROM purchases WHERE user_id = ?";
 
         try (Connection conn = DBConnector.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            stmt.executeUpdate();
+            stmt.setInt(2, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp subEnd = rs.getTimestamp("sub_end");
+                    if (subEnd != null) {
+                        entitlements.addSubscription(rs.getInt("city_id"), subEnd.getTime());
+                    } else {
+                        entitlements.addOneTime(rs.getInt("city_id"));
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error loading entitlements for user " + userId + ": " + e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * Record a download event synchronously (with its daily stat).
+     * The request path goes through UsageEventPipeline instead.
+     */
+    public static void recordDownload(int userId, int cityId) {
+        try {
+            UsageEventDAO.insert(List.of(UsageEvent.download(userId, cityId, System.currentTimeMillis())));
         } catch (SQLException e) {
             System.err.println("Error recording download: " + e.getMessage());
         }
     }
 
     /**
-     * Record a view event.
+     * Record a view event synchronously (with its daily stat).
+     * The request path goes through UsageEventPipeline instead.
      */
     public static void recordView(int userId, int cityId, int mapId) {
-        String query = "INSERT INTO view_events (user_id, city_id, map_id) VALUES (?, ?, ?)";
-
-        try (Connection conn = DBConnector.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, userId);
-            stmt.setInt(2, cityId);
-            stmt.setInt(3, mapId);
-            stmt.executeUpdate();
-
+        try {
+            UsageEventDAO.insert(List.of(UsageEvent.view(userId, cityId, mapId, System.currentTimeMillis())));
         } catch (SQLException e) {
             System.err.println("Error recording view: " + e.getMessage());
         }
@@ -569,4 +699,32 @@ public class PurchaseDAO {
             System.err.println("Error creating reminder table: " + e.getMessage());
         }
     }
+
+    /**
+     * Create the purchase request table if it doesn't exist.
+     * One row per purchase request ID, written in the purchase's transaction.
+     */
+    private static void createRequestTable() {
+        String sql = """
+                CREATE TABLE IF NOT EXISTS purchase_requests (
+                    request_id CHAR(36) PRIMARY KEY,
+                    user_id INT NOT NULL,
+                    city_id INT NOT NULL,
+                    months INT NOT NULL,
+                    end_date TIMESTAMP NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_purchase_requests_created (created_at)
+                )
+                """;
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating purchase request table: " + e.getMessage());
+        }
+    }
 }
@@ -14,25 +14,27 @@ import java.util.Map;
 /**
  * Data Access Object for search operations.
  * Provides case-insensitive search across cities, maps, and POIs.
+ * Search methods return null when the database cannot be read, so callers
+ * (and the result cache) can tell a failure from an empty result.
  */
 public class SearchDAO {
 
     /**
      * Get all cities with their map counts (catalog view).
      * 
-     * @return List of CitySearchResult with map summaries
+     * @return List of CitySearchResult with map summaries, or null on database error
      */
     public static List<CitySearchResult> getCitiesCatalog() {
         List<CitySearchResult> results = new ArrayList<>();
 
         String cityQuery = "SELECT c.id, c.name, c.description, c.price, " +
-                "(SELECT COUNT(*) FROM maps WHERE city_id = c.id) as map_count " +
-                "FROM cities c ORDER BY c.name";
+                "COALESCE(cs.map_count, 0) as map_count " +
+                "FROM cities c LEFT JOIN city_stats cs ON cs.city_id = c.id ORDER BY c.name";
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null) {
                 System.out.println("SearchDAO: Database connection failed");
-                return results;
+                return null;
             }
 
             PreparedStatement stmt = conn.prepareStatement(cityQuery);
@@ -57,6 +59,7 @@ public class SearchDAO {
         } catch (SQLException e) {
             System.out.println("SearchDAO: Error getting cities catalog");
             e.printStackTrace();
+            return null;
         }
 
         return results;
@@ -66,7 +69,7 @@ public class SearchDAO {
      * Search maps by city name (case-insensitive LIKE search).
      * 
      * @param cityName The city name to search for
-     * @return List of CitySearchResult matching the search
+     * @return List of CitySearchResult matching the search, or null on database error
      */
     public static List<CitySearchResult> searchByCityName(String cityName) {
         List<CitySearchResult> results = new ArrayList<>();
@@ -82,7 +85,7 @@ public class SearchDAO {
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
-                return results;
+                return null;
 
             PreparedStatement stmt = conn.prepareStatement(query);
             stmt.setString(1, "%" + cityName.trim() + "%");
@@ -107,6 +110,7 @@ public class SearchDAO {
         } catch (SQLException e) {
             System.out.println("SearchDAO: Error searching by city name");
             e.printStackTrace();
+            return null;
         }
 
         return results;
@@ -117,7 +121,7 @@ public class SearchDAO {
      * Returns cities containing maps that have matching POIs.
      * 
      * @param poiName The POI name to search for
-     * @return List of CitySearchResult with maps containing matching POIs
+     * @return List of CitySearchResult with maps containing matching POIs, or null on database error
      */
     public static List<CitySearchResult> searchByPoiName(String poiName) {
         List<CitySearchResult> results = new ArrayList<>();
@@ -128,17 +132,20 @@ public class SearchDAO {
 
         // First, find all maps that contain matching POIs
         String query = "SELECT DISTINCT c.id as city_id, c.name as city_name, c.description as city_desc, c.price, " +
-                "       m.id as map_id, m.name as map_name, m.short_description as map_desc " +
+                "       m.id as map_id, m.name as map_name, m.short_description as map_desc, " +
+                "       COALESCE(ms.poi_count, 0) as poi_count, COALESCE(cs.tour_count, 0) as tour_count " +
                 "FROM cities c " +
                 "JOIN maps m ON m.city_id = c.id " +
                 "JOIN map_pois mp ON mp.map_id = m.id " +
                 "JOIN pois p ON p.id = mp.poi_id " +
+                "LEFT JOIN map_stats ms ON ms.map_id = m.id " +
+                "LEFT JOIN city_stats cs ON cs.city_id = c.id " +
                 "WHERE LOWER(p.name) LIKE LOWER(?) " +
                 "ORDER BY c.name, m.name";
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
-                return results;
+                return null;
 
             PreparedStatement stmt = conn.prepareStatement(query);
             stmt.setString(1, "%" + poiName.trim() + "%");
@@ -160,17 +167,12 @@ public class SearchDAO {
                     cityMap.put(cityId, cityResult);
                 }
 
-                // Get POI and tour counts for this map
-                int mapId = rs.getInt("map_id");
-                int poiCount = getPoiCountForMap(conn, mapId);
-                int tourCount = getTourCountForCity(conn, cityId);
-
                 MapSummary mapSummary = new MapSummary(
-                        mapId,
+                        rs.getInt("map_id"),
                         rs.getString("map_name"),
                         rs.getString("map_desc"),
-                        poiCount,
-                        tourCount);
+                        rs.getInt("poi_count"),
+                        rs.getInt("tour_count"));
 
                 cityResult.addMap(mapSummary);
             }
@@ -181,6 +183,7 @@ public class SearchDAO {
         } catch (SQLException e) {
             System.out.println("SearchDAO: Error searching by POI name");
             e.printStackTrace();
+            return null;
         }
 
         return results;
@@ -192,7 +195,7 @@ public class SearchDAO {
      * 
      * @param cityName The city name to search for
      * @param poiName  The POI name to search for
-     * @return List of CitySearchResult with maps matching both criteria
+     * @return List of CitySearchResult with maps matching both criteria, or null on database error
      */
     public static List<CitySearchResult> searchByCityAndPoi(String cityName, String poiName) {
         List<CitySearchResult> results = new ArrayList<>();
@@ -211,18 +214,21 @@ public class SearchDAO {
         }
 
         String query = "SELECT DISTINCT c.id as city_id, c.name as city_name, c.description as city_desc, c.price, " +
-                "       m.id as map_id, m.name as map_name, m.short_description as map_desc " +
+                "       m.id as map_id, m.name as map_name, m.short_description as map_desc, " +
+                "       COALESCE(ms.poi_count, 0) as poi_count, COALESCE(cs.tour_count, 0) as tour_count " +
                 "FROM cities c " +
                 "JOIN maps m ON m.city_id = c.id " +
                 "JOIN map_pois mp ON mp.map_id = m.id " +
                 "JOIN pois p ON p.id = mp.poi_id " +
+                "LEFT JOIN map_stats ms ON ms.map_id = m.id " +
+                "LEFT JOIN city_stats cs ON cs.city_id = c.id " +
                 "WHERE LOWER(c.name) LIKE LOWER(?) " +
                 "  AND LOWER(p.name) LIKE LOWER(?) " +
                 "ORDER BY c.name, m.name";
 
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
-                return results;
+                return null;
 
             PreparedStatement stmt = conn.prepareStatement(query);
             stmt.setString(1, "%" + cityName.trim() + "%");
@@ -245,16 +251,12 @@ public class SearchDAO {
                     cityMap.put(cityId, cityResult);
                 }
 
-                int mapId = rs.getInt("map_id");
-                int poiCount = getPoiCountForMap(conn, mapId);
-                int tourCount = getTourCountForCity(conn, cityId);
-
                 MapSummary mapSummary = new MapSummary(
-                        mapId,
+                        rs.getInt("map_id"),
                         rs.getString("map_name"),
                         rs.getString("map_desc"),
-                        poiCount,
-                        tourCount);
+                        rs.getInt("poi_count"),
+                        rs.getInt("tour_count"));
 
                 cityResult.addMap(mapSummary);
             }
@@ -266,6 +268,7 @@ public class SearchDAO {
         } catch (SQLException e) {
             System.out.println("SearchDAO: Error searching by city and POI");
             e.printStackTrace();
+            return null;
         }
 
         return results;
@@ -280,49 +283,28 @@ public class SearchDAO {
         List<MapSummary> maps = new ArrayList<>();
 
         String query = "SELECT m.id, m.name, m.short_description, " +
-                "(SELECT COUNT(*) FROM map_pois WHERE map_id = m.id) as poi_count " +
-                "FROM maps m WHERE m.city_id = ? ORDER BY m.name";
+                "COALESCE(ms.poi_count, 0) as poi_count, COALESCE(cs.tour_count, 0) as tour_count " +
+                "FROM maps m " +
+                "LEFT JOIN map_stats ms ON ms.map_id = m.id " +
+                "LEFT JOIN city_stats cs ON cs.city_id = m.city_id " +
+                "WHERE m.city_id = ? ORDER BY m.name";
 
         PreparedStatement stmt = conn.prepareStatement(query);
         stmt.setInt(1, cityId);
         ResultSet rs = stmt.executeQuery();
 
-        int tourCount = getTourCountForCity(conn, cityId);
-
         while (rs.next()) {
             maps.add(new MapSummary(
                     rs.getInt("id"),
                     rs.getString("name"),
                     rs.getString("short_description"),
                     rs.getInt("poi_count"),
-                    tourCount));
+                    rs.getInt("tour_count")));
         }
 
         return maps;
     }
 
-    /**
-     * Get POI count for a specific map.
-     */
-    private static int getPoiCountForMap(Connection conn, int mapId) throws SQLException {
-        String query = "SELECT COUNT(*) FROM map_pois WHERE map_id = ?";
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setInt(1, mapId);
-        ResultSet rs = stmt.executeQuery();
-        return rs.next() ? rs.getInt(1) : 0;
-    }
-
-    /**
-     * Get tour count for a city.
-     */
-    private static int getTourCountForCity(Connection conn, int cityId) throws SQLException {
-        String query = "SELECT COUNT(*) FROM tours WHERE city_id = ?";
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setInt(1, cityId);
-        ResultSet rs = stmt.executeQuery();
-        return rs.next() ? rs.getInt(1) : 0;
-    }
-
     /**
      * Get POIs for a specific map.
      */
@@ -0,0 +1,35 @@
+package server.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Helpers for "IN (?, ?, ...)" lists shared by the batched DAO operations.
+ */
+final class SqlLists {
+
+    private SqlLists() {
+    }
+
+    /**
+     * Comma-separated parameter markers, e.g. "?,?,?" for 3.
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Bind values to parameters 1..n, in iteration order.
+     */
+    static void setInts(PreparedStatement stmt, Collection<Integer> values) throws SQLException {
+        int i = 1;
+        for (int value : values) {
+            stmt.setInt(i++, value);
+        }
+    }
+}
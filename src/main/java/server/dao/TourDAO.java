@@ -6,7 +6,12 @@ import server.DBConnector;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Tour operations.
@@ -17,35 +22,77 @@ public class TourDAO {
      * Get all tours for a city with their stops.
      */
     public static List<TourDTO> getToursForCity(int cityId) {
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return new ArrayList<>();
+
+            return getToursForCity(conn, cityId);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get all tours for a city with their stops on an existing connection.
+     * Uses two queries regardless of the number of tours: one for the tours
+     * and one for every stop of those tours.
+     */
+    public static List<TourDTO> getToursForCity(Connection conn, int cityId) throws SQLException {
         List<TourDTO> tours = new ArrayList<>();
 
         String query = "SELECT * FROM tours WHERE city_id = ? ORDER BY name";
 
-        try (Connection conn = DBConnector.getConnection()) {
-            if (conn == null)
-                return tours;
-
-            PreparedStatement stmt = conn.prepareStatement(query);
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, cityId);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                TourDTO tour = extractTour(rs);
-                // Load stops for this tour
-                List<TourStopDTO> stops = getTourStops(conn, tour.getId());
-                tour.setStops(stops);
-                tours.add(tour);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    TourDTO tour = extractTour(rs);
+                    tour.setStops(new ArrayList<>());
+                    tours.add(tour);
+                }
             }
+        }
 
-            System.out.println("TourDAO: Retrieved " + tours.size() + " tours for city " + cityId);
-
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (!tours.isEmpty()) {
+            loadStops(conn, tours);
         }
 
+        System.out.println("TourDAO: Retrieved " + tours.size() + " tours for city " + cityId);
         return tours;
     }
 
+    /**
+     * Load the stops of several tours with a single tour_id IN (...) query.
+     */
+    private static void loadStops(Connection conn, List<TourDTO> tours) throws SQLException {
+        Map<Integer, TourDTO> byId = new HashMap<>();
+        for (TourDTO tour : tours) {
+            byId.put(tour.getId(), tour);
+        }
+
+        String query = "SELECT ts.*, p.name as poi_name, p.category as poi_category " +
+                "FROM tour_stops ts " +
+                "JOIN pois p ON p.id = ts.poi_id " +
+                "WHERE ts.tour_id IN (" + SqlLists.placeholders(tours.size()) + ") " +
+                "ORDER BY ts.tour_id, ts.stop_order";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            for (TourDTO tour : tours) {
+                stmt.setInt(i++, tour.getId());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    TourStopDTO stop = extractStop(rs);
+                    byId.get(stop.getTourId()).getStops().add(stop);
+                }
+            }
+        }
+    }
+
     /**
      * Get a tour by ID with stops.
      */
@@ -90,20 +137,27 @@ public class TourDAO {
         ResultSet rs = stmt.executeQuery();
 
         while (rs.next()) {
-            stops.add(new TourStopDTO(
-                    rs.getInt("id"),
-                    rs.getInt("tour_id"),
-                    rs.getInt("poi_id"),
-                    rs.getString("poi_name"),
-                    rs.getString("poi_category"),
-                    rs.getInt("stop_order"),
-                    rs.getInt("recommended_duration_minutes"),
-                    rs.getString("notes")));
+            stops.add(extractStop(rs));
         }
 
         return stops;
     }
 
+    /**
+     * Extract a TourStopDTO from a stops query joined with pois.
+     */
+    private static TourStopDTO extractStop(ResultSet rs) throws SQLException {
+        return new TourStopDTO(
+                rs.getInt("id"),
+                rs.getInt("tour_id"),
+                rs.getInt("poi_id"),
+                rs.getString("poi_name"),
+                rs.getString("poi_category"),
+                rs.getInt("stop_order"),
+                rs.getInt("recommended_duration_minutes"),
+                rs.getString("notes"));
+    }
+
     /**
      * Create a new tour.
      * 
@@ -126,6 +180,7 @@ public class TourDAO {
             if (keys.next()) {
                 int tourId = keys.getInt(1);
                 System.out.println("TourDAO: Created tour with ID " + tourId);
+                ContentStatsDAO.adjustCityTourCount(conn, tour.getCityId(), 1);
 
                 // Create stops if any
                 for (TourStopDTO stop : tour.getStops()) {
@@ -141,13 +196,21 @@ public class TourDAO {
     }
 
     /**
-     * Create a new tour (standalone).
+     * Create a new tour (standalone, tour + stops + counter in one transaction).
      */
     public static int createTour(TourDTO tour) {
         try (Connection conn = DBConnector.getConnection()) {
             if (conn == null)
                 return -1;
-            return createTour(conn, tour);
+            conn.setAutoCommit(false);
+            try {
+                int tourId = createTour(conn, tour);
+                conn.commit();
+                return tourId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
             return -1;
@@ -179,6 +242,8 @@ public class TourDAO {
         // Stops will be deleted by CASCADE
         String query = "DELETE FROM tours WHERE id = ?";
 
+        ContentStatsDAO.decrementCityOfTour(conn, tourId);
+
         PreparedStatement stmt = conn.prepareStatement(query);
         stmt.setInt(1, tourId);
 
@@ -250,6 +315,184 @@ public class TourDAO {
         return affected > 0;
     }
 
+    // ==================== Batched Operations ====================
+    // Used when applying large change sets inside one transaction.
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Create many tours (and their stops) with multi-row inserts.
+     *
+     * @return created tour IDs, in input order
+     */
+    public static int[] createTours(Connection conn, List<TourDTO> tours) throws SQLException {
+        int[] ids = new int[tours.size()];
+        Map<Integer, Integer> perCity = new HashMap<>();
+        List<TourStopDTO> stops = new ArrayList<>();
+
+        for (int from = 0; from < tours.size(); from += BATCH_SIZE) {
+            List<TourDTO> chunk = tours.subList(from, Math.min(from + BATCH_SIZE, tours.size()));
+
+            StringBuilder query = new StringBuilder(
+                    "INSERT INTO tours (city_id, name, general_description, estimated_duration_minutes) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                query.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(query.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (TourDTO tour : chunk) {
+                    stmt.setInt(p++, tour.getCityId());
+                    stmt.setString(p++, tour.getName());
+                    stmt.setString(p++, tour.getDescription());
+                    stmt.setInt(p++, tour.getEstimatedDurationMinutes());
+                }
+                stmt.executeUpdate();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    int i = from;
+                    for (TourDTO tour : chunk) {
+                        if (!keys.next()) {
+                            throw new SQLException("Expected " + chunk.size() + " generated tour keys");
+                        }
+                        int tourId = keys.getInt(1);
+                        ids[i++] = tourId;
+                        perCity.merge(tour.getCityId(), 1, Integer::sum);
+                        for (TourStopDTO stop : tour.getStops()) {
+                            stop.setTourId(tourId);
+                            stops.add(stop);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> entry : perCity.entrySet()) {
+            ContentStatsDAO.adjustCityTourCount(conn, entry.getKey(), entry.getValue());
+        }
+        addTourStops(conn, stops);
+
+        System.out.println("TourDAO: Created " + tours.size() + " tours (batched)");
+        return ids;
+    }
+
+    /**
+     * Update many tours (metadata only) in one JDBC batch.
+     */
+    public static void updateTours(Connection conn, List<TourDTO> tours) throws SQLException {
+        if (tours.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE tours SET name = ?, general_description = ?, " +
+                "estimated_duration_minutes = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (TourDTO tour : tours) {
+                stmt.setString(1, tour.getName());
+                stmt.setString(2, tour.getDescription());
+                stmt.setInt(3, tour.getEstimatedDurationMinutes());
+                stmt.setInt(4, tour.getId());
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Delete many tours (stops are deleted by CASCADE).
+     */
+    public static void deleteTours(Connection conn, List<Integer> tourIds) throws SQLException {
+        for (int from = 0; from < tourIds.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = tourIds.subList(from, Math.min(from + BATCH_SIZE, tourIds.size()));
+            ContentStatsDAO.decrementCitiesOfTours(conn, chunk);
+            deleteIn(conn, "DELETE FROM tours WHERE id IN ", chunk);
+        }
+    }
+
+    /**
+     * Add many tour stops in one JDBC batch.
+     */
+    public static void addTourStops(Connection conn, List<TourStopDTO> stops) throws SQLException {
+        if (stops.isEmpty()) {
+            return;
+        }
+        String query = "INSERT INTO tour_stops (tour_id, poi_id, stop_order, recommended_duration_minutes, notes) " +
+                "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (TourStopDTO stop : stops) {
+                stmt.setInt(1, stop.getTourId());
+                stmt.setInt(2, stop.getPoiId());
+                stmt.setInt(3, stop.getStopOrder());
+                stmt.setInt(4, stop.getDurationMinutes());
+                stmt.setString(5, stop.getNotes());
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Update many tour stops in one JDBC batch.
+     */
+    public static void updateTourStops(Connection conn, List<TourStopDTO> stops) throws SQLException {
+        if (stops.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE tour_stops SET poi_id = ?, stop_order = ?, " +
+                "recommended_duration_minutes = ?, notes = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int pending = 0;
+            for (TourStopDTO stop : stops) {
+                stmt.setInt(1, stop.getPoiId());
+                stmt.setInt(2, stop.getStopOrder());
+                stmt.setInt(3, stop.getDurationMinutes());
+                stmt.setString(4, stop.getNotes());
+                stmt.setInt(5, stop.getId());
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Remove many tour stops.
+     */
+    public static void removeTourStops(Connection conn, List<Integer> stopIds) throws SQLException {
+        for (int from = 0; from < stopIds.size(); from += BATCH_SIZE) {
+            deleteIn(conn, "DELETE FROM tour_stops WHERE id IN ",
+                    stopIds.subList(from, Math.min(from + BATCH_SIZE, stopIds.size())));
+        }
+    }
+
+    private static void deleteIn(Connection conn, String prefix, List<Integer> ids) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(prefix + "(" + SqlLists.placeholders(ids.size()) + ")")) {
+            SqlLists.setInts(stmt, ids);
+            stmt.executeUpdate();
+        }
+    }
+
     /**
      * Extract TourDTO from ResultSet.
      */
@@ -272,4 +515,56 @@ public class TourDAO {
         ResultSet rs = stmt.executeQuery();
         return rs.next() && rs.getInt(1) > 0;
     }
+
+    /**
+     * Find a tour by name (case-insensitive) within a city on the caller's
+     * connection.
+     *
+     * @return tour ID, or -1 if there is none
+     */
+    public static int getTourIdByName(Connection conn, int cityId, String name) throws SQLException {
+        String query = "SELECT id FROM tours WHERE city_id = ? AND LOWER(name) = LOWER(?) ORDER BY id LIMIT 1";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, cityId);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Get the stop orders already used by a tour.
+     */
+    public static Set<Integer> getStopOrders(Connection conn, int tourId) throws SQLException {
+        Set<Integer> orders = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stop_order FROM tour_stops WHERE tour_id = ?")) {
+            stmt.setInt(1, tourId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(rs.getInt(1));
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Set each tour's estimated duration to the sum of its stop durations.
+     */
+    public static void recomputeDurations(Connection conn, Collection<Integer> tourIds) throws SQLException {
+        if (tourIds.isEmpty()) {
+            return;
+        }
+        String query = "UPDATE tours t SET t.estimated_duration_minutes = " +
+                "(SELECT COALESCE(SUM(s.recommended_duration_minutes), t.estimated_duration_minutes) " +
+                "FROM tour_stops s WHERE s.tour_id = t.id) " +
+                "WHERE t.id IN (" + SqlLists.placeholders(tourIds.size()) + ")";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            SqlLists.setInts(stmt, tourIds);
+            stmt.executeUpdate();
+        }
+    }
 }
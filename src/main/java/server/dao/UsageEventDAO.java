@@ -0,0 +1,418 @@
+package server.dao;
+
+import server.DBConnector;
+import server.service.DailyStatsCounters;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data Access Object for raw map view and download events.
+ *
+ * Events are stored in one table per kind and calendar month
+ * (view_events_202610, download_events_202610), created ahead of time by
+ * UsageEventRetentionJob or on first use. Inserts always go to a small,
+ * recent table, and expiring a month is a DROP TABLE instead of a large
+ * DELETE. Monthly tables carry no foreign keys: nothing joins them, and
+ * dropping the table is their cleanup.
+ *
+ * Views are rolled up per day and map into map_views_daily (view and
+ * download totals per city are already in daily_stats). Each day is rolled
+ * up exactly once: the rollup and the rolled-up-to marker in
+ * usage_rollup_state are written in one transaction.
+ *
+ * The original view_events / download_events tables are legacy: rolled up
+ * once, then trimmed by the same retention.
+ */
+public class UsageEventDAO {
+
+    public static final String VIEWS = "view_events";
+    public static final String DOWNLOADS = "download_events";
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String STATE_VIEWS = "map_views_daily";
+    private static final String STATE_LEGACY = "legacy_view_events";
+    private static final int TRIM_CHUNK = 10_000;
+
+    // Monthly tables known to exist, so inserts skip the DDL
+    private static final Set<String> knownTables = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A map view or download, recorded asynchronously.
+     */
+    public static class UsageEvent {
+        public final boolean view; // Otherwise a download
+        public final int userId;
+        public final int cityId;
+        public final int mapId; // Views only
+        public final long atMillis;
+
+        private UsageEvent(boolean view, int userId, int cityId, int mapId, long atMillis) {
+            this.view = view;
+            this.userId = userId;
+            this.cityId = cityId;
+            this.mapId = mapId;
+            this.atMillis = atMillis;
+        }
+
+        public static UsageEvent view(int userId, int cityId, int mapId, long atMillis) {
+            return new UsageEvent(true, userId, cityId, mapId, atMillis);
+        }
+
+        public static UsageEvent download(int userId, int cityId, long atMillis) {
+            return new UsageEvent(false, userId, cityId, 0, atMillis);
+        }
+
+        public LocalDate date() {
+            return Instant.ofEpochMilli(atMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+    }
+
+    static {
+        createTables();
+    }
+
+    private static void createTables() {
+        String rollup = "CREATE TABLE IF NOT EXISTS map_views_daily (" +
+                "stat_date DATE NOT NULL, " +
+                "map_id INT NOT NULL, " +
+                "city_id INT NOT NULL, " +
+                "views INT NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (stat_date, map_id), " +
+                "INDEX idx_map_views_city (city_id, stat_date)" +
+                ")";
+        String state = "CREATE TABLE IF NOT EXISTS usage_rollup_state (" +
+                "name VARCHAR(40) PRIMARY KEY, " +
+                "last_day DATE NOT NULL" +
+                ")";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            if (conn == null)
+                return;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(rollup);
+                stmt.execute(state);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating usage rollup tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the rollup tables exist (forces class initialization).
+     */
+    public static void init() {
+        // Tables are created by the static initializer
+    }
+
+    public static String monthTable(String base, YearMonth month) {
+        return base + "_" + month.format(MONTH_SUFFIX);
+    }
+
+    /**
+     * Create both event tables for a month if needed. DDL commits implicitly,
+     * so call this outside a transaction.
+     */
+    public static void ensureMonthTables(Connection conn, YearMonth month) throws SQLException {
+        String views = monthTable(VIEWS, month);
+        String downloads = monthTable(DOWNLOADS, month);
+        if (knownTables.contains(views) && knownTables.contains(downloads)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + views + " (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "user_id INT NOT NULL, " +
+                    "city_id INT NOT NULL, " +
+                    "map_id INT NOT NULL, " +
+                    "viewed_at TIMESTAMP NOT NULL, " +
+                    "INDEX idx_viewed_at (viewed_at)" +
+                    ")");
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + downloads + " (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "user_id INT NOT NULL, " +
+                    "city_id INT NOT NULL, " +
+                    "downloaded_at TIMESTAMP NOT NULL, " +
+                    "INDEX idx_downloaded_at (downloaded_at)" +
+                    ")");
+        }
+        knownTables.add(views);
+        knownTables.add(downloads);
+    }
+
+    public static void ensureMonthTables(YearMonth month) throws SQLException {
+        try (Connection conn = DBConnector.getConnection()) {
+            ensureMonthTables(conn, month);
+        }
+    }
+
+    /**
+     * Write a batch of events in one transaction, one batched insert per
+     * monthly table, then count them in the daily stats
+     * (DailyStatsCounters). Called by UsageEventPipeline.
+     */
+    public static void insert(List<UsageEvent> events) throws SQLException {
+        Map<YearMonth, List<UsageEvent>> byMonth = new LinkedHashMap<>();
+        for (UsageEvent event : events) {
+            byMonth.computeIfAbsent(YearMonth.from(event.date()), m -> new ArrayList<>()).add(event);
+        }
+
+        try (Connection conn = DBConnector.getConnection()) {
+            for (YearMonth month : byMonth.keySet()) {
+                ensureMonthTables(conn, month);
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<YearMonth, List<UsageEvent>> entry : byMonth.entrySet()) {
+                    insertMonth(conn, entry.getKey(), entry.getValue());
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        DailyStatsCounters counters = DailyStatsCounters.getInstance();
+        for (UsageEvent event : events) {
+            counters.add(event.date(), event.cityId,
+                    event.view ? DailyStatsDAO.Metric.VIEW : DailyStatsDAO.Metric.DOWNLOAD, 1);
+        }
+    }
+
+    private static void insertMonth(Connection conn, YearMonth month, List<UsageEvent> events) throws SQLException {
+        String viewSql = "INSERT INTO " + monthTable(VIEWS, month) +
+                " (user_id, city_id, map_id, viewed_at) VALUES (?, ?, ?, ?)";
+        String downloadSql = "INSERT INTO " + monthTable(DOWNLOADS, month) +
+                " (user_id, city_id, downloaded_at) VALUES (?, ?, ?)";
+
+        try (PreparedStatement views = conn.prepareStatement(viewSql);
+                PreparedStatement downloads = conn.prepareStatement(downloadSql)) {
+            int viewCount = 0;
+            int downloadCount = 0;
+            for (UsageEvent event : events) {
+                Timestamp at = new Timestamp(event.atMillis);
+                if (event.view) {
+                    views.setInt(1, event.userId);
+                    views.setInt(2, event.cityId);
+                    views.setInt(3, event.mapId);
+                    views.setTimestamp(4, at);
+                    views.addBatch();
+                    viewCount++;
+                } else {
+                    downloads.setInt(1, event.userId);
+                    downloads.setInt(2, event.cityId);
+                    downloads.setTimestamp(3, at);
+                    downloads.addBatch();
+                    downloadCount++;
+                }
+            }
+            // rewriteBatchedStatements turns each batch into multi-row inserts
+            if (viewCount > 0) {
+                views.executeBatch();
+            }
+            if (downloadCount > 0) {
+                downloads.executeBatch();
+            }
+        }
+    }
+
+    // ==================== Lifecycle (UsageEventRetentionJob) ====================
+
+    /**
+     * Months that have an event table of the given kind, oldest first.
+     */
+    public static List<YearMonth> getMonths(String base) throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SHOW TABLES LIKE ?")) {
+            stmt.setString(1, base.replace("_", "\\_") + "\\_______");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String suffix = rs.getString(1).substring(base.length() + 1);
+                    if (suffix.chars().allMatch(Character::isDigit)) {
+                        months.add(YearMonth.parse(suffix, MONTH_SUFFIX));
+                    }
+                }
+            }
+        }
+        months.sort(null);
+        return months;
+    }
+
+    private static boolean tableExists(String table) throws SQLException {
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SHOW TABLES LIKE ?")) {
+            stmt.setString(1, table.replace("_", "\\_"));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Last day whose views are in map_views_daily, or null before the first
+     * rollup.
+     */
+    public static LocalDate getLastRolledUpDay() throws SQLException {
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT last_day FROM usage_rollup_state WHERE name = ?")) {
+            stmt.setString(1, STATE_VIEWS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDate("last_day").toLocalDate() : null;
+            }
+        }
+    }
+
+    /**
+     * Start rolling up after the given day (first run only).
+     */
+    public static void initRollupState(LocalDate lastDay) throws SQLException {
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT IGNORE INTO usage_rollup_state (name, last_day) VALUES (?, ?)")) {
+            stmt.setString(1, STATE_VIEWS);
+            stmt.setDate(2, Date.valueOf(lastDay));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Add one day's views to map_views_daily, unless that day was already
+     * rolled up. Days must be rolled up in order.
+     *
+     * @return false if the day was already rolled up
+     */
+    public static boolean rollupDay(LocalDate day) throws SQLException {
+        String table = monthTable(VIEWS, YearMonth.from(day));
+        String rollup = "INSERT INTO map_views_daily (stat_date, map_id, city_id, views) " +
+                "SELECT DATE(viewed_at), map_id, MAX(city_id), COUNT(*) FROM " + table +
+                " WHERE viewed_at >= ? AND viewed_at < ? GROUP BY DATE(viewed_at), map_id " +
+                "ON DUPLICATE KEY UPDATE views = views + VALUES(views)";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            boolean tableExists = tableExists(table);
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT last_day FROM usage_rollup_state WHERE name = ? FOR UPDATE")) {
+                    stmt.setString(1, STATE_VIEWS);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next() || !rs.getDate("last_day").toLocalDate().equals(day.minusDays(1))) {
+                            conn.rollback();
+                            return false;
+                        }
+                    }
+                }
+
+                if (tableExists) {
+                    try (PreparedStatement stmt = conn.prepareStatement(rollup)) {
+                        stmt.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+                        stmt.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+                        stmt.executeUpdate();
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE usage_rollup_state SET last_day = ? WHERE name = ?")) {
+                    stmt.setDate(1, Date.valueOf(day));
+                    stmt.setString(2, STATE_VIEWS);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Roll up the legacy view_events table into map_views_daily, once.
+     *
+     * @return false if it was already rolled up (or never existed)
+     */
+    public static boolean rollupLegacyViews() throws SQLException {
+        if (!tableExists(VIEWS)) {
+            return false;
+        }
+        String rollup = "INSERT INTO map_views_daily (stat_date, map_id, city_id, views) " +
+                "SELECT DATE(viewed_at), map_id, MAX(city_id), COUNT(*) FROM " + VIEWS +
+                " GROUP BY DATE(viewed_at), map_id " +
+                "ON DUPLICATE KEY UPDATE views = views + VALUES(views)";
+
+        try (Connection conn = DBConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT IGNORE INTO usage_rollup_state (name, last_day) VALUES (?, CURDATE())")) {
+                    stmt.setString(1, STATE_LEGACY);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate(rollup);
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Drop a month's event table.
+     */
+    public static void dropMonth(String base, YearMonth month) throws SQLException {
+        String table = monthTable(base, month);
+        try (Connection conn = DBConnector.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + table);
+        }
+        knownTables.remove(table);
+    }
+
+    /**
+     * Delete legacy rows older than a date, in small chunks so no single
+     * statement holds locks for long. Rows are in id order by time, so each
+     * chunk stops early without an index on the time column.
+     *
+     * @return number of rows deleted
+     */
+    public static int trimLegacy(String base, LocalDate before) throws SQLException {
+        if (!tableExists(base)) {
+            return 0;
+        }
+        String timeCol = VIEWS.equals(base) ? "viewed_at" : "downloaded_at";
+        String sql = "DELETE FROM " + base + " WHERE " + timeCol + " < ? ORDER BY id LIMIT " + TRIM_CHUNK;
+
+        int total = 0;
+        try (Connection conn = DBConnector.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(before.atStartOfDay()));
+            int deleted;
+            do {
+                deleted = stmt.executeUpdate();
+                total += deleted;
+            } while (deleted == TRIM_CHUNK);
+        }
+        return total;
+    }
+}
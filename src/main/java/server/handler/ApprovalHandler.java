@@ -6,6 +6,8 @@ import common.Response;
 import common.dto.*;
 import server.DBConnector;
 import server.dao.*;
+import server.scheduler.OutboxDispatcher;
+import server.service.MapVersionDiffService;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -37,6 +39,9 @@ public class ApprovalHandler {
                 case REJECT_MAP_VERSION:
                     return handleRejectVersion(request);
 
+                case DIFF_MAP_VERSIONS:
+                    return handleDiffVersions(request);
+
                 default:
                     return Response.error(request, Response.ERR_INTERNAL,
                             "Unknown approval message type: " + type);
@@ -78,6 +83,30 @@ public class ApprovalHandler {
         return Response.success(request, version);
     }
 
+    /**
+     * Compare two approved versions of the same map.
+     * Payload: MapVersionDiffRequest
+     * Returns MapVersionDiff (cached; snapshots never change).
+     */
+    private static Response handleDiffVersions(Request request) {
+        if (!(request.getPayload() instanceof MapVersionDiffRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION, "MapVersionDiffRequest required");
+        }
+
+        MapVersionDiffRequest diffReq = (MapVersionDiffRequest) request.getPayload();
+        try {
+            MapVersionDiff diff = MapVersionDiffService.getInstance()
+                    .diff(diffReq.getFromVersionId(), diffReq.getToVersionId());
+            if (diff == null) {
+                return Response.error(request, Response.ERR_NOT_FOUND,
+                        "Version snapshot not found (only approved versions can be compared)");
+            }
+            return Response.success(request, diff);
+        } catch (IllegalArgumentException e) {
+            return Response.error(request, Response.ERR_VALIDATION, e.getMessage());
+        }
+    }
+
     /**
      * Approve a pending map version.
      * Payload: ApprovalRequest with versionId
@@ -122,22 +151,27 @@ public class ApprovalHandler {
                 return Response.error(request, Response.ERR_INTERNAL, "Failed to update version status");
             }
 
+            // Freeze the approved content
+            MapSnapshotDAO.createSnapshot(conn, versionId, version.getMapId());
+
             // 2. Update Approval record
             ApprovalDAO.updateApproval(conn, ApprovalDAO.ENTITY_MAP_VERSION, versionId,
                     ApprovalDAO.STATUS_APPROVED, approverId, null);
 
-            // 3. Write AuditLog
-            AuditLogDAO.log(conn, AuditLogDAO.ACTION_VERSION_APPROVED, approverId,
+            // 3. Write AuditLog (via outbox)
+            OutboxDAO.enqueueAudit(conn, AuditLogDAO.ACTION_VERSION_APPROVED, approverId,
                     AuditLogDAO.ENTITY_MAP_VERSION, versionId,
                     "mapId", String.valueOf(version.getMapId()),
                     "mapName", version.getMapName());
 
-            // 4. Notify customers who purchased the city
-            int notificationCount = NotificationDAO.notifyCustomersAboutMapUpdate(
-                    conn, version.getCityId(), version.getMapName());
-            System.out.println("ApprovalHandler: Created " + notificationCount + " customer notifications");
+            // 4. Notify customers who purchased the city (fanned out by OutboxDispatcher)
+            OutboxDAO.enqueueCityNotification(conn, version.getCityId(),
+                    "Map Updated: " + version.getMapName(),
+                    "A new version of the map '" + version.getMapName() + "' is now available. " +
+                            "Download the latest version to see the updates.");
 
             conn.commit();
+            OutboxDispatcher.getInstance().wakeUp();
 
             // Return updated version
             MapVersionDTO updatedVersion = MapVersionDAO.getVersionById(versionId);
@@ -216,8 +250,8 @@ public class ApprovalHandler {
             ApprovalDAO.updateApproval(conn, ApprovalDAO.ENTITY_MAP_VERSION, versionId,
                     ApprovalDAO.STATUS_REJECTED, rejectorId, reason);
 
-            // 3. Write AuditLog
-            AuditLogDAO.log(conn, AuditLogDAO.ACTION_VERSION_REJECTED, rejectorId,
+            // 3. Write AuditLog (via outbox)
+            OutboxDAO.enqueueAudit(conn, AuditLogDAO.ACTION_VERSION_REJECTED, rejectorId,
                     AuditLogDAO.ENTITY_MAP_VERSION, versionId,
                     "mapId", String.valueOf(version.getMapId()),
                     "reason", reason);
@@ -227,9 +261,10 @@ public class ApprovalHandler {
             String body = "Your submitted changes for '" + version.getMapName() +
                     "' have been rejected.\n\nReason: " + reason +
                     "\n\nPlease revise and resubmit.";
-            NotificationDAO.createNotification(conn, version.getCreatedBy(), title, body);
+            OutboxDAO.enqueueUserNotification(conn, version.getCreatedBy(), title, body);
 
             conn.commit();
+            OutboxDispatcher.getInstance().wakeUp();
 
             // Return updated version
             MapVersionDTO updatedVersion = MapVersionDAO.getVersionById(versionId);
@@ -262,6 +297,7 @@ public class ApprovalHandler {
         return type == MessageType.LIST_PENDING_MAP_VERSIONS ||
                 type == MessageType.GET_MAP_VERSION_DETAILS ||
                 type == MessageType.APPROVE_MAP_VERSION ||
-                type == MessageType.REJECT_MAP_VERSION;
+                type == MessageType.REJECT_MAP_VERSION ||
+                type == MessageType.DIFF_MAP_VERSIONS;
     }
 }
@@ -7,6 +7,7 @@ import common.dto.LoginRequest;
 import common.dto.LoginResponse;
 import common.dto.RegisterRequest;
 import server.SessionManager;
+import server.dao.PurchaseDAO;
 import server.dao.UserDAO;
 
 /**
@@ -126,6 +127,13 @@ public class AuthHandler {
             return Response.error(request, Response.ERR_INTERNAL, "Failed to create session");
         }
 
+        // Load owned cities onto the session so purchase checks need no query
+        SessionManager.SessionInfo session = sessions.validateSession(token);
+        if (session != null && !PurchaseDAO.loadSessionEntitlements(user.id, session.entitlements)) {
+            sessions.invalidateSession(token);
+            return Response.error(request, Response.ERR_DATABASE, "Failed to load purchases");
+        }
+
         // Update last login time
         UserDAO.updateLastLogin(user.id);
 
@@ -0,0 +1,63 @@
+package server.handler;
+
+import common.MessageType;
+import common.Request;
+import common.Response;
+import common.dto.BulkImportRequest;
+import common.dto.ImportJobStatus;
+import server.service.BulkImportService;
+
+/**
+ * Handler for bulk content import jobs.
+ * Imports run in the background; clients poll GET_IMPORT_STATUS for progress.
+ */
+public class BulkImportHandler {
+
+    public static boolean canHandle(MessageType type) {
+        return type == MessageType.START_BULK_IMPORT ||
+                type == MessageType.GET_IMPORT_STATUS;
+    }
+
+    public static Response handle(Request request) {
+        if (request.getUserId() <= 0) {
+            return Response.error(request, Response.ERR_AUTHENTICATION, "Authentication required");
+        }
+
+        switch (request.getType()) {
+            case START_BULK_IMPORT:
+                return handleStartImport(request);
+            case GET_IMPORT_STATUS:
+                return handleGetStatus(request);
+            default:
+                return Response.error(request, Response.ERR_INTERNAL, "Invalid message type for BulkImportHandler");
+        }
+    }
+
+    private static Response handleStartImport(Request request) {
+        if (!(request.getPayload() instanceof BulkImportRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION, "BulkImportRequest required");
+        }
+
+        try {
+            ImportJobStatus job = BulkImportService.getInstance().start(
+                    (BulkImportRequest) request.getPayload(), request.getUserId());
+            return Response.success(request, job);
+        } catch (IllegalArgumentException e) {
+            return Response.error(request, Response.ERR_VALIDATION, e.getMessage());
+        } catch (IllegalStateException e) {
+            return Response.error(request, Response.ERR_DATABASE, e.getMessage());
+        }
+    }
+
+    private static Response handleGetStatus(Request request) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Job ID required");
+        }
+
+        ImportJobStatus job = BulkImportService.getInstance().getStatus((Integer) request.getPayload());
+        if (job == null) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Import job not found");
+        }
+        return Response.success(request, job);
+    }
+}
@@ -0,0 +1,62 @@
+package server.handler;
+
+import common.MessageType;
+import common.Request;
+import common.Response;
+import common.dto.ExportJobStatus;
+import common.dto.ExportRequest;
+import server.service.CityExportService;
+
+/**
+ * Handler for city export jobs.
+ * Exports run in the background; clients poll GET_EXPORT_STATUS for the
+ * archive name once the job completes.
+ */
+public class CityExportHandler {
+
+    public static boolean canHandle(MessageType type) {
+        return type == MessageType.START_CITY_EXPORT ||
+                type == MessageType.GET_EXPORT_STATUS;
+    }
+
+    public static Response handle(Request request) {
+        if (request.getUserId() <= 0) {
+            return Response.error(request, Response.ERR_AUTHENTICATION, "Authentication required");
+        }
+
+        switch (request.getType()) {
+            case START_CITY_EXPORT:
+                return handleStartExport(request);
+            case GET_EXPORT_STATUS:
+                return handleGetStatus(request);
+            default:
+                return Response.error(request, Response.ERR_INTERNAL, "Invalid message type for CityExportHandler");
+        }
+    }
+
+    private static Response handleStartExport(Request request) {
+        if (!(request.getPayload() instanceof ExportRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION, "ExportRequest required");
+        }
+
+        try {
+            ExportJobStatus job = CityExportService.getInstance().start(
+                    ((ExportRequest) request.getPayload()).getCityIds());
+            return Response.success(request, job);
+        } catch (IllegalArgumentException e) {
+            return Response.error(request, Response.ERR_VALIDATION, e.getMessage());
+        }
+    }
+
+    private static Response handleGetStatus(Request request) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Job ID required");
+        }
+
+        ExportJobStatus job = CityExportService.getInstance().getStatus((Integer) request.getPayload());
+        if (job == null) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Export job not found");
+        }
+        return Response.success(request, job);
+    }
+}
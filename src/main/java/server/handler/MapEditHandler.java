@@ -7,9 +7,19 @@ import common.Response;
 import common.dto.*;
 import server.DBConnector;
 import server.dao.*;
+import server.scheduler.OutboxDispatcher;
+import server.service.MapChangesCompactor;
+import server.service.MapPackageStore;
+import server.service.PoiFacetIndex;
+import server.service.PoiSpatialIndex;
+import server.service.SearchResultCache;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Handler for all map editing operations.
@@ -34,18 +44,30 @@ public class MapEditHandler {
                 case GET_MAP_CONTENT:
                     return handleGetMapContent(request);
 
+                case GET_MAP_VERSION_CONTENT:
+                    return handleGetMapVersionContent(request);
+
                 case SUBMIT_MAP_CHANGES:
                     return handleSubmitMapChanges(request);
 
                 case GET_PENDING_MAP_EDITS:
                     return handleGetPendingMapEdits(request);
 
+                case GET_MAP_EDIT_DETAILS:
+                    return handleGetMapEditDetails(request);
+
                 case APPROVE_MAP_EDIT:
                     return handleApproveMapEdit(request);
 
                 case REJECT_MAP_EDIT:
                     return handleRejectMapEdit(request);
 
+                case PREVIEW_MERGED_MAP_EDITS:
+                    return handlePreviewMergedMapEdits(request);
+
+                case APPROVE_MERGED_MAP_EDITS:
+                    return handleApproveMergedMapEdits(request);
+
                 case CREATE_CITY:
                     return handleCreateCity(request);
 
@@ -130,6 +152,26 @@ public class MapEditHandler {
         return Response.success(request, content);
     }
 
+    /**
+     * Serve the snapshot frozen when a version was approved, so any approved
+     * version (not just the latest) can be read without the live tables.
+     */
+    private static Response handleGetMapVersionContent(Request request) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Version ID required");
+        }
+
+        int versionId = (Integer) request.getPayload();
+        System.out.println("MapEditHandler: Getting content of version " + versionId);
+
+        MapContent content = MapSnapshotDAO.getSnapshot(versionId);
+        if (content == null) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Version snapshot not found");
+        }
+
+        return Response.success(request, content);
+    }
+
     // ==================== CREATE Operations ====================
 
     private static Response handleCreateCity(Request request) {
@@ -150,6 +192,7 @@ public class MapEditHandler {
         if (cityId > 0) {
             validation = ValidationResult.success("City created successfully");
             validation.setCreatedCityId(cityId);
+            onCatalogChanged();
             return Response.success(request, validation);
         }
 
@@ -171,6 +214,7 @@ public class MapEditHandler {
 
         // Update
         if (CityDAO.updateCity(city.getId(), city.getName(), city.getDescription(), city.getPrice())) {
+            onCatalogChanged();
             return Response.success(request, ValidationResult.success("City updated successfully"));
         }
 
@@ -196,6 +240,7 @@ public class MapEditHandler {
             validation = ValidationResult.success("Map created successfully");
             validation.setCreatedMapId(mapId);
             server.dao.DailyStatsDAO.increment(map.getCityId(), server.dao.DailyStatsDAO.Metric.MAPS_COUNT);
+            onCatalogChanged();
             return Response.success(request, validation);
         }
 
@@ -220,6 +265,8 @@ public class MapEditHandler {
         // Create
         int poiId = PoiDAO.createPoi(poi);
         if (poiId > 0) {
+            poi.setId(poiId);
+            onPoiSaved(poi);
             validation = ValidationResult.success("POI created successfully");
             validation.getCreatedPoiIds().add(poiId);
             return Response.success(request, validation);
@@ -243,6 +290,7 @@ public class MapEditHandler {
 
         // Update
         if (PoiDAO.updatePoi(poi)) {
+            onPoiSaved(poi);
             return Response.success(request, ValidationResult.success("POI updated successfully"));
         }
 
@@ -264,8 +312,18 @@ public class MapEditHandler {
         }
 
         try (Connection conn = DBConnector.getConnection()) {
-            if (PoiDAO.deletePoi(conn, poiId)) {
-                return Response.success(request, ValidationResult.success("POI deleted successfully"));
+            // Unlink, counter update and delete commit together
+            conn.setAutoCommit(false);
+            try {
+                if (PoiDAO.deletePoi(conn, poiId)) {
+                    conn.commit();
+                    onPoiDeleted(poiId);
+                    return Response.success(request, ValidationResult.success("POI deleted successfully"));
+                }
+                conn.rollback();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             return Response.error(request, Response.ERR_DATABASE, e.getMessage());
@@ -292,6 +350,7 @@ public class MapEditHandler {
         // Create
         int tourId = TourDAO.createTour(tour);
         if (tourId > 0) {
+            onToursChanged();
             validation = ValidationResult.success("Tour created successfully");
             validation.getCreatedTourIds().add(tourId);
             return Response.success(request, validation);
@@ -309,6 +368,7 @@ public class MapEditHandler {
 
         try (Connection conn = DBConnector.getConnection()) {
             if (TourDAO.updateTour(conn, tour)) {
+                onToursChanged();
                 return Response.success(request, ValidationResult.success("Tour updated successfully"));
             }
         } catch (SQLException e) {
@@ -326,8 +386,18 @@ public class MapEditHandler {
         int tourId = (Integer) request.getPayload();
 
         try (Connection conn = DBConnector.getConnection()) {
-            if (TourDAO.deleteTour(conn, tourId)) {
-                return Response.success(request, ValidationResult.success("Tour deleted successfully"));
+            // Counter update and delete commit together
+            conn.setAutoCommit(false);
+            try {
+                if (TourDAO.deleteTour(conn, tourId)) {
+                    conn.commit();
+                    onToursChanged();
+                    return Response.success(request, ValidationResult.success("Tour deleted successfully"));
+                }
+                conn.rollback();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             return Response.error(request, Response.ERR_DATABASE, e.getMessage());
@@ -354,6 +424,7 @@ public class MapEditHandler {
         try (Connection conn = DBConnector.getConnection()) {
             int stopId = TourDAO.addTourStop(conn, stop);
             if (stopId > 0) {
+                onToursChanged();
                 ValidationResult result = ValidationResult.success("Tour stop added successfully");
                 return Response.success(request, result);
             }
@@ -373,6 +444,7 @@ public class MapEditHandler {
 
         try (Connection conn = DBConnector.getConnection()) {
             if (TourDAO.updateTourStop(conn, stop)) {
+                onToursChanged();
                 return Response.success(request, ValidationResult.success("Tour stop updated successfully"));
             }
         } catch (SQLException e) {
@@ -391,6 +463,7 @@ public class MapEditHandler {
 
         try (Connection conn = DBConnector.getConnection()) {
             if (TourDAO.removeTourStop(conn, stopId)) {
+                onToursChanged();
                 return Response.success(request, ValidationResult.success("Tour stop removed successfully"));
             }
         } catch (SQLException e) {
@@ -408,6 +481,17 @@ public class MapEditHandler {
         return Response.success(request, requests);
     }
 
+    private static Response handleGetMapEditDetails(Request request) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Request ID required");
+        }
+        MapEditRequestDTO reqDTO = MapEditRequestDAO.getRequest((Integer) request.getPayload());
+        if (reqDTO == null) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Request not found");
+        }
+        return Response.success(request, reqDTO);
+    }
+
     private static Response handleRejectMapEdit(Request request) {
         if (!(request.getPayload() instanceof Integer)) {
             return Response.error(request, Response.ERR_VALIDATION, "Request ID required");
@@ -478,6 +562,82 @@ public class MapEditHandler {
         if (changes == null)
             return Response.error(request, Response.ERR_INTERNAL, "Invalid request data");
 
+        List<Integer> reqIds = new ArrayList<>();
+        reqIds.add(reqId);
+        return applyApprovedChanges(request, reqIds, reqDTO.getUserId(), changes);
+    }
+
+    /**
+     * Preview the merge of all pending requests for one map.
+     * Payload: Integer (mapId). Returns MergedMapEdit.
+     */
+    private static Response handlePreviewMergedMapEdits(Request request) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Map ID required");
+        }
+        int mapId = (Integer) request.getPayload();
+
+        List<MapEditRequestDTO> pending = new ArrayList<>();
+        for (MapEditRequestDTO reqDTO : MapEditRequestDAO.getPendingRequestsForMap(mapId)) {
+            if (MapChangesCompactor.isMergeable(reqDTO.getChanges())) {
+                pending.add(reqDTO);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "No mergeable pending requests for this map");
+        }
+
+        MergedMapEdit merged = MapChangesCompactor.compact(pending);
+        System.out.println("MapEditHandler: Merge preview " + merged);
+        return Response.success(request, merged);
+    }
+
+    /**
+     * Approve several pending requests for one map as a single change set:
+     * one transaction, one version, one round of notifications.
+     * Payload: MergedMapEdit from the preview; only its mapId and requestIds
+     * are used, the stored requests are merged again.
+     */
+    private static Response handleApproveMergedMapEdits(Request request) {
+        if (!(request.getPayload() instanceof MergedMapEdit)) {
+            return Response.error(request, Response.ERR_VALIDATION, "MergedMapEdit required");
+        }
+        MergedMapEdit preview = (MergedMapEdit) request.getPayload();
+        if (preview.getRequestIds() == null || preview.getRequestIds().isEmpty()) {
+            return Response.error(request, Response.ERR_VALIDATION, "No requests selected");
+        }
+
+        Map<Integer, MapEditRequestDTO> pending = new HashMap<>();
+        for (MapEditRequestDTO reqDTO : MapEditRequestDAO.getPendingRequestsForMap(preview.getMapId())) {
+            pending.put(reqDTO.getId(), reqDTO);
+        }
+        List<MapEditRequestDTO> selected = new ArrayList<>();
+        for (int reqId : new TreeSet<>(preview.getRequestIds())) {
+            MapEditRequestDTO reqDTO = pending.get(reqId);
+            if (reqDTO == null) {
+                return Response.error(request, Response.ERR_VALIDATION,
+                        "Request #" + reqId + " is no longer pending for this map; refresh the preview");
+            }
+            selected.add(reqDTO);
+        }
+
+        MergedMapEdit merged;
+        try {
+            merged = MapChangesCompactor.compact(selected);
+        } catch (IllegalArgumentException e) {
+            return Response.error(request, Response.ERR_VALIDATION, e.getMessage());
+        }
+        System.out.println("MapEditHandler: Approving merged " + merged);
+        return applyApprovedChanges(request, merged.getRequestIds(), selected.get(0).getUserId(),
+                merged.getChanges());
+    }
+
+    /**
+     * Apply an approved change set and publish it as one APPROVED version,
+     * all in one transaction. The requests must all still be PENDING.
+     */
+    private static Response applyApprovedChanges(Request request, List<Integer> reqIds, int submitterId,
+            MapChanges changes) {
         // Execute changes in transaction
         ValidationResult validation = new ValidationResult();
         try (Connection conn = DBConnector.getConnection()) {
@@ -488,6 +648,13 @@ public class MapEditHandler {
             conn.setAutoCommit(false);
 
             try {
+                // Claim the requests first so concurrent approvals cannot apply them twice
+                if (!MapEditRequestDAO.approvePending(conn, reqIds)) {
+                    conn.rollback();
+                    return Response.error(request, Response.ERR_VALIDATION,
+                            "Request is no longer pending (already approved or rejected)");
+                }
+
                 // Create new city if requested
                 if (changes.isCreateNewCity()) {
                     int cityId = CityDAO.createCity(conn,
@@ -508,56 +675,32 @@ public class MapEditHandler {
                     changes.setMapId(mapId);
                 }
 
-                // Add POIs
-                for (Poi poi : changes.getAddedPois()) {
-                    int poiId = PoiDAO.createPoi(conn, poi);
-                    validation.getCreatedPoiIds().add(poiId);
-                }
-
-                // Update POIs
-                for (Poi poi : changes.getUpdatedPois()) {
-                    PoiDAO.updatePoi(conn, poi);
-                }
-
-                // Delete POIs
-                for (int poiId : changes.getDeletedPoiIds()) {
-                    PoiDAO.deletePoi(conn, poiId);
+                // Apply the change set in grouped, batched statements so
+                // large requests hold their locks for a few round trips only
+                List<Poi> addedPois = changes.getAddedPois();
+                int[] poiIds = PoiDAO.createPois(conn, addedPois);
+                for (int i = 0; i < poiIds.length; i++) {
+                    addedPois.get(i).setId(poiIds[i]);
+                    validation.getCreatedPoiIds().add(poiIds[i]);
                 }
+                PoiDAO.updatePois(conn, changes.getUpdatedPois());
+                PoiDAO.deletePois(conn, changes.getDeletedPoiIds());
 
                 // Link/unlink POIs
-                for (MapChanges.PoiMapLink link : changes.getPoiMapLinks()) {
-                    PoiDAO.linkPoiToMap(conn, link.mapId, link.poiId, link.displayOrder);
-                }
-                for (MapChanges.PoiMapLink link : changes.getPoiMapUnlinks()) {
-                    PoiDAO.unlinkPoiFromMap(conn, link.mapId, link.poiId);
-                }
+                PoiDAO.linkPoisToMaps(conn, changes.getPoiMapLinks());
+                PoiDAO.unlinkPoisFromMaps(conn, changes.getPoiMapUnlinks());
 
-                // Add tours
-                for (TourDTO tour : changes.getAddedTours()) {
-                    int tourId = TourDAO.createTour(conn, tour);
+                // Tours
+                for (int tourId : TourDAO.createTours(conn, changes.getAddedTours())) {
                     validation.getCreatedTourIds().add(tourId);
                 }
-
-                // Update tours
-                for (TourDTO tour : changes.getUpdatedTours()) {
-                    TourDAO.updateTour(conn, tour);
-                }
-
-                // Delete tours
-                for (int tourId : changes.getDeletedTourIds()) {
-                    TourDAO.deleteTour(conn, tourId);
-                }
+                TourDAO.updateTours(conn, changes.getUpdatedTours());
+                TourDAO.deleteTours(conn, changes.getDeletedTourIds());
 
                 // Tour stops
-                for (TourStopDTO stop : changes.getAddedStops()) {
-                    TourDAO.addTourStop(conn, stop);
-                }
-                for (TourStopDTO stop : changes.getUpdatedStops()) {
-                    TourDAO.updateTourStop(conn, stop);
-                }
-                for (int stopId : changes.getDeletedStopIds()) {
-                    TourDAO.removeTourStop(conn, stopId);
-                }
+                TourDAO.addTourStops(conn, changes.getAddedStops());
+                TourDAO.updateTourStops(conn, changes.getUpdatedStops());
+                TourDAO.removeTourStops(conn, changes.getDeletedStopIds());
 
                 // Create PENDING version (Approved by this act, but system logic might start at
                 // Pending)
@@ -574,7 +717,7 @@ public class MapEditHandler {
                 // If I keep it PENDING, it's not live.
                 // Code matches original logic:
                 if (changes.getMapId() != null && changes.getMapId() > 0) {
-                    int creatorId = reqDTO.getUserId() > 0 ? reqDTO.getUserId() : 2;
+                    int creatorId = submitterId > 0 ? submitterId : 2;
                     String description = buildChangesDescription(changes);
 
                     // Create MapVersion with APPROVED status (since Manager is acting now)
@@ -584,29 +727,35 @@ public class MapEditHandler {
                     if (versionId > 0) {
                         validation.setCreatedVersionId(versionId);
 
-                        // Mark version as APPROVED
+                        // Mark version as APPROVED and freeze its content
                         MapVersionDAO.updateStatus(conn, versionId, "APPROVED", request.getUserId(), null);
+                        MapSnapshotDAO.createSnapshot(conn, versionId, changes.getMapId());
 
-                        // Log
-                        AuditLogDAO.log(conn, AuditLogDAO.ACTION_VERSION_PUBLISHED, request.getUserId(),
+                        // Log (via outbox)
+                        OutboxDAO.enqueueAudit(conn, AuditLogDAO.ACTION_VERSION_PUBLISHED, request.getUserId(),
                                 AuditLogDAO.ENTITY_MAP_VERSION, versionId,
-                                "from_request", String.valueOf(reqId));
+                                "from_request", joinIds(reqIds));
                     }
                 }
 
-                // Mark request as APPROVED
-                MapEditRequestDAO.updateStatus(conn, reqId, "APPROVED");
-
-                conn.commit();
-                validation.setSuccessMessage("Request approved and changes applied successfully.");
-                System.out.println("MapEditHandler: Approved request " + reqId);
-
                 // Notify customers who purchased this city about the update
                 Integer cityId = changes.getCityId();
                 if (cityId != null && cityId > 0) {
-                    notifyCustomersAboutMapUpdate(cityId, changes);
+                    // On conn: the city may have been created by this change set
+                    String cityName = CityDAO.getCityName(conn, cityId);
+                    if (cityName == null) {
+                        cityName = "City #" + cityId;
+                    }
+                    OutboxDAO.enqueueCityNotification(conn, cityId, "🗺️ Map Update: " + cityName,
+                            buildUpdateNotificationBody(changes, cityName));
                 }
 
+                conn.commit();
+                OutboxDispatcher.getInstance().wakeUp();
+                validation.setSuccessMessage("Request approved and changes applied successfully.");
+                System.out.println("MapEditHandler: Approved request(s) " + reqIds);
+                onChangesApplied(changes);
+
             } catch (SQLException e) {
                 conn.rollback();
                 System.out.println("MapEditHandler: Transaction rolled back - " + e.getMessage());
@@ -620,36 +769,15 @@ public class MapEditHandler {
         return Response.success(request, validation);
     }
 
-    /**
-     * Notify all customers who purchased a city about a map update.
-     */
-    private static void notifyCustomersAboutMapUpdate(int cityId, MapChanges changes) {
-        try {
-            // Get city name
-            CityDTO city = CityDAO.getCityById(cityId);
-            String cityName = city != null ? city.getName() : "City #" + cityId;
-
-            // Build notification message
-            String title = "🗺️ Map Update: " + cityName;
-            String body = buildUpdateNotificationBody(changes, cityName);
-
-            // Get all customers who purchased this city
-            java.util.List<Integer> customerIds = PurchaseDAO.getCustomerIdsForCity(cityId);
-            System.out.println(
-                    "MapEditHandler: Notifying " + customerIds.size() + " customers about map update for " + cityName);
-
-            // Send notification to each customer
-            try (Connection conn = DBConnector.getConnection()) {
-                for (int userId : customerIds) {
-                    int notifId = NotificationDAO.createNotification(conn, userId, title, body);
-                    if (notifId > 0) {
-                        System.out.println("  → Sent notification #" + notifId + " to user " + userId);
-                    }
-                }
+    private static String joinIds(List<Integer> ids) {
+        StringBuilder joined = new StringBuilder();
+        for (int id : ids) {
+            if (joined.length() > 0) {
+                joined.append(',');
             }
-        } catch (Exception e) {
-            System.err.println("Error sending map update notifications: " + e.getMessage());
+            joined.append(id);
         }
+        return joined.toString();
     }
 
     /**
@@ -704,7 +832,66 @@ public class MapEditHandler {
         return desc.length() > 0 ? desc.toString().trim() : "Map content updated.";
     }
 
+    // ==================== Search Index Maintenance ====================
+
+    /**
+     * Refresh in-memory search structures after a POI was committed.
+     */
+    private static void onPoiSaved(Poi poi) {
+        PoiSpatialIndex.getInstance().upsert(poi);
+        PoiFacetIndex.getInstance().upsert(poi);
+        SearchResultCache.getInstance().invalidatePoi(poi.getCityId());
+        MapPackageStore.getInstance().invalidateLive();
+    }
+
+    /**
+     * Refresh in-memory search structures after a POI delete was committed.
+     */
+    private static void onPoiDeleted(int poiId) {
+        PoiSpatialIndex.getInstance().remove(poiId);
+        PoiFacetIndex.getInstance().remove(poiId);
+        SearchResultCache.getInstance().invalidateAll();
+        MapPackageStore.getInstance().invalidateLive();
+    }
+
+    /**
+     * Cities, maps or POI-map links changed; catalog-based indexes reload.
+     */
+    private static void onCatalogChanged() {
+        PoiFacetIndex.getInstance().invalidate();
+        SearchResultCache.getInstance().invalidateAll();
+        MapPackageStore.getInstance().invalidateLive();
+    }
+
+    /**
+     * Tours or their stops changed; they are part of every map's live package,
+     * and cached search results show each map's tour count.
+     */
+    private static void onToursChanged() {
+        SearchResultCache.getInstance().invalidateAll();
+        MapPackageStore.getInstance().invalidateLive();
+    }
+
+    /**
+     * Refresh in-memory search structures after an approved change set was
+     * committed.
+     */
+    private static void onChangesApplied(MapChanges changes) {
+        for (Poi poi : changes.getAddedPois()) {
+            onPoiSaved(poi);
+        }
+        for (Poi poi : changes.getUpdatedPois()) {
+            onPoiSaved(poi);
+        }
+        for (int poiId : changes.getDeletedPoiIds()) {
+            onPoiDeleted(poiId);
+        }
+        onCatalogChanged();
+    }
+
     // ==================== Validation Methods ====================
+    // validatePoi, validateTour and validateTourStop are also applied to
+    // every row by BulkImportService.
 
     private static ValidationResult validateCity(CityDTO city) {
         ValidationResult result = new ValidationResult();
@@ -736,7 +923,7 @@ public class MapEditHandler {
         return result;
     }
 
-    private static ValidationResult validatePoi(Poi poi) {
+    public static ValidationResult validatePoi(Poi poi) {
         ValidationResult result = new ValidationResult();
 
         if (poi.getName() == null || poi.getName().trim().isEmpty()) {
@@ -747,10 +934,22 @@ public class MapEditHandler {
             result.addError("cityId", "Valid city ID is required");
         }
 
+        if (!isLocationInRange(poi.getLocation())) {
+            result.addError("location", "Coordinates must be within lat -90..90, lng -180..180");
+        }
+
         return result;
     }
 
-    private static ValidationResult validateTour(TourDTO tour) {
+    /**
+     * Free-text locations are allowed; "lat,lng" pairs must be on the globe.
+     */
+    private static boolean isLocationInRange(String location) {
+        double[] coords = PoiSpatialIndex.parseLocation(location);
+        return coords == null || PoiSpatialIndex.isValidCoordinate(coords[0], coords[1]);
+    }
+
+    public static ValidationResult validateTour(TourDTO tour) {
         ValidationResult result = new ValidationResult();
 
         if (tour.getName() == null || tour.getName().trim().isEmpty()) {
@@ -779,7 +978,7 @@ public class MapEditHandler {
         return result;
     }
 
-    private static ValidationResult validateTourStop(TourStopDTO stop) {
+    public static ValidationResult validateTourStop(TourStopDTO stop) {
         ValidationResult result = new ValidationResult();
 
         if (stop.getTourId() <= 0) {
@@ -820,6 +1019,9 @@ public class MapEditHandler {
             if (poi.getName() == null || poi.getName().trim().isEmpty()) {
                 result.addError("addedPoi[" + i + "].name", "POI name is required");
             }
+            if (!isLocationInRange(poi.getLocation())) {
+                result.addError("addedPoi[" + i + "].location", "Coordinates out of range");
+            }
         }
 
         // Validate deleted POIs aren't in tours
@@ -851,10 +1053,14 @@ public class MapEditHandler {
         return type == MessageType.GET_CITIES ||
                 type == MessageType.GET_MAPS_FOR_CITY ||
                 type == MessageType.GET_MAP_CONTENT ||
+                type == MessageType.GET_MAP_VERSION_CONTENT ||
                 type == MessageType.SUBMIT_MAP_CHANGES ||
                 type == MessageType.GET_PENDING_MAP_EDITS ||
+                type == MessageType.GET_MAP_EDIT_DETAILS ||
                 type == MessageType.APPROVE_MAP_EDIT ||
                 type == MessageType.REJECT_MAP_EDIT ||
+                type == MessageType.PREVIEW_MERGED_MAP_EDITS ||
+                type == MessageType.APPROVE_MERGED_MAP_EDITS ||
                 type == MessageType.CREATE_CITY ||
                 type == MessageType.UPDATE_CITY ||
                 type == MessageType.CREATE_MAP ||
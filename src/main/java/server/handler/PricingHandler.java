@@ -8,6 +8,8 @@ import server.DBConnector;
 import server.dao.AuditLogDAO;
 import server.dao.NotificationDAO;
 import server.dao.PricingDAO;
+import server.service.PoiFacetIndex;
+import server.service.SearchResultCache;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -214,6 +216,10 @@ public class PricingHandler {
 
             conn.commit();
 
+            // City prices are part of in-memory search results
+            PoiFacetIndex.getInstance().invalidate();
+            SearchResultCache.getInstance().invalidateAll();
+
             // Return updated request
             PricingRequestDTO updated = PricingDAO.getRequestById(requestId);
             System.out.println("PricingHandler: Approved pricing request #" + requestId);
@@ -5,11 +5,25 @@ import common.Request;
 import common.Response;
 import common.dto.CityPriceInfo;
 import common.dto.EntitlementInfo;
+import common.dto.MapPackageManifest;
+import common.dto.MapSummary;
+import common.dto.PackageChunk;
+import common.dto.PackageChunkRequest;
 import common.dto.PurchaseRequest;
 import common.dto.PurchaseResponse;
+import server.SessionManager;
+import server.dao.MapDAO;
+import server.dao.MapSnapshotDAO;
 import server.dao.PurchaseDAO;
+import server.scheduler.OutboxDispatcher;
+import server.service.EntitlementCache;
+import server.service.MapPackageStore;
+import server.service.RecentDownloads;
+import server.service.UsageEventPipeline;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * Handles purchase-related messages.
@@ -24,6 +38,7 @@ public class PurchaseHandler {
             case GET_ENTITLEMENT:
             case CAN_DOWNLOAD:
             case DOWNLOAD_MAP_VERSION:
+            case DOWNLOAD_PACKAGE_CHUNK:
             case RECORD_VIEW_EVENT:
             case GET_MY_PURCHASES:
                 return true;
@@ -46,6 +61,8 @@ public class PurchaseHandler {
                 return handleCanDownload(request);
             case DOWNLOAD_MAP_VERSION:
                 return handleDownloadMapVersion(request);
+            case DOWNLOAD_PACKAGE_CHUNK:
+                return handleDownloadPackageChunk(request);
             case RECORD_VIEW_EVENT:
                 return handleRecordViewEvent(request);
             case GET_MY_PURCHASES:
@@ -103,10 +120,12 @@ public class PurchaseHandler {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid purchase type");
         }
 
-        boolean success = PurchaseDAO.purchaseOneTime(userId, purchase.getCityId());
+        PurchaseDAO.PurchaseOutcome outcome = PurchaseDAO.purchase(request.getRequestId().toString(), userId,
+                purchase.getCityId(), 0);
 
-        if (success) {
-            server.dao.DailyStatsDAO.increment(purchase.getCityId(), server.dao.DailyStatsDAO.Metric.PURCHASE_ONE_TIME);
+        if (outcome != null) {
+            OutboxDispatcher.getInstance().wakeUp();
+            updateSessionEntitlement(request, userId, purchase.getCityId(), outcome);
             return Response.success(request, new PurchaseResponse(true, "Purchase successful!",
                     EntitlementInfo.EntitlementType.ONE_TIME, null));
         } else {
@@ -130,17 +149,18 @@ public class PurchaseHandler {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid purchase type");
         }
 
-        boolean isRenewal = PurchaseDAO.hasPreviousSubscription(userId, purchase.getCityId());
-        boolean success = PurchaseDAO.purchaseSubscription(userId, purchase.getCityId(), purchase.getMonths());
-
-        if (success) {
-            // Log as RENEWAL if user had previous subscription, otherwise SUBSCRIPTION
-            server.dao.DailyStatsDAO.Metric metric = isRenewal ? server.dao.DailyStatsDAO.Metric.RENEWAL
-                    : server.dao.DailyStatsDAO.Metric.PURCHASE_SUBSCRIPTION;
+        if (purchase.getMonths() < 1) {
+            return Response.error(request, Response.ERR_VALIDATION, "Invalid subscription length");
+        }
 
-            server.dao.DailyStatsDAO.increment(purchase.getCityId(), metric);
+        // Keyed by request ID, so a retried request returns the original outcome
+        PurchaseDAO.PurchaseOutcome outcome = PurchaseDAO.purchase(request.getRequestId().toString(), userId,
+                purchase.getCityId(), purchase.getMonths());
 
-            LocalDate expiry = LocalDate.now().plusMonths(purchase.getMonths());
+        if (outcome != null) {
+            OutboxDispatcher.getInstance().wakeUp();
+            updateSessionEntitlement(request, userId, purchase.getCityId(), outcome);
+            LocalDate expiry = outcome.endDate.toLocalDateTime().toLocalDate();
             return Response.success(request, new PurchaseResponse(true, "Subscription successful!",
                     EntitlementInfo.EntitlementType.SUBSCRIPTION, expiry));
         } else {
@@ -164,7 +184,7 @@ public class PurchaseHandler {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid city ID");
         }
 
-        EntitlementInfo entitlement = PurchaseDAO.getEntitlement(userId, cityId);
+        EntitlementInfo entitlement = getEntitlement(request, userId, cityId);
         return Response.success(request, entitlement);
     }
 
@@ -182,7 +202,7 @@ public class PurchaseHandler {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid city ID");
         }
 
-        EntitlementInfo entitlement = PurchaseDAO.getEntitlement(userId, cityId);
+        EntitlementInfo entitlement = getEntitlement(request, userId, cityId);
 
         if (entitlement.isCanDownload()) {
             return Response.success(request, true);
@@ -205,17 +225,87 @@ public class PurchaseHandler {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid city ID");
         }
 
-        EntitlementInfo entitlement = PurchaseDAO.getEntitlement(userId, cityId);
+        EntitlementInfo entitlement = getEntitlement(request, userId, cityId);
 
         if (entitlement.isCanDownload()) {
-            PurchaseDAO.recordDownload(userId, cityId);
-            server.dao.DailyStatsDAO.increment(cityId, server.dao.DailyStatsDAO.Metric.DOWNLOAD);
-            return Response.success(request, "Download authorized and recorded");
+            ArrayList<MapPackageManifest> manifests = resolvePackages(cityId);
+            if (manifests == null) {
+                return Response.error(request, Response.ERR_INTERNAL, "Failed to prepare map package");
+            }
+            // Asking again for the same packages resumes a download; count it once
+            if (RecentDownloads.getInstance().isNewDownload(userId, cityId, manifests)) {
+                // Event and daily stat are written in the background
+                UsageEventPipeline.getInstance().recordDownload(userId, cityId);
+            }
+            return Response.success(request, manifests);
         } else {
             return Response.error(request, Response.ERR_UNAUTHORIZED, "Purchase required to download");
         }
     }
 
+    /**
+     * Serve one byte range of a map package.
+     * Payload: PackageChunkRequest. Clients resume an interrupted download by
+     * asking for the range after the bytes they already have.
+     */
+    private static Response handleDownloadPackageChunk(Request request) {
+        Integer userId = getAuthenticatedUserId(request);
+        if (userId == null) {
+            return Response.error(request, Response.ERR_UNAUTHORIZED, "Login required");
+        }
+
+        if (!(request.getPayload() instanceof PackageChunkRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION, "PackageChunkRequest required");
+        }
+        PackageChunkRequest chunkReq = (PackageChunkRequest) request.getPayload();
+
+        int cityId = MapPackageStore.cityOf(chunkReq.getPackageId());
+        if (cityId < 0 || chunkReq.getOffset() < 0 || chunkReq.getLength() <= 0) {
+            return Response.error(request, Response.ERR_VALIDATION, "Invalid package range");
+        }
+
+        if (!getEntitlement(request, userId, cityId).isCanDownload()) {
+            return Response.error(request, Response.ERR_UNAUTHORIZED, "Purchase required to download");
+        }
+
+        PackageChunk chunk = MapPackageStore.getInstance().readChunk(
+                chunkReq.getPackageId(), chunkReq.getOffset(), chunkReq.getLength());
+        if (chunk == null) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Package not found");
+        }
+        return Response.success(request, chunk);
+    }
+
+    /**
+     * Package manifest of every map in the city: the latest approved
+     * snapshot, or the live tables for maps without one (never versioned, or
+     * approved before snapshots existed). Map content is only loaded when a
+     * package has to be built.
+     *
+     * @return manifests, or null if a package could not be prepared
+     */
+    private static ArrayList<MapPackageManifest> resolvePackages(int cityId) {
+        Map<Integer, Integer> versions = MapSnapshotDAO.getLatestVersionIdsForCity(cityId);
+        if (versions == null) {
+            return null;
+        }
+
+        MapPackageStore store = MapPackageStore.getInstance();
+        ArrayList<MapPackageManifest> manifests = new ArrayList<>();
+        for (MapSummary map : MapDAO.getMapsForCity(cityId)) {
+            Integer versionId = versions.get(map.getId());
+            MapPackageManifest manifest = versionId != null
+                    ? store.getVersioned(cityId, map.getId(), map.getName(), versionId,
+                            () -> MapSnapshotDAO.getSnapshot(versionId))
+                    : store.getLive(map.getId(), () -> MapDAO.getMapContent(map.getId()));
+            if (manifest == null) {
+                return null;
+            }
+            manifests.add(manifest);
+        }
+        return manifests;
+    }
+
     private static Response handleRecordViewEvent(Request request) {
         // Needs authentication
         Integer userId = getAuthenticatedUserId(request);
@@ -238,15 +328,48 @@ public class PurchaseHandler {
         try {
             int cityId = Integer.parseInt(parts[0]);
             int mapId = Integer.parseInt(parts[1]);
-            PurchaseDAO.recordView(userId, cityId, mapId);
-            server.dao.DailyStatsDAO.increment(cityId, server.dao.DailyStatsDAO.Metric.VIEW);
+            UsageEventPipeline.getInstance().recordView(userId, cityId, mapId);
             return Response.success(request, "View recorded");
         } catch (NumberFormatException e) {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid IDs");
         }
     }
 
+    /**
+     * Entitlement of the requesting user for a city: from the session's
+     * entitlements when the request carries a session token (no query),
+     * otherwise from EntitlementCache.
+     */
+    private static EntitlementInfo getEntitlement(Request request, int userId, int cityId) {
+        SessionManager.SessionInfo session = SessionManager.getInstance().validateSession(request.getSessionToken());
+        if (session != null && session.userId == userId) {
+            return session.entitlements.get(cityId, System.currentTimeMillis());
+        }
+        return EntitlementCache.getInstance().get(userId, cityId);
+    }
+
+    /**
+     * After a committed purchase, add the new entitlement to the buyer's
+     * session (from the purchase outcome, no query).
+     */
+    private static void updateSessionEntitlement(Request request, int userId, int cityId,
+            PurchaseDAO.PurchaseOutcome outcome) {
+        SessionManager.SessionInfo session = SessionManager.getInstance().validateSession(request.getSessionToken());
+        if (session != null && session.userId == userId) {
+            if (outcome.type == EntitlementInfo.EntitlementType.SUBSCRIPTION) {
+                session.entitlements.addSubscription(cityId, outcome.endDate.getTime());
+            } else {
+                session.entitlements.addOneTime(cityId);
+            }
+        }
+    }
+
     private static Integer getAuthenticatedUserId(Request request) {
+        SessionManager.SessionInfo session = SessionManager.getInstance().validateSession(request.getSessionToken());
+        if (session != null) {
+            return session.userId;
+        }
+
         // Extract token from request metadata or payload?
         // Existing AuthHandler creates a session.
         // Usually client sends token in loop or we assume connection has session.
@@ -4,24 +4,39 @@ import common.DailyStat;
 import common.MessageType;
 import common.Request;
 import common.Response;
+import common.dto.ReportJobUpdate;
 import common.dto.ReportRequest;
-import server.service.AllCitiesReportGenerator;
-import server.service.CityReportGenerator;
 import server.service.ReportGenerator;
+import server.service.ReportJobService;
 
 import java.util.List;
 
 public class ReportHandler {
 
     public static boolean canHandle(MessageType type) {
-        return type == MessageType.GET_ACTIVITY_REPORT;
+        return type == MessageType.GET_ACTIVITY_REPORT ||
+                type == MessageType.START_REPORT_JOB ||
+                type == MessageType.CANCEL_REPORT_JOB;
     }
 
-    public static Response handle(Request request) {
-        if (request.getType() != MessageType.GET_ACTIVITY_REPORT) {
-            return Response.error(request, Response.ERR_INTERNAL, "Invalid message type for ReportHandler");
+    /**
+     * Handle a report request. Report jobs push their progress and rows to
+     * the requesting client through sink.
+     */
+    public static Response handle(Request request, String clientId, ReportJobService.FrameSink sink) {
+        switch (request.getType()) {
+            case GET_ACTIVITY_REPORT:
+                return handleReport(request);
+            case START_REPORT_JOB:
+                return handleStartJob(request, clientId, sink);
+            case CANCEL_REPORT_JOB:
+                return handleCancelJob(request, clientId);
+            default:
+                return Response.error(request, Response.ERR_INTERNAL, "Invalid message type for ReportHandler");
         }
+    }
 
+    private static Response handleReport(Request request) {
         if (!(request.getPayload() instanceof ReportRequest)) {
             return Response.error(request, Response.ERR_VALIDATION, "Invalid payload. Expected ReportRequest.");
         }
@@ -29,12 +44,7 @@ public class ReportHandler {
         ReportRequest reportReq = (ReportRequest) request.getPayload();
 
         // Strategy Selection
-        ReportGenerator generator;
-        if (reportReq.getCityId() != null && reportReq.getCityId() > 0) {
-            generator = new CityReportGenerator();
-        } else {
-            generator = new AllCitiesReportGenerator();
-        }
+        ReportGenerator generator = ReportGenerator.forRequest(reportReq);
 
         try {
             List<DailyStat> stats = generator.generate(reportReq.getFromDate(), reportReq.getToDate(),
@@ -45,4 +55,32 @@ public class ReportHandler {
             return Response.error(request, Response.ERR_DATABASE, "Error generating report: " + e.getMessage());
         }
     }
+
+    private static Response handleStartJob(Request request, String clientId, ReportJobService.FrameSink sink) {
+        if (!(request.getPayload() instanceof ReportRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Invalid payload. Expected ReportRequest.");
+        }
+
+        try {
+            ReportJobUpdate job = ReportJobService.getInstance().submit((ReportRequest) request.getPayload(),
+                    clientId, sink);
+            return Response.success(request, job);
+        } catch (IllegalArgumentException e) {
+            return Response.error(request, Response.ERR_VALIDATION, e.getMessage());
+        } catch (IllegalStateException e) {
+            return Response.error(request, Response.ERR_INTERNAL, e.getMessage());
+        }
+    }
+
+    private static Response handleCancelJob(Request request, String clientId) {
+        if (!(request.getPayload() instanceof Integer)) {
+            return Response.error(request, Response.ERR_VALIDATION, "Job ID required");
+        }
+
+        int jobId = (Integer) request.getPayload();
+        if (!ReportJobService.getInstance().cancel(jobId, clientId)) {
+            return Response.error(request, Response.ERR_NOT_FOUND, "Report job not found or already finished");
+        }
+        return Response.success(request, jobId);
+    }
 }
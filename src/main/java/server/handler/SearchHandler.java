@@ -1,11 +1,18 @@
 package server.handler;
 
 import common.MessageType;
+import common.Poi;
 import common.Request;
 import common.Response;
 import common.dto.CitySearchResult;
+import common.dto.FacetSearchRequest;
+import common.dto.FacetSearchResult;
+import common.dto.GeoSearchRequest;
 import common.dto.SearchRequest;
 import server.dao.SearchDAO;
+import server.service.PoiFacetIndex;
+import server.service.PoiSpatialIndex;
+import server.service.SearchResultCache;
 
 import java.util.List;
 
@@ -38,6 +45,15 @@ public class SearchHandler {
                 case SEARCH_BY_CITY_AND_POI:
                     return handleSearchByCityAndPoi(request);
 
+                case SEARCH_POIS_NEAR:
+                    return handleSearchPoisNear(request);
+
+                case SEARCH_POIS_IN_BBOX:
+                    return handleSearchPoisInBox(request);
+
+                case SEARCH_POIS_FACETED:
+                    return handleSearchPoisFaceted(request);
+
                 default:
                     return Response.error(request, Response.ERR_INTERNAL,
                             "Unknown search message type: " + type);
@@ -55,8 +71,10 @@ public class SearchHandler {
      */
     private static Response handleGetCatalog(Request request) {
         System.out.println("SearchHandler: Getting cities catalog");
-        List<CitySearchResult> results = SearchDAO.getCitiesCatalog();
-        return Response.success(request, results);
+        List<CitySearchResult> results = SearchResultCache.getInstance().get(request.getType(),
+                SearchResultCache.key(request.getType(), null, null),
+                SearchDAO::getCitiesCatalog);
+        return searchResponse(request, results);
     }
 
     /**
@@ -70,8 +88,11 @@ public class SearchHandler {
         }
 
         System.out.println("SearchHandler: Searching by city name: " + searchReq.getCityName());
-        List<CitySearchResult> results = SearchDAO.searchByCityName(searchReq.getCityName());
-        return Response.success(request, results);
+        String cityName = SearchResultCache.normalize(searchReq.getCityName());
+        List<CitySearchResult> results = SearchResultCache.getInstance().get(request.getType(),
+                SearchResultCache.key(request.getType(), cityName, null),
+                () -> SearchDAO.searchByCityName(cityName));
+        return searchResponse(request, results);
     }
 
     /**
@@ -85,8 +106,11 @@ public class SearchHandler {
         }
 
         System.out.println("SearchHandler: Searching by POI name: " + searchReq.getPoiName());
-        List<CitySearchResult> results = SearchDAO.searchByPoiName(searchReq.getPoiName());
-        return Response.success(request, results);
+        String poiName = SearchResultCache.normalize(searchReq.getPoiName());
+        List<CitySearchResult> results = SearchResultCache.getInstance().get(request.getType(),
+                SearchResultCache.key(request.getType(), null, poiName),
+                () -> SearchDAO.searchByPoiName(poiName));
+        return searchResponse(request, results);
     }
 
     /**
@@ -108,11 +132,86 @@ public class SearchHandler {
 
         System.out.println("SearchHandler: Searching by city='" + searchReq.getCityName() +
                 "' and POI='" + searchReq.getPoiName() + "'");
-        List<CitySearchResult> results = SearchDAO.searchByCityAndPoi(
-                searchReq.getCityName(), searchReq.getPoiName());
+        String cityName = SearchResultCache.normalize(searchReq.getCityName());
+        String poiName = SearchResultCache.normalize(searchReq.getPoiName());
+        List<CitySearchResult> results = SearchResultCache.getInstance().get(request.getType(),
+                SearchResultCache.key(request.getType(), cityName, poiName),
+                () -> SearchDAO.searchByCityAndPoi(cityName, poiName));
+        return searchResponse(request, results);
+    }
+
+    /**
+     * Wrap search results, or report a database error if they could not be read.
+     */
+    private static Response searchResponse(Request request, List<CitySearchResult> results) {
+        if (results == null) {
+            return Response.error(request, Response.ERR_DATABASE, "Search failed, please try again");
+        }
         return Response.success(request, results);
     }
 
+    /**
+     * Find the POIs nearest to a coordinate (served from the spatial index).
+     */
+    private static Response handleSearchPoisNear(Request request) {
+        if (!(request.getPayload() instanceof GeoSearchRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION,
+                    "Geo search request is required");
+        }
+
+        GeoSearchRequest geo = (GeoSearchRequest) request.getPayload();
+        if (!PoiSpatialIndex.isValidCoordinate(geo.getLatitude(), geo.getLongitude())) {
+            return Response.error(request, Response.ERR_VALIDATION,
+                    "Coordinates out of range");
+        }
+
+        System.out.println("SearchHandler: Searching POIs near " + geo.getLatitude() + "," +
+                geo.getLongitude() + " (k=" + geo.getK() + ", city=" + geo.getCityId() + ")");
+        List<Poi> results = PoiSpatialIndex.getInstance().findNearest(
+                geo.getCityId(), geo.getLatitude(), geo.getLongitude(), geo.getK());
+        return Response.success(request, results);
+    }
+
+    /**
+     * Find POIs inside a bounding box (served from the spatial index).
+     */
+    private static Response handleSearchPoisInBox(Request request) {
+        if (!(request.getPayload() instanceof GeoSearchRequest)) {
+            return Response.error(request, Response.ERR_VALIDATION,
+                    "Geo search request is required");
+        }
+
+        GeoSearchRequest geo = (GeoSearchRequest) request.getPayload();
+        if (!PoiSpatialIndex.isValidCoordinate(geo.getMinLatitude(), geo.getMinLongitude()) ||
+                !PoiSpatialIndex.isValidCoordinate(geo.getMaxLatitude(), geo.getMaxLongitude())) {
+            return Response.error(request, Response.ERR_VALIDATION,
+                    "Coordinates out of range");
+        }
+        if (geo.getMinLatitude() > geo.getMaxLatitude() || geo.getMinLongitude() > geo.getMaxLongitude()) {
+            return Response.error(request, Response.ERR_VALIDATION,
+                    "Bounding box minimum must not exceed maximum");
+        }
+
+        System.out.println("SearchHandler: Searching POIs in box " + geo);
+        List<Poi> results = PoiSpatialIndex.getInstance().findInBox(geo.getCityId(),
+                geo.getMinLatitude(), geo.getMinLongitude(),
+                geo.getMaxLatitude(), geo.getMaxLongitude(), geo.getLimit());
+        return Response.success(request, results);
+    }
+
+    /**
+     * Faceted POI search (served from the bitmap index).
+     */
+    private static Response handleSearchPoisFaceted(Request request) {
+        FacetSearchRequest facetReq = request.getPayload() instanceof FacetSearchRequest
+                ? (FacetSearchRequest) request.getPayload()
+                : FacetSearchRequest.all();
+
+        System.out.println("SearchHandler: Faceted search " + facetReq);
+        FacetSearchResult result = PoiFacetIndex.getInstance().search(facetReq);
+        return Response.success(request, result);
+    }
+
     /**
      * Extract SearchRequest from request payload.
      */
@@ -131,6 +230,9 @@ public class SearchHandler {
         return type == MessageType.GET_CITIES_CATALOG ||
                 type == MessageType.SEARCH_BY_CITY_NAME ||
                 type == MessageType.SEARCH_BY_POI_NAME ||
-                type == MessageType.SEARCH_BY_CITY_AND_POI;
+                type == MessageType.SEARCH_BY_CITY_AND_POI ||
+                type == MessageType.SEARCH_POIS_NEAR ||
+                type == MessageType.SEARCH_POIS_IN_BBOX ||
+                type == MessageType.SEARCH_POIS_FACETED;
     }
 }
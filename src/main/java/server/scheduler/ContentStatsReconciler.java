@@ -0,0 +1,109 @@
+package server.scheduler;
+
+import server.dao.ContentStatsDAO;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that repairs drift in the denormalized content counters
+ * (map_stats, city_stats).
+ *
+ * Counters are maintained transactionally by the DAOs, so drift should only
+ * come from manual SQL or rows created before the counters existed. The
+ * first run happens synchronously on start so read paths always find the
+ * counter tables populated.
+ */
+public class ContentStatsReconciler {
+
+    private static final int INTERVAL_MINUTES = 30;
+
+    private final ScheduledExecutorService scheduler;
+    private boolean isRunning = false;
+
+    private static ContentStatsReconciler instance;
+
+    private ContentStatsReconciler() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ContentStatsReconciler");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+    }
+
+    /**
+     * Get singleton instance.
+     */
+    public static synchronized ContentStatsReconciler getInstance() {
+        if (instance == null) {
+            instance = new ContentStatsReconciler();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the reconciler.
+     */
+    public void start() {
+        if (isRunning) {
+            System.out.println("⚠ ContentStatsReconciler already running");
+            return;
+        }
+
+        ContentStatsDAO.init();
+        runNow();
+
+        scheduler.scheduleAtFixedRate(
+                this::reconcile,
+                INTERVAL_MINUTES,
+                INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+
+        isRunning = true;
+        System.out.println("✓ ContentStatsReconciler started (every " + INTERVAL_MINUTES + " minutes)");
+    }
+
+    /**
+     * Stop the reconciler.
+     */
+    public void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+        }
+        isRunning = false;
+        System.out.println("✓ ContentStatsReconciler stopped");
+    }
+
+    /**
+     * Main task: recompute counters and fix any that drifted.
+     */
+    private void reconcile() {
+        try {
+            int repaired = ContentStatsDAO.reconcile();
+            if (repaired < 0) {
+                System.err.println("ContentStatsReconciler: Reconciliation failed");
+            } else if (repaired > 0) {
+                System.out.println("ContentStatsReconciler: Repaired " + repaired + " drifted counter row(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("ContentStatsReconciler error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Force a reconciliation immediately.
+     */
+    public void runNow() {
+        reconcile();
+    }
+}
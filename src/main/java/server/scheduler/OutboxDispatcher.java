@@ -0,0 +1,291 @@
+package server.scheduler;
+
+import com.google.gson.JsonObject;
+import server.DBConnector;
+import server.dao.AuditLogDAO;
+import server.dao.DailyStatsDAO;
+import server.dao.NotificationDAO;
+import server.dao.OutboxDAO;
+import server.dao.OutboxDAO.OutboxEvent;
+import server.dao.PurchaseDAO;
+import server.service.ReportCache;
+import server.service.StatsColumnStore;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Background job that applies outbox events after their transaction
+ * committed: customer notifications, audit entries and daily stat
+ * increments.
+ *
+ * A batch is applied on one connection and its events are marked processed
+ * in the same transaction, so an event's effect is written exactly once.
+ * Stat increments in a batch are summed per (date, city, metric) into a
+ * single upsert. If a batch fails, its events are retried one by one so a
+ * bad event cannot hold back the others.
+ */
+public class OutboxDispatcher {
+
+    private static final int BATCH_SIZE = 200;
+    private static final long POLL_INTERVAL_MS = 1000;
+    private static final int RETENTION_DAYS = 7;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+    private boolean isRunning = false;
+
+    private static OutboxDispatcher instance;
+
+    private OutboxDispatcher() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "OutboxDispatcher");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+    }
+
+    /**
+     * Get singleton instance.
+     */
+    public static synchronized OutboxDispatcher getInstance() {
+        if (instance == null) {
+            instance = new OutboxDispatcher();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the dispatcher.
+     */
+    public void start() {
+        if (isRunning) {
+            System.out.println("⚠ OutboxDispatcher already running");
+            return;
+        }
+
+        OutboxDAO.init();
+
+        scheduler.scheduleWithFixedDelay(this::drain, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::purge, 1, 24, TimeUnit.HOURS);
+
+        isRunning = true;
+        System.out.println("✓ OutboxDispatcher started (polling every " + POLL_INTERVAL_MS + " ms)");
+    }
+
+    /**
+     * Stop the dispatcher, draining what is already queued.
+     */
+    public void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+        }
+        drain();
+        isRunning = false;
+        System.out.println("✓ OutboxDispatcher stopped");
+    }
+
+    /**
+     * Dispatch soon instead of waiting for the next poll. Called by handlers
+     * right after committing a transaction that enqueued events.
+     */
+    public void wakeUp() {
+        if (isRunning && wakeUpPending.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    wakeUpPending.set(false);
+                    drain();
+                });
+            } catch (RuntimeException e) {
+                wakeUpPending.set(false); // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Process batches until the outbox is empty.
+     */
+    private synchronized void drain() {
+        try {
+            List<OutboxEvent> events;
+            do {
+                events = OutboxDAO.getPendingEvents(BATCH_SIZE);
+                if (!events.isEmpty() && !applyBatch(events)) {
+                    for (OutboxEvent event : events) {
+                        applyOne(event);
+                    }
+                }
+            } while (events.size() == BATCH_SIZE);
+        } catch (Exception e) {
+            System.err.println("OutboxDispatcher error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply a whole batch in one transaction.
+     *
+     * @return false if the batch was rolled back
+     */
+    private boolean applyBatch(List<OutboxEvent> events) {
+        Lock commitLock = StatsColumnStore.getInstance().commitLock();
+        commitLock.lock();
+        try (Connection conn = DBConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, Integer> stats = new LinkedHashMap<>();
+                List<Long> ids = new ArrayList<>();
+                for (OutboxEvent event : events) {
+                    apply(conn, event, stats);
+                    ids.add(event.id);
+                }
+                flushStats(conn, stats);
+
+                if (!OutboxDAO.markProcessed(conn, ids)) {
+                    conn.rollback();
+                    return true; // Claimed elsewhere; reread on next pass
+                }
+                conn.commit();
+                statsCommitted(stats);
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                System.err.println("OutboxDispatcher: Batch of " + events.size() +
+                        " failed, retrying individually - " + e.getMessage());
+                return false;
+            }
+        } catch (SQLException e) {
+            System.err.println("OutboxDispatcher: Database unavailable - " + e.getMessage());
+            return true; // Nothing to isolate; retry on next poll
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Apply a single event in its own transaction, recording a failure if it
+     * cannot be applied.
+     */
+    private void applyOne(OutboxEvent event) {
+        Lock commitLock = StatsColumnStore.getInstance().commitLock();
+        commitLock.lock();
+        try (Connection conn = DBConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, Integer> stats = new LinkedHashMap<>();
+                apply(conn, event, stats);
+                flushStats(conn, stats);
+                List<Long> ids = new ArrayList<>();
+                ids.add(event.id);
+                if (OutboxDAO.markProcessed(conn, ids)) {
+                    conn.commit();
+                    statsCommitted(stats);
+                } else {
+                    conn.rollback();
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                System.err.println("OutboxDispatcher: Event " + event.id + " (" + event.type +
+                        ") failed - " + e.getMessage());
+                OutboxDAO.recordFailure(event.id, e.getMessage());
+            }
+        } catch (SQLException e) {
+            System.err.println("OutboxDispatcher: Database unavailable - " + e.getMessage());
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Apply one event's effect on the dispatcher connection. Stat increments
+     * are only collected here and written by flushStats.
+     */
+    private static void apply(Connection conn, OutboxEvent event, Map<String, Integer> stats)
+            throws SQLException {
+        JsonObject p = event.payload;
+        switch (event.type) {
+            case OutboxDAO.TYPE_NOTIFY_CITY_CUSTOMERS: {
+                List<Integer> userIds = PurchaseDAO.getCustomerIdsForCity(p.get("cityId").getAsInt());
+                int sent = NotificationDAO.createNotifications(conn, userIds,
+                        p.get("title").getAsString(), p.get("body").getAsString());
+                System.out.println("OutboxDispatcher: Notified " + sent + " customers of city " +
+                        p.get("cityId").getAsInt());
+                break;
+            }
+            case OutboxDAO.TYPE_NOTIFY_USER:
+                NotificationDAO.createNotification(conn, p.get("userId").getAsInt(),
+                        p.get("title").getAsString(), p.get("body").getAsString());
+                break;
+
+            case OutboxDAO.TYPE_AUDIT:
+                AuditLogDAO.log(conn, p.get("action").getAsString(), p.get("actorId").getAsInt(),
+                        p.get("entityType").getAsString(), p.get("entityId").getAsInt(),
+                        p.get("details").getAsString());
+                break;
+
+            case OutboxDAO.TYPE_STAT_INCREMENT:
+                String key = p.get("date").getAsString() + "|" + p.get("cityId").getAsInt() + "|" +
+                        p.get("metric").getAsString();
+                stats.merge(key, 1, Integer::sum);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown outbox event type: " + event.type);
+        }
+    }
+
+    private static void flushStats(Connection conn, Map<String, Integer> stats) throws SQLException {
+        for (Map.Entry<String, Integer> entry : stats.entrySet()) {
+            String[] parts = entry.getKey().split("\\|");
+            DailyStatsDAO.increment(conn, LocalDate.parse(parts[0]), Integer.parseInt(parts[1]),
+                    DailyStatsDAO.Metric.valueOf(parts[2]), entry.getValue());
+        }
+    }
+
+    /**
+     * Add committed stat increments to StatsColumnStore. They can land on a
+     * closed day (an event queued before midnight), so drop its cached
+     * report periods too. Called while holding the store's commit lock.
+     */
+    private static void statsCommitted(Map<String, Integer> stats) {
+        Set<String> dates = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : stats.entrySet()) {
+            String[] parts = entry.getKey().split("\\|");
+            StatsColumnStore.getInstance().add(LocalDate.parse(parts[0]), Integer.parseInt(parts[1]),
+                    DailyStatsDAO.Metric.valueOf(parts[2]), entry.getValue());
+            if (dates.add(parts[0])) {
+                ReportCache.getInstance().invalidate(LocalDate.parse(parts[0]));
+            }
+        }
+    }
+
+    /**
+     * Delete old processed events.
+     */
+    private void purge() {
+        int purged = OutboxDAO.purgeProcessed(RETENTION_DAYS);
+        if (purged > 0) {
+            System.out.println("OutboxDispatcher: Purged " + purged + " processed event(s)");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import server.DBConnector;
 import server.dao.NotificationDAO;
 import server.dao.PurchaseDAO;
 import server.dao.PurchaseDAO.ExpiringSubscription;
+import server.service.EntitlementCache;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -31,6 +32,7 @@ public class SubscriptionScheduler {
 
     private static final int EXPIRY_WARNING_DAYS = 3;
     private static final int DEMO_INTERVAL_MINUTES = 2;
+    private static final int PURCHASE_REQUEST_RETENTION_DAYS = 7; // Retries never arrive later than this
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final ScheduledExecutorService scheduler;
@@ -113,6 +115,16 @@ public class SubscriptionScheduler {
         System.out.println("═══════════════════════════════════════════════════════════");
 
         try {
+            // Expired entitlements drop out of the cache on their own; this just frees memory
+            int purged = EntitlementCache.getInstance().purgeExpired();
+            if (purged > 0) {
+                System.out.println("   Purged " + purged + " expired cached entitlement(s)");
+            }
+            int oldRequests = PurchaseDAO.purgePurchaseRequests(PURCHASE_REQUEST_RETENTION_DAYS);
+            if (oldRequests > 0) {
+                System.out.println("   Purged " + oldRequests + " old purchase request ID(s)");
+            }
+
             List<ExpiringSubscription> expiring = PurchaseDAO.getExpiringSubscriptions(EXPIRY_WARNING_DAYS);
 
             if (expiring.isEmpty()) {
@@ -124,6 +136,10 @@ public class SubscriptionScheduler {
             int notificationsSent = 0;
 
             for (ExpiringSubscription sub : expiring) {
+                // Re-read entitlements that are about to end, in case the row
+                // was changed outside this server (e.g. deactivated)
+                EntitlementCache.getInstance().invalidate(sub.userId, sub.cityId);
+
                 System.out.println("   → " + sub.username + " | " + sub.cityName +
                         " | Expires: " + sub.expiryDate + " (" + sub.daysUntilExpiry + " days)");
 
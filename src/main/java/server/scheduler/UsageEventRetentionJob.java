@@ -0,0 +1,185 @@
+package server.scheduler;
+
+import server.dao.UsageEventDAO;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that keeps the raw view and download events bounded.
+ *
+ * Every run it creates next month's event tables ahead of time, rolls each
+ * completed day of views up into map_views_daily, and drops monthly tables
+ * older than the retention period once all their days are rolled up. The
+ * legacy unpartitioned tables are rolled up once and trimmed by the same
+ * retention. A day is rolled up only GRACE_MINUTES after midnight, so events
+ * still queued in UsageEventPipeline are in.
+ *
+ * Retention is set with -Dgcm.events.retention.months (default 13).
+ */
+public class UsageEventRetentionJob {
+
+    private static final int INTERVAL_MINUTES = 60;
+    private static final int GRACE_MINUTES = 10;
+    private static final int DEFAULT_RETENTION_MONTHS = 13;
+
+    private final ScheduledExecutorService scheduler;
+    private final int retentionMonths;
+    private boolean isRunning = false;
+
+    private static UsageEventRetentionJob instance;
+
+    private UsageEventRetentionJob() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UsageEventRetentionJob");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+        this.retentionMonths = Math.max(1, Integer.getInteger("gcm.events.retention.months",
+                DEFAULT_RETENTION_MONTHS));
+    }
+
+    /**
+     * Get singleton instance.
+     */
+    public static synchronized UsageEventRetentionJob getInstance() {
+        if (instance == null) {
+            instance = new UsageEventRetentionJob();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the job. This month's tables are created synchronously so the
+     * first inserts need no DDL; the rest runs in the background.
+     */
+    public void start() {
+        if (isRunning) {
+            System.out.println("⚠ UsageEventRetentionJob already running");
+            return;
+        }
+
+        UsageEventDAO.init();
+        try {
+            UsageEventDAO.ensureMonthTables(YearMonth.now());
+        } catch (SQLException e) {
+            System.err.println("UsageEventRetentionJob: cannot create event tables - " + e.getMessage());
+        }
+
+        scheduler.scheduleAtFixedRate(this::runOnce, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+
+        isRunning = true;
+        System.out.println("✓ UsageEventRetentionJob started (every " + INTERVAL_MINUTES + " minutes, keeping "
+                + retentionMonths + " months)");
+    }
+
+    /**
+     * Stop the job.
+     */
+    public void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+        }
+        isRunning = false;
+        System.out.println("✓ UsageEventRetentionJob stopped");
+    }
+
+    /**
+     * Main task: pre-create, roll up, expire.
+     */
+    private void runOnce() {
+        try {
+            YearMonth current = YearMonth.now();
+            UsageEventDAO.ensureMonthTables(current);
+            UsageEventDAO.ensureMonthTables(current.plusMonths(1));
+
+            if (UsageEventDAO.rollupLegacyViews()) {
+                System.out.println("UsageEventRetentionJob: Rolled up legacy view events");
+            }
+
+            LocalDate lastRolled = UsageEventDAO.getLastRolledUpDay();
+            if (lastRolled == null) {
+                List<YearMonth> months = UsageEventDAO.getMonths(UsageEventDAO.VIEWS);
+                YearMonth first = months.isEmpty() ? current : months.get(0);
+                lastRolled = first.atDay(1).minusDays(1);
+                UsageEventDAO.initRollupState(lastRolled);
+            }
+            int rolled = 0;
+            for (LocalDate day : daysToRollUp(lastRolled, LocalDateTime.now(), GRACE_MINUTES)) {
+                if (UsageEventDAO.rollupDay(day)) {
+                    rolled++;
+                }
+                lastRolled = day;
+            }
+            if (rolled > 0) {
+                System.out.println("UsageEventRetentionJob: Rolled up " + rolled + " day(s) of views");
+            }
+
+            for (String base : new String[] { UsageEventDAO.VIEWS, UsageEventDAO.DOWNLOADS }) {
+                for (YearMonth month : monthsToDrop(UsageEventDAO.getMonths(base), current, retentionMonths,
+                        lastRolled)) {
+                    UsageEventDAO.dropMonth(base, month);
+                    System.out.println("UsageEventRetentionJob: Dropped " + UsageEventDAO.monthTable(base, month));
+                }
+                int trimmed = UsageEventDAO.trimLegacy(base, current.minusMonths(retentionMonths).atDay(1));
+                if (trimmed > 0) {
+                    System.out.println("UsageEventRetentionJob: Trimmed " + trimmed + " legacy row(s) from " + base);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("UsageEventRetentionJob error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Completed days after lastRolled, in order. A day is complete once
+     * graceMinutes have passed since its end.
+     */
+    static List<LocalDate> daysToRollUp(LocalDate lastRolled, LocalDateTime now, int graceMinutes) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = lastRolled.plusDays(1);
+                !day.plusDays(1).atStartOfDay().plusMinutes(graceMinutes).isAfter(now); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * Months older than the retention period whose days are all rolled up.
+     * The current month and the retentionMonths before it are kept.
+     */
+    static List<YearMonth> monthsToDrop(List<YearMonth> months, YearMonth current, int retentionMonths,
+            LocalDate lastRolled) {
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        List<YearMonth> drop = new ArrayList<>();
+        for (YearMonth month : months) {
+            if (month.isBefore(oldestKept) && !lastRolled.isBefore(month.atEndOfMonth())) {
+                drop.add(month);
+            }
+        }
+        return drop;
+    }
+
+    /**
+     * Run the job immediately.
+     */
+    public void runNow() {
+        runOnce();
+    }
+}
@@ -1,15 +1,23 @@
 package server.service;
 
 import common.DailyStat;
-import server.dao.DailyStatsDAO;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 
 public class AllCitiesReportGenerator implements ReportGenerator {
     @Override
     public List<DailyStat> generate(LocalDate from, LocalDate to, Integer cityId) {
-        // Ignores cityId, fetches global stats per day
-        return DailyStatsDAO.getGlobalStatsPerDay(from, to);
+        // Ignores cityId, sums all cities per planned period
+        List<ReportRangePlanner.Segment> plan = ReportRangePlanner.plan(from, to);
+        if (StatsColumnStore.getInstance().isLoaded()) {
+            return StatsColumnStore.getInstance().getStats(plan, null);
+        }
+        try {
+            return ReportCache.getInstance().getStats(plan, null);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read activity stats: " + e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,418 @@
+package server.service;
+
+import common.Poi;
+import common.dto.BulkImportRequest;
+import common.dto.ImportJobStatus;
+import common.dto.MapChanges;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import common.dto.ValidationResult;
+import server.DBConnector;
+import server.dao.CityDAO;
+import server.dao.ImportJobDAO;
+import server.dao.MapDAO;
+import server.dao.PoiDAO;
+import server.dao.TourDAO;
+import server.handler.MapEditHandler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of cities, maps, POIs and tours from CSV or GeoJSON files.
+ *
+ * Files are streamed row by row (ImportRowReader) and applied in batches of
+ * BATCH_ROWS on one dedicated connection: cities, maps and tours are found
+ * by name or created, POIs are inserted with multi-row inserts, then linked
+ * and added to tours with JDBC batches. Every row is checked with the same
+ * rules MapEditHandler applies to interactive edits; rejected rows are
+ * counted and a sample is kept on the job.
+ *
+ * Each batch commits together with the job's checkpoint, so a failed job
+ * resumes by skipping exactly the rows already committed.
+ */
+public class BulkImportService {
+
+    private static final String DEFAULT_DIR = "imports";
+    private static final int BATCH_ROWS = 1000;
+    private static final int MAX_REJECTIONS_KEPT = 50;
+    private static final int PROGRESS_LOG_ROWS = 50_000;
+
+    private static BulkImportService instance;
+
+    private final Path directory;
+    private final ExecutorService executor;
+
+    // Live progress of running jobs; finished jobs are read from import_jobs
+    private final Map<Integer, ImportJobStatus> running = new ConcurrentHashMap<>();
+
+    BulkImportService(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "BulkImport");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+    }
+
+    public static synchronized BulkImportService getInstance() {
+        if (instance == null) {
+            instance = new BulkImportService(Paths.get(System.getProperty("gcm.import.dir", DEFAULT_DIR)));
+        }
+        return instance;
+    }
+
+    // ==================== Jobs ====================
+
+    /**
+     * Start a new job, or resume a FAILED one.
+     *
+     * @return the job's status
+     * @throws IllegalArgumentException if the request cannot be started
+     */
+    public ImportJobStatus start(BulkImportRequest request, int userId) {
+        if (request.getResumeJobId() != null) {
+            return resume(request.getResumeJobId());
+        }
+
+        String fileName = request.getFileName();
+        if (fileName == null || fileName.isEmpty() || fileName.contains("/") || fileName.contains("\\")
+                || fileName.startsWith(".")) {
+            throw new IllegalArgumentException("A plain file name inside the import directory is required");
+        }
+        Path file = directory.resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Import file not found: " + fileName);
+        }
+        BulkImportRequest.Format format = request.getFormat() != null ? request.getFormat()
+                : ImportRowReader.detectFormat(fileName);
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown file format; use .csv or .geojson");
+        }
+
+        int jobId = ImportJobDAO.createJob(fileName, format.name(), userId);
+        if (jobId <= 0) {
+            throw new IllegalStateException("Could not create import job");
+        }
+        ImportJobStatus job = ImportJobDAO.getJob(jobId);
+        submit(job, file, format);
+        return job;
+    }
+
+    private ImportJobStatus resume(int jobId) {
+        ImportJobStatus job = ImportJobDAO.getJob(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Import job not found: " + jobId);
+        }
+        if (!ImportJobStatus.STATUS_FAILED.equals(job.getStatus())) {
+            throw new IllegalArgumentException("Only failed jobs can be resumed (job is " + job.getStatus() + ")");
+        }
+        Path file = directory.resolve(job.getFileName());
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Import file no longer exists: " + job.getFileName());
+        }
+        ImportJobDAO.updateStatus(jobId, ImportJobStatus.STATUS_RUNNING, null);
+        job.setStatus(ImportJobStatus.STATUS_RUNNING);
+        job.setLastError(null);
+        submit(job, file, BulkImportRequest.Format.valueOf(job.getFormat()));
+        return job;
+    }
+
+    private void submit(ImportJobStatus job, Path file, BulkImportRequest.Format format) {
+        running.put(job.getJobId(), job);
+        executor.execute(() -> run(job, file, format));
+        System.out.println("BulkImportService: Queued job #" + job.getJobId() + " (" + job.getFileName() +
+                ", resuming after row " + job.getRowsProcessed() + ")");
+    }
+
+    /**
+     * Current status of a job (live while running).
+     */
+    public ImportJobStatus getStatus(int jobId) {
+        ImportJobStatus live = running.get(jobId);
+        return live != null ? live : ImportJobDAO.getJob(jobId);
+    }
+
+    /**
+     * Mark jobs interrupted by a restart as FAILED (resumable). Called on
+     * server start.
+     */
+    public void recoverInterruptedJobs() {
+        int failed = ImportJobDAO.failInterruptedJobs();
+        if (failed > 0) {
+            System.out.println("BulkImportService: " + failed + " interrupted import job(s) can be resumed");
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== Import ====================
+
+    private void run(ImportJobStatus job, Path file, BulkImportRequest.Format format) {
+        long skip = job.getRowsProcessed();
+        long started = System.currentTimeMillis();
+        long nextLog = skip + PROGRESS_LOG_ROWS;
+
+        try (ImportRowReader reader = ImportRowReader.open(file, format);
+                Connection conn = DBConnector.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Database unavailable");
+            }
+            conn.setAutoCommit(false);
+            Resolver resolver = new Resolver();
+            List<ImportRowReader.Row> batch = new ArrayList<>(BATCH_ROWS);
+
+            ImportRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                if (row.number <= skip) {
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == BATCH_ROWS) {
+                    applyBatch(conn, batch, job, resolver);
+                    batch.clear();
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                if (job.getRowsProcessed() >= nextLog) {
+                    long rate = (job.getRowsProcessed() - skip) * 1000 / Math.max(1, System.currentTimeMillis() - started);
+                    System.out.println("BulkImportService: Job #" + job.getJobId() + " at row " +
+                            job.getRowsProcessed() + " (" + rate + " rows/s)");
+                    nextLog += PROGRESS_LOG_ROWS;
+                }
+            }
+            applyBatch(conn, batch, job, resolver);
+
+            job.setStatus(ImportJobStatus.STATUS_COMPLETED);
+            ImportJobDAO.updateStatus(job.getJobId(), ImportJobStatus.STATUS_COMPLETED, null);
+            System.out.println("BulkImportService: Job #" + job.getJobId() + " completed - " +
+                    job.getPoisImported() + " POIs imported, " + job.getRowsRejected() + " rows rejected in " +
+                    (System.currentTimeMillis() - started) / 1000 + " s");
+
+        } catch (Exception e) {
+            String error = e instanceof InterruptedException ? "Interrupted" : e.getMessage();
+            job.setStatus(ImportJobStatus.STATUS_FAILED);
+            job.setLastError(error);
+            ImportJobDAO.updateStatus(job.getJobId(), ImportJobStatus.STATUS_FAILED, error);
+            System.err.println("BulkImportService: Job #" + job.getJobId() + " failed after row " +
+                    job.getRowsProcessed() + " - " + error);
+        } finally {
+            running.remove(job.getJobId());
+            // New cities, maps and POIs: reload the search structures
+            PoiSpatialIndex.getInstance().invalidate();
+            PoiFacetIndex.getInstance().invalidate();
+            SearchResultCache.getInstance().invalidateAll();
+            MapPackageStore.getInstance().invalidateLive();
+        }
+    }
+
+    /**
+     * Validate and insert one batch, committing it with the checkpoint.
+     */
+    private void applyBatch(Connection conn, List<ImportRowReader.Row> batch, ImportJobStatus job,
+            Resolver resolver) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long rejected = job.getRowsRejected();
+        List<String> rejections = new ArrayList<>(job.getRejections());
+        long imported = job.getPoisImported();
+
+        try {
+            // 1. Resolve owners and validate POIs
+            List<ImportRowReader.Row> accepted = new ArrayList<>();
+            List<Poi> pois = new ArrayList<>();
+            List<Integer> mapIds = new ArrayList<>();
+            for (ImportRowReader.Row row : batch) {
+                String error = row.error;
+                if (error == null && row.city == null) {
+                    error = "City is required";
+                } else if (error == null && row.map == null) {
+                    error = "Map is required";
+                }
+                Poi poi = null;
+                int mapId = -1;
+                if (error == null) {
+                    int cityId = resolver.city(conn, row.city);
+                    mapId = resolver.map(conn, cityId, row.map);
+                    poi = new Poi(0, cityId, row.name, row.location, row.category, row.description, row.accessible);
+                    error = firstError(MapEditHandler.validatePoi(poi));
+                }
+                if (error != null) {
+                    rejected++;
+                    addRejection(rejections, row.number, error);
+                    continue;
+                }
+                accepted.add(row);
+                pois.add(poi);
+                mapIds.add(mapId);
+            }
+
+            // 2. Insert POIs and link them to their maps
+            int[] poiIds = PoiDAO.createPois(conn, pois);
+            List<MapChanges.PoiMapLink> links = new ArrayList<>(pois.size());
+            for (int i = 0; i < poiIds.length; i++) {
+                links.add(new MapChanges.PoiMapLink(mapIds.get(i), poiIds[i], (int) accepted.get(i).number));
+            }
+            PoiDAO.linkNewPoisToMaps(conn, links);
+            imported += poiIds.length;
+
+            // 3. Tour stops (the POI is kept if only its stop is invalid)
+            List<TourStopDTO> stops = new ArrayList<>();
+            Set<Integer> touchedTours = new HashSet<>();
+            for (int i = 0; i < poiIds.length; i++) {
+                ImportRowReader.Row row = accepted.get(i);
+                if (!row.hasTour()) {
+                    continue;
+                }
+                Resolver.Tour tour = resolver.tour(conn, pois.get(i).getCityId(), row.tour, row.stopMinutes);
+                String error = tour.error;
+                TourStopDTO stop = null;
+                if (error == null) {
+                    stop = new TourStopDTO(0, tour.id, poiIds[i], row.name, row.category,
+                            row.stopOrder, row.stopMinutes, null);
+                    error = firstError(MapEditHandler.validateTourStop(stop));
+                }
+                if (error == null && !tour.stopOrders.add(row.stopOrder)) {
+                    error = "Stop order " + row.stopOrder + " already used in tour '" + row.tour + "'";
+                }
+                if (error != null) {
+                    addRejection(rejections, row.number, "POI imported, tour stop skipped - " + error);
+                    continue;
+                }
+                stops.add(stop);
+                touchedTours.add(tour.id);
+            }
+            TourDAO.addTourStops(conn, stops);
+            TourDAO.recomputeDurations(conn, touchedTours);
+
+            // 4. Checkpoint in the same transaction
+            ImportJobStatus next = new ImportJobStatus();
+            next.setJobId(job.getJobId());
+            next.setRowsProcessed(batch.get(batch.size() - 1).number);
+            next.setPoisImported(imported);
+            next.setRowsRejected(rejected);
+            next.setRejections(rejections);
+            ImportJobDAO.checkpoint(conn, next);
+            conn.commit();
+
+            job.setRowsProcessed(next.getRowsProcessed());
+            job.setPoisImported(imported);
+            job.setRowsRejected(rejected);
+            job.setRejections(rejections);
+
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            resolver.clear(); // IDs created in this batch no longer exist
+            throw e;
+        }
+    }
+
+    private static String firstError(ValidationResult result) {
+        return result.isValid() || result.getErrors().isEmpty() ? null : result.getErrors().get(0).getMessage();
+    }
+
+    private static void addRejection(List<String> rejections, long rowNumber, String error) {
+        if (rejections.size() < MAX_REJECTIONS_KEPT) {
+            rejections.add("row " + rowNumber + ": " + error);
+        }
+    }
+
+    /**
+     * Name -> ID caches for cities, maps and tours, creating missing ones on
+     * the batch connection. Sized by distinct owners, not by rows.
+     */
+    private static final class Resolver {
+
+        static final class Tour {
+            int id;
+            Set<Integer> stopOrders;
+            String error;
+        }
+
+        private final Map<String, Integer> cities = new HashMap<>();
+        private final Map<String, Integer> maps = new HashMap<>();
+        private final Map<String, Tour> tours = new HashMap<>();
+
+        int city(Connection conn, String name) throws SQLException {
+            String key = name.toLowerCase(Locale.ROOT);
+            Integer id = cities.get(key);
+            if (id == null) {
+                id = CityDAO.getCityIdByName(conn, name);
+                if (id <= 0) {
+                    id = CityDAO.createCity(conn, name, "Imported city", 0.0);
+                }
+                cities.put(key, id);
+            }
+            return id;
+        }
+
+        int map(Connection conn, int cityId, String name) throws SQLException {
+            String key = cityId + "|" + name.toLowerCase(Locale.ROOT);
+            Integer id = maps.get(key);
+            if (id == null) {
+                id = MapDAO.getMapIdByName(conn, cityId, name);
+                if (id <= 0) {
+                    id = MapDAO.createMap(conn, cityId, name, "Imported map");
+                }
+                maps.put(key, id);
+            }
+            return id;
+        }
+
+        /**
+         * Find or create a tour. A new tour starts with the first stop's
+         * duration; durations are recomputed from the stops after each batch.
+         */
+        Tour tour(Connection conn, int cityId, String name, int firstStopMinutes) throws SQLException {
+            String key = cityId + "|" + name.toLowerCase(Locale.ROOT);
+            Tour tour = tours.get(key);
+            if (tour != null) {
+                return tour;
+            }
+            tour = new Tour();
+            tour.id = TourDAO.getTourIdByName(conn, cityId, name);
+            if (tour.id > 0) {
+                tour.stopOrders = TourDAO.getStopOrders(conn, tour.id);
+            } else {
+                TourDTO dto = new TourDTO(0, cityId, name, "Imported tour", firstStopMinutes);
+                tour.error = firstError(MapEditHandler.validateTour(dto));
+                if (tour.error != null) {
+                    return tour; // Not cached: a later row may carry a valid duration
+                }
+                tour.id = TourDAO.createTour(conn, dto);
+                tour.stopOrders = new HashSet<>();
+            }
+            tours.put(key, tour);
+            return tour;
+        }
+
+        void clear() {
+            cities.clear();
+            maps.clear();
+            tours.clear();
+        }
+    }
+}
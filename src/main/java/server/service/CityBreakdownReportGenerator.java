@@ -0,0 +1,129 @@
+package server.service;
+
+import common.DailyStat;
+import server.service.ReportRangePlanner.Segment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-city breakdown of every metric for all cities.
+ *
+ * The range is planned by ReportRangePlanner and each segment's per-city
+ * totals come from StatsColumnStore, or before it is loaded through
+ * ReportCache (one range query over its rollup table for whatever is not
+ * cached). The segments are disjoint index ranges, so
+ * they run in parallel on a small shared executor and are added up per city
+ * here. The executor has WORKERS threads for all
+ * concurrent breakdown reports, so they never hold more than WORKERS pool
+ * connections however many cities there are.
+ *
+ * Returns one row per city with activity, ordered by city id and dated at
+ * the start of the range.
+ */
+public class CityBreakdownReportGenerator implements ReportGenerator {
+
+    private static final int WORKERS = 3;
+    private static final long TIMEOUT_SECONDS = 20;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "GCM-ReportWorker-" + threadNumber.getAndIncrement());
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        }
+    });
+
+    /**
+     * Reads per-city totals for one segment.
+     */
+    interface SegmentReader {
+        List<DailyStat> read(Segment segment) throws SQLException;
+    }
+
+    private final SegmentReader reader;
+    private final ExecutorService executor;
+
+    public CityBreakdownReportGenerator() {
+        this(segment -> StatsColumnStore.getInstance().isLoaded()
+                ? StatsColumnStore.getInstance().getTotalsPerCity(segment)
+                : ReportCache.getInstance().getTotalsPerCity(segment), EXECUTOR);
+    }
+
+    CityBreakdownReportGenerator(SegmentReader reader, ExecutorService executor) {
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<DailyStat> generate(LocalDate from, LocalDate to, Integer cityId) {
+        // Ignores cityId, always covers every city
+        List<Segment> plan = ReportRangePlanner.plan(from, to);
+        List<Future<List<DailyStat>>> parts = new ArrayList<>();
+        for (Segment segment : plan) {
+            parts.add(executor.submit(() -> reader.read(segment)));
+        }
+
+        List<List<DailyStat>> results = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        try {
+            for (Future<List<DailyStat>> part : parts) {
+                results.add(part.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot read activity stats: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Per-city report timed out after " + TIMEOUT_SECONDS + " s", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Per-city report interrupted", e);
+        } finally {
+            for (Future<List<DailyStat>> part : parts) {
+                part.cancel(true); // No-op for finished parts
+            }
+        }
+        return merge(from, results);
+    }
+
+    /**
+     * Add up per-city rows from all segments into one row per city.
+     */
+    static List<DailyStat> merge(LocalDate from, List<List<DailyStat>> parts) {
+        Map<Integer, DailyStat> perCity = new TreeMap<>();
+        for (List<DailyStat> part : parts) {
+            for (DailyStat row : part) {
+                DailyStat total = perCity.computeIfAbsent(row.getCityId(),
+                        id -> new DailyStat(from, id, 0, 0, 0, 0, 0, 0));
+                total.setMapsCount(total.getMapsCount() + row.getMapsCount());
+                total.setOneTimePurchases(total.getOneTimePurchases() + row.getOneTimePurchases());
+                total.setSubscriptions(total.getSubscriptions() + row.getSubscriptions());
+                total.setRenewals(total.getRenewals() + row.getRenewals());
+                total.setViews(total.getViews() + row.getViews());
+                total.setDownloads(total.getDownloads() + row.getDownloads());
+            }
+        }
+        return new ArrayList<>(perCity.values());
+    }
+
+    /**
+     * Stop the shared report workers.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+}
@@ -0,0 +1,288 @@
+package server.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import common.dto.ExportJobStatus;
+import server.DBConnector;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export of one or more cities' full content and history to a ZIP archive
+ * of JSON Lines files (one per table) plus a manifest.
+ *
+ * Rows are read with server-side cursors (fetch size FETCH_SIZE) on a
+ * dedicated connection outside the pool, and written straight into the
+ * archive, so neither memory nor the shared pool grows with the export.
+ * All tables are read in one REPEATABLE READ transaction, giving a
+ * consistent snapshot. Exports run one at a time.
+ */
+public class CityExportService {
+
+    private static final String DEFAULT_DIR = "exports";
+    private static final int FETCH_SIZE = 1000;
+    private static final int MAX_JOBS_KEPT = 100;
+
+    private static CityExportService instance;
+
+    private final Path directory;
+    private final ExecutorService executor;
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+    private final Map<Integer, ExportJobStatus> jobs = new LinkedHashMap<>();
+
+    CityExportService(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "CityExport");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+    }
+
+    public static synchronized CityExportService getInstance() {
+        if (instance == null) {
+            instance = new CityExportService(Paths.get(System.getProperty("gcm.export.dir", DEFAULT_DIR)));
+        }
+        return instance;
+    }
+
+    /**
+     * Table exports in archive order: entry name and city-scoped query.
+     * Every query takes the city ID list once per {cities} marker.
+     */
+    static final String[][] TABLES = {
+            { "cities", "SELECT * FROM cities WHERE id IN ({cities}) ORDER BY id" },
+            { "maps", "SELECT * FROM maps WHERE city_id IN ({cities}) ORDER BY id" },
+            { "pois", "SELECT * FROM pois WHERE city_id IN ({cities}) ORDER BY id" },
+            { "map_pois", "SELECT mp.* FROM map_pois mp JOIN maps m ON m.id = mp.map_id " +
+                    "WHERE m.city_id IN ({cities}) ORDER BY mp.map_id, mp.poi_id" },
+            { "tours", "SELECT * FROM tours WHERE city_id IN ({cities}) ORDER BY id" },
+            { "tour_stops", "SELECT ts.* FROM tour_stops ts JOIN tours t ON t.id = ts.tour_id " +
+                    "WHERE t.city_id IN ({cities}) ORDER BY ts.tour_id, ts.stop_order" },
+            { "map_versions", "SELECT mv.* FROM map_versions mv JOIN maps m ON m.id = mv.map_id " +
+                    "WHERE m.city_id IN ({cities}) ORDER BY mv.id" },
+            { "audit_log", "SELECT a.* FROM audit_log a WHERE " +
+                    "(a.entity_type = 'CITY' AND a.entity_id IN ({cities})) " +
+                    "OR (a.entity_type = 'MAP' AND a.entity_id IN " +
+                    "  (SELECT id FROM maps WHERE city_id IN ({cities}))) " +
+                    "OR (a.entity_type = 'MAP_VERSION' AND a.entity_id IN " +
+                    "  (SELECT mv.id FROM map_versions mv JOIN maps m ON m.id = mv.map_id WHERE m.city_id IN ({cities}))) " +
+                    "OR (a.entity_type = 'POI' AND a.entity_id IN " +
+                    "  (SELECT id FROM pois WHERE city_id IN ({cities}))) " +
+                    "OR (a.entity_type = 'TOUR' AND a.entity_id IN " +
+                    "  (SELECT id FROM tours WHERE city_id IN ({cities}))) " +
+                    "OR (a.entity_type = 'PRICING_REQUEST' AND a.entity_id IN " +
+                    "  (SELECT id FROM pricing_requests WHERE city_id IN ({cities}))) " +
+                    "ORDER BY a.id" }
+    };
+
+    // ==================== Jobs ====================
+
+    /**
+     * Queue an export of the given cities.
+     *
+     * @throws IllegalArgumentException if no cities are given
+     */
+    public ExportJobStatus start(List<Integer> cityIds) {
+        if (cityIds == null || cityIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one city is required");
+        }
+        ExportJobStatus job = new ExportJobStatus(nextJobId.getAndIncrement(), cityIds);
+        synchronized (jobs) {
+            jobs.put(job.getJobId(), job);
+            if (jobs.size() > MAX_JOBS_KEPT) {
+                jobs.remove(jobs.keySet().iterator().next());
+            }
+        }
+        executor.execute(() -> run(job));
+        System.out.println("CityExportService: Queued export #" + job.getJobId() + " of cities " + cityIds);
+        return job.snapshot();
+    }
+
+    /**
+     * Current status of a job, or null if unknown (jobs live until restart).
+     */
+    public ExportJobStatus getStatus(int jobId) {
+        ExportJobStatus job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        return job == null ? null : job.snapshot();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== Export ====================
+
+    private void run(ExportJobStatus job) {
+        long started = System.currentTimeMillis();
+        String fileName = "export-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) +
+                "-" + job.getJobId() + ".zip";
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".part");
+
+        try {
+            Files.createDirectories(directory);
+            try (Connection conn = DBConnector.openStreamingConnection();
+                    OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024);
+                    ZipOutputStream zip = new ZipOutputStream(out)) {
+                if (conn == null) {
+                    throw new SQLException("Database unavailable");
+                }
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setAutoCommit(false);
+                conn.setReadOnly(true);
+                zip.setLevel(Deflater.BEST_SPEED);
+                Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+                try {
+                    for (String[] table : TABLES) {
+                        zip.putNextEntry(new ZipEntry(table[0] + ".jsonl"));
+                        long rows = exportTable(conn, table[1], job.getCityIds(), writer);
+                        writer.flush();
+                        zip.closeEntry();
+                        job.setRowCount(table[0], rows);
+                    }
+                } finally {
+                    conn.rollback(); // Read-only snapshot; nothing to commit
+                }
+
+                zip.putNextEntry(new ZipEntry("manifest.json"));
+                writer.write(manifest(job).toString());
+                writer.flush();
+                zip.closeEntry();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+
+            job.setFileName(fileName);
+            job.setFileSize(Files.size(target));
+            job.setStatus(ExportJobStatus.STATUS_COMPLETED);
+            System.out.println("CityExportService: Export #" + job.getJobId() + " written to " + target +
+                    " (" + job.getFileSize() + " bytes, " + (System.currentTimeMillis() - started) + " ms) " +
+                    job.getRowCounts());
+
+        } catch (IOException | SQLException e) {
+            job.setError(e.getMessage());
+            job.setStatus(ExportJobStatus.STATUS_FAILED);
+            System.err.println("CityExportService: Export #" + job.getJobId() + " failed - " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort
+            }
+        }
+    }
+
+    /**
+     * Stream one query's rows as JSON Lines.
+     *
+     * @return rows written
+     */
+    private static long exportTable(Connection conn, String template, List<Integer> cityIds, Writer writer)
+            throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(expand(template, cityIds.size()),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            int p = 1;
+            int markers = template.split("\\{cities\\}", -1).length - 1;
+            for (int m = 0; m < markers; m++) {
+                for (int cityId : cityIds) {
+                    stmt.setInt(p++, cityId);
+                }
+            }
+
+            long rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                while (rs.next()) {
+                    JsonObject row = new JsonObject();
+                    for (int c = 1; c <= columns; c++) {
+                        addValue(row, meta.getColumnLabel(c), rs.getObject(c));
+                    }
+                    writer.write(row.toString());
+                    writer.write('\n');
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    static void addValue(JsonObject row, String column, Object value) {
+        if (value == null) {
+            row.add(column, null);
+        } else if (value instanceof Number) {
+            row.addProperty(column, (Number) value);
+        } else if (value instanceof Boolean) {
+            row.addProperty(column, (Boolean) value);
+        } else if (value instanceof byte[]) {
+            row.addProperty(column, Base64.getEncoder().encodeToString((byte[]) value));
+        } else {
+            row.addProperty(column, value.toString());
+        }
+    }
+
+    /**
+     * Replace each {cities} marker with one placeholder per city.
+     */
+    static String expand(String sql, int cityCount) {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < cityCount; i++) {
+            in.append(i == 0 ? "?" : ",?");
+        }
+        return sql.replace("{cities}", in);
+    }
+
+    private static JsonObject manifest(ExportJobStatus job) {
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("format", "gcm-export-1");
+        manifest.addProperty("createdAt", LocalDateTime.now().toString());
+        JsonArray cities = new JsonArray();
+        for (int cityId : job.getCityIds()) {
+            cities.add(cityId);
+        }
+        manifest.add("cityIds", cities);
+        JsonObject counts = new JsonObject();
+        for (Map.Entry<String, Long> entry : new ArrayList<>(job.getRowCounts().entrySet())) {
+            counts.addProperty(entry.getKey(), entry.getValue());
+        }
+        manifest.add("rowCounts", counts);
+        return manifest;
+    }
+}
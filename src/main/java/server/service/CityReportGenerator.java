@@ -1,8 +1,8 @@
 package server.service;
 
 import common.DailyStat;
-import server.dao.DailyStatsDAO;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -12,6 +12,14 @@ public class CityReportGenerator implements ReportGenerator {
         if (cityId == null) {
             throw new IllegalArgumentException("City ID required for City Report");
         }
-        return DailyStatsDAO.getStats(from, to, cityId);
+        List<ReportRangePlanner.Segment> plan = ReportRangePlanner.plan(from, to);
+        if (StatsColumnStore.getInstance().isLoaded()) {
+            return StatsColumnStore.getInstance().getStats(plan, cityId);
+        }
+        try {
+            return ReportCache.getInstance().getStats(plan, cityId);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read activity stats: " + e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,359 @@
+package server.service;
+
+import server.dao.DailyStatsDAO;
+import server.dao.DailyStatsDAO.Delta;
+import server.dao.DailyStatsDAO.Metric;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind counters for daily_stats.
+ *
+ * Increments go to a LongAdder per (date, city, metric), so concurrent
+ * request threads never contend on a lock or a daily_stats row. Every
+ * FLUSH_INTERVAL_MS the deltas since the last flush are written as one
+ * batched upsert (DailyStatsDAO.applyDeltas). Adders are never reset: each
+ * counter remembers how much of its sum has been flushed, so increments that
+ * race a flush are picked up by the next one.
+ *
+ * Unflushed deltas are saved to a small journal file every
+ * JOURNAL_INTERVAL_MS and before each flush, tagged with the flush's sequence
+ * number. The database records the last applied sequence number in the same
+ * transaction as the deltas, so on startup a journal whose batch was not
+ * applied is replayed, and one that was is discarded. A crash loses at most
+ * the increments of the last journal interval. stop() flushes everything.
+ */
+public class DailyStatsCounters {
+
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    private static final long JOURNAL_INTERVAL_MS = 250;
+    private static final String DEFAULT_JOURNAL = "stats/daily_stats.journal";
+
+    private static DailyStatsCounters instance;
+
+    /**
+     * Where flushed deltas go.
+     */
+    interface Store {
+        long lastFlushSeq() throws SQLException;
+
+        boolean apply(long flushSeq, Collection<Delta> deltas) throws SQLException;
+    }
+
+    private static final class Counter {
+        final LongAdder adder = new LongAdder();
+        long flushed; // Flusher thread only
+    }
+
+    private final Store store;
+    private final Path journal;
+    private final Supplier<LocalDate> today;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running = false;
+    private long nextSeq = -1; // Unknown until recovered from the database
+    private boolean journalDirty = false;
+
+    // ---- Metrics ----
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    DailyStatsCounters(Store store, Path journal, Supplier<LocalDate> today) {
+        this.store = store;
+        this.journal = journal;
+        this.today = today;
+    }
+
+    public static synchronized DailyStatsCounters getInstance() {
+        if (instance == null) {
+            Store store = new Store() {
+                @Override
+                public long lastFlushSeq() throws SQLException {
+                    DailyStatsDAO.init();
+                    return DailyStatsDAO.getLastFlushSeq();
+                }
+
+                @Override
+                public boolean apply(long flushSeq, Collection<Delta> deltas) throws SQLException {
+                    return DailyStatsDAO.applyDeltas(flushSeq, deltas);
+                }
+            };
+            instance = new DailyStatsCounters(store,
+                    Paths.get(System.getProperty("gcm.stats.journal", DEFAULT_JOURNAL)), LocalDate::now);
+        }
+        return instance;
+    }
+
+    /**
+     * Count one event for today.
+     */
+    public void increment(int cityId, Metric metric) {
+        add(today.get(), cityId, metric, 1);
+    }
+
+    /**
+     * Count events for a date; safe to call from any thread. Written at the
+     * next flush (or at start() if the counters are not running yet).
+     */
+    public void add(LocalDate date, int cityId, Metric metric, long delta) {
+        counters.computeIfAbsent(key(date, cityId, metric), k -> new Counter()).adder.add(delta);
+    }
+
+    private static long key(LocalDate date, int cityId, Metric metric) {
+        return (date.toEpochDay() << 40) | ((cityId & 0xFFFFFFFFL) << 8) | metric.ordinal();
+    }
+
+    private static LocalDate dateOf(long key) {
+        return LocalDate.ofEpochDay(key >>> 40);
+    }
+
+    private static int cityOf(long key) {
+        return (int) (key >>> 8);
+    }
+
+    private static Metric metricOf(long key) {
+        return Metric.values()[(int) (key & 0xFF)];
+    }
+
+    /**
+     * Replay the journal if needed and start flushing periodically.
+     */
+    public synchronized void start() {
+        if (running) {
+            System.out.println("⚠ DailyStatsCounters already running");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DailyStatsCounters");
+            t.setDaemon(true); // Don't prevent JVM shutdown
+            return t;
+        });
+        running = true;
+        recover();
+        scheduler.scheduleWithFixedDelay(this::writeJournal, JOURNAL_INTERVAL_MS, JOURNAL_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("✓ DailyStatsCounters started (flushing every " + FLUSH_INTERVAL_MS + " ms)");
+    }
+
+    /**
+     * Stop the flusher and write what is pending.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        // Not holding the lock: a running flush or journal write must finish
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+        }
+        flush();
+        System.out.println("✓ DailyStatsCounters stopped (" + getStats() + ")");
+    }
+
+    /**
+     * Learn the next sequence number and replay a journal whose batch never
+     * reached the database. Retried by flush() while the database is down.
+     */
+    private synchronized boolean recover() {
+        if (nextSeq > 0) {
+            return true;
+        }
+        long lastSeq;
+        try {
+            lastSeq = store.lastFlushSeq();
+        } catch (SQLException e) {
+            System.err.println("DailyStatsCounters: cannot read flush state - " + e.getMessage());
+            return false;
+        }
+
+        if (Files.exists(journal)) {
+            try (BufferedReader in = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                String header = in.readLine();
+                long journalSeq = header != null && header.startsWith("seq ") ? Long.parseLong(header.substring(4))
+                        : 0;
+                if (journalSeq > lastSeq) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        String[] parts = line.split(" ");
+                        add(LocalDate.parse(parts[0]), Integer.parseInt(parts[1]), Metric.valueOf(parts[2]),
+                                Long.parseLong(parts[3]));
+                        replayed.incrementAndGet();
+                    }
+                    System.out.println("DailyStatsCounters: replayed " + replayed.get() + " journaled counter(s)");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("DailyStatsCounters: unreadable journal ignored - " + e.getMessage());
+            }
+        }
+        nextSeq = lastSeq + 1;
+        journalDirty = true;
+        return true;
+    }
+
+    /**
+     * Deltas not yet flushed, grouped per (date, city).
+     */
+    private Map<Long, Long> pending() {
+        Map<Long, Long> pending = new LinkedHashMap<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long delta = counter.adder.sum() - counter.flushed;
+            if (delta != 0) {
+                pending.put(entry.getKey(), delta);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Save the unflushed deltas, tagged with the next flush's sequence
+     * number, replacing the previous journal.
+     */
+    private synchronized void writeJournal() {
+        writeJournal(pending());
+    }
+
+    private void writeJournal(Map<Long, Long> pending) {
+        if (nextSeq < 0) {
+            return; // Must not overwrite a journal that has not been recovered
+        }
+        try {
+            if (pending.isEmpty()) {
+                if (journalDirty) {
+                    Files.deleteIfExists(journal);
+                    journalDirty = false;
+                }
+                return;
+            }
+            Path dir = journal.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, "journal-", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+                out.write("seq " + nextSeq + "\n");
+                for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+                    long key = entry.getKey();
+                    out.write(dateOf(key) + " " + cityOf(key) + " " + metricOf(key) + " " + entry.getValue() + "\n");
+                }
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            journalDirty = true;
+        } catch (IOException e) {
+            System.err.println("DailyStatsCounters: failed to write journal - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write pending deltas as one batch.
+     *
+     * @return false if the batch could not be written (it is retried next time)
+     */
+    synchronized boolean flush() {
+        if (!recover()) {
+            failures.incrementAndGet();
+            return false;
+        }
+        Map<Long, Long> pending = pending();
+        if (pending.isEmpty()) {
+            writeJournal(pending);
+            purgeOldCounters();
+            return true;
+        }
+
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+            long key = entry.getKey();
+            Delta delta = deltas.computeIfAbsent(dateOf(key) + "|" + cityOf(key),
+                    k -> new Delta(dateOf(key), cityOf(key)));
+            delta.counts[metricOf(key).ordinal()] += entry.getValue();
+        }
+
+        writeJournal(pending); // Journal first, so a crash during apply replays this batch
+        try {
+            store.apply(nextSeq, deltas.values()); // false: already applied before a crash
+        } catch (SQLException | RuntimeException e) {
+            failures.incrementAndGet();
+            System.err.println("DailyStatsCounters: flush failed - " + e.getMessage());
+            return false;
+        }
+
+        nextSeq++;
+        for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+            counters.get(entry.getKey()).flushed += entry.getValue();
+        }
+        flushes.incrementAndGet();
+        writeJournal(); // Only increments made during the flush remain
+        purgeOldCounters();
+        return true;
+    }
+
+    /**
+     * Drop fully flushed counters of days before yesterday; nothing counts
+     * into them any more.
+     */
+    private void purgeOldCounters() {
+        long cutoff = today.get().minusDays(1).toEpochDay();
+        for (Iterator<Map.Entry<Long, Counter>> it = counters.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Long, Counter> entry = it.next();
+            Counter counter = entry.getValue();
+            if ((entry.getKey() >>> 40) < cutoff && counter.adder.sum() == counter.flushed) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Unflushed count of a metric (for tests and diagnostics).
+     */
+    long getPending(LocalDate date, int cityId, Metric metric) {
+        Counter counter = counters.get(key(date, cityId, metric));
+        return counter == null ? 0 : counter.adder.sum() - counter.flushed;
+    }
+
+    public String getStats() {
+        long pendingTotal = pending().values().stream().mapToLong(Long::longValue).sum();
+        return "DailyStatsCounters{counters=" + counters.size() + ", pending=" + pendingTotal + ", flushes="
+                + flushes.get() + ", failures=" + failures.get() + ", replayed=" + replayed.get() + "}";
+    }
+}
@@ -0,0 +1,164 @@
+package server.service;
+
+import common.dto.EntitlementInfo;
+import server.dao.PurchaseDAO;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-(user, city) cache of entitlements, in front of
+ * PurchaseDAO.getEntitlement.
+ *
+ * A subscription entry expires exactly at the subscription's end_date, so
+ * access ends on time without polling. Purchases made through this server
+ * invalidate their entry on commit; as a guard against rows changed outside
+ * the server, no entry lives longer than MAX_TTL_MS (NONE entries, which a
+ * purchase elsewhere would change, only NONE_TTL_MS). A hit costs one hash
+ * lookup and no queries.
+ *
+ * A failed load is answered with NONE for that request only and never
+ * cached, so a database error does not lock buyers out. A load that
+ * started before an invalidation is not cached either.
+ */
+public class EntitlementCache {
+
+    private static final int MAX_ENTRIES = 50_000;
+    private static final long MAX_TTL_MS = 30 * 60_000;
+    private static final long NONE_TTL_MS = 5 * 60_000;
+
+    private static EntitlementCache instance;
+
+    /**
+     * Loads an entitlement from the database; null if it could not be read.
+     */
+    interface Loader {
+        EntitlementInfo load(int userId, int cityId);
+    }
+
+    private static final class Entry {
+        final EntitlementInfo info;
+        final long expiresAt;
+
+        Entry(EntitlementInfo info, long expiresAt) {
+            this.info = info;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Loader loader;
+    private final LongSupplier clock;
+    private final int maxEntries;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // Bumped on invalidation so loads started earlier are not cached
+    private long generation = 0;
+
+    // ---- Metrics ----
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    EntitlementCache(Loader loader, LongSupplier clock, int maxEntries) {
+        this.loader = loader;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+    }
+
+    public static synchronized EntitlementCache getInstance() {
+        if (instance == null) {
+            instance = new EntitlementCache(PurchaseDAO::getEntitlement, System::currentTimeMillis, MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    private static long key(int userId, int cityId) {
+        return ((long) userId << 32) | (cityId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Entitlement of a user for a city, from cache when still valid.
+     */
+    public EntitlementInfo get(int userId, int cityId) {
+        long key = key(userId, cityId);
+        long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && now < entry.expiresAt) {
+            hits.incrementAndGet();
+            return entry.info;
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        EntitlementInfo info = loader.load(userId, cityId);
+        if (info == null) {
+            failures.incrementAndGet();
+            return new EntitlementInfo(cityId, EntitlementInfo.EntitlementType.NONE, null, false, false);
+        }
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                entries.clear(); // Rare; everything reloads on demand
+            }
+        }
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                entries.put(key, new Entry(info, expiryOf(info, now)));
+            }
+        }
+        return info;
+    }
+
+    private static long expiryOf(EntitlementInfo info, long now) {
+        switch (info.getType()) {
+            case SUBSCRIPTION:
+                return Math.min(info.getExpiresAtMillis(), now + MAX_TTL_MS);
+            case ONE_TIME:
+                return now + MAX_TTL_MS;
+            default:
+                return now + NONE_TTL_MS;
+        }
+    }
+
+    /**
+     * Drop a user's entry for a city; call after committing a purchase.
+     */
+    public void invalidate(int userId, int cityId) {
+        synchronized (this) {
+            generation++;
+            entries.remove(key(userId, cityId));
+        }
+    }
+
+    /**
+     * Drop entries that have expired.
+     *
+     * @return number removed
+     */
+    public int purgeExpired() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String getStats() {
+        return "EntitlementCache{entries=" + entries.size() + ", hits=" + hits.get() + ", misses=" + misses.get()
+                + ", failures=" + failures.get() + "}";
+    }
+}
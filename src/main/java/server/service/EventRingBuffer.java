@@ -0,0 +1,118 @@
+package server.service;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer.
+ *
+ * Each slot carries a sequence number that says whose turn it is: a producer
+ * claims a position with one CAS on the tail and publishes its element by
+ * advancing the slot's sequence; the consumer takes the element and advances
+ * the sequence by one lap to hand the slot back. offer() never blocks, it
+ * returns false when the buffer is full.
+ */
+public class EventRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong(); // Written by the consumer only
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element; safe to call from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) (pos & mask);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(slot, element);
+                    sequences.set(slot, pos + 1); // Publish
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // Slot not yet freed by the consumer: full
+            } else {
+                pos = tail.get(); // Another producer took this position
+            }
+        }
+    }
+
+    /**
+     * Take the oldest element; consumer thread only.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    public E poll() {
+        long pos = head.get();
+        int slot = (int) (pos & mask);
+        if (sequences.get(slot) != pos + 1) {
+            return null; // Not yet published
+        }
+        E element = slots.get(slot);
+        slots.lazySet(slot, null);
+        sequences.set(slot, pos + capacity); // Free the slot for the next lap
+        head.lazySet(pos + 1);
+        return element;
+    }
+
+    /**
+     * Move up to max elements into sink; consumer thread only.
+     *
+     * @return number of elements moved
+     */
+    public int drainTo(Collection<? super E> sink, int max) {
+        int moved = 0;
+        E element;
+        while (moved < max && (element = poll()) != null) {
+            sink.add(element);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Approximate number of elements (exact when no producer is mid-offer).
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
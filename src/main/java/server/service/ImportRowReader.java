@@ -0,0 +1,303 @@
+package server.service;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import common.dto.BulkImportRequest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming reader of bulk import rows.
+ *
+ * Each row is one POI together with the city, map and (optionally) tour it
+ * belongs to. Only the current row is held in memory, so a file of any size
+ * is read in constant space.
+ *
+ * CSV: a header row naming the columns city, map, name, location (or lat and
+ * lng), category, description, accessible, tour, stop_order, stop_minutes.
+ * GeoJSON: a FeatureCollection of Point features with the same keys as
+ * properties (stopOrder / stopMinutes are accepted too).
+ */
+abstract class ImportRowReader implements Closeable {
+
+    /**
+     * One parsed row. error is set when the row could not be parsed.
+     */
+    static final class Row {
+        long number;
+        String city;
+        String map;
+        String name;
+        String location;
+        String category;
+        String description;
+        boolean accessible;
+        String tour;
+        int stopOrder;
+        int stopMinutes;
+        String error;
+
+        boolean hasTour() {
+            return tour != null && !tour.isEmpty();
+        }
+    }
+
+    /**
+     * Next row, or null at end of input.
+     */
+    abstract Row next() throws IOException;
+
+    static ImportRowReader open(Path file, BulkImportRequest.Format format) throws IOException {
+        BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return format == BulkImportRequest.Format.GEOJSON ? new GeoJson(in) : new Csv(in);
+    }
+
+    /**
+     * Detect the format from a file name, or null if unknown.
+     */
+    static BulkImportRequest.Format detectFormat(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv")) {
+            return BulkImportRequest.Format.CSV;
+        }
+        if (lower.endsWith(".geojson") || lower.endsWith(".json")) {
+            return BulkImportRequest.Format.GEOJSON;
+        }
+        return null;
+    }
+
+    /**
+     * Fill a row from named fields; shared by both formats.
+     */
+    static void fill(Row row, Map<String, String> fields) {
+        row.city = trim(fields.get("city"));
+        row.map = trim(fields.get("map"));
+        row.name = trim(fields.get("name"));
+        row.category = trim(fields.get("category"));
+        row.description = trim(fields.get("description"));
+        row.tour = trim(fields.get("tour"));
+
+        String location = trim(fields.get("location"));
+        String lat = trim(fields.get("lat"));
+        String lng = trim(fields.get("lng") != null ? fields.get("lng") : fields.get("lon"));
+        row.location = location != null ? location : lat != null && lng != null ? lat + "," + lng : null;
+
+        String accessible = trim(fields.get("accessible"));
+        row.accessible = accessible != null
+                && (accessible.equalsIgnoreCase("true") || accessible.equalsIgnoreCase("yes") || accessible.equals("1"));
+
+        try {
+            row.stopOrder = parseInt(fields.get("stop_order") != null ? fields.get("stop_order") : fields.get("stoporder"));
+            row.stopMinutes = parseInt(fields.get("stop_minutes") != null ? fields.get("stop_minutes")
+                    : fields.get("stopminutes"));
+        } catch (NumberFormatException e) {
+            row.error = "Invalid number: " + e.getMessage();
+        }
+    }
+
+    private static int parseInt(String value) {
+        value = trim(value);
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // ==================== CSV ====================
+
+    static final class Csv extends ImportRowReader {
+        private final Reader in;
+        private String[] header;
+        private long rowNumber = 0;
+
+        Csv(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (header == null) {
+                List<String> names = readRecord();
+                if (names == null) {
+                    return null;
+                }
+                header = new String[names.size()];
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = names.get(i).trim().toLowerCase(Locale.ROOT);
+                }
+            }
+
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).trim().isEmpty()); // skip blank lines
+
+            Row row = new Row();
+            row.number = ++rowNumber;
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.length && i < values.size(); i++) {
+                fields.put(header[i], values.get(i));
+            }
+            fill(row, fields);
+            if (row.error == null && values.size() != header.length) {
+                row.error = "Expected " + header.length + " columns, found " + values.size();
+            }
+            return row;
+        }
+
+        /**
+         * Read one RFC 4180 record (quoted fields may contain commas, quotes
+         * and line breaks), or null at end of input.
+         */
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        if (in.read() == '"') {
+                            field.append('"');
+                        } else {
+                            in.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ==================== GeoJSON ====================
+
+    static final class GeoJson extends ImportRowReader {
+        private final JsonReader json;
+        private boolean inFeatures = false;
+        private boolean done = false;
+        private long rowNumber = 0;
+
+        GeoJson(Reader in) {
+            this.json = new JsonReader(in);
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (done) {
+                return null;
+            }
+            if (!inFeatures && !seekFeatures()) {
+                done = true;
+                return null;
+            }
+            if (!json.hasNext()) {
+                json.endArray();
+                done = true;
+                return null;
+            }
+
+            Row row = new Row();
+            row.number = ++rowNumber;
+            JsonElement element = JsonParser.parseReader(json);
+            if (!element.isJsonObject()) {
+                row.error = "Feature is not an object";
+                return row;
+            }
+            JsonObject feature = element.getAsJsonObject();
+
+            Map<String, String> fields = new HashMap<>();
+            if (feature.has("properties") && feature.get("properties").isJsonObject()) {
+                for (Map.Entry<String, JsonElement> property : feature.getAsJsonObject("properties").entrySet()) {
+                    JsonElement value = property.getValue();
+                    if (value.isJsonPrimitive()) {
+                        fields.put(property.getKey().toLowerCase(Locale.ROOT), value.getAsString());
+                    }
+                }
+            }
+            try {
+                JsonElement geometry = feature.get("geometry");
+                if (geometry != null && geometry.isJsonObject()
+                        && "Point".equals(geometry.getAsJsonObject().get("type").getAsString())) {
+                    // GeoJSON positions are [longitude, latitude]
+                    fields.put("lng", geometry.getAsJsonObject().getAsJsonArray("coordinates").get(0).getAsString());
+                    fields.put("lat", geometry.getAsJsonObject().getAsJsonArray("coordinates").get(1).getAsString());
+                }
+            } catch (RuntimeException e) {
+                row.error = "Invalid geometry";
+                return row;
+            }
+            fill(row, fields);
+            return row;
+        }
+
+        /**
+         * Advance to the first element of the top-level "features" array.
+         */
+        private boolean seekFeatures() throws IOException {
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new IOException("GeoJSON must be a FeatureCollection object");
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("features".equals(json.nextName())) {
+                    json.beginArray();
+                    inFeatures = true;
+                    return true;
+                }
+                json.skipValue();
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.close();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapChanges;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact, deflate-compressed binary encoding of MapChanges for storage in
+ * map_edit_requests.
+ *
+ * Layout: format version byte, then each field in declaration order; lists
+ * are count-prefixed and nullable values carry a presence flag.
+ */
+public class MapChangesCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private MapChangesCodec() {
+    }
+
+    /**
+     * Encode and compress a change set.
+     */
+    public static byte[] encode(MapChanges changes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeByte(FORMAT_VERSION);
+            writeInteger(out, changes.getMapId());
+            writeInteger(out, changes.getCityId());
+            writeString(out, changes.getNewMapName());
+            writeString(out, changes.getNewMapDescription());
+            out.writeBoolean(changes.isCreateNewCity());
+            writeString(out, changes.getNewCityName());
+            writeString(out, changes.getNewCityDescription());
+            out.writeBoolean(changes.getNewCityPrice() != null);
+            if (changes.getNewCityPrice() != null) {
+                out.writeDouble(changes.getNewCityPrice());
+            }
+
+            writePois(out, changes.getAddedPois());
+            writePois(out, changes.getUpdatedPois());
+            writeInts(out, changes.getDeletedPoiIds());
+            writeLinks(out, changes.getPoiMapLinks());
+            writeLinks(out, changes.getPoiMapUnlinks());
+
+            writeTours(out, changes.getAddedTours());
+            writeTours(out, changes.getUpdatedTours());
+            writeInts(out, changes.getDeletedTourIds());
+
+            writeStops(out, changes.getAddedStops());
+            writeStops(out, changes.getUpdatedStops());
+            writeInts(out, changes.getDeletedStopIds());
+        } catch (IOException e) {
+            // In-memory streams do not fail
+            throw new IllegalStateException("Failed to encode map changes", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompress and decode a change set.
+     *
+     * @return the changes, or null if the data is corrupt
+     */
+    public static MapChanges decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported format version " + version);
+            }
+
+            MapChanges changes = new MapChanges();
+            changes.setMapId(readInteger(in));
+            changes.setCityId(readInteger(in));
+            changes.setNewMapName(readString(in));
+            changes.setNewMapDescription(readString(in));
+            changes.setCreateNewCity(in.readBoolean());
+            changes.setNewCityName(readString(in));
+            changes.setNewCityDescription(readString(in));
+            changes.setNewCityPrice(in.readBoolean() ? in.readDouble() : null);
+
+            changes.setAddedPois(readPois(in));
+            changes.setUpdatedPois(readPois(in));
+            changes.setDeletedPoiIds(readInts(in));
+            changes.setPoiMapLinks(readLinks(in));
+            changes.setPoiMapUnlinks(readLinks(in));
+
+            changes.setAddedTours(readTours(in));
+            changes.setUpdatedTours(readTours(in));
+            changes.setDeletedTourIds(readInts(in));
+
+            changes.setAddedStops(readStops(in));
+            changes.setUpdatedStops(readStops(in));
+            changes.setDeletedStopIds(readInts(in));
+            return changes;
+
+        } catch (IOException e) {
+            System.err.println("MapChangesCodec: Corrupt change set - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ==================== Records ====================
+
+    private static void writePois(DataOutputStream out, List<Poi> pois) throws IOException {
+        if (pois == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(pois.size());
+        for (Poi poi : pois) {
+            out.writeInt(poi.getId());
+            out.writeInt(poi.getCityId());
+            writeString(out, poi.getName());
+            writeString(out, poi.getLocation());
+            writeString(out, poi.getCategory());
+            writeString(out, poi.getShortExplanation());
+            out.writeBoolean(poi.isAccessible());
+        }
+    }
+
+    private static List<Poi> readPois(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Poi> pois = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pois.add(new Poi(in.readInt(), in.readInt(), readString(in), readString(in), readString(in),
+                    readString(in), in.readBoolean()));
+        }
+        return pois;
+    }
+
+    private static void writeLinks(DataOutputStream out, List<MapChanges.PoiMapLink> links) throws IOException {
+        if (links == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(links.size());
+        for (MapChanges.PoiMapLink link : links) {
+            out.writeInt(link.mapId);
+            out.writeInt(link.poiId);
+            out.writeInt(link.displayOrder);
+        }
+    }
+
+    private static List<MapChanges.PoiMapLink> readLinks(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<MapChanges.PoiMapLink> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            links.add(new MapChanges.PoiMapLink(in.readInt(), in.readInt(), in.readInt()));
+        }
+        return links;
+    }
+
+    private static void writeTours(DataOutputStream out, List<TourDTO> tours) throws IOException {
+        if (tours == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(tours.size());
+        for (TourDTO tour : tours) {
+            out.writeInt(tour.getId());
+            out.writeInt(tour.getCityId());
+            writeString(out, tour.getName());
+            writeString(out, tour.getDescription());
+            out.writeInt(tour.getEstimatedDurationMinutes());
+            writeStops(out, tour.getStops());
+        }
+    }
+
+    private static List<TourDTO> readTours(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<TourDTO> tours = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TourDTO tour = new TourDTO(in.readInt(), in.readInt(), readString(in), readString(in), in.readInt());
+            tour.setStops(readStops(in));
+            tours.add(tour);
+        }
+        return tours;
+    }
+
+    private static void writeStops(DataOutputStream out, List<TourStopDTO> stops) throws IOException {
+        if (stops == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(stops.size());
+        for (TourStopDTO stop : stops) {
+            out.writeInt(stop.getId());
+            out.writeInt(stop.getTourId());
+            out.writeInt(stop.getPoiId());
+            writeString(out, stop.getPoiName());
+            writeString(out, stop.getPoiCategory());
+            out.writeInt(stop.getStopOrder());
+            out.writeInt(stop.getDurationMinutes());
+            writeString(out, stop.getNotes());
+        }
+    }
+
+    private static List<TourStopDTO> readStops(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<TourStopDTO> stops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stops.add(new TourStopDTO(in.readInt(), in.readInt(), in.readInt(), readString(in), readString(in),
+                    in.readInt(), in.readInt(), readString(in)));
+        }
+        return stops;
+    }
+
+    // ==================== Primitives ====================
+
+    private static void writeInts(DataOutputStream out, List<Integer> values) throws IOException {
+        if (values == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(values.size());
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static List<Integer> readInts(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readInt());
+        }
+        return values;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
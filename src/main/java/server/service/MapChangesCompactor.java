@@ -0,0 +1,243 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapChanges;
+import common.dto.MapChanges.PoiMapLink;
+import common.dto.MapEditRequestDTO;
+import common.dto.MergedMapEdit;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Folds several pending change sets for one map into a single net change set,
+ * in submission order.
+ *
+ * Repeated updates of an entity collapse into the last one, and a delete
+ * drops earlier updates of the same entity. Added entities normally carry
+ * id 0; an editor may give them a negative provisional id instead, in which
+ * case later updates fold into the add and a later delete cancels it.
+ * For a POI-map link the last link/unlink wins. Overlaps that cannot be
+ * folded are reported as conflicts: an update after a delete of the same
+ * entity is dropped, so the delete wins (the row is gone by then), and of
+ * two stops added at the same position the later one wins.
+ */
+public class MapChangesCompactor {
+
+    private MapChangesCompactor() {
+    }
+
+    /**
+     * Whether a change set can be merged: it edits an existing map and does
+     * not create a city or map.
+     */
+    public static boolean isMergeable(MapChanges changes) {
+        return changes != null && !changes.isCreateNewCity() && changes.getNewMapName() == null
+                && changes.getMapId() != null && changes.getMapId() > 0;
+    }
+
+    /**
+     * Merge requests for one map; they are applied in the order given.
+     *
+     * @throws IllegalArgumentException if a request is not mergeable or the
+     *                                  requests are for different maps
+     */
+    public static MergedMapEdit compact(List<MapEditRequestDTO> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests to merge");
+        }
+
+        MergedMapEdit merged = new MergedMapEdit();
+        List<String> conflicts = merged.getConflicts();
+        Entities<Poi> pois = new Entities<>("POI", Poi::getId, conflicts);
+        Entities<TourDTO> tours = new Entities<>("Tour", TourDTO::getId, conflicts);
+        Entities<TourStopDTO> stops = new Entities<>("Stop", TourStopDTO::getId, conflicts);
+        Map<String, PoiMapLink> links = new LinkedHashMap<>();
+        Map<String, Boolean> linked = new LinkedHashMap<>();
+
+        Integer mapId = null;
+        Integer cityId = null;
+        int before = 0;
+        for (MapEditRequestDTO request : requests) {
+            MapChanges changes = request.getChanges();
+            if (!isMergeable(changes)) {
+                throw new IllegalArgumentException("Request #" + request.getId() +
+                        " creates a city or map and must be approved on its own");
+            }
+            if (mapId == null) {
+                mapId = changes.getMapId();
+                cityId = changes.getCityId();
+            } else if (!mapId.equals(changes.getMapId())) {
+                throw new IllegalArgumentException("Request #" + request.getId() + " is for a different map");
+            }
+            merged.getRequestIds().add(request.getId());
+            before += countOperations(changes);
+
+            // Same order as the approval applies them
+            changes.getAddedPois().forEach(pois::add);
+            changes.getUpdatedPois().forEach(pois::update);
+            changes.getDeletedPoiIds().forEach(pois::delete);
+            for (PoiMapLink link : changes.getPoiMapLinks()) {
+                links.put(link.mapId + ":" + link.poiId, link);
+                linked.put(link.mapId + ":" + link.poiId, true);
+            }
+            for (PoiMapLink link : changes.getPoiMapUnlinks()) {
+                links.put(link.mapId + ":" + link.poiId, link);
+                linked.put(link.mapId + ":" + link.poiId, false);
+            }
+            changes.getAddedTours().forEach(tours::add);
+            changes.getUpdatedTours().forEach(tours::update);
+            changes.getDeletedTourIds().forEach(tours::delete);
+            changes.getAddedStops().forEach(stops::add);
+            changes.getUpdatedStops().forEach(stops::update);
+            changes.getDeletedStopIds().forEach(stops::delete);
+        }
+
+        MapChanges result = new MapChanges().forMap(mapId);
+        result.setCityId(cityId);
+        result.getAddedPois().addAll(pois.added);
+        result.getUpdatedPois().addAll(pois.updated.values());
+        result.getDeletedPoiIds().addAll(pois.deleted);
+
+        for (Map.Entry<String, PoiMapLink> entry : links.entrySet()) {
+            PoiMapLink link = entry.getValue();
+            if (!linked.get(entry.getKey())) {
+                result.getPoiMapUnlinks().add(link);
+            } else if (pois.deleted.contains(link.poiId)) {
+                conflicts.add("POI " + link.poiId + " linked to map " + link.mapId + " after it was deleted; link dropped");
+            } else {
+                result.getPoiMapLinks().add(link);
+            }
+        }
+
+        result.getAddedTours().addAll(tours.added);
+        result.getUpdatedTours().addAll(tours.updated.values());
+        result.getDeletedTourIds().addAll(tours.deleted);
+        for (TourDTO tour : result.getAddedTours()) {
+            for (TourStopDTO stop : tour.getStops()) {
+                if (pois.deleted.contains(stop.getPoiId())) {
+                    conflicts.add("New tour '" + tour.getName() + "' stops at POI " + stop.getPoiId() +
+                            ", which is deleted");
+                }
+            }
+        }
+
+        // Stops of deleted tours or POIs go with them; of two stops added at
+        // the same position of a tour, the later one wins
+        Map<String, TourStopDTO> addedStops = new LinkedHashMap<>();
+        for (TourStopDTO stop : stops.added) {
+            if (keepStop(stop, tours.deleted, pois.deleted, conflicts)) {
+                TourStopDTO previous = addedStops.remove(stop.getTourId() + ":" + stop.getStopOrder());
+                if (previous != null) {
+                    conflicts.add("Two stops added at position " + stop.getStopOrder() + " of tour " +
+                            stop.getTourId() + "; kept the later one");
+                }
+                addedStops.put(stop.getTourId() + ":" + stop.getStopOrder(), stop);
+            }
+        }
+        result.getAddedStops().addAll(addedStops.values());
+        for (TourStopDTO stop : stops.updated.values()) {
+            if (keepStop(stop, tours.deleted, pois.deleted, conflicts)) {
+                result.getUpdatedStops().add(stop);
+            }
+        }
+        result.getDeletedStopIds().addAll(stops.deleted);
+
+        merged.setMapId(mapId);
+        merged.setChanges(result);
+        merged.setOperationsBefore(before);
+        merged.setOperationsAfter(countOperations(result));
+        return merged;
+    }
+
+    private static boolean keepStop(TourStopDTO stop, Set<Integer> deletedTours, Set<Integer> deletedPois,
+            List<String> conflicts) {
+        if (deletedTours.contains(stop.getTourId())) {
+            return false;
+        }
+        if (deletedPois.contains(stop.getPoiId())) {
+            conflicts.add("Stop at POI " + stop.getPoiId() + " in tour " + stop.getTourId() +
+                    " refers to a deleted POI; stop dropped");
+            return false;
+        }
+        return true;
+    }
+
+    static int countOperations(MapChanges changes) {
+        return changes.getAddedPois().size() + changes.getUpdatedPois().size() + changes.getDeletedPoiIds().size()
+                + changes.getPoiMapLinks().size() + changes.getPoiMapUnlinks().size()
+                + changes.getAddedTours().size() + changes.getUpdatedTours().size()
+                + changes.getDeletedTourIds().size()
+                + changes.getAddedStops().size() + changes.getUpdatedStops().size()
+                + changes.getDeletedStopIds().size();
+    }
+
+    /**
+     * Net adds, updates and deletes of one entity type.
+     */
+    private static final class Entities<T> {
+        private final String label;
+        private final ToIntFunction<T> idOf;
+        private final List<String> conflicts;
+
+        final List<T> added = new ArrayList<>();
+        final Map<Integer, T> updated = new LinkedHashMap<>();
+        final Set<Integer> deleted = new LinkedHashSet<>();
+
+        Entities(String label, ToIntFunction<T> idOf, List<String> conflicts) {
+            this.label = label;
+            this.idOf = idOf;
+            this.conflicts = conflicts;
+        }
+
+        void add(T entity) {
+            int id = idOf.applyAsInt(entity);
+            if (id < 0) {
+                removeAdded(id); // Re-added under the same provisional id
+            }
+            added.add(entity);
+        }
+
+        void update(T entity) {
+            int id = idOf.applyAsInt(entity);
+            if (id < 0) {
+                if (removeAdded(id)) {
+                    added.add(entity); // Fold into the pending add
+                } else {
+                    conflicts.add(label + " " + id + " updated but never added; update dropped");
+                }
+            } else if (deleted.contains(id)) {
+                conflicts.add(label + " " + id + " updated after it was deleted; update dropped");
+            } else {
+                updated.put(id, entity);
+            }
+        }
+
+        void delete(int id) {
+            if (id < 0) {
+                removeAdded(id); // Add followed by delete cancels out
+            } else {
+                updated.remove(id);
+                deleted.add(id);
+            }
+        }
+
+        private boolean removeAdded(int id) {
+            for (Iterator<T> it = added.iterator(); it.hasNext();) {
+                if (idOf.applyAsInt(it.next()) == id) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapContent;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format for downloadable map packages.
+ *
+ * Layout: "GCMP" magic, format version, map header, then length-prefixed
+ * POI, tour and stop records. Strings are modified UTF-8 with a presence
+ * flag so nulls survive the round trip.
+ */
+public class MapPackageCodec {
+
+    public static final int MAGIC = 0x47434D50; // "GCMP"
+    public static final short FORMAT_VERSION = 1;
+
+    private MapPackageCodec() {
+    }
+
+    /**
+     * Write a map package to a stream. The caller owns (and closes) the stream.
+     */
+    public static void write(MapContent content, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+
+        out.writeInt(content.getMapId());
+        out.writeInt(content.getCityId());
+        out.writeInt(content.getVersionId() != null ? content.getVersionId() : 0);
+        out.writeInt(content.getVersionNumber());
+        writeString(out, content.getCityName());
+        writeString(out, content.getMapName());
+        writeString(out, content.getShortDescription());
+
+        List<Poi> pois = content.getPois();
+        out.writeInt(pois.size());
+        for (Poi poi : pois) {
+            out.writeInt(poi.getId());
+            writeString(out, poi.getName());
+            writeString(out, poi.getLocation());
+            writeString(out, poi.getCategory());
+            writeString(out, poi.getShortExplanation());
+            out.writeBoolean(poi.isAccessible());
+        }
+
+        List<TourDTO> tours = content.getTours();
+        out.writeInt(tours.size());
+        for (TourDTO tour : tours) {
+            out.writeInt(tour.getId());
+            writeString(out, tour.getName());
+            writeString(out, tour.getDescription());
+            out.writeInt(tour.getEstimatedDurationMinutes());
+
+            List<TourStopDTO> stops = tour.getStops();
+            out.writeInt(stops.size());
+            for (TourStopDTO stop : stops) {
+                out.writeInt(stop.getId());
+                out.writeInt(stop.getPoiId());
+                writeString(out, stop.getPoiName());
+                writeString(out, stop.getPoiCategory());
+                out.writeInt(stop.getStopOrder());
+                out.writeInt(stop.getDurationMinutes());
+                writeString(out, stop.getNotes());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a map package from a stream.
+     *
+     * @throws IOException if the data is not a valid package
+     */
+    public static MapContent read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a map package");
+        }
+        short version = in.readShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported package format version " + version);
+        }
+
+        int mapId = in.readInt();
+        int cityId = in.readInt();
+        int versionId = in.readInt();
+        int versionNumber = in.readInt();
+        String cityName = readString(in);
+        String mapName = readString(in);
+        String description = readString(in);
+
+        MapContent content = new MapContent(mapId, cityId, cityName, mapName, description);
+        content.setVersionId(versionId > 0 ? versionId : null);
+        content.setVersionNumber(versionNumber);
+
+        int poiCount = in.readInt();
+        for (int i = 0; i < poiCount; i++) {
+            int id = in.readInt();
+            String name = readString(in);
+            String location = readString(in);
+            String category = readString(in);
+            String explanation = readString(in);
+            boolean accessible = in.readBoolean();
+            content.addPoi(new Poi(id, cityId, name, location, category, explanation, accessible));
+        }
+
+        int tourCount = in.readInt();
+        for (int i = 0; i < tourCount; i++) {
+            int tourId = in.readInt();
+            TourDTO tour = new TourDTO(tourId, cityId, readString(in), readString(in), in.readInt());
+
+            int stopCount = in.readInt();
+            List<TourStopDTO> stops = new ArrayList<>(stopCount);
+            for (int j = 0; j < stopCount; j++) {
+                int stopId = in.readInt();
+                int poiId = in.readInt();
+                String poiName = readString(in);
+                String poiCategory = readString(in);
+                int order = in.readInt();
+                int duration = in.readInt();
+                String notes = readString(in);
+                stops.add(new TourStopDTO(stopId, tourId, poiId, poiName, poiCategory, order, duration, notes));
+            }
+            tour.setStops(stops);
+            content.addTour(tour);
+        }
+        return content;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,360 @@
+package server.service;
+
+import common.dto.MapContent;
+import common.dto.MapPackageManifest;
+import common.dto.PackageChunk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * On-disk store of downloadable map packages.
+ *
+ * A package built from an approved snapshot is immutable and named after
+ * its version (c{city}-m{map}-v{version}); live content is named after its
+ * hash. Packages are written once, streamed straight to disk while hashing,
+ * and served as byte ranges with positional FileChannel reads, so a large
+ * city never has to be held in memory as one array.
+ *
+ * Manifests are resolved without loading content when possible: a versioned
+ * package already on disk needs only its id, and the manifest of a map's
+ * live package is remembered for LIVE_TTL_MS (or until invalidateLive()).
+ * Content is loaded only when a package has to be built. Superseded live
+ * packages of a map are deleted once they are older than LIVE_GRACE_MS, so
+ * downloads already in progress can finish.
+ */
+public class MapPackageStore {
+
+    private static final String DEFAULT_DIR = "packages";
+    private static final String EXTENSION = ".gcmp";
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private static final long LIVE_TTL_MS = 60_000;
+    private static final long LIVE_GRACE_MS = 60 * 60_000;
+
+    private static final Pattern PACKAGE_ID = Pattern.compile("c(\\d+)-m(\\d+)-(v\\d+|live-[0-9a-f]{16})");
+
+    private static MapPackageStore instance;
+
+    private final Path directory;
+
+    // packageId -> manifest, so existing files are hashed at most once
+    private final Map<String, MapPackageManifest> manifests = new ConcurrentHashMap<>();
+
+    // mapId -> manifest of its current live package
+    private final Map<Integer, LiveEntry> live = new ConcurrentHashMap<>();
+
+    // Bumped on invalidation so live loads started earlier are not remembered
+    private final AtomicLong liveGeneration = new AtomicLong();
+
+    private static final class LiveEntry {
+        final MapPackageManifest manifest;
+        final long expiresAt;
+
+        LiveEntry(MapPackageManifest manifest, long expiresAt) {
+            this.manifest = manifest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    MapPackageStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static synchronized MapPackageStore getInstance() {
+        if (instance == null) {
+            instance = new MapPackageStore(Paths.get(System.getProperty("gcm.packages.dir", DEFAULT_DIR)));
+        }
+        return instance;
+    }
+
+    // ==================== Resolving ====================
+
+    /**
+     * Manifest of an approved version's package. The loader (the version's
+     * snapshot) is only called if the package has not been built yet.
+     *
+     * @return manifest, or null if the content could not be loaded or written
+     */
+    public MapPackageManifest getVersioned(int cityId, int mapId, String mapName, int versionId,
+            Supplier<MapContent> loader) {
+        String packageId = versionedId(cityId, mapId, versionId);
+        MapPackageManifest cached = manifests.get(packageId);
+        if (cached != null) {
+            return cached;
+        }
+        Path file = pathOf(packageId);
+        if (Files.exists(file)) {
+            // Built before a restart: hash it once
+            try {
+                return register(packageId, cityId, mapId, mapName, versionId, file, hashFile(file));
+            } catch (IOException e) {
+                System.err.println("MapPackageStore: Cannot read package " + packageId + " - " + e.getMessage());
+                return null;
+            }
+        }
+        MapContent content = loader.get();
+        return content == null ? null : getOrBuild(content);
+    }
+
+    /**
+     * Manifest of a map's live package (maps without an approved snapshot).
+     * The loader (the live content) is called at most once per LIVE_TTL_MS,
+     * or after invalidateLive().
+     *
+     * @return manifest, or null if the content could not be loaded or written
+     */
+    public MapPackageManifest getLive(int mapId, Supplier<MapContent> loader) {
+        LiveEntry entry = live.get(mapId);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            return entry.manifest;
+        }
+        long generation = liveGeneration.get();
+        MapContent content = loader.get();
+        if (content == null) {
+            return null;
+        }
+        MapPackageManifest manifest = getOrBuild(content);
+        if (manifest != null) {
+            synchronized (live) {
+                if (generation == liveGeneration.get()) {
+                    live.put(mapId, new LiveEntry(manifest, System.currentTimeMillis() + LIVE_TTL_MS));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Live content changed: the next download rebuilds (or re-hashes) live
+     * packages.
+     */
+    public void invalidateLive() {
+        synchronized (live) {
+            liveGeneration.incrementAndGet();
+            live.clear();
+        }
+    }
+
+    // ==================== Building ====================
+
+    /**
+     * Get the manifest of the package for this content, building the package
+     * file if it does not exist yet.
+     *
+     * @return manifest, or null if the package could not be written
+     */
+    public MapPackageManifest getOrBuild(MapContent content) {
+        try {
+            Files.createDirectories(directory);
+            if (content.getVersionId() != null) {
+                String packageId = versionedId(content.getCityId(), content.getMapId(), content.getVersionId());
+                MapPackageManifest cached = manifests.get(packageId);
+                if (cached != null) {
+                    return cached;
+                }
+                Path file = pathOf(packageId);
+                String sha256;
+                if (Files.exists(file)) {
+                    sha256 = hashFile(file);
+                } else {
+                    MessageDigest digest = sha256();
+                    publish(writeTemp(content, digest), file);
+                    sha256 = toHex(digest.digest());
+                }
+                // The map is versioned now: its live packages are no longer served
+                deleteStaleLive(content.getCityId(), content.getMapId(), null);
+                return register(packageId, content.getCityId(), content.getMapId(), content.getMapName(),
+                        content.getVersionId(), file, sha256);
+            }
+
+            // Live content: build, then name the file after its hash
+            MessageDigest digest = sha256();
+            Path temp = writeTemp(content, digest);
+            String sha256 = toHex(digest.digest());
+            String packageId = "c" + content.getCityId() + "-m" + content.getMapId() + "-live-" + sha256.substring(0, 16);
+            Path file = pathOf(packageId);
+            if (Files.exists(file)) {
+                Files.deleteIfExists(temp);
+                // Current again: restart its grace period
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                publish(temp, file);
+            }
+            deleteStaleLive(content.getCityId(), content.getMapId(), packageId);
+            return register(packageId, content.getCityId(), content.getMapId(), content.getMapName(), null, file,
+                    sha256);
+
+        } catch (IOException e) {
+            System.err.println("MapPackageStore: Failed to build package for map " + content.getMapId() +
+                    " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a package to a temp file, hashing it on the way.
+     */
+    private Path writeTemp(MapContent content, MessageDigest digest) throws IOException {
+        Path temp = Files.createTempFile(directory, "build-", ".tmp");
+        try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)),
+                digest)) {
+            MapPackageCodec.write(content, out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    private static void publish(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete a map's live packages other than keepId that have not been
+     * current for LIVE_GRACE_MS.
+     */
+    private void deleteStaleLive(int cityId, int mapId, String keepId) {
+        long cutoff = System.currentTimeMillis() - LIVE_GRACE_MS;
+        String prefix = "c" + cityId + "-m" + mapId + "-live-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String packageId = name.substring(0, name.length() - EXTENSION.length());
+                if (!packageId.equals(keepId) && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                    manifests.remove(packageId);
+                    System.out.println("MapPackageStore: Deleted superseded package " + packageId);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("MapPackageStore: Cleanup failed for map " + mapId + " - " + e.getMessage());
+        }
+    }
+
+    private MapPackageManifest register(String packageId, int cityId, int mapId, String mapName, Integer versionId,
+            Path file, String sha256) throws IOException {
+        MapPackageManifest manifest = new MapPackageManifest(packageId, cityId, mapId, mapName, versionId,
+                Files.size(file), sha256, DEFAULT_CHUNK_SIZE);
+        manifests.put(packageId, manifest);
+        return manifest;
+    }
+
+    private static String versionedId(int cityId, int mapId, int versionId) {
+        return "c" + cityId + "-m" + mapId + "-v" + versionId;
+    }
+
+    // ==================== Serving ====================
+
+    /**
+     * Read a byte range of a package.
+     *
+     * @return the chunk (empty at or past the end), or null if the package
+     *         id is invalid or the package does not exist
+     */
+    public PackageChunk readChunk(String packageId, long offset, int length) {
+        if (cityOf(packageId) < 0 || offset < 0) {
+            return null;
+        }
+        Path file = pathOf(packageId);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int toRead = (int) Math.max(0, Math.min(Math.min(length, MAX_CHUNK_SIZE), size - offset));
+            ByteBuffer buffer = ByteBuffer.allocate(toRead);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            byte[] data = buffer.position() == toRead ? buffer.array()
+                    : Arrays.copyOf(buffer.array(), buffer.position());
+            return new PackageChunk(packageId, offset, data, size);
+        } catch (IOException e) {
+            System.err.println("MapPackageStore: Cannot read package " + packageId + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * City a package belongs to, parsed from its id.
+     *
+     * @return city ID, or -1 if the id is not a valid package id
+     */
+    public static int cityOf(String packageId) {
+        if (packageId == null) {
+            return -1;
+        }
+        Matcher m = PACKAGE_ID.matcher(packageId);
+        return m.matches() ? Integer.parseInt(m.group(1)) : -1;
+    }
+
+    private Path pathOf(String packageId) {
+        return directory.resolve(packageId + EXTENSION);
+    }
+
+    // ==================== Hashing ====================
+
+    /**
+     * Hex SHA-256 of a file, streamed. Only needed for packages found on
+     * disk; new packages are hashed while they are written.
+     */
+    public static String hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            while (in.read(buffer) != -1) {
+                // Digest is updated as we read
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
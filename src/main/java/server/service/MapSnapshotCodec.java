@@ -0,0 +1,80 @@
+package server.service;
+
+import com.google.gson.Gson;
+import common.dto.MapContent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes frozen MapContent snapshots as GZIP-compressed JSON.
+ *
+ * JSON (rather than Java serialization) keeps old snapshots readable after
+ * the DTO classes gain fields; the hash is taken over the stored bytes so
+ * identical content always yields the same content address.
+ */
+public class MapSnapshotCodec {
+
+    private static final Gson gson = new Gson();
+
+    private MapSnapshotCodec() {
+    }
+
+    /**
+     * Serialize and compress a snapshot.
+     */
+    public static byte[] encode(MapContent content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            gson.toJson(content, writer);
+        } catch (IOException e) {
+            // In-memory streams do not fail
+            throw new IllegalStateException("Failed to encode snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompress and deserialize a snapshot.
+     *
+     * @return the content, or null if the data is corrupt
+     */
+    public static MapContent decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(data)), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, MapContent.class);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("MapSnapshotCodec: Corrupt snapshot - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hex SHA-256 of the encoded bytes.
+     */
+    public static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
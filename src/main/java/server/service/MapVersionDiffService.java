@@ -0,0 +1,298 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapContent;
+import common.dto.MapVersionDiff;
+import common.dto.MapVersionDiff.EntityChange;
+import common.dto.MapVersionDiff.FieldChange;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import server.dao.MapSnapshotDAO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Structural diff between two approved versions of a map, computed from
+ * their frozen snapshots.
+ *
+ * Each snapshot is indexed once into per-entity content hashes keyed by
+ * POI/tour ID, so an entity present in both versions with the same hash is
+ * skipped with one map lookup; only entities whose hash differs are compared
+ * field by field.
+ *
+ * Snapshots never change, so both the per-version indexes and the finished
+ * diffs are cached (bounded LRU) without any invalidation.
+ */
+public class MapVersionDiffService {
+
+    private static final int MAX_INDEXES = 64;
+    private static final int MAX_DIFFS = 256;
+
+    private static MapVersionDiffService instance;
+
+    private final IntFunction<MapContent> snapshotLoader;
+
+    // Access-ordered maps give LRU eviction; each guarded by its own monitor
+    private final LinkedHashMap<Integer, VersionIndex> indexes;
+    private final LinkedHashMap<Long, MapVersionDiff> diffs;
+
+    MapVersionDiffService(IntFunction<MapContent> snapshotLoader, int maxIndexes, int maxDiffs) {
+        this.snapshotLoader = snapshotLoader;
+        this.indexes = new LinkedHashMap<Integer, VersionIndex>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, VersionIndex> eldest) {
+                return size() > maxIndexes;
+            }
+        };
+        this.diffs = new LinkedHashMap<Long, MapVersionDiff>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MapVersionDiff> eldest) {
+                return size() > maxDiffs;
+            }
+        };
+    }
+
+    public static synchronized MapVersionDiffService getInstance() {
+        if (instance == null) {
+            instance = new MapVersionDiffService(MapSnapshotDAO::getSnapshot, MAX_INDEXES, MAX_DIFFS);
+        }
+        return instance;
+    }
+
+    /**
+     * Diff two versions of the same map.
+     *
+     * @return the diff, or null if either version has no snapshot
+     * @throws IllegalArgumentException if the versions belong to different maps
+     */
+    public MapVersionDiff diff(int fromVersionId, int toVersionId) {
+        long key = ((long) fromVersionId << 32) | (toVersionId & 0xFFFFFFFFL);
+        synchronized (diffs) {
+            MapVersionDiff cached = diffs.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        VersionIndex from = index(fromVersionId);
+        VersionIndex to = index(toVersionId);
+        if (from == null || to == null) {
+            return null;
+        }
+        if (from.content.getMapId() != to.content.getMapId()) {
+            throw new IllegalArgumentException("Versions " + fromVersionId + " and " + toVersionId +
+                    " belong to different maps");
+        }
+
+        MapVersionDiff diff = compute(from, to);
+        diff.setFromVersionId(fromVersionId);
+        diff.setToVersionId(toVersionId);
+        synchronized (diffs) {
+            diffs.put(key, diff);
+        }
+        return diff;
+    }
+
+    private VersionIndex index(int versionId) {
+        synchronized (indexes) {
+            VersionIndex cached = indexes.get(versionId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        MapContent content = snapshotLoader.apply(versionId);
+        if (content == null) {
+            return null;
+        }
+        VersionIndex index = new VersionIndex(content);
+        synchronized (indexes) {
+            indexes.put(versionId, index);
+        }
+        return index;
+    }
+
+    // ==================== Diff ====================
+
+    /**
+     * Per-entity content hashes of one snapshot, keyed by entity ID in
+     * snapshot order.
+     */
+    static final class VersionIndex {
+        final MapContent content;
+        final Map<Integer, Poi> pois = new LinkedHashMap<>();
+        final Map<Integer, Long> poiHashes = new HashMap<>();
+        final Map<Integer, TourDTO> tours = new LinkedHashMap<>();
+        final Map<Integer, Long> tourHashes = new HashMap<>();
+
+        VersionIndex(MapContent content) {
+            this.content = content;
+            if (content.getPois() != null) {
+                for (Poi poi : content.getPois()) {
+                    pois.put(poi.getId(), poi);
+                    poiHashes.put(poi.getId(), hash(poiFields(poi)));
+                }
+            }
+            if (content.getTours() != null) {
+                for (TourDTO tour : content.getTours()) {
+                    tours.put(tour.getId(), tour);
+                    tourHashes.put(tour.getId(), hash(tourFields(tour)));
+                }
+            }
+        }
+    }
+
+    static MapVersionDiff compute(VersionIndex from, VersionIndex to) {
+        MapVersionDiff diff = new MapVersionDiff();
+        diff.setMapId(to.content.getMapId());
+        diff.setFromVersionNumber(from.content.getVersionNumber());
+        diff.setToVersionNumber(to.content.getVersionNumber());
+
+        Map<String, String> oldMap = new LinkedHashMap<>();
+        oldMap.put("name", from.content.getMapName());
+        oldMap.put("description", from.content.getShortDescription());
+        Map<String, String> newMap = new LinkedHashMap<>();
+        newMap.put("name", to.content.getMapName());
+        newMap.put("description", to.content.getShortDescription());
+        diff.getMapChanges().addAll(fieldChanges(oldMap, newMap));
+
+        int unchanged = 0;
+        for (Poi poi : to.pois.values()) {
+            Long oldHash = from.poiHashes.get(poi.getId());
+            if (oldHash == null) {
+                diff.getPoiChanges().add(entityChange(MapVersionDiff.ADDED, poi.getId(), poi.getName(),
+                        null, poiFields(poi)));
+            } else if (oldHash.equals(to.poiHashes.get(poi.getId()))) {
+                unchanged++;
+            } else {
+                diff.getPoiChanges().add(entityChange(MapVersionDiff.MODIFIED, poi.getId(), poi.getName(),
+                        poiFields(from.pois.get(poi.getId())), poiFields(poi)));
+            }
+        }
+        for (Poi poi : from.pois.values()) {
+            if (!to.poiHashes.containsKey(poi.getId())) {
+                diff.getPoiChanges().add(entityChange(MapVersionDiff.REMOVED, poi.getId(), poi.getName(),
+                        poiFields(poi), null));
+            }
+        }
+        diff.setUnchangedPois(unchanged);
+
+        unchanged = 0;
+        for (TourDTO tour : to.tours.values()) {
+            Long oldHash = from.tourHashes.get(tour.getId());
+            if (oldHash == null) {
+                diff.getTourChanges().add(entityChange(MapVersionDiff.ADDED, tour.getId(), tour.getName(),
+                        null, tourFields(tour)));
+            } else if (oldHash.equals(to.tourHashes.get(tour.getId()))) {
+                unchanged++;
+            } else {
+                diff.getTourChanges().add(entityChange(MapVersionDiff.MODIFIED, tour.getId(), tour.getName(),
+                        tourFields(from.tours.get(tour.getId())), tourFields(tour)));
+            }
+        }
+        for (TourDTO tour : from.tours.values()) {
+            if (!to.tourHashes.containsKey(tour.getId())) {
+                diff.getTourChanges().add(entityChange(MapVersionDiff.REMOVED, tour.getId(), tour.getName(),
+                        tourFields(tour), null));
+            }
+        }
+        diff.setUnchangedTours(unchanged);
+
+        return diff;
+    }
+
+    private static EntityChange entityChange(String kind, int id, String name,
+            Map<String, String> oldFields, Map<String, String> newFields) {
+        EntityChange change = new EntityChange(kind, id, name);
+        change.getFields().addAll(fieldChanges(oldFields, newFields));
+        return change;
+    }
+
+    /**
+     * Fields whose values differ; a missing side (added/removed entity)
+     * yields every field of the other side.
+     */
+    private static List<FieldChange> fieldChanges(Map<String, String> oldFields, Map<String, String> newFields) {
+        Set<String> names = new LinkedHashSet<>();
+        if (oldFields != null) {
+            names.addAll(oldFields.keySet());
+        }
+        if (newFields != null) {
+            names.addAll(newFields.keySet());
+        }
+        List<FieldChange> changes = new ArrayList<>();
+        for (String name : names) {
+            String oldValue = oldFields == null ? null : oldFields.get(name);
+            String newValue = newFields == null ? null : newFields.get(name);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new FieldChange(name, oldValue, newValue));
+            }
+        }
+        return changes;
+    }
+
+    // ==================== Entity fields ====================
+
+    static Map<String, String> poiFields(Poi poi) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", poi.getName());
+        fields.put("location", poi.getLocation());
+        fields.put("category", poi.getCategory());
+        fields.put("description", poi.getShortExplanation());
+        fields.put("accessible", String.valueOf(poi.isAccessible()));
+        return fields;
+    }
+
+    /**
+     * Tour fields, with each stop as a "stop N" field so a reordered or
+     * retimed stop shows up as a change at its position.
+     */
+    static Map<String, String> tourFields(TourDTO tour) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", tour.getName());
+        fields.put("description", tour.getDescription());
+        fields.put("duration", String.valueOf(tour.getEstimatedDurationMinutes()));
+        if (tour.getStops() != null) {
+            for (TourStopDTO stop : tour.getStops()) {
+                String poi = stop.getPoiName() != null ? stop.getPoiName() : "POI " + stop.getPoiId();
+                String value = poi + " (#" + stop.getPoiId() + ", " + stop.getDurationMinutes() + " min)";
+                if (stop.getNotes() != null && !stop.getNotes().isEmpty()) {
+                    value += " - " + stop.getNotes();
+                }
+                fields.put("stop " + stop.getStopOrder(), value);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 64-bit FNV-1a over the field names and values.
+     */
+    static long hash(Map<String, String> fields) {
+        long h = 0xcbf29ce484222325L;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            h = mix(h, field.getKey());
+            h = mix(h, field.getValue());
+        }
+        return h;
+    }
+
+    private static long mix(long h, String value) {
+        if (value == null) {
+            return (h ^ 0xFF) * 0x100000001b3L; // 0xFF never occurs in UTF-8, so null differs from ""
+        }
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h * 0x100000001b3L; // Zero-byte separator, so ("ab","c") and ("a","bc") differ
+    }
+}
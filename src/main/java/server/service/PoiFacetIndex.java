@@ -0,0 +1,368 @@
+package server.service;
+
+import common.Poi;
+import common.dto.CitySearchResult;
+import common.dto.FacetSearchRequest;
+import common.dto.FacetSearchResult;
+import common.dto.MapChanges;
+import common.dto.MapSummary;
+import server.dao.PoiDAO;
+import server.dao.SearchDAO;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory faceted search over POIs.
+ *
+ * Keeps one bitmap (indexed by POI id) per category, per city and for the
+ * accessibility flag. A filter combination is answered by OR-ing the
+ * selected values inside a facet and AND-ing across facets, and every facet
+ * count is a bitmap cardinality - no database round trip per filter change.
+ *
+ * POI ids are dense auto-increment keys, so java.util.BitSet gives compact
+ * bitmaps without an extra dependency.
+ */
+public class PoiFacetIndex {
+
+    private static final String UNCATEGORIZED = "Uncategorized";
+
+    private static PoiFacetIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ---- Bitmaps over POI ids ----
+    private final BitSet all = new BitSet();
+    private final BitSet accessible = new BitSet();
+    private final BitSet notAccessible = new BitSet();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<Integer, BitSet> byCity = new HashMap<>();
+
+    // normalized category key -> display label
+    private final Map<String, String> categoryLabels = new HashMap<>();
+
+    // ---- Lookup data for building CitySearchResults ----
+    private final Map<Integer, Poi> pois = new HashMap<>();
+    private final Map<Integer, List<Integer>> mapsOfPoi = new HashMap<>();
+    private final List<CitySearchResult> catalog = new ArrayList<>();
+
+    private volatile boolean loaded = false;
+
+    // Bumped by invalidate(); a load started before that is not marked loaded
+    private long generation = 0; // Guarded by lock
+
+    PoiFacetIndex() {
+    }
+
+    public static synchronized PoiFacetIndex getInstance() {
+        if (instance == null) {
+            instance = new PoiFacetIndex();
+        }
+        return instance;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Run a faceted search.
+     */
+    public FacetSearchResult search(FacetSearchRequest request) {
+        ensureLoaded();
+        FacetSearchResult result = new FacetSearchResult();
+
+        lock.readLock().lock();
+        try {
+            BitSet cityFilter = null;
+            if (request.getCityIds() != null && !request.getCityIds().isEmpty()) {
+                cityFilter = new BitSet();
+                for (Integer cityId : request.getCityIds()) {
+                    BitSet bits = byCity.get(cityId);
+                    if (bits != null) {
+                        cityFilter.or(bits);
+                    }
+                }
+            }
+
+            BitSet categoryFilter = null;
+            if (request.getCategories() != null && !request.getCategories().isEmpty()) {
+                categoryFilter = new BitSet();
+                for (String category : request.getCategories()) {
+                    BitSet bits = byCategory.get(normalize(category));
+                    if (bits != null) {
+                        categoryFilter.or(bits);
+                    }
+                }
+            }
+
+            BitSet accessFilter = null;
+            if (request.getAccessible() != null) {
+                accessFilter = request.getAccessible() ? accessible : notAccessible;
+            }
+
+            BitSet matches = intersect(all, cityFilter, categoryFilter, accessFilter);
+            result.setMatchingPoiCount(matches.cardinality());
+
+            // Each facet is counted with every filter except its own
+            BitSet withoutCategory = intersect(all, cityFilter, accessFilter);
+            Map<String, Integer> categoryCounts = new TreeMap<>();
+            for (Map.Entry<String, BitSet> entry : byCategory.entrySet()) {
+                int count = intersect(withoutCategory, entry.getValue()).cardinality();
+                if (count > 0) {
+                    categoryCounts.put(categoryLabels.get(entry.getKey()), count);
+                }
+            }
+            result.setCategoryCounts(new LinkedHashMap<>(categoryCounts));
+
+            BitSet withoutAccess = intersect(all, cityFilter, categoryFilter);
+            result.setAccessibleCount(intersect(withoutAccess, accessible).cardinality());
+            result.setNotAccessibleCount(intersect(withoutAccess, notAccessible).cardinality());
+
+            BitSet withoutCity = intersect(all, categoryFilter, accessFilter);
+            Map<Integer, Integer> cityCounts = new TreeMap<>();
+            for (Map.Entry<Integer, BitSet> entry : byCity.entrySet()) {
+                int count = intersect(withoutCity, entry.getValue()).cardinality();
+                if (count > 0) {
+                    cityCounts.put(entry.getKey(), count);
+                }
+            }
+            result.setCityCounts(new LinkedHashMap<>(cityCounts));
+
+            result.setResults(buildCityResults(matches));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Group the maps containing matching POIs by city, in catalog order.
+     */
+    private List<CitySearchResult> buildCityResults(BitSet matches) {
+        BitSet matchedMaps = new BitSet();
+        for (int poiId = matches.nextSetBit(0); poiId >= 0; poiId = matches.nextSetBit(poiId + 1)) {
+            List<Integer> maps = mapsOfPoi.get(poiId);
+            if (maps != null) {
+                for (int mapId : maps) {
+                    matchedMaps.set(mapId);
+                }
+            }
+        }
+
+        List<CitySearchResult> results = new ArrayList<>();
+        for (CitySearchResult city : catalog) {
+            CitySearchResult cityResult = null;
+            for (MapSummary map : city.getMaps()) {
+                if (!matchedMaps.get(map.getId())) {
+                    continue;
+                }
+                if (cityResult == null) {
+                    cityResult = new CitySearchResult(city.getCityId(), city.getCityName(),
+                            city.getCityDescription(), city.getCityPrice());
+                }
+                cityResult.addMap(map);
+            }
+            if (cityResult != null) {
+                results.add(cityResult);
+            }
+        }
+        return results;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    // ==================== Maintenance ====================
+
+    /**
+     * Add or replace a POI after it was written to the database.
+     */
+    public void upsert(Poi poi) {
+        if (!loaded || poi == null || poi.getId() <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            clearPoi(poi.getId());
+            indexPoi(poi);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a POI after it was deleted from the database.
+     */
+    public void remove(int poiId) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            clearPoi(poiId);
+            mapsOfPoi.remove(poiId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the index; it is reloaded on the next query.
+     * Used when cities, maps or POI-map links change.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get index statistics for monitoring.
+     */
+    public String getStats() {
+        lock.readLock().lock();
+        try {
+            return String.format("PoiFacetIndex: loaded=%s, POIs=%d, categories=%d, cities=%d",
+                    loaded, all.cardinality(), byCategory.size(), byCity.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            long loadGeneration = currentGeneration();
+            List<Poi> allPois = PoiDAO.getAllPois();
+            List<MapChanges.PoiMapLink> links = PoiDAO.getAllPoiMapLinks();
+            List<CitySearchResult> cities = SearchDAO.getCitiesCatalog();
+            if (allPois == null || links == null || cities == null) {
+                System.out.println("PoiFacetIndex: Database unavailable, index not loaded");
+                return;
+            }
+            load(cities, allPois, links, loadGeneration);
+        }
+    }
+
+    long currentGeneration() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the whole index.
+     */
+    void load(List<CitySearchResult> cities, List<Poi> allPois, List<MapChanges.PoiMapLink> links) {
+        load(cities, allPois, links, currentGeneration());
+    }
+
+    /**
+     * Replace the whole index with data read at loadGeneration. If the index
+     * was invalidated since, the data is kept but the index stays unloaded,
+     * so the next query reads the database again.
+     */
+    void load(List<CitySearchResult> cities, List<Poi> allPois, List<MapChanges.PoiMapLink> links,
+            long loadGeneration) {
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            accessible.clear();
+            notAccessible.clear();
+            byCategory.clear();
+            byCity.clear();
+            categoryLabels.clear();
+            pois.clear();
+            mapsOfPoi.clear();
+            catalog.clear();
+
+            catalog.addAll(cities);
+            for (Poi poi : allPois) {
+                indexPoi(poi);
+            }
+            for (MapChanges.PoiMapLink link : links) {
+                mapsOfPoi.computeIfAbsent(link.poiId, p -> new ArrayList<>()).add(link.mapId);
+            }
+            loaded = loadGeneration == generation;
+            System.out.println("PoiFacetIndex: Indexed " + allPois.size() + " POIs, " +
+                    byCategory.size() + " categories, " + byCity.size() + " cities");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexPoi(Poi poi) {
+        int id = poi.getId();
+        pois.put(id, poi);
+        all.set(id);
+        (poi.isAccessible() ? accessible : notAccessible).set(id);
+
+        String key = normalize(poi.getCategory());
+        categoryLabels.putIfAbsent(key, label(poi.getCategory()));
+        byCategory.computeIfAbsent(key, k -> new BitSet()).set(id);
+        byCity.computeIfAbsent(poi.getCityId(), c -> new BitSet()).set(id);
+    }
+
+    private void clearPoi(int poiId) {
+        Poi old = pois.remove(poiId);
+        if (old == null) {
+            return;
+        }
+        all.clear(poiId);
+        accessible.clear(poiId);
+        notAccessible.clear(poiId);
+
+        String key = normalize(old.getCategory());
+        BitSet categoryBits = byCategory.get(key);
+        if (categoryBits != null) {
+            categoryBits.clear(poiId);
+            if (categoryBits.isEmpty()) {
+                byCategory.remove(key);
+                categoryLabels.remove(key);
+            }
+        }
+        BitSet cityBits = byCity.get(old.getCityId());
+        if (cityBits != null) {
+            cityBits.clear(poiId);
+            if (cityBits.isEmpty()) {
+                byCity.remove(old.getCityId());
+            }
+        }
+    }
+
+    private static String normalize(String category) {
+        return label(category).toLowerCase();
+    }
+
+    private static String label(String category) {
+        return category == null || category.trim().isEmpty() ? UNCATEGORIZED : category.trim();
+    }
+}
@@ -0,0 +1,534 @@
+package server.service;
+
+import common.Poi;
+import server.dao.PoiDAO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory spatial index over POI coordinates.
+ *
+ * Poi.location holds "lat,lng" strings. The index parses them once into
+ * primitive arrays and keeps one uniform grid per city, so k-nearest and
+ * bounding-box queries are answered without touching MySQL.
+ *
+ * Each city grid is immutable; when a POI changes only that city's grid is
+ * rebuilt and swapped in, so queries never take a lock.
+ */
+public class PoiSpatialIndex {
+
+    /** Default number of neighbours for SEARCH_POIS_NEAR */
+    public static final int DEFAULT_K = 10;
+
+    /** Upper bound on k to keep responses small */
+    public static final int MAX_K = 500;
+
+    /** Default cap on results for SEARCH_POIS_IN_BBOX */
+    public static final int DEFAULT_BOX_LIMIT = 500;
+
+    /** Target average number of POIs per grid cell */
+    private static final int POINTS_PER_CELL = 4;
+
+    private static final int MAX_CELLS_PER_AXIS = 2048;
+
+    /** Smallest cell edge in degrees (about 1 cm), guards against zero-size grids */
+    private static final double MIN_CELL_DEGREES = 1e-7;
+
+    private static PoiSpatialIndex instance;
+
+    // cityId -> (poiId -> Poi)
+    private final Map<Integer, Map<Integer, Poi>> poisByCity = new ConcurrentHashMap<>();
+
+    // poiId -> cityId (to find the grid when a POI moves or is deleted)
+    private final Map<Integer, Integer> cityOfPoi = new ConcurrentHashMap<>();
+
+    // cityId -> immutable grid
+    private final Map<Integer, CityGrid> grids = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+
+    PoiSpatialIndex() {
+    }
+
+    public static synchronized PoiSpatialIndex getInstance() {
+        if (instance == null) {
+            instance = new PoiSpatialIndex();
+        }
+        return instance;
+    }
+
+    // ==================== Coordinate Parsing ====================
+
+    /**
+     * Parse a "lat,lng" location string.
+     *
+     * @return {lat, lng}, or null if the location is not a coordinate pair
+     *         (e.g. a free-text description)
+     */
+    public static double[] parseLocation(String location) {
+        if (location == null) {
+            return null;
+        }
+        int comma = location.indexOf(',');
+        if (comma < 0 || location.indexOf(',', comma + 1) >= 0) {
+            return null;
+        }
+        try {
+            double lat = Double.parseDouble(location.substring(0, comma).trim());
+            double lng = Double.parseDouble(location.substring(comma + 1).trim());
+            return new double[] { lat, lng };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check that a coordinate lies on the globe.
+     */
+    public static boolean isValidCoordinate(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Find the k POIs nearest to a point, closest first.
+     *
+     * @param cityId city to search, or null for all cities
+     */
+    public List<Poi> findNearest(Integer cityId, double lat, double lng, int k) {
+        ensureLoaded();
+        if (k <= 0) {
+            k = DEFAULT_K;
+        }
+        Neighbours best = new Neighbours(Math.min(k, MAX_K));
+
+        if (cityId != null) {
+            CityGrid grid = grids.get(cityId);
+            if (grid != null) {
+                grid.nearest(lat, lng, best);
+            }
+        } else {
+            for (CityGrid grid : grids.values()) {
+                grid.nearest(lat, lng, best);
+            }
+        }
+        return best.toSortedList();
+    }
+
+    /**
+     * Find POIs inside a bounding box.
+     *
+     * @param cityId city to search, or null for all cities
+     * @param limit  maximum number of results (0 = default)
+     */
+    public List<Poi> findInBox(Integer cityId, double minLat, double minLng,
+            double maxLat, double maxLng, int limit) {
+        ensureLoaded();
+        if (limit <= 0) {
+            limit = DEFAULT_BOX_LIMIT;
+        }
+        List<Poi> results = new ArrayList<>();
+
+        if (cityId != null) {
+            CityGrid grid = grids.get(cityId);
+            if (grid != null) {
+                grid.inBox(minLat, minLng, maxLat, maxLng, results, limit);
+            }
+        } else {
+            for (CityGrid grid : grids.values()) {
+                if (results.size() >= limit) {
+                    break;
+                }
+                grid.inBox(minLat, minLng, maxLat, maxLng, results, limit);
+            }
+        }
+        return results;
+    }
+
+    // ==================== Maintenance ====================
+
+    /**
+     * Add or replace a POI after it was written to the database.
+     */
+    public synchronized void upsert(Poi poi) {
+        if (!loaded || poi == null || poi.getId() <= 0) {
+            return;
+        }
+
+        // POI may have moved to another city
+        Integer previousCity = cityOfPoi.put(poi.getId(), poi.getCityId());
+        if (previousCity != null && previousCity != poi.getCityId()) {
+            Map<Integer, Poi> old = poisByCity.get(previousCity);
+            if (old != null) {
+                old.remove(poi.getId());
+            }
+            rebuildCity(previousCity);
+        }
+
+        poisByCity.computeIfAbsent(poi.getCityId(), c -> new ConcurrentHashMap<>()).put(poi.getId(), poi);
+        rebuildCity(poi.getCityId());
+    }
+
+    /**
+     * Remove a POI after it was deleted from the database.
+     */
+    public synchronized void remove(int poiId) {
+        if (!loaded) {
+            return;
+        }
+        Integer cityId = cityOfPoi.remove(poiId);
+        if (cityId == null) {
+            return;
+        }
+        Map<Integer, Poi> cityPois = poisByCity.get(cityId);
+        if (cityPois != null) {
+            cityPois.remove(poiId);
+        }
+        rebuildCity(cityId);
+    }
+
+    /**
+     * Drop the index; it is reloaded from the database on the next query.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        poisByCity.clear();
+        cityOfPoi.clear();
+        grids.clear();
+    }
+
+    /**
+     * Get index statistics for monitoring.
+     */
+    public String getStats() {
+        int indexed = 0;
+        for (CityGrid grid : grids.values()) {
+            indexed += grid.size();
+        }
+        return String.format("PoiSpatialIndex: loaded=%s, cities=%d, indexed POIs=%d, total POIs=%d",
+                loaded, grids.size(), indexed, cityOfPoi.size());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<Poi> all = PoiDAO.getAllPois();
+            if (all == null) {
+                System.out.println("PoiSpatialIndex: Database unavailable, index not loaded");
+                return;
+            }
+            load(all);
+        }
+    }
+
+    /**
+     * Replace the whole index with the given POIs.
+     */
+    synchronized void load(Collection<Poi> pois) {
+        poisByCity.clear();
+        cityOfPoi.clear();
+        grids.clear();
+
+        for (Poi poi : pois) {
+            poisByCity.computeIfAbsent(poi.getCityId(), c -> new ConcurrentHashMap<>()).put(poi.getId(), poi);
+            cityOfPoi.put(poi.getId(), poi.getCityId());
+        }
+        for (Integer cityId : poisByCity.keySet()) {
+            rebuildCity(cityId);
+        }
+        loaded = true;
+        System.out.println("PoiSpatialIndex: Indexed " + pois.size() + " POIs across " + grids.size() + " cities");
+    }
+
+    private void rebuildCity(int cityId) {
+        Map<Integer, Poi> cityPois = poisByCity.get(cityId);
+        CityGrid grid = cityPois == null ? null : CityGrid.build(cityPois.values());
+        if (grid == null) {
+            grids.remove(cityId);
+        } else {
+            grids.put(cityId, grid);
+        }
+    }
+
+    // ==================== Grid ====================
+
+    /**
+     * Uniform grid over one city's POIs.
+     * Points are stored cell by cell in flat arrays (cellStart[i] ..
+     * cellStart[i + 1] are the points of cell i).
+     */
+    static final class CityGrid {
+        private final double minLat;
+        private final double minLng;
+        private final double maxLat;
+        private final double maxLng;
+        private final double cellLat;
+        private final double cellLng;
+        private final int rows;
+        private final int cols;
+        private final int[] cellStart;
+        private final double[] lat;
+        private final double[] lng;
+        private final Poi[] items;
+
+        private CityGrid(double minLat, double minLng, double maxLat, double maxLng,
+                int rows, int cols, int[] cellStart, double[] lat, double[] lng, Poi[] items) {
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.maxLat = maxLat;
+            this.maxLng = maxLng;
+            this.rows = rows;
+            this.cols = cols;
+            this.cellLat = Math.max((maxLat - minLat) / rows, MIN_CELL_DEGREES);
+            this.cellLng = Math.max((maxLng - minLng) / cols, MIN_CELL_DEGREES);
+            this.cellStart = cellStart;
+            this.lat = lat;
+            this.lng = lng;
+            this.items = items;
+        }
+
+        /**
+         * Build a grid from POIs; POIs without valid coordinates are skipped.
+         *
+         * @return the grid, or null if no POI has coordinates
+         */
+        static CityGrid build(Collection<Poi> pois) {
+            double[] rawLat = new double[pois.size()];
+            double[] rawLng = new double[pois.size()];
+            Poi[] rawItems = new Poi[pois.size()];
+            int n = 0;
+            double minLat = Double.MAX_VALUE, minLng = Double.MAX_VALUE;
+            double maxLat = -Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+
+            for (Poi poi : pois) {
+                double[] c = parseLocation(poi.getLocation());
+                if (c == null || !isValidCoordinate(c[0], c[1])) {
+                    continue;
+                }
+                rawLat[n] = c[0];
+                rawLng[n] = c[1];
+                rawItems[n] = poi;
+                minLat = Math.min(minLat, c[0]);
+                maxLat = Math.max(maxLat, c[0]);
+                minLng = Math.min(minLng, c[1]);
+                maxLng = Math.max(maxLng, c[1]);
+                n++;
+            }
+            if (n == 0) {
+                return null;
+            }
+
+            int perAxis = (int) Math.ceil(Math.sqrt((double) n / POINTS_PER_CELL));
+            perAxis = Math.max(1, Math.min(perAxis, MAX_CELLS_PER_AXIS));
+
+            int[] cellStart = new int[perAxis * perAxis + 1];
+            double[] lat = new double[n];
+            double[] lng = new double[n];
+            Poi[] items = new Poi[n];
+            CityGrid grid = new CityGrid(minLat, minLng, maxLat, maxLng, perAxis, perAxis,
+                    cellStart, lat, lng, items);
+
+            // Counting sort of points into cells
+            int[] cellOf = new int[n];
+            for (int i = 0; i < n; i++) {
+                cellOf[i] = grid.rowOf(rawLat[i]) * perAxis + grid.colOf(rawLng[i]);
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int i = 1; i < cellStart.length; i++) {
+                cellStart[i] += cellStart[i - 1];
+            }
+            int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+            for (int i = 0; i < n; i++) {
+                int slot = next[cellOf[i]]++;
+                lat[slot] = rawLat[i];
+                lng[slot] = rawLng[i];
+                items[slot] = rawItems[i];
+            }
+            return grid;
+        }
+
+        int size() {
+            return items.length;
+        }
+
+        private int rowOf(double latitude) {
+            int r = (int) Math.floor((latitude - minLat) / cellLat);
+            return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+        }
+
+        private int colOf(double longitude) {
+            int c = (int) Math.floor((longitude - minLng) / cellLng);
+            return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+        }
+
+        /**
+         * Scan rings of cells outward from the query cell until no unscanned
+         * cell can hold a point closer than the current k-th neighbour.
+         */
+        void nearest(double qLat, double qLng, Neighbours best) {
+            double cosLat = Math.cos(Math.toRadians(qLat));
+            int qr = rowOf(qLat);
+            int qc = colOf(qLng);
+            int maxRing = Math.max(Math.max(qr, rows - 1 - qr), Math.max(qc, cols - 1 - qc));
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+                if (best.isFull() && ringLowerBound(ring, qr, qc, qLat, qLng, cosLat) > best.worst()) {
+                    break;
+                }
+                for (int r = qr - ring; r <= qr + ring; r++) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    boolean edgeRow = r == qr - ring || r == qr + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int c = qc - ring; c <= qc + ring; c += step) {
+                        if (c < 0 || c >= cols) {
+                            continue;
+                        }
+                        int cell = r * cols + c;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            double dLat = lat[i] - qLat;
+                            double dLng = (lng[i] - qLng) * cosLat;
+                            best.offer(dLat * dLat + dLng * dLng, items[i]);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Squared distance from the query to the nearest point that could lie
+         * in ring {@code ring} (i.e. outside the square of rings already
+         * scanned).
+         */
+        private double ringLowerBound(int ring, int qr, int qc, double qLat, double qLng, double cosLat) {
+            if (ring == 0) {
+                return 0;
+            }
+            double south = qLat - (minLat + (qr - ring + 1) * cellLat);
+            double north = (minLat + (qr + ring) * cellLat) - qLat;
+            double west = (qLng - (minLng + (qc - ring + 1) * cellLng)) * cosLat;
+            double east = ((minLng + (qc + ring) * cellLng) - qLng) * cosLat;
+            double d = Math.min(Math.min(south, north), Math.min(west, east));
+            return d <= 0 ? 0 : d * d;
+        }
+
+        void inBox(double bMinLat, double bMinLng, double bMaxLat, double bMaxLng, List<Poi> out, int limit) {
+            if (bMaxLat < minLat || bMinLat > maxLat || bMaxLng < minLng || bMinLng > maxLng) {
+                return;
+            }
+            int r0 = rowOf(bMinLat), r1 = rowOf(bMaxLat);
+            int c0 = colOf(bMinLng), c1 = colOf(bMaxLng);
+
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r * cols + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        if (lat[i] >= bMinLat && lat[i] <= bMaxLat && lng[i] >= bMinLng && lng[i] <= bMaxLng) {
+                            out.add(items[i]);
+                            if (out.size() >= limit) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounded max-heap of the k closest POIs seen so far.
+     */
+    static final class Neighbours {
+        private final double[] dist;
+        private final Poi[] items;
+        private int size;
+
+        Neighbours(int k) {
+            this.dist = new double[k];
+            this.items = new Poi[k];
+        }
+
+        boolean isFull() {
+            return size == dist.length;
+        }
+
+        double worst() {
+            return dist[0];
+        }
+
+        void offer(double d, Poi poi) {
+            if (size < dist.length) {
+                dist[size] = d;
+                items[size] = poi;
+                siftUp(size++);
+            } else if (d < dist[0]) {
+                dist[0] = d;
+                items[0] = poi;
+                siftDown(0);
+            }
+        }
+
+        List<Poi> toSortedList() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> dist[i]));
+            List<Poi> result = new ArrayList<>(size);
+            for (int i : order) {
+                result.add(items[i]);
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (dist[parent] >= dist[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1, right = left + 1, largest = i;
+                if (left < size && dist[left] > dist[largest]) {
+                    largest = left;
+                }
+                if (right < size && dist[right] > dist[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double d = dist[a];
+            dist[a] = dist[b];
+            dist[b] = d;
+            Poi p = items[a];
+            items[a] = items[b];
+            items[b] = p;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package server.service;
+
+import common.dto.MapPackageManifest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Recent DOWNLOAD_MAP_VERSION calls, so a client resuming an interrupted
+ * download (which asks for the manifests again) is not counted as a second
+ * download.
+ *
+ * A call is a resume if the same user got the same set of packages for the
+ * same city within WINDOW_MS of their previous call. Once the content
+ * changes (new package ids) or the window passes, it counts again.
+ */
+public class RecentDownloads {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long WINDOW_MS = 6 * 60 * 60_000;
+
+    private static RecentDownloads instance;
+
+    private final long windowMs;
+    private final LongSupplier clock;
+
+    // "user|city" -> last call; access-ordered for LRU eviction
+    private final LinkedHashMap<String, Entry> entries;
+
+    private static final class Entry {
+        final String packageIds;
+        final long at;
+
+        Entry(String packageIds, long at) {
+            this.packageIds = packageIds;
+            this.at = at;
+        }
+    }
+
+    RecentDownloads(int maxEntries, long windowMs, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static synchronized RecentDownloads getInstance() {
+        if (instance == null) {
+            instance = new RecentDownloads(MAX_ENTRIES, WINDOW_MS, System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Note a download call.
+     *
+     * @return true if it is a new download, false if it resumes the previous one
+     */
+    public boolean isNewDownload(int userId, int cityId, List<MapPackageManifest> manifests) {
+        StringBuilder ids = new StringBuilder();
+        for (MapPackageManifest manifest : manifests) {
+            ids.append(manifest.getPackageId()).append(',');
+        }
+        String key = userId + "|" + cityId;
+        long now = clock.getAsLong();
+
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(ids.toString(), now));
+            return previous == null || now - previous.at > windowMs || !previous.packageIds.equals(ids.toString());
+        }
+    }
+}
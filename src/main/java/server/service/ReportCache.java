@@ -0,0 +1,385 @@
+package server.service;
+
+import common.DailyStat;
+import server.dao.DailyStatsDAO;
+import server.service.ReportRangePlanner.Granularity;
+import server.service.ReportRangePlanner.Segment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of per-city activity totals for closed report periods.
+ *
+ * A period (one of the days, weeks or months ReportRangePlanner plans with)
+ * is closed once it ended before today. Its totals are loaded once, kept as
+ * immutable primitive arrays in a bounded LRU map and, if
+ * -Dgcm.reports.cache.dir is set, also written to one small file per period
+ * so a restart or an eviction does not cost a query. Periods that are still
+ * open (the current day, and the week or month containing it) are always
+ * read from the database.
+ *
+ * Stats can still arrive for a closed day shortly after midnight (counters
+ * and outbox events written late); every committed write to a past date
+ * calls invalidate(), which drops the day and the week and month containing
+ * it. A load that raced an invalidation is returned but not cached.
+ */
+public class ReportCache {
+
+    private static final int MAX_ENTRIES = 20_000;
+    private static final int METRICS = DailyStatsDAO.Metric.values().length;
+
+    private static ReportCache instance;
+
+    /**
+     * Reads per-period, per-city rows (dated at the period start) for every
+     * period of a segment.
+     */
+    interface Loader {
+        List<DailyStat> load(Segment segment) throws SQLException;
+    }
+
+    /**
+     * Totals of one closed period: city ids and, per city, one count per
+     * Metric (counts[i * METRICS + metric.ordinal()]). Never modified.
+     */
+    private static final class PeriodStats {
+        final int[] cityIds;
+        final int[] counts;
+
+        PeriodStats(int[] cityIds, int[] counts) {
+            this.cityIds = cityIds;
+            this.counts = counts;
+        }
+    }
+
+    private final Loader loader;
+    private final Path spillDir; // Null when disk copies are off
+    private final Supplier<LocalDate> today;
+    private final int maxEntries;
+
+    // Access-ordered map gives LRU eviction; guarded by its own monitor
+    private final LinkedHashMap<String, PeriodStats> entries;
+
+    // Bumped on invalidation so loads started earlier are not cached
+    private long generation = 0;
+
+    // ---- Metrics ----
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong openReads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ReportCache(Loader loader, Path spillDir, Supplier<LocalDate> today, int maxEntries) {
+        this.loader = loader;
+        this.spillDir = spillDir;
+        this.today = today;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, PeriodStats>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PeriodStats> eldest) {
+                return size() > ReportCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static synchronized ReportCache getInstance() {
+        if (instance == null) {
+            String dir = System.getProperty("gcm.reports.cache.dir");
+            instance = new ReportCache(DailyStatsDAO::getPeriodRows, dir == null ? null : Paths.get(dir),
+                    LocalDate::now, MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    // ==================== Reports ====================
+
+    /**
+     * One row per period of the plan, dated at the period start: the
+     * city's totals when cityId is given, otherwise summed over all cities
+     * (cityId 0). Periods without activity are left out.
+     */
+    public List<DailyStat> getStats(List<Segment> plan, Integer cityId) throws SQLException {
+        List<DailyStat> results = new ArrayList<>();
+        for (Segment segment : plan) {
+            for (Map.Entry<LocalDate, PeriodStats> period : getPeriods(segment).entrySet()) {
+                PeriodStats stats = period.getValue();
+                long[] sums = new long[METRICS];
+                boolean any = false;
+                for (int i = 0; i < stats.cityIds.length; i++) {
+                    if (cityId == null || stats.cityIds[i] == cityId) {
+                        for (int m = 0; m < METRICS; m++) {
+                            sums[m] += stats.counts[i * METRICS + m];
+                        }
+                        any = true;
+                    }
+                }
+                if (any) {
+                    results.add(toStat(period.getKey(), cityId == null ? 0 : cityId, sums));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Totals per city over a whole segment, dated at the segment start.
+     */
+    public List<DailyStat> getTotalsPerCity(Segment segment) throws SQLException {
+        Map<Integer, long[]> perCity = new TreeMap<>();
+        for (PeriodStats stats : getPeriods(segment).values()) {
+            for (int i = 0; i < stats.cityIds.length; i++) {
+                long[] sums = perCity.computeIfAbsent(stats.cityIds[i], id -> new long[METRICS]);
+                for (int m = 0; m < METRICS; m++) {
+                    sums[m] += stats.counts[i * METRICS + m];
+                }
+            }
+        }
+        List<DailyStat> results = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> city : perCity.entrySet()) {
+            results.add(toStat(segment.start, city.getKey(), city.getValue()));
+        }
+        return results;
+    }
+
+    private static DailyStat toStat(LocalDate date, int cityId, long[] sums) {
+        return new DailyStat(date, cityId, (int) sums[0], (int) sums[1], (int) sums[2], (int) sums[3],
+                (int) sums[4], (int) sums[5]);
+    }
+
+    // ==================== Lookup ====================
+
+    /**
+     * Totals of every period of a segment, by period start. Closed periods
+     * come from memory or disk when they can; everything else is read with
+     * one query over the span of the periods that are missing.
+     */
+    private Map<LocalDate, PeriodStats> getPeriods(Segment segment) throws SQLException {
+        Granularity granularity = segment.granularity;
+        LocalDate openFrom = today.get();
+        Map<LocalDate, PeriodStats> periods = new TreeMap<>();
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        long loadGeneration;
+
+        synchronized (entries) {
+            loadGeneration = generation;
+        }
+        for (LocalDate start = segment.start; !start.isAfter(segment.end); start = granularity.next(start)) {
+            boolean closed = !granularity.next(start).isAfter(openFrom);
+            PeriodStats cached = closed ? lookup(granularity, start, loadGeneration) : null;
+            if (cached != null) {
+                periods.put(start, cached);
+                continue;
+            }
+            if (closed) {
+                misses.incrementAndGet();
+            } else {
+                openReads.incrementAndGet();
+            }
+            firstMissing = firstMissing == null ? start : firstMissing;
+            lastMissing = start;
+        }
+        if (firstMissing == null) {
+            return periods;
+        }
+
+        Segment span = new Segment(granularity, firstMissing, granularity.next(lastMissing).minusDays(1));
+        Map<LocalDate, List<DailyStat>> rows = new HashMap<>();
+        for (DailyStat row : loader.load(span)) {
+            rows.computeIfAbsent(row.getDate(), d -> new ArrayList<>()).add(row);
+        }
+        for (LocalDate start = firstMissing; !start.isAfter(lastMissing); start = granularity.next(start)) {
+            if (periods.containsKey(start)) {
+                continue;
+            }
+            PeriodStats stats = toPeriodStats(rows.getOrDefault(start, new ArrayList<>()));
+            periods.put(start, stats);
+            if (!granularity.next(start).isAfter(openFrom)) {
+                store(granularity, start, stats, loadGeneration);
+            }
+        }
+        return periods;
+    }
+
+    private static String key(Granularity granularity, LocalDate start) {
+        return granularity + "-" + start;
+    }
+
+    private PeriodStats lookup(Granularity granularity, LocalDate start, long loadGeneration) {
+        String key = key(granularity, start);
+        synchronized (entries) {
+            PeriodStats stats = entries.get(key);
+            if (stats != null) {
+                hits.incrementAndGet();
+                return stats;
+            }
+        }
+        PeriodStats stats = readSpill(key);
+        if (stats != null) {
+            diskHits.incrementAndGet();
+            synchronized (entries) {
+                if (loadGeneration == generation) {
+                    entries.put(key, stats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    private void store(Granularity granularity, LocalDate start, PeriodStats stats, long loadGeneration) {
+        String key = key(granularity, start);
+        synchronized (entries) {
+            if (loadGeneration != generation) {
+                return;
+            }
+            entries.put(key, stats);
+        }
+        if (spillDir != null) {
+            writeSpill(key, stats);
+            synchronized (entries) {
+                if (loadGeneration == generation) {
+                    return;
+                }
+            }
+            deleteSpill(key); // Invalidated while writing
+        }
+    }
+
+    private static PeriodStats toPeriodStats(List<DailyStat> rows) {
+        int[] cityIds = new int[rows.size()];
+        int[] counts = new int[rows.size() * METRICS];
+        for (int i = 0; i < rows.size(); i++) {
+            DailyStat row = rows.get(i);
+            cityIds[i] = row.getCityId();
+            int[] values = { row.getMapsCount(), row.getOneTimePurchases(), row.getSubscriptions(),
+                    row.getRenewals(), row.getViews(), row.getDownloads() };
+            System.arraycopy(values, 0, counts, i * METRICS, METRICS);
+        }
+        return new PeriodStats(cityIds, counts);
+    }
+
+    // ==================== Invalidation ====================
+
+    /**
+     * Stats of this date changed: drop the day and the week and month that
+     * contain it, in memory and on disk.
+     */
+    public void invalidate(LocalDate date) {
+        if (!date.isBefore(today.get())) {
+            return; // Periods containing today are never cached
+        }
+        List<String> keys = new ArrayList<>();
+        for (Granularity granularity : Granularity.values()) {
+            keys.add(key(granularity, granularity.periodStart(date)));
+        }
+        synchronized (entries) {
+            generation++;
+            for (String key : keys) {
+                entries.remove(key);
+            }
+        }
+        invalidations.incrementAndGet();
+        if (spillDir != null) {
+            for (String key : keys) {
+                deleteSpill(key);
+            }
+        }
+    }
+
+    // ==================== Disk copies ====================
+
+    private PeriodStats readSpill(String key) {
+        if (spillDir == null) {
+            return null;
+        }
+        List<int[]> lines = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(spillDir.resolve(key + ".stats"), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                int[] values = new int[METRICS + 1];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Integer.parseInt(parts[i]);
+                }
+                lines.add(values);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ReportCache: unreadable " + key + " ignored - " + e.getMessage());
+            return null;
+        }
+        int[] cityIds = new int[lines.size()];
+        int[] counts = new int[lines.size() * METRICS];
+        for (int i = 0; i < lines.size(); i++) {
+            cityIds[i] = lines.get(i)[0];
+            System.arraycopy(lines.get(i), 1, counts, i * METRICS, METRICS);
+        }
+        return new PeriodStats(cityIds, counts);
+    }
+
+    private void deleteSpill(String key) {
+        try {
+            Files.deleteIfExists(spillDir.resolve(key + ".stats"));
+        } catch (IOException e) {
+            System.err.println("ReportCache: failed to delete " + key + " - " + e.getMessage());
+        }
+    }
+
+    private void writeSpill(String key, PeriodStats stats) {
+        try {
+            Files.createDirectories(spillDir);
+            Path temp = Files.createTempFile(spillDir, key + "-", ".tmp");
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < stats.cityIds.length; i++) {
+                    StringBuilder line = new StringBuilder().append(stats.cityIds[i]);
+                    for (int m = 0; m < METRICS; m++) {
+                        line.append(' ').append(stats.counts[i * METRICS + m]);
+                    }
+                    out.write(line.append('\n').toString());
+                }
+            }
+            Path target = spillDir.resolve(key + ".stats");
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("ReportCache: failed to write " + key + " - " + e.getMessage());
+        }
+    }
+
+    // ==================== Metrics ====================
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public String getStats() {
+        return "ReportCache{size=" + size() + ", hits=" + hits.get() + ", diskHits=" + diskHits.get() + ", misses="
+                + misses.get() + ", openReads=" + openReads.get() + ", invalidations=" + invalidations.get() + "}";
+    }
+}
@@ -1,12 +1,29 @@
 package server.service;
 
 import common.DailyStat;
+import common.dto.ReportRequest;
+
 import java.time.LocalDate;
 import java.util.List;
 
 public interface ReportGenerator {
     /**
-     * Generate report stats for the given criteria.
+     * Generate report stats for the given criteria. Ranges are planned by
+     * ReportRangePlanner, so rows cover whole days, weeks or months (dated
+     * at their first day) and their sum is the total for the range.
      */
     List<DailyStat> generate(LocalDate from, LocalDate to, Integer cityId);
+
+    /**
+     * Strategy selection for a report request.
+     */
+    static ReportGenerator forRequest(ReportRequest request) {
+        if (request.isPerCity()) {
+            return new CityBreakdownReportGenerator();
+        } else if (request.getCityId() != null && request.getCityId() > 0) {
+            return new CityReportGenerator();
+        } else {
+            return new AllCitiesReportGenerator();
+        }
+    }
 }
@@ -0,0 +1,235 @@
+package server.service;
+
+import common.DailyStat;
+import common.dto.ReportJobUpdate;
+import common.dto.ReportRequest;
+import server.service.ReportRangePlanner.Segment;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Activity reports run as background jobs.
+ *
+ * A job splits its planned range into chunks of at most MAX_PERIODS_PER_CHUNK
+ * periods, generates them one after another and pushes a frame after each
+ * one with its progress and the chunk's rows, so the client can draw the
+ * report as it arrives. Jobs run on WORKERS dedicated threads with at most
+ * QUEUE_CAPACITY waiting; beyond that submit() refuses new jobs instead of
+ * tying up request handler threads. A job is cancelled by its client, or
+ * when a frame can no longer be sent; it stops before its next chunk.
+ */
+public class ReportJobService {
+
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final int MAX_PERIODS_PER_CHUNK = 8;
+
+    private static ReportJobService instance;
+
+    /**
+     * Delivers a job's frames to the client that started it.
+     */
+    public interface FrameSink {
+        void send(ReportJobUpdate update) throws IOException;
+    }
+
+    private final class Job {
+        final int id;
+        final String clientId;
+        final ReportRequest request;
+        final List<Segment> chunks;
+        final FrameSink sink;
+        volatile boolean cancelled = false;
+        final Runnable task = () -> run(this);
+
+        Job(int id, String clientId, ReportRequest request, List<Segment> chunks, FrameSink sink) {
+            this.id = id;
+            this.clientId = clientId;
+            this.request = request;
+            this.chunks = chunks;
+            this.sink = sink;
+        }
+
+        ReportJobUpdate update(String status, int completed) {
+            return new ReportJobUpdate(id, status, completed, chunks.size(), request.isPerCity());
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Function<ReportRequest, ReportGenerator> generators;
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+    private final Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+
+    // ---- Metrics ----
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    ReportJobService(Function<ReportRequest, ReportGenerator> generators, int workers, int queueCapacity) {
+        this.generators = generators;
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "GCM-ReportJob-" + threadNumber.getAndIncrement());
+                    t.setDaemon(true); // Don't prevent JVM shutdown
+                    return t;
+                });
+    }
+
+    public static synchronized ReportJobService getInstance() {
+        if (instance == null) {
+            instance = new ReportJobService(ReportGenerator::forRequest, WORKERS, QUEUE_CAPACITY);
+        }
+        return instance;
+    }
+
+    // ==================== Jobs ====================
+
+    /**
+     * Queue a report. Frames follow through sink.
+     *
+     * @throws IllegalArgumentException if the range is missing or reversed
+     * @throws IllegalStateException    if too many jobs are already queued
+     */
+    public ReportJobUpdate submit(ReportRequest request, String clientId, FrameSink sink) {
+        if (request.getFromDate() == null || request.getToDate() == null) {
+            throw new IllegalArgumentException("Report range requires both dates");
+        }
+        if (request.getFromDate().isAfter(request.getToDate())) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+
+        List<Segment> chunks = chunks(ReportRangePlanner.plan(request.getFromDate(), request.getToDate()));
+        Job job = new Job(nextJobId.getAndIncrement(), clientId, request, chunks, sink);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.incrementAndGet();
+            throw new IllegalStateException("Too many reports are being generated, please try again shortly");
+        }
+        return job.update(ReportJobUpdate.STATUS_QUEUED, 0);
+    }
+
+    /**
+     * Cancel a job started by this client. A queued job is dropped at once;
+     * a running one stops before its next chunk and pushes a CANCELLED
+     * frame either way.
+     *
+     * @return false if there is no such job for this client
+     */
+    public boolean cancel(int jobId, String clientId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.clientId.equals(clientId)) {
+            return false;
+        }
+        job.cancelled = true;
+        if (executor.remove(job.task)) {
+            // Never started: run() will not report it
+            jobs.remove(jobId);
+            cancelled.incrementAndGet();
+            send(job, job.update(ReportJobUpdate.STATUS_CANCELLED, 0));
+        }
+        return true;
+    }
+
+    private void run(Job job) {
+        int done = 0;
+        try {
+            if (!send(job, job.update(ReportJobUpdate.STATUS_RUNNING, 0))) {
+                return;
+            }
+            ReportGenerator generator = generators.apply(job.request);
+            for (Segment chunk : job.chunks) {
+                if (job.cancelled) {
+                    cancelled.incrementAndGet();
+                    send(job, job.update(ReportJobUpdate.STATUS_CANCELLED, done));
+                    return;
+                }
+                List<DailyStat> rows = generator.generate(chunk.start, chunk.end, job.request.getCityId());
+                done++;
+                ReportJobUpdate update = job.update(done == job.chunks.size() ? ReportJobUpdate.STATUS_COMPLETED
+                        : ReportJobUpdate.STATUS_RUNNING, done);
+                update.setRows(new ArrayList<>(rows));
+                if (!send(job, update)) {
+                    return;
+                }
+            }
+            if (job.chunks.isEmpty()) {
+                send(job, job.update(ReportJobUpdate.STATUS_COMPLETED, 0));
+            }
+            completed.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("ReportJobService: Job #" + job.id + " failed - " + e.getMessage());
+            ReportJobUpdate update = job.update(ReportJobUpdate.STATUS_FAILED, done);
+            update.setError(e.getMessage());
+            send(job, update);
+        } finally {
+            jobs.remove(job.id);
+        }
+    }
+
+    /**
+     * Push a frame; a client that cannot be reached cancels its job.
+     */
+    private boolean send(Job job, ReportJobUpdate update) {
+        try {
+            job.sink.send(update);
+            return true;
+        } catch (IOException e) {
+            System.err.println("ReportJobService: Job #" + job.id + " cancelled, client unreachable - "
+                    + e.getMessage());
+            job.cancelled = true;
+            cancelled.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Split planned segments into runs of at most MAX_PERIODS_PER_CHUNK
+     * periods, in order.
+     */
+    static List<Segment> chunks(List<Segment> plan) {
+        List<Segment> chunks = new ArrayList<>();
+        for (Segment segment : plan) {
+            LocalDate start = segment.start;
+            while (!start.isAfter(segment.end)) {
+                LocalDate next = start;
+                for (int i = 0; i < MAX_PERIODS_PER_CHUNK && !next.isAfter(segment.end); i++) {
+                    next = segment.granularity.next(next);
+                }
+                chunks.add(new Segment(segment.granularity, start, next.minusDays(1)));
+                start = next;
+            }
+        }
+        return chunks;
+    }
+
+    public int getActiveJobs() {
+        return jobs.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String getStats() {
+        return "ReportJobService{active=" + jobs.size() + ", completed=" + completed.get() + ", failed="
+                + failed.get() + ", cancelled=" + cancelled.get() + ", rejected=" + rejected.get() + "}";
+    }
+}
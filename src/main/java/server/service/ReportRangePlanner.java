@@ -0,0 +1,161 @@
+package server.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits a report range into the fewest pre-aggregated periods.
+ *
+ * daily_stats is rolled up into ISO weeks (starting Monday) and calendar
+ * months. A period can be read from its rollup only when the range covers
+ * it completely, so plan() picks, for every day of [from, to], whether it
+ * starts a whole month, a whole week or just a day, minimizing the number of
+ * rows read. Consecutive periods of the same granularity are merged into one
+ * Segment, so a plan is at most a handful of index range scans: typically
+ * days up to the first Monday, weeks up to the first whole month, months,
+ * then weeks and days again at the tail.
+ */
+public final class ReportRangePlanner {
+
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        /**
+         * First day of the period of this granularity containing date.
+         */
+        public LocalDate periodStart(LocalDate date) {
+            switch (this) {
+                case WEEK:
+                    return date.with(DayOfWeek.MONDAY);
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date;
+            }
+        }
+
+        /**
+         * Start of the period after the one starting at start.
+         */
+        public LocalDate next(LocalDate start) {
+            switch (this) {
+                case WEEK:
+                    return start.plusWeeks(1);
+                case MONTH:
+                    return start.plusMonths(1);
+                default:
+                    return start.plusDays(1);
+            }
+        }
+    }
+
+    /**
+     * A run of whole periods of one granularity, from start to end inclusive.
+     */
+    public static final class Segment {
+        public final Granularity granularity;
+        public final LocalDate start;
+        public final LocalDate end;
+
+        public Segment(Granularity granularity, LocalDate start, LocalDate end) {
+            this.granularity = granularity;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment other = (Segment) o;
+            return granularity == other.granularity && start.equals(other.start) && end.equals(other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return granularity + "[" + start + ".." + end + "]";
+        }
+    }
+
+    private ReportRangePlanner() {
+    }
+
+    /**
+     * Plan [from, to] (inclusive). Returns an empty list if from is after to.
+     */
+    public static List<Segment> plan(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Report range requires both dates");
+        }
+        List<Segment> segments = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return segments;
+        }
+
+        // cost[i]: fewest periods covering day i to the end; step[i]: days in
+        // the period chosen at day i. Ties go to the coarser period.
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        int[] cost = new int[days + 1];
+        int[] step = new int[days];
+        Granularity[] choice = new Granularity[days];
+        for (int i = days - 1; i >= 0; i--) {
+            LocalDate day = from.plusDays(i);
+            cost[i] = cost[i + 1] + 1;
+            step[i] = 1;
+            choice[i] = Granularity.DAY;
+            if (day.getDayOfWeek() == DayOfWeek.MONDAY && i + 7 <= days && cost[i + 7] + 1 <= cost[i]) {
+                cost[i] = cost[i + 7] + 1;
+                step[i] = 7;
+                choice[i] = Granularity.WEEK;
+            }
+            int monthDays = day.lengthOfMonth();
+            if (day.getDayOfMonth() == 1 && i + monthDays <= days && cost[i + monthDays] + 1 <= cost[i]) {
+                cost[i] = cost[i + monthDays] + 1;
+                step[i] = monthDays;
+                choice[i] = Granularity.MONTH;
+            }
+        }
+
+        for (int i = 0; i < days; i += step[i]) {
+            LocalDate start = from.plusDays(i);
+            LocalDate end = from.plusDays(i + step[i] - 1);
+            Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null && last.granularity == choice[i]) {
+                segments.set(segments.size() - 1, new Segment(choice[i], last.start, end));
+            } else {
+                segments.add(new Segment(choice[i], start, end));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Number of rollup periods read by a plan, per city.
+     */
+    public static int periodCount(List<Segment> plan) {
+        int count = 0;
+        for (Segment segment : plan) {
+            switch (segment.granularity) {
+                case MONTH:
+                    count += (int) ChronoUnit.MONTHS.between(segment.start, segment.end.plusDays(1));
+                    break;
+                case WEEK:
+                    count += (int) ChronoUnit.WEEKS.between(segment.start, segment.end.plusDays(1));
+                    break;
+                default:
+                    count += (int) ChronoUnit.DAYS.between(segment.start, segment.end) + 1;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,248 @@
+package server.service;
+
+import common.MessageType;
+import common.dto.CitySearchResult;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU/TTL cache of search results, in front of SearchHandler.
+ *
+ * Keys are normalized search requests (type + trimmed, lower-cased,
+ * whitespace-collapsed terms), so "Tel Aviv" and " tel  aviv" share one
+ * entry. Empty results are cached too, with a shorter TTL.
+ *
+ * Concurrent misses for the same key are coalesced (single-flight): one
+ * thread runs the query, the others wait for its result. A loader returns
+ * null when the database could not be read; that is passed on to the
+ * callers but never cached.
+ */
+public class SearchResultCache {
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final long TTL_MS = 60_000;
+    private static final long NEGATIVE_TTL_MS = 15_000;
+
+    private static SearchResultCache instance;
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+
+    // Access-ordered map gives LRU eviction; guarded by its own monitor
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Queries currently running, for single-flight coalescing
+    private final Map<String, CompletableFuture<List<CitySearchResult>>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped on invalidation so in-flight loads started earlier are not cached
+    private long generation = 0;
+
+    // ---- Metrics ----
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    SearchResultCache(int maxEntries, long ttlMs, long negativeTtlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > SearchResultCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static synchronized SearchResultCache getInstance() {
+        if (instance == null) {
+            instance = new SearchResultCache(MAX_ENTRIES, TTL_MS, NEGATIVE_TTL_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Cached value with expiry and the cities it mentions.
+     */
+    private static final class Entry {
+        final MessageType type;
+        final List<CitySearchResult> value;
+        final Set<Integer> cityIds;
+        final long expiresAt;
+
+        Entry(MessageType type, List<CitySearchResult> value, long expiresAt) {
+            this.type = type;
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.cityIds = new HashSet<>();
+            for (CitySearchResult city : value) {
+                cityIds.add(city.getCityId());
+            }
+        }
+    }
+
+    // ==================== Keys ====================
+
+    /**
+     * Normalize a search term: trim, lower-case and collapse whitespace.
+     *
+     * @return normalized term, or null for null/blank input
+     */
+    public static String normalize(String term) {
+        if (term == null) {
+            return null;
+        }
+        String normalized = term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Build a cache key from a search type and its normalized terms.
+     */
+    public static String key(MessageType type, String cityName, String poiName) {
+        return type + "|" + (cityName == null ? "" : cityName) + "|" + (poiName == null ? "" : poiName);
+    }
+
+    // ==================== Lookup ====================
+
+    /**
+     * Return the cached result for a key, or run the loader once (even under
+     * concurrent misses) and cache what it returns.
+     *
+     * @return the results, or null if the loader failed
+     */
+    public List<CitySearchResult> get(MessageType type, String key, Supplier<List<CitySearchResult>> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                (entry.value.isEmpty() ? negativeHits : hits).incrementAndGet();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            loadGeneration = generation;
+        }
+
+        CompletableFuture<List<CitySearchResult>> mine = new CompletableFuture<>();
+        CompletableFuture<List<CitySearchResult>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            List<CitySearchResult> value = loader.get();
+            synchronized (entries) {
+                if (value != null && loadGeneration == generation) {
+                    long ttl = value.isEmpty() ? negativeTtlMs : ttlMs;
+                    entries.put(key, new Entry(type, value, System.currentTimeMillis() + ttl));
+                }
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // ==================== Invalidation ====================
+
+    /**
+     * A POI in this city changed: drop every POI-name search (a new or renamed
+     * POI can change which cities match) and any entry showing this city.
+     */
+    public void invalidatePoi(int cityId) {
+        synchronized (entries) {
+            generation++;
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.type == MessageType.SEARCH_BY_POI_NAME
+                        || entry.type == MessageType.SEARCH_BY_CITY_AND_POI
+                        || entry.cityIds.contains(cityId)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cities, maps or links changed: drop everything.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    // ==================== Metrics ====================
+
+    public long getHitCount() {
+        return hits.get() + negativeHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Fraction of lookups answered without running a query.
+     */
+    public double getHitRate() {
+        long served = getHitCount() + coalesced.get();
+        long total = served + misses.get();
+        return total == 0 ? 0.0 : (double) served / total;
+    }
+
+    /**
+     * Get cache statistics for monitoring.
+     */
+    public String getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return String.format(
+                "SearchResultCache: size=%d/%d, hits=%d (negative=%d), misses=%d, coalesced=%d, " +
+                        "hitRate=%.1f%%, evictions=%d, invalidations=%d",
+                size, maxEntries, getHitCount(), negativeHits.get(), misses.get(), coalesced.get(),
+                getHitRate() * 100, evictions.get(), invalidations.get());
+    }
+}
@@ -0,0 +1,360 @@
+package server.service;
+
+import common.DailyStat;
+import server.dao.DailyStatsDAO;
+import server.dao.DailyStatsDAO.Delta;
+import server.dao.DailyStatsDAO.Metric;
+import server.dao.DailyStatsDAO.StatsRowHandler;
+import server.service.ReportRangePlanner.Segment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory columnar copy of daily_stats for reports.
+ *
+ * Every city has one int[] per metric, indexed by day offset from the
+ * earliest loaded date and kept as a Fenwick tree, so the sum of any date
+ * range is two O(log n) prefix sums. City 0 holds the totals of all cities.
+ * A city costs 6 * 4 bytes per day; ten years of 300 cities is about 26 MB,
+ * against roughly ten times that as DailyStat objects.
+ *
+ * Node sums wrap around like any int, but a range sum is a difference of
+ * prefix sums, so it is exact whenever the range total fits in an int (as
+ * DailyStat requires anyway).
+ *
+ * The store is loaded once from daily_stats and then fed with every
+ * committed increment: DailyStatsDAO.applyDeltas and OutboxDispatcher hold
+ * commitLock() from before their commit until they have called add(), and
+ * load() takes the other side of that lock, so no write is missed or counted
+ * twice around the load. Until it is loaded, report generators fall back to
+ * ReportCache.
+ */
+public class StatsColumnStore {
+
+    private static final int METRICS = Metric.values().length;
+    private static final int ALL_CITIES = 0;
+    private static final int HEADROOM_DAYS = 366;
+
+    private static StatsColumnStore instance;
+
+    /**
+     * Streams every daily_stats row into the handler, oldest first.
+     *
+     * @return rows read
+     */
+    interface Loader {
+        long loadAll(StatsRowHandler handler) throws SQLException;
+    }
+
+    private final Loader loader;
+    private final Supplier<LocalDate> today;
+
+    // Writers hold the read side across commit + add; load() holds the write side
+    private final ReadWriteLock commitFence = new ReentrantReadWriteLock();
+
+    // Guards the trees
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[][]> trees = new HashMap<>(); // City -> [metric][1 + day offset]
+    private LocalDate base;
+    private int capacity; // Days per tree
+    private volatile boolean loaded = false;
+
+    StatsColumnStore(Loader loader, Supplier<LocalDate> today) {
+        this.loader = loader;
+        this.today = today;
+    }
+
+    public static synchronized StatsColumnStore getInstance() {
+        if (instance == null) {
+            instance = new StatsColumnStore(DailyStatsDAO::forEachStat, LocalDate::now);
+        }
+        return instance;
+    }
+
+    // ==================== Loading ====================
+
+    /**
+     * Load daily_stats on a background thread; reports use ReportCache
+     * until it is done.
+     */
+    public void loadAsync() {
+        Thread t = new Thread(() -> {
+            try {
+                load();
+            } catch (SQLException e) {
+                System.err.println("StatsColumnStore: load failed, reports stay on ReportCache - " + e.getMessage());
+            }
+        }, "StatsColumnStore-Loader");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Build the store from daily_stats. Committing writers wait meanwhile.
+     */
+    void load() throws SQLException {
+        long start = System.currentTimeMillis();
+        commitFence.writeLock().lock();
+        try {
+            long rows;
+            lock.writeLock().lock();
+            try {
+                // Rows arrive oldest first, so the first one moves base back once
+                trees.clear();
+                loaded = false;
+                base = today.get();
+                capacity = capacityFor(1 + HEADROOM_DAYS);
+                rows = loader.loadAll((date, cityId, counts) -> {
+                    for (int m = 0; m < METRICS; m++) {
+                        addLocked(date, cityId, m, counts[m]);
+                    }
+                });
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("✓ StatsColumnStore loaded " + rows + " rows (" + Math.max(trees.size() - 1, 0)
+                    + " cities, " + capacity + " days from " + base + ", " + getMemoryBytes() / 1024 + " KB) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            commitFence.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Held by stat writers from before their commit until after add().
+     */
+    public Lock commitLock() {
+        return commitFence.readLock();
+    }
+
+    // ==================== Updates ====================
+
+    /**
+     * Add committed deltas. Ignored until the store is loaded (the load
+     * reads them from the database).
+     */
+    public void add(Collection<Delta> deltas) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Delta delta : deltas) {
+                for (int m = 0; m < METRICS; m++) {
+                    if (delta.counts[m] != 0) {
+                        addLocked(delta.date, delta.cityId, m, (int) delta.counts[m]);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(LocalDate date, int cityId, Metric metric, int delta) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addLocked(date, cityId, metric.ordinal(), delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(LocalDate date, int cityId, int metric, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int day = (int) ChronoUnit.DAYS.between(base, date);
+        if (day < 0 || day >= capacity) {
+            LocalDate newBase = day < 0 ? date : base;
+            int days = (int) ChronoUnit.DAYS.between(newBase, day < 0 ? base.plusDays(capacity - 1) : date) + 1;
+            resize(newBase, capacityFor(days + HEADROOM_DAYS));
+            day = (int) ChronoUnit.DAYS.between(base, date);
+        }
+        add(tree(cityId)[metric], day, delta);
+        add(tree(ALL_CITIES)[metric], day, delta);
+    }
+
+    private int[][] tree(int cityId) {
+        return trees.computeIfAbsent(cityId, id -> new int[METRICS][capacity + 1]);
+    }
+
+    /**
+     * Move every tree to a new base date and size.
+     */
+    private void resize(LocalDate newBase, int newCapacity) {
+        int shift = (int) ChronoUnit.DAYS.between(newBase, base);
+        for (int[][] city : trees.values()) {
+            for (int m = 0; m < METRICS; m++) {
+                int[] values = new int[newCapacity];
+                for (int day = 0; day < capacity; day++) {
+                    values[day + shift] = prefix(city[m], day) - prefix(city[m], day - 1);
+                }
+                city[m] = build(values);
+            }
+        }
+        base = newBase;
+        capacity = newCapacity;
+    }
+
+    private static int capacityFor(int days) {
+        int capacity = 1;
+        while (capacity < days) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // ==================== Fenwick tree ====================
+
+    private static void add(int[] tree, int day, int delta) {
+        for (int i = day + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of days 0..day (0 when day is negative).
+     */
+    private static int prefix(int[] tree, int day) {
+        int sum = 0;
+        for (int i = Math.min(day + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static int[] build(int[] values) {
+        int[] tree = new int[values.length + 1];
+        System.arraycopy(values, 0, tree, 1, values.length);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        return tree;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Sum of a metric for one city (0 for all cities) over [from, to].
+     */
+    public int sum(int cityId, Metric metric, LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int[][] city = trees.get(cityId);
+            return city == null ? 0 : rangeLocked(city[metric.ordinal()], from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int rangeLocked(int[] tree, LocalDate from, LocalDate to) {
+        int first = (int) ChronoUnit.DAYS.between(base, from);
+        int last = (int) ChronoUnit.DAYS.between(base, to);
+        if (last < 0 || first > last) {
+            return 0;
+        }
+        return prefix(tree, last) - prefix(tree, first - 1);
+    }
+
+    /**
+     * Same rows as ReportCache.getStats: one per period of the plan, for
+     * the city or for all cities (cityId 0), periods without activity left
+     * out.
+     */
+    public List<DailyStat> getStats(List<Segment> plan, Integer cityId) {
+        int id = cityId == null ? ALL_CITIES : cityId;
+        List<DailyStat> results = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[][] city = trees.get(id);
+            if (city == null) {
+                return results;
+            }
+            for (Segment segment : plan) {
+                for (LocalDate start = segment.start; !start.isAfter(segment.end);
+                        start = segment.granularity.next(start)) {
+                    DailyStat stat = toStat(city, start, segment.granularity.next(start).minusDays(1), start, id);
+                    if (stat != null) {
+                        results.add(stat);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Same rows as ReportCache.getTotalsPerCity: totals per city over the
+     * segment, dated at its start, ordered by city.
+     */
+    public List<DailyStat> getTotalsPerCity(Segment segment) {
+        List<DailyStat> results = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, int[][]> city : new TreeMap<>(trees).entrySet()) {
+                if (city.getKey() == ALL_CITIES) {
+                    continue;
+                }
+                DailyStat stat = toStat(city.getValue(), segment.start, segment.end, segment.start, city.getKey());
+                if (stat != null) {
+                    results.add(stat);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    private DailyStat toStat(int[][] city, LocalDate from, LocalDate to, LocalDate date, int cityId) {
+        int[] sums = new int[METRICS];
+        boolean any = false;
+        for (int m = 0; m < METRICS; m++) {
+            sums[m] = rangeLocked(city[m], from, to);
+            any |= sums[m] != 0;
+        }
+        return any ? new DailyStat(date, cityId, sums[0], sums[1], sums[2], sums[3], sums[4], sums[5]) : null;
+    }
+
+    // ==================== Metrics ====================
+
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) trees.size() * METRICS * (capacity + 1) * Integer.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStats() {
+        return "StatsColumnStore{loaded=" + loaded + ", cities=" + Math.max(0, trees.size() - 1) + ", days="
+                + capacity + ", memoryKB=" + getMemoryBytes() / 1024 + "}";
+    }
+}
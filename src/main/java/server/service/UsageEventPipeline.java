@@ -0,0 +1,263 @@
+package server.service;
+
+import server.dao.UsageEventDAO;
+import server.dao.UsageEventDAO.UsageEvent;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous ingestion of map view and download events.
+ *
+ * Request threads put events in a bounded EventRingBuffer and return; one
+ * writer thread group-commits them: it waits until MAX_BATCH events are
+ * queued or FLUSH_INTERVAL_MS has passed since the first one, then writes the
+ * whole batch in one transaction and counts it in DailyStatsCounters.
+ * Memory is bounded by the buffer; when it is full, producers wait up to
+ * OFFER_TIMEOUT_MS for the writer to make room before the event is dropped
+ * (and counted). A failed batch is retried before it is dropped. stop()
+ * writes everything still queued.
+ *
+ * The buffer has a single consumer. While the writer runs, only it drains;
+ * once it has exited, the last events are drained under drainLock by the
+ * writer itself or by a producer that queued after it (see submit).
+ */
+public class UsageEventPipeline {
+
+    private static final int CAPACITY = 65_536;
+    private static final int MAX_BATCH = 1_000;
+    private static final long FLUSH_INTERVAL_MS = 50;
+    private static final long OFFER_TIMEOUT_MS = 200;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 100;
+
+    private static UsageEventPipeline instance;
+
+    /**
+     * Writes one batch, all or nothing.
+     */
+    interface BatchWriter {
+        void write(List<UsageEvent> batch) throws SQLException;
+    }
+
+    private final EventRingBuffer<UsageEvent> buffer;
+    private final BatchWriter writer;
+    private final int maxBatch;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+
+    private volatile boolean running = false;
+    private volatile boolean writerDone = true;
+    private final Object drainLock = new Object();
+    private Thread writerThread;
+
+    // ---- Metrics ----
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong producerWaits = new AtomicLong();
+
+    UsageEventPipeline(BatchWriter writer, int capacity, int maxBatch, long flushIntervalMs, long offerTimeoutMs) {
+        this.buffer = new EventRingBuffer<>(capacity);
+        this.writer = writer;
+        this.maxBatch = maxBatch;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+    }
+
+    public static synchronized UsageEventPipeline getInstance() {
+        if (instance == null) {
+            instance = new UsageEventPipeline(UsageEventDAO::insert, CAPACITY, MAX_BATCH,
+                    FLUSH_INTERVAL_MS, OFFER_TIMEOUT_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Start the writer thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            System.out.println("⚠ UsageEventPipeline already running");
+            return;
+        }
+        writerDone = false;
+        running = true;
+        writerThread = new Thread(this::runWriter, "UsageEventWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        System.out.println("✓ UsageEventPipeline started (batches of up to " + maxBatch + " events, every "
+                + TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + " ms)");
+    }
+
+    /**
+     * Stop accepting events into the buffer and write everything queued.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            // Never drain beside the writer; it writes the rest before exiting
+            System.out.println("⚠ UsageEventPipeline writer still flushing " + buffer.size() + " events");
+        }
+        System.out.println("✓ UsageEventPipeline stopped (" + getStats() + ")");
+    }
+
+    public void recordView(int userId, int cityId, int mapId) {
+        submit(UsageEvent.view(userId, cityId, mapId, System.currentTimeMillis()));
+    }
+
+    public void recordDownload(int userId, int cityId) {
+        submit(UsageEvent.download(userId, cityId, System.currentTimeMillis()));
+    }
+
+    /**
+     * Queue an event. When the pipeline is not running the event is written
+     * right away on the caller's thread.
+     *
+     * @return false if the event was dropped
+     */
+    boolean submit(UsageEvent event) {
+        if (!running) {
+            accepted.incrementAndGet();
+            return flush(Collections.singletonList(event));
+        }
+        if (!buffer.offer(event)) {
+            // Backpressure: wake the writer and wait for room
+            producerWaits.incrementAndGet();
+            long deadline = System.nanoTime() + offerTimeoutNanos;
+            boolean queued = false;
+            while (!queued && System.nanoTime() < deadline) {
+                if (!running) {
+                    accepted.incrementAndGet();
+                    return flush(Collections.singletonList(event));
+                }
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                queued = buffer.offer(event);
+            }
+            if (!queued) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        accepted.incrementAndGet();
+        if (writerDone) {
+            // The writer exited after the running check: the event would stay queued
+            drainRemaining();
+            return true;
+        }
+        if (buffer.size() >= maxBatch) {
+            LockSupport.unpark(writerThread); // A full batch is ready
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        try {
+            writeBatches();
+        } finally {
+            // Set before the last drain, so a producer that queues after it
+            // sees writerDone and drains the event itself
+            writerDone = true;
+            drainRemaining();
+        }
+    }
+
+    private void writeBatches() {
+        List<UsageEvent> batch = new ArrayList<>(maxBatch);
+        while (running || !buffer.isEmpty()) {
+            buffer.drainTo(batch, maxBatch);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+
+            // Group commit: let the batch fill for up to one flush interval
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (running && batch.size() < maxBatch) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(left);
+                buffer.drainTo(batch, maxBatch - batch.size());
+            }
+            buffer.drainTo(batch, maxBatch - batch.size());
+
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Write whatever is queued, once the writer has exited.
+     */
+    private void drainRemaining() {
+        synchronized (drainLock) {
+            List<UsageEvent> rest = new ArrayList<>();
+            while (buffer.drainTo(rest, maxBatch) > 0) {
+                flush(rest);
+                rest.clear();
+            }
+        }
+    }
+
+    /**
+     * Write a batch, retrying before giving up on it.
+     */
+    private boolean flush(List<UsageEvent> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                writer.write(batch);
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("UsageEventPipeline: batch of " + batch.size() + " failed (attempt " + attempt
+                        + "): " + e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MS * attempt));
+                }
+            }
+        }
+        dropped.addAndGet(batch.size());
+        return false;
+    }
+
+    public int getQueued() {
+        return buffer.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public String getStats() {
+        return "UsageEventPipeline{accepted=" + accepted.get() + ", written=" + written.get() + ", batches="
+                + batches.get() + ", queued=" + buffer.size() + ", producerWaits=" + producerWaits.get()
+                + ", dropped=" + dropped.get() + "}";
+    }
+}
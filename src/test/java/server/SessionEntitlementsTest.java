@@ -0,0 +1,68 @@
+package server;
+
+import common.dto.EntitlementInfo;
+import common.dto.EntitlementInfo.EntitlementType;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for per-session entitlements (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SessionEntitlementsTest {
+
+    private static final long NOW = 1_000_000;
+
+    @Test
+    @Order(1)
+    @DisplayName("One-time purchases allow download only")
+    void oneTime_downloadOnly() {
+        SessionEntitlements owned = new SessionEntitlements();
+        owned.addOneTime(3);
+
+        assertTrue(owned.canDownload(3, NOW));
+        assertFalse(owned.canView(3, NOW));
+        assertFalse(owned.canDownload(4, NOW));
+        assertEquals(EntitlementType.ONE_TIME, owned.get(3, NOW).getType());
+
+        System.out.println("✓ Test 1 passed: One-time purchase is download-only");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("An active subscription takes precedence and expires on time")
+    void subscription_precedenceAndExpiry() {
+        SessionEntitlements owned = new SessionEntitlements();
+        owned.addOneTime(3);
+        owned.addSubscription(3, NOW + 100);
+
+        EntitlementInfo info = owned.get(3, NOW);
+        assertEquals(EntitlementType.SUBSCRIPTION, info.getType());
+        assertEquals(NOW + 100, info.getExpiresAtMillis());
+        assertTrue(info.isCanView());
+
+        assertEquals(EntitlementType.ONE_TIME, owned.get(3, NOW + 100).getType());
+
+        System.out.println("✓ Test 2 passed: Subscription precedence and expiry");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Subscriptions keep the latest end and stay sorted")
+    void addSubscription_keepsLatestEnd() {
+        SessionEntitlements owned = new SessionEntitlements();
+        owned.addSubscription(9, NOW + 500);
+        owned.addSubscription(2, NOW + 200);
+        owned.addSubscription(5, NOW + 300);
+        owned.addSubscription(9, NOW + 100);
+        owned.addSubscription(2, NOW + 700);
+
+        assertEquals(NOW + 500, owned.subscriptionEnd(9));
+        assertEquals(NOW + 700, owned.subscriptionEnd(2));
+        assertEquals(NOW + 300, owned.subscriptionEnd(5));
+        assertEquals(0, owned.subscriptionEnd(4));
+
+        System.out.println("✓ Test 3 passed: Latest subscription end kept");
+    }
+}
@@ -1,8 +1,13 @@
 package server.dao;
 
+import common.MessageType;
+import common.Request;
+import common.Response;
+import common.dto.MapContent;
 import common.dto.MapVersionDTO;
 import org.junit.jupiter.api.*;
 import server.DBConnector;
+import server.handler.MapEditHandler;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -168,4 +173,48 @@ public class MapVersionDAOTest {
             System.out.println("✓ Test 6 passed: Audit log entries written");
         }
     }
+
+    /**
+     * Test 7: An older approved version stays retrievable
+     * Approve version N-1, change the map, approve version N, then read N-1
+     */
+    @Test
+    @Order(7)
+    @DisplayName("Older approved version - content served as it was approved")
+    void olderVersion_servedFromSnapshot() throws SQLException {
+        MapContent live = MapDAO.getMapContent(TEST_MAP_ID);
+        assertNotNull(live, "Seed map should exist");
+        String description = live.getShortDescription();
+
+        try (Connection conn = DBConnector.getConnection()) {
+            int previousId = MapVersionDAO.createVersion(conn, TEST_MAP_ID, TEST_CREATOR_ID, "Snapshot N-1");
+            MapVersionDAO.updateStatus(conn, previousId, "APPROVED", TEST_APPROVER_ID, null);
+            assertTrue(MapSnapshotDAO.createSnapshot(conn, previousId, TEST_MAP_ID));
+
+            try {
+                assertTrue(MapDAO.updateMap(TEST_MAP_ID, live.getMapName(), "Changed in version N"));
+                int latestId = MapVersionDAO.createVersion(conn, TEST_MAP_ID, TEST_CREATOR_ID, "Snapshot N");
+                MapVersionDAO.updateStatus(conn, latestId, "APPROVED", TEST_APPROVER_ID, null);
+                assertTrue(MapSnapshotDAO.createSnapshot(conn, latestId, TEST_MAP_ID));
+
+                Response previous = MapEditHandler.handle(
+                        new Request(MessageType.GET_MAP_VERSION_CONTENT, previousId));
+                assertTrue(previous.isOk(), "Version N-1 should be retrievable");
+                MapContent content = (MapContent) previous.getPayload();
+                assertEquals(previousId, content.getVersionId());
+                assertEquals(description, content.getShortDescription(), "Content as approved in N-1");
+
+                Response latest = MapEditHandler.handle(new Request(MessageType.GET_MAP_VERSION_CONTENT, latestId));
+                assertTrue(latest.isOk());
+                assertEquals("Changed in version N", ((MapContent) latest.getPayload()).getShortDescription());
+
+                Response missing = MapEditHandler.handle(new Request(MessageType.GET_MAP_VERSION_CONTENT, -1));
+                assertEquals(Response.ERR_NOT_FOUND, missing.getErrorCode());
+            } finally {
+                MapDAO.updateMap(TEST_MAP_ID, live.getMapName(), description);
+            }
+
+            System.out.println("✓ Test 7 passed: Version " + previousId + " read after a newer approval");
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package server.scheduler;
+
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for usage event rollup and retention planning (no database
+ * required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class UsageEventRetentionJobTest {
+
+    @Test
+    @Order(1)
+    @DisplayName("Only completed days past the grace period are rolled up")
+    void daysToRollUp_waitsForGrace() {
+        LocalDate lastRolled = LocalDate.of(2026, 3, 10);
+
+        List<LocalDate> early = UsageEventRetentionJob.daysToRollUp(lastRolled,
+                LocalDateTime.of(2026, 3, 13, 0, 5), 10);
+        assertEquals(Arrays.asList(LocalDate.of(2026, 3, 11)), early, "the 12th is still in its grace period");
+
+        List<LocalDate> later = UsageEventRetentionJob.daysToRollUp(lastRolled,
+                LocalDateTime.of(2026, 3, 13, 0, 10), 10);
+        assertEquals(Arrays.asList(LocalDate.of(2026, 3, 11), LocalDate.of(2026, 3, 12)), later);
+
+        assertTrue(UsageEventRetentionJob.daysToRollUp(LocalDate.of(2026, 3, 12),
+                LocalDateTime.of(2026, 3, 13, 23, 0), 10).isEmpty());
+
+        System.out.println("✓ Test 1 passed: Rollup waits for complete days");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Months past retention are dropped only once rolled up")
+    void monthsToDrop_respectsRetentionAndRollup() {
+        List<YearMonth> months = Arrays.asList(YearMonth.of(2025, 1), YearMonth.of(2025, 2),
+                YearMonth.of(2025, 3), YearMonth.of(2026, 3));
+        YearMonth current = YearMonth.of(2026, 3);
+
+        List<YearMonth> drop = UsageEventRetentionJob.monthsToDrop(months, current, 13, LocalDate.of(2026, 3, 1));
+        assertEquals(Arrays.asList(YearMonth.of(2025, 1)), drop, "Feb 2025 onwards is within 13 months");
+
+        List<YearMonth> notRolled = UsageEventRetentionJob.monthsToDrop(months, current, 1,
+                LocalDate.of(2025, 2, 27));
+        assertEquals(Arrays.asList(YearMonth.of(2025, 1)), notRolled, "Feb 2025 is not fully rolled up yet");
+
+        System.out.println("✓ Test 2 passed: Retention keeps recent and unrolled months");
+    }
+}
@@ -0,0 +1,88 @@
+package server.service;
+
+import common.DailyStat;
+import org.junit.jupiter.api.*;
+import server.service.ReportRangePlanner.Segment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel per-city breakdown report (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class CityBreakdownReportGeneratorTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Every segment is read once and summed per city")
+    void generate_sumsSegmentsPerCity() {
+        LocalDate from = LocalDate.of(2026, 1, 14);
+        LocalDate to = LocalDate.of(2026, 6, 16);
+        int segments = ReportRangePlanner.plan(from, to).size();
+        List<Segment> read = Collections.synchronizedList(new ArrayList<>());
+        int cities = 300;
+
+        CityBreakdownReportGenerator generator = new CityBreakdownReportGenerator(segment -> {
+            read.add(segment);
+            List<DailyStat> rows = new ArrayList<>();
+            for (int city = cities; city >= 1; city--) {
+                rows.add(new DailyStat(segment.start, city, 0, 1, 0, 0, city, 2));
+            }
+            return rows;
+        }, executor);
+
+        List<DailyStat> stats = generator.generate(from, to, null);
+
+        assertEquals(segments, read.size());
+        assertEquals(cities, stats.size());
+        assertEquals(1, stats.get(0).getCityId(), "ordered by city");
+        DailyStat city7 = stats.get(6);
+        assertEquals(7, city7.getCityId());
+        assertEquals(from, city7.getDate());
+        assertEquals(segments, city7.getOneTimePurchases());
+        assertEquals(7 * segments, city7.getViews());
+        assertEquals(2 * segments, city7.getDownloads());
+
+        System.out.println("✓ Test 1 passed: " + cities + " cities over " + segments + " segments");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("A failing segment fails the report")
+    void generate_propagatesFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        CityBreakdownReportGenerator generator = new CityBreakdownReportGenerator(segment -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new SQLException("connection lost");
+            }
+            return new ArrayList<>();
+        }, executor);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> generator.generate(LocalDate.of(2026, 1, 14), LocalDate.of(2026, 6, 16), null));
+        assertTrue(e.getMessage().contains("connection lost"));
+
+        System.out.println("✓ Test 2 passed: Failure surfaced");
+    }
+}
@@ -0,0 +1,45 @@
+package server.service;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.*;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the city export query and row helpers (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class CityExportServiceTest {
+
+    @Test
+    @Order(1)
+    @DisplayName("Every table query is city-scoped and fully expanded")
+    void tableQueries_expandCityMarkers() {
+        for (String[] table : CityExportService.TABLES) {
+            String sql = CityExportService.expand(table[1], 3);
+            assertFalse(sql.contains("{cities}"), table[0]);
+            assertTrue(sql.contains("IN (?,?,?)"), table[0] + " must filter by city");
+        }
+
+        System.out.println("✓ Test 1 passed: Export queries expand correctly");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Column values keep their JSON types")
+    void addValue_mapsTypes() {
+        JsonObject row = new JsonObject();
+        CityExportService.addValue(row, "id", 7);
+        CityExportService.addValue(row, "is_accessible", true);
+        CityExportService.addValue(row, "notes", null);
+        CityExportService.addValue(row, "content", new byte[] { 1, 2, 3 });
+        CityExportService.addValue(row, "created_at", Timestamp.valueOf("2026-01-02 03:04:05"));
+
+        assertEquals("{\"id\":7,\"is_accessible\":true,\"notes\":null,\"content\":\"AQID\"," +
+                "\"created_at\":\"2026-01-02 03:04:05.0\"}", row.toString());
+
+        System.out.println("✓ Test 2 passed: Row values are typed");
+    }
+}
@@ -0,0 +1,167 @@
+package server.service;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import server.dao.DailyStatsDAO.Delta;
+import server.dao.DailyStatsDAO.Metric;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the write-behind daily stats counters (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DailyStatsCountersTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 15);
+
+    @TempDir
+    Path dir;
+
+    /**
+     * In-memory stand-in for daily_stats and stats_flush_state.
+     */
+    private static class FakeStore implements DailyStatsCounters.Store {
+        long lastSeq = 0;
+        boolean failing = false;
+        final List<Delta> applied = new ArrayList<>();
+        int batches = 0;
+
+        @Override
+        public long lastFlushSeq() {
+            return lastSeq;
+        }
+
+        @Override
+        public boolean apply(long flushSeq, Collection<Delta> deltas) throws SQLException {
+            if (failing) {
+                throw new SQLException("connection lost");
+            }
+            if (flushSeq <= lastSeq) {
+                return false;
+            }
+            applied.addAll(deltas);
+            batches++;
+            lastSeq = flushSeq;
+            return true;
+        }
+
+        long total(Metric metric) {
+            return applied.stream().mapToLong(d -> d.counts[metric.ordinal()]).sum();
+        }
+    }
+
+    private final FakeStore store = new FakeStore();
+
+    private DailyStatsCounters counters() {
+        return new DailyStatsCounters(store, dir.resolve("daily_stats.journal"), () -> TODAY);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Increments are summed and flushed as one row per date and city")
+    void flush_groupsPerDateAndCity() {
+        DailyStatsCounters counters = counters();
+        for (int i = 0; i < 5; i++) {
+            counters.increment(1, Metric.VIEW);
+        }
+        counters.increment(1, Metric.DOWNLOAD);
+        counters.increment(2, Metric.VIEW);
+        counters.add(TODAY.minusDays(1), 1, Metric.VIEW, 3);
+
+        assertTrue(counters.flush());
+
+        assertEquals(1, store.batches);
+        assertEquals(3, store.applied.size());
+        Delta city1 = store.applied.stream().filter(d -> d.cityId == 1 && d.date.equals(TODAY)).findFirst()
+                .orElseThrow();
+        assertEquals(5, city1.counts[Metric.VIEW.ordinal()]);
+        assertEquals(1, city1.counts[Metric.DOWNLOAD.ordinal()]);
+        assertEquals(0, counters.getPending(TODAY, 1, Metric.VIEW));
+
+        assertTrue(counters.flush());
+        assertEquals(1, store.batches, "nothing pending, nothing written");
+
+        System.out.println("✓ Test 1 passed: Deltas grouped into one batch");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Increments racing a flush are never lost")
+    void flush_concurrentIncrements() throws Exception {
+        DailyStatsCounters counters = counters();
+        int threads = 4;
+        int perThread = 100_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counters.increment(7, Metric.VIEW);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                counters.flush();
+            }
+        }
+        counters.flush();
+
+        assertEquals((long) threads * perThread, store.total(Metric.VIEW));
+
+        System.out.println("✓ Test 2 passed: No increments lost across " + store.batches + " flushes");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("A failed flush keeps its deltas and a restart replays the journal")
+    void journal_replaysUnappliedBatch() throws Exception {
+        DailyStatsCounters counters = counters();
+        counters.increment(3, Metric.DOWNLOAD);
+        counters.increment(3, Metric.DOWNLOAD);
+
+        store.failing = true;
+        assertFalse(counters.flush());
+        assertEquals(2, counters.getPending(TODAY, 3, Metric.DOWNLOAD));
+        assertTrue(Files.exists(dir.resolve("daily_stats.journal")));
+
+        // Crash: the in-memory counters are gone, the journal is not
+        store.failing = false;
+        DailyStatsCounters restarted = counters();
+        assertTrue(restarted.flush());
+
+        assertEquals(2, store.total(Metric.DOWNLOAD));
+        assertFalse(Files.exists(dir.resolve("daily_stats.journal")), "journal removed once flushed");
+
+        System.out.println("✓ Test 3 passed: Journal replayed after a crash");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("A journal whose batch was already applied is not replayed")
+    void journal_skipsAppliedBatch() throws Exception {
+        DailyStatsCounters counters = counters();
+        counters.increment(4, Metric.VIEW);
+        assertTrue(counters.flush());
+
+        // Crash after the commit but before the journal was cleared
+        Files.writeString(dir.resolve("daily_stats.journal"), "seq " + store.lastSeq + "\n" + TODAY + " 4 VIEW 1\n");
+
+        DailyStatsCounters restarted = counters();
+        assertTrue(restarted.flush());
+
+        assertEquals(1, store.total(Metric.VIEW), "applied once");
+        assertEquals(0, restarted.getPending(TODAY, 4, Metric.VIEW));
+
+        System.out.println("✓ Test 4 passed: Applied journal discarded");
+    }
+}
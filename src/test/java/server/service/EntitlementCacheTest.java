@@ -0,0 +1,141 @@
+package server.service;
+
+import common.dto.EntitlementInfo;
+import common.dto.EntitlementInfo.EntitlementType;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the entitlement cache (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class EntitlementCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private EntitlementType stored = EntitlementType.NONE;
+    private EntitlementCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EntitlementCache((userId, cityId) -> {
+            loads.incrementAndGet();
+            EntitlementInfo info = new EntitlementInfo(cityId, stored, null,
+                    stored == EntitlementType.SUBSCRIPTION, stored != EntitlementType.NONE);
+            if (stored == EntitlementType.SUBSCRIPTION) {
+                info.setExpiresAtMillis(now.get() + 10_000);
+            }
+            return info;
+        }, now::get, 100);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Repeated checks are served from the cache")
+    void get_cachesEntitlement() {
+        stored = EntitlementType.ONE_TIME;
+
+        assertTrue(cache.get(7, 1).isCanDownload());
+        assertTrue(cache.get(7, 1).isCanDownload());
+        cache.get(8, 1);
+
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 1 passed: Entitlements are cached per user and city");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Subscription entries expire at the subscription end")
+    void get_expiresAtSubscriptionEnd() {
+        stored = EntitlementType.SUBSCRIPTION;
+        assertTrue(cache.get(7, 1).isCanView());
+
+        now.addAndGet(9_999);
+        cache.get(7, 1);
+        assertEquals(1, loads.get());
+
+        stored = EntitlementType.NONE;
+        now.addAndGet(1);
+        assertFalse(cache.get(7, 1).isCanView(), "expired subscription must be re-read");
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 2 passed: Subscription entries expire on time");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Invalidation after a purchase reloads the entry")
+    void invalidate_reloads() {
+        assertFalse(cache.get(7, 1).isCanDownload());
+
+        stored = EntitlementType.ONE_TIME;
+        cache.invalidate(7, 1);
+
+        assertTrue(cache.get(7, 1).isCanDownload());
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 3 passed: Invalidation works");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Expired entries are purged")
+    void purgeExpired_removesOldEntries() {
+        stored = EntitlementType.SUBSCRIPTION;
+        cache.get(7, 1);
+        stored = EntitlementType.ONE_TIME;
+        cache.get(7, 2);
+
+        now.addAndGet(10_000);
+        assertEquals(1, cache.purgeExpired());
+        assertEquals(1, cache.size());
+
+        System.out.println("✓ Test 4 passed: Expired entries purged");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("A failed load denies once and is not cached")
+    void get_doesNotCacheFailures() {
+        EntitlementCache failing = new EntitlementCache((userId, cityId) -> {
+            loads.incrementAndGet();
+            return loads.get() == 1 ? null
+                    : new EntitlementInfo(cityId, EntitlementType.ONE_TIME, null, false, true);
+        }, now::get, 100);
+
+        assertFalse(failing.get(7, 1).isCanDownload());
+        assertTrue(failing.get(7, 1).isCanDownload(), "next request reloads");
+        failing.get(7, 1);
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 5 passed: " + failing.getStats());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("A load that started before a purchase is not cached")
+    void get_discardsLoadRacingInvalidate() {
+        EntitlementCache[] racing = new EntitlementCache[1];
+        racing[0] = new EntitlementCache((userId, cityId) -> {
+            loads.incrementAndGet();
+            EntitlementType type = stored;
+            if (loads.get() == 1) {
+                // The purchase commits and invalidates while this load is running
+                stored = EntitlementType.ONE_TIME;
+                racing[0].invalidate(userId, cityId);
+            }
+            return new EntitlementInfo(cityId, type, null, false, type != EntitlementType.NONE);
+        }, now::get, 100);
+
+        assertFalse(racing[0].get(7, 1).isCanDownload());
+        assertTrue(racing[0].get(7, 1).isCanDownload(), "stale NONE was not cached");
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 6 passed: Stale loads are discarded");
+    }
+}
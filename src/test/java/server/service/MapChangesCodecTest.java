@@ -0,0 +1,87 @@
+package server.service;
+
+import com.google.gson.Gson;
+import common.Poi;
+import common.dto.MapChanges;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary map changes codec (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MapChangesCodecTest {
+
+    private MapChanges changes;
+
+    @BeforeEach
+    void setUp() {
+        changes = new MapChanges().forMap(10).forCity(1);
+        changes.setNewMapName("Haifa Center");
+        for (int i = 0; i < 1000; i++) {
+            changes.addPoi(new Poi(0, 1, "New POI " + i, "32.81,34.98", "Museum", "Added in bulk", i % 2 == 0));
+        }
+        changes.updatePoi(new Poi(7, 1, "Renamed", null, "Beach", null, false));
+        changes.deletePoi(8);
+        changes.getPoiMapLinks().add(new MapChanges.PoiMapLink(10, 7, 3));
+
+        TourDTO tour = new TourDTO(0, 1, "Walk", "A walk", 90);
+        tour.getStops().add(new TourStopDTO(0, 0, 7, "Renamed", "Beach", 1, 20, null));
+        changes.addTour(tour);
+        changes.deleteTour(4);
+        changes.getDeletedStopIds().add(12);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Encoded changes decode to the same change set")
+    void roundTrip_preservesChanges() {
+        MapChanges decoded = MapChangesCodec.decode(MapChangesCodec.encode(changes));
+
+        assertNotNull(decoded);
+        assertEquals(Integer.valueOf(10), decoded.getMapId());
+        assertEquals("Haifa Center", decoded.getNewMapName());
+        assertNull(decoded.getNewCityPrice());
+        assertEquals(1000, decoded.getAddedPois().size());
+        assertEquals("New POI 999", decoded.getAddedPois().get(999).getName());
+        assertNull(decoded.getUpdatedPois().get(0).getLocation());
+        assertEquals(8, decoded.getDeletedPoiIds().get(0));
+        assertEquals(3, decoded.getPoiMapLinks().get(0).displayOrder);
+        assertEquals(20, decoded.getAddedTours().get(0).getStops().get(0).getDurationMinutes());
+        assertEquals(4, decoded.getDeletedTourIds().get(0));
+        assertEquals(12, decoded.getDeletedStopIds().get(0));
+
+        System.out.println("✓ Test 1 passed: Change set round trip works");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Binary form is much smaller than the JSON it replaces")
+    void encode_isSmallerThanJson() {
+        int json = new Gson().toJson(changes).getBytes().length;
+        int binary = MapChangesCodec.encode(changes).length;
+
+        System.out.println("MapChangesCodec: JSON " + json + " bytes, binary " + binary + " bytes");
+        assertTrue(binary * 5 < json, "Expected at least 5x smaller than JSON");
+
+        System.out.println("✓ Test 2 passed: Binary changes are compact");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Null lists and corrupt data are handled")
+    void nullsAndCorruptData() {
+        MapChanges sparse = new MapChanges();
+        sparse.setAddedPois(null);
+        MapChanges decoded = MapChangesCodec.decode(MapChangesCodec.encode(sparse));
+        assertNotNull(decoded);
+        assertTrue(decoded.getAddedPois().isEmpty());
+
+        assertNull(MapChangesCodec.decode(new byte[] { 9, 9, 9 }));
+
+        System.out.println("✓ Test 3 passed: Edge cases handled");
+    }
+}
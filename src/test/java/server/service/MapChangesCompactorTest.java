@@ -0,0 +1,142 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapChanges;
+import common.dto.MapEditRequestDTO;
+import common.dto.MergedMapEdit;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for merging pending map edit requests (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MapChangesCompactorTest {
+
+    private static MapEditRequestDTO request(int id, MapChanges changes) {
+        MapEditRequestDTO dto = new MapEditRequestDTO();
+        dto.setId(id);
+        dto.setMapId(changes.getMapId() != null ? changes.getMapId() : 0);
+        dto.setChanges(changes);
+        return dto;
+    }
+
+    private static Poi poi(int id, String name) {
+        return new Poi(id, 1, name, "32.80,34.99", "Museum", "Exhibits", true);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Repeated updates collapse and a delete drops earlier updates")
+    void compact_collapsesUpdates() {
+        MapChanges first = new MapChanges().forMap(10).updatePoi(poi(5, "Old name")).updatePoi(poi(6, "Gone soon"));
+        first.setCityId(1);
+        MapChanges second = new MapChanges().forMap(10).updatePoi(poi(5, "New name")).deletePoi(6);
+        second.setCityId(1);
+
+        MergedMapEdit merged = MapChangesCompactor.compact(Arrays.asList(request(1, first), request(2, second)));
+
+        MapChanges net = merged.getChanges();
+        assertEquals(Arrays.asList(1, 2), merged.getRequestIds());
+        assertEquals(1, net.getUpdatedPois().size());
+        assertEquals("New name", net.getUpdatedPois().get(0).getName());
+        assertEquals(Arrays.asList(6), net.getDeletedPoiIds());
+        assertEquals(4, merged.getOperationsBefore());
+        assertEquals(2, merged.getOperationsAfter());
+        assertTrue(merged.getConflicts().isEmpty());
+
+        System.out.println("✓ Test 1 passed: Updates collapse into the last one");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Add followed by delete of a provisional ID cancels out")
+    void compact_cancelsAddThenDelete() {
+        MapChanges first = new MapChanges().forMap(10).addPoi(poi(-1, "Temp")).addPoi(poi(-2, "Draft"))
+                .addPoi(poi(0, "Plain add"));
+        MapChanges second = new MapChanges().forMap(10).deletePoi(-1).updatePoi(poi(-2, "Final"));
+
+        MergedMapEdit merged = MapChangesCompactor.compact(Arrays.asList(request(1, first), request(2, second)));
+
+        MapChanges net = merged.getChanges();
+        assertEquals(2, net.getAddedPois().size());
+        assertTrue(net.getAddedPois().stream().anyMatch(p -> "Final".equals(p.getName())));
+        assertTrue(net.getAddedPois().stream().anyMatch(p -> "Plain add".equals(p.getName())));
+        assertTrue(net.getUpdatedPois().isEmpty());
+        assertTrue(net.getDeletedPoiIds().isEmpty());
+
+        System.out.println("✓ Test 2 passed: Add + delete cancels");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Links and same-position stops resolve to the later request")
+    void compact_resolvesConflicts() {
+        MapChanges first = new MapChanges().forMap(10).deletePoi(7);
+        first.getPoiMapLinks().add(new MapChanges.PoiMapLink(10, 8, 1));
+        first.getAddedStops().add(new TourStopDTO(0, 3, 8, "POI 8", "Museum", 2, 20, null));
+        MapChanges second = new MapChanges().forMap(10).updatePoi(poi(7, "Revived"));
+        second.getPoiMapUnlinks().add(new MapChanges.PoiMapLink(10, 8, 0));
+        second.getAddedStops().add(new TourStopDTO(0, 3, 9, "POI 9", "Museum", 2, 25, null));
+        second.getAddedStops().add(new TourStopDTO(0, 4, 7, "POI 7", "Museum", 1, 10, null));
+
+        MergedMapEdit merged = MapChangesCompactor.compact(Arrays.asList(request(1, first), request(2, second)));
+
+        MapChanges net = merged.getChanges();
+        assertTrue(net.getUpdatedPois().isEmpty(), "update after delete is dropped");
+        assertTrue(net.getPoiMapLinks().isEmpty());
+        assertEquals(1, net.getPoiMapUnlinks().size());
+        assertEquals(1, net.getAddedStops().size(), "stop at deleted POI dropped, same-position stop replaced");
+        assertEquals(9, net.getAddedStops().get(0).getPoiId());
+        assertEquals(3, merged.getConflicts().size());
+
+        System.out.println("✓ Test 3 passed: Conflicts resolved and reported");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Requests creating a map or for another map are not merged")
+    void compact_rejectsUnmergeable() {
+        MapChanges newMap = new MapChanges().forCity(1);
+        newMap.setNewMapName("New map");
+        MapChanges other = new MapChanges().forMap(11).deletePoi(1);
+        MapChanges ours = new MapChanges().forMap(10).deletePoi(2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MapChangesCompactor.compact(Arrays.asList(request(1, newMap))));
+        assertThrows(IllegalArgumentException.class,
+                () -> MapChangesCompactor.compact(Arrays.asList(request(1, ours), request(2, other))));
+
+        System.out.println("✓ Test 4 passed: Unmergeable requests rejected");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("A delete wins over a later update of the same entity")
+    void compact_deleteThenUpdate() {
+        MapChanges first = new MapChanges().forMap(10).deletePoi(7);
+        first.getDeletedTourIds().add(3);
+        first.getDeletedStopIds().add(12);
+        MapChanges second = new MapChanges().forMap(10).updatePoi(poi(7, "Revived"));
+        second.getUpdatedTours().add(new TourDTO(3, 1, "Revived tour", "Still here", 60));
+        second.getUpdatedStops().add(new TourStopDTO(12, 4, 8, "POI 8", "Museum", 1, 15, null));
+
+        MergedMapEdit merged = MapChangesCompactor.compact(Arrays.asList(request(1, first), request(2, second)));
+
+        MapChanges net = merged.getChanges();
+        assertEquals(Arrays.asList(7), net.getDeletedPoiIds());
+        assertEquals(Arrays.asList(3), net.getDeletedTourIds());
+        assertEquals(Arrays.asList(12), net.getDeletedStopIds());
+        assertTrue(net.getUpdatedPois().isEmpty());
+        assertTrue(net.getUpdatedTours().isEmpty());
+        assertTrue(net.getUpdatedStops().isEmpty());
+        assertEquals(3, merged.getConflicts().size(), "each dropped update is reported");
+
+        System.out.println("✓ Test 5 passed: " + merged.getConflicts());
+    }
+}
@@ -0,0 +1,203 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapContent;
+import common.dto.MapPackageManifest;
+import common.dto.PackageChunk;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for map package building and ranged reads (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MapPackageStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private MapPackageStore store;
+    private MapContent content;
+
+    @BeforeEach
+    void setUp() {
+        store = new MapPackageStore(dir);
+        content = new MapContent(10, 1, "Haifa", "Haifa Center", null);
+        for (int i = 1; i <= 5000; i++) {
+            content.addPoi(new Poi(i, 1, "POI " + i, "32.8,34.9", i % 3 == 0 ? null : "Museum", "Text " + i, i % 2 == 0));
+        }
+        TourDTO tour = new TourDTO(5, 1, "Museum Walk", "All the museums", 120);
+        tour.getStops().add(new TourStopDTO(1, 5, 3, "POI 3", null, 1, 30, null));
+        content.addTour(tour);
+        content.setVersionId(42);
+        content.setVersionNumber(3);
+    }
+
+    private byte[] download(MapPackageManifest manifest, long from, ByteArrayOutputStream out) {
+        long offset = from;
+        while (offset < manifest.getSize()) {
+            PackageChunk chunk = store.readChunk(manifest.getPackageId(), offset, 64 * 1024);
+            assertNotNull(chunk);
+            assertEquals(offset, chunk.getOffset());
+            out.write(chunk.getData(), 0, chunk.getData().length);
+            offset += chunk.getData().length;
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Package round-trips through the binary format")
+    void codec_roundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapPackageCodec.write(content, out);
+        MapContent decoded = MapPackageCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(5000, decoded.getPois().size());
+        assertNull(decoded.getShortDescription());
+        assertNull(decoded.getPois().get(2).getCategory());
+        assertEquals("Text 10", decoded.getPois().get(9).getShortExplanation());
+        assertEquals(Integer.valueOf(42), decoded.getVersionId());
+        assertEquals(30, decoded.getTours().get(0).getStops().get(0).getDurationMinutes());
+        assertNull(decoded.getTours().get(0).getStops().get(0).getNotes());
+
+        System.out.println("✓ Test 1 passed: Package format round trip works");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Chunked download reassembles the exact package")
+    void chunks_reassemblePackage() throws Exception {
+        MapPackageManifest manifest = store.getOrBuild(content);
+        assertEquals("c1-m10-v42", manifest.getPackageId());
+        assertTrue(manifest.getSize() > 64 * 1024, "Package should span several chunks");
+
+        byte[] bytes = download(manifest, 0, new ByteArrayOutputStream());
+        Path copy = dir.resolve("copy.bin");
+        Files.write(copy, bytes);
+        assertEquals(manifest.getSha256(), MapPackageStore.hashFile(copy));
+
+        // Versioned packages are built once
+        assertSame(manifest, store.getOrBuild(content));
+
+        System.out.println("✓ Test 2 passed: Chunked download is byte-exact");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Download resumes from a partial offset")
+    void resume_fromOffset() throws Exception {
+        MapPackageManifest manifest = store.getOrBuild(content);
+
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        PackageChunk first = store.readChunk(manifest.getPackageId(), 0, 10_000);
+        partial.write(first.getData(), 0, first.getData().length);
+
+        byte[] bytes = download(manifest, 10_000, partial);
+        Path copy = dir.resolve("resumed.bin");
+        Files.write(copy, bytes);
+        assertEquals(manifest.getSha256(), MapPackageStore.hashFile(copy));
+
+        PackageChunk end = store.readChunk(manifest.getPackageId(), manifest.getSize(), 1024);
+        assertEquals(0, end.getData().length);
+        assertTrue(end.isLast());
+
+        System.out.println("✓ Test 3 passed: Resume works");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Live packages are content-addressed and ids are validated")
+    void livePackages_andIdValidation() {
+        content.setVersionId(null);
+        MapPackageManifest a = store.getOrBuild(content);
+        MapPackageManifest b = store.getOrBuild(content);
+        assertTrue(a.getPackageId().startsWith("c1-m10-live-"));
+        assertEquals(a.getPackageId(), b.getPackageId());
+
+        assertEquals(1, MapPackageStore.cityOf(a.getPackageId()));
+        assertEquals(-1, MapPackageStore.cityOf("../etc/passwd"));
+        assertEquals(-1, MapPackageStore.cityOf("c1-m10-v42/../../x"));
+        assertNull(store.readChunk("c9-m9-v9", 0, 10));
+
+        System.out.println("✓ Test 4 passed: Package ids are safe");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Versioned packages on disk are resolved without loading content")
+    void versioned_loadsContentOnlyToBuild() {
+        AtomicInteger loads = new AtomicInteger();
+        MapPackageManifest built = store.getVersioned(1, 10, "Haifa Center", 42, () -> {
+            loads.incrementAndGet();
+            return content;
+        });
+        assertEquals("c1-m10-v42", built.getPackageId());
+        assertEquals(1, loads.get());
+
+        // After a restart the file is found by its id
+        MapPackageStore restarted = new MapPackageStore(dir);
+        MapPackageManifest found = restarted.getVersioned(1, 10, "Haifa Center", 42, () -> {
+            loads.incrementAndGet();
+            return content;
+        });
+        assertEquals(1, loads.get());
+        assertEquals(built.getSha256(), found.getSha256());
+        assertEquals(built.getSize(), found.getSize());
+
+        assertNull(store.getVersioned(1, 11, "Gone", 43, () -> null));
+
+        System.out.println("✓ Test 5 passed: Versioned manifests need no content");
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Live manifests are remembered until invalidated; old live packages are removed")
+    void live_rememberedAndCleanedUp() throws Exception {
+        content.setVersionId(null);
+        AtomicInteger loads = new AtomicInteger();
+        MapPackageManifest first = store.getLive(10, () -> {
+            loads.incrementAndGet();
+            return content;
+        });
+        store.getLive(10, () -> {
+            loads.incrementAndGet();
+            return content;
+        });
+        assertEquals(1, loads.get());
+
+        // An edit: the next download rebuilds under a new id
+        content.getPois().remove(0);
+        store.invalidateLive();
+        MapPackageManifest second = store.getLive(10, () -> {
+            loads.incrementAndGet();
+            return content;
+        });
+        assertEquals(2, loads.get());
+        assertNotEquals(first.getPackageId(), second.getPackageId());
+        Path firstFile = dir.resolve(first.getPackageId() + ".gcmp");
+        assertTrue(Files.exists(firstFile), "kept while downloads may still read it");
+
+        // Past the grace period the superseded package is deleted
+        Files.setLastModifiedTime(firstFile, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60_000));
+        content.getPois().remove(0);
+        store.invalidateLive();
+        MapPackageManifest third = store.getLive(10, () -> content);
+        assertFalse(Files.exists(firstFile));
+        assertTrue(Files.exists(dir.resolve(second.getPackageId() + ".gcmp")));
+        assertNotNull(store.readChunk(third.getPackageId(), 0, 10));
+
+        System.out.println("✓ Test 6 passed: Live packages are cached and cleaned up");
+    }
+}
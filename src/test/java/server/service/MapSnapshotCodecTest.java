@@ -0,0 +1,80 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapContent;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the map snapshot codec (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MapSnapshotCodecTest {
+
+    private MapContent content;
+
+    @BeforeEach
+    void setUp() {
+        content = new MapContent(10, 1, "Haifa", "Haifa Center", "Downtown and the port");
+        for (int i = 1; i <= 200; i++) {
+            content.addPoi(new Poi(i, 1, "POI " + i, "32.8" + i + ",34.9" + i, "Museum", "Exhibits", i % 2 == 0));
+        }
+        TourDTO tour = new TourDTO(5, 1, "Museum Walk", "All the museums", 120);
+        tour.getStops().add(new TourStopDTO(1, 5, 3, "POI 3", "Museum", 1, 30, "Start here"));
+        content.addTour(tour);
+        content.setVersionId(42);
+        content.setVersionNumber(3);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Encoded snapshot decodes to the same content")
+    void roundTrip_preservesContent() {
+        MapContent decoded = MapSnapshotCodec.decode(MapSnapshotCodec.encode(content));
+
+        assertNotNull(decoded);
+        assertEquals(10, decoded.getMapId());
+        assertEquals("Haifa Center", decoded.getMapName());
+        assertEquals(Integer.valueOf(42), decoded.getVersionId());
+        assertEquals(3, decoded.getVersionNumber());
+        assertEquals(200, decoded.getPois().size());
+        assertEquals("POI 7", decoded.getPois().get(6).getName());
+        assertTrue(decoded.getPois().get(1).isAccessible());
+        assertEquals(1, decoded.getTours().get(0).getStops().size());
+        assertEquals("Start here", decoded.getTours().get(0).getStops().get(0).getNotes());
+
+        System.out.println("✓ Test 1 passed: Snapshot round trip works");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Snapshots are compressed and content-addressed")
+    void encode_isCompactAndStable() {
+        byte[] a = MapSnapshotCodec.encode(content);
+        byte[] b = MapSnapshotCodec.encode(content);
+
+        assertEquals(MapSnapshotCodec.hash(a), MapSnapshotCodec.hash(b));
+        assertEquals(64, MapSnapshotCodec.hash(a).length());
+
+        int rawSize = new com.google.gson.Gson().toJson(content).length();
+        assertTrue(a.length < rawSize / 3, "Expected GZIP to shrink repetitive map JSON");
+
+        content.getPois().get(0).setName("Renamed");
+        assertNotEquals(MapSnapshotCodec.hash(a), MapSnapshotCodec.hash(MapSnapshotCodec.encode(content)));
+
+        System.out.println("✓ Test 2 passed: Snapshots are compact and hashed");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Corrupt data decodes to null")
+    void corruptData_returnsNull() {
+        assertNull(MapSnapshotCodec.decode(new byte[] { 1, 2, 3 }));
+        assertNull(MapSnapshotCodec.decode(null));
+
+        System.out.println("✓ Test 3 passed: Corrupt snapshots are rejected");
+    }
+}
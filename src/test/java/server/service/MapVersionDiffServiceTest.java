@@ -0,0 +1,139 @@
+package server.service;
+
+import common.Poi;
+import common.dto.MapContent;
+import common.dto.MapVersionDiff;
+import common.dto.MapVersionDiff.EntityChange;
+import common.dto.TourDTO;
+import common.dto.TourStopDTO;
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the map version diff engine (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MapVersionDiffServiceTest {
+
+    private final Map<Integer, MapContent> snapshots = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private MapVersionDiffService service;
+
+    @BeforeEach
+    void setUp() {
+        MapContent v3 = version(100, 3, "Haifa Center");
+        MapContent v7 = version(107, 7, "Haifa Center");
+        v7.getPois().get(1).setCategory("Historic"); // POI 2 modified
+        v7.getPois().remove(2); // POI 3 removed
+        v7.addPoi(new Poi(1001, 1, "New Cafe", "32.80,34.99", "Restaurant", "Coffee", true));
+        v7.getTours().get(0).getStops().get(0).setDurationMinutes(45);
+        snapshots.put(100, v3);
+        snapshots.put(107, v7);
+        snapshots.put(200, new MapContent(11, 1, "Haifa", "Carmel", "Other map"));
+
+        service = new MapVersionDiffService(id -> {
+            loads.incrementAndGet();
+            return snapshots.get(id);
+        }, 8, 8);
+    }
+
+    private static MapContent version(int versionId, int number, String name) {
+        MapContent content = new MapContent(10, 1, "Haifa", name, "Downtown and the port");
+        for (int i = 1; i <= 500; i++) {
+            content.addPoi(new Poi(i, 1, "POI " + i, "32.8" + i + ",34.9" + i, "Museum", "Exhibits", i % 2 == 0));
+        }
+        TourDTO tour = new TourDTO(5, 1, "Museum Walk", "All the museums", 120);
+        tour.getStops().add(new TourStopDTO(1, 5, 4, "POI 4", "Museum", 1, 30, "Start here"));
+        content.addTour(tour);
+        content.setVersionId(versionId);
+        content.setVersionNumber(number);
+        return content;
+    }
+
+    private static EntityChange find(Iterable<EntityChange> changes, int id) {
+        for (EntityChange change : changes) {
+            if (change.getEntityId() == id) {
+                return change;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Added, removed and modified entities are reported with field changes")
+    void diff_reportsStructuralChanges() {
+        MapVersionDiff diff = service.diff(100, 107);
+
+        assertNotNull(diff);
+        assertEquals(3, diff.getFromVersionNumber());
+        assertEquals(7, diff.getToVersionNumber());
+        assertTrue(diff.getMapChanges().isEmpty());
+        assertEquals(3, diff.getPoiChanges().size());
+        assertEquals(498, diff.getUnchangedPois());
+
+        EntityChange modified = find(diff.getPoiChanges(), 2);
+        assertEquals(MapVersionDiff.MODIFIED, modified.getKind());
+        assertEquals(1, modified.getFields().size());
+        assertEquals("category", modified.getFields().get(0).getField());
+        assertEquals("Museum", modified.getFields().get(0).getOldValue());
+        assertEquals("Historic", modified.getFields().get(0).getNewValue());
+
+        assertEquals(MapVersionDiff.REMOVED, find(diff.getPoiChanges(), 3).getKind());
+        EntityChange added = find(diff.getPoiChanges(), 1001);
+        assertEquals(MapVersionDiff.ADDED, added.getKind());
+        assertEquals(5, added.getFields().size());
+
+        assertEquals(1, diff.getTourChanges().size());
+        EntityChange tour = diff.getTourChanges().get(0);
+        assertEquals(MapVersionDiff.MODIFIED, tour.getKind());
+        assertEquals("stop 1", tour.getFields().get(0).getField());
+        assertTrue(tour.getFields().get(0).getNewValue().contains("45 min"));
+
+        System.out.println("✓ Test 1 passed: Diff reports adds, removes and field changes");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Identical versions produce an empty diff")
+    void diff_sameContentIsEmpty() {
+        snapshots.put(101, version(101, 4, "Haifa Center"));
+
+        MapVersionDiff diff = service.diff(100, 101);
+
+        assertFalse(diff.hasChanges());
+        assertEquals(500, diff.getUnchangedPois());
+        assertEquals(1, diff.getUnchangedTours());
+
+        System.out.println("✓ Test 2 passed: Unchanged entities are skipped");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Diffs and snapshot indexes are cached")
+    void diff_isCached() {
+        MapVersionDiff first = service.diff(100, 107);
+        MapVersionDiff second = service.diff(100, 107);
+        service.diff(107, 100);
+
+        assertSame(first, second);
+        assertEquals(2, loads.get(), "each snapshot should be loaded once");
+
+        System.out.println("✓ Test 3 passed: Diff cache works");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Missing snapshots and different maps are rejected")
+    void diff_rejectsInvalidPairs() {
+        assertNull(service.diff(100, 999));
+        assertThrows(IllegalArgumentException.class, () -> service.diff(100, 200));
+
+        System.out.println("✓ Test 4 passed: Invalid version pairs rejected");
+    }
+}
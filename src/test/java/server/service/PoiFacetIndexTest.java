@@ -0,0 +1,143 @@
+package server.service;
+
+import common.Poi;
+import common.dto.CitySearchResult;
+import common.dto.FacetSearchRequest;
+import common.dto.FacetSearchResult;
+import common.dto.MapChanges;
+import common.dto.MapSummary;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory faceted POI index (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PoiFacetIndexTest {
+
+    private PoiFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // City 1 (Haifa) with map 10, city 2 (Tel Aviv) with map 20
+        CitySearchResult haifa = new CitySearchResult(1, "Haifa", "", 100);
+        haifa.addMap(new MapSummary(10, "Haifa Center", "", 3, 0));
+        CitySearchResult telAviv = new CitySearchResult(2, "Tel Aviv", "", 120);
+        telAviv.addMap(new MapSummary(20, "Tel Aviv Beaches", "", 2, 0));
+
+        List<Poi> pois = Arrays.asList(
+                new Poi(1, 1, "Bahai Gardens", "32.81,34.98", "Historic", "", true),
+                new Poi(2, 1, "Dado Beach", "32.79,34.96", "Beach", "", true),
+                new Poi(3, 1, "Madatech", "32.81,34.99", "Museum", "", false),
+                new Poi(4, 2, "Gordon Beach", "32.08,34.76", "beach", "", false),
+                new Poi(5, 2, "Frishman Beach", "32.08,34.76", "Beach", "", true));
+
+        List<MapChanges.PoiMapLink> links = Arrays.asList(
+                new MapChanges.PoiMapLink(10, 1, 1),
+                new MapChanges.PoiMapLink(10, 2, 2),
+                new MapChanges.PoiMapLink(10, 3, 3),
+                new MapChanges.PoiMapLink(20, 4, 1),
+                new MapChanges.PoiMapLink(20, 5, 2));
+
+        index = new PoiFacetIndex();
+        index.load(new ArrayList<>(Arrays.asList(haifa, telAviv)), pois, links);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Unfiltered search counts every facet value")
+    void unfiltered_countsAllFacets() {
+        FacetSearchResult result = index.search(FacetSearchRequest.all());
+
+        assertEquals(5, result.getMatchingPoiCount());
+        assertEquals(3, result.getCategoryCounts().get("Beach"), "Category match is case-insensitive");
+        assertEquals(1, result.getCategoryCounts().get("Museum"));
+        assertEquals(3, result.getAccessibleCount());
+        assertEquals(2, result.getNotAccessibleCount());
+        assertEquals(3, result.getCityCounts().get(1));
+        assertEquals(2, result.getResults().size());
+
+        System.out.println("✓ Test 1 passed: Unfiltered facet counts are correct");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Filters AND across facets and OR within a facet")
+    void filters_combineCorrectly() {
+        FacetSearchResult result = index.search(FacetSearchRequest.of(
+                Collections.emptyList(), Arrays.asList("Beach", "Museum"), true));
+
+        // Accessible beaches/museums: Dado Beach, Frishman Beach
+        assertEquals(2, result.getMatchingPoiCount());
+        assertEquals(2, result.getResults().size());
+
+        // Category counts ignore the category filter but honour accessibility
+        assertEquals(2, result.getCategoryCounts().get("Beach"));
+        assertEquals(1, result.getCategoryCounts().get("Historic"));
+        assertNull(result.getCategoryCounts().get("Museum"));
+
+        // Accessibility counts ignore the accessibility filter
+        assertEquals(2, result.getAccessibleCount());
+        assertEquals(2, result.getNotAccessibleCount());
+
+        System.out.println("✓ Test 2 passed: Filter combinations are correct");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("City filter limits results to the selected cities' maps")
+    void cityFilter_limitsResults() {
+        FacetSearchResult result = index.search(FacetSearchRequest.of(
+                Collections.singletonList(2), Collections.emptyList(), null));
+
+        assertEquals(2, result.getMatchingPoiCount());
+        assertEquals(1, result.getResults().size());
+        assertEquals("Tel Aviv", result.getResults().get(0).getCityName());
+        assertEquals(20, result.getResults().get(0).getMaps().get(0).getId());
+
+        // City counts ignore the city filter
+        assertEquals(3, result.getCityCounts().get(1));
+
+        System.out.println("✓ Test 3 passed: City filter works");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("upsert and remove keep bitmaps consistent")
+    void upsertAndRemove_updateBitmaps() {
+        index.upsert(new Poi(3, 1, "Madatech", "32.81,34.99", "Museum", "", true));
+        FacetSearchResult result = index.search(FacetSearchRequest.of(null, null, true));
+        assertEquals(4, result.getMatchingPoiCount());
+
+        index.remove(1);
+        result = index.search(FacetSearchRequest.all());
+        assertEquals(4, result.getMatchingPoiCount());
+        assertNull(result.getCategoryCounts().get("Historic"), "Empty categories disappear");
+
+        System.out.println("✓ Test 4 passed: Incremental updates work");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("A load that started before invalidate() does not mark the index loaded")
+    void invalidate_duringLoad_keepsIndexUnloaded() {
+        assertTrue(index.isLoaded());
+
+        // The DAOs are read at this generation, then a change is committed
+        long loadGeneration = index.currentGeneration();
+        index.invalidate();
+        index.load(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), loadGeneration);
+        assertFalse(index.isLoaded(), "stale data must be reloaded on the next query");
+
+        index.load(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), index.currentGeneration());
+        assertTrue(index.isLoaded());
+
+        System.out.println("✓ Test 5 passed: Stale load not kept");
+    }
+}
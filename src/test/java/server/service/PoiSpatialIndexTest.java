@@ -0,0 +1,172 @@
+package server.service;
+
+import common.Poi;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory POI spatial index (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PoiSpatialIndexTest {
+
+    private static final int CITY_ID = 1;
+    private static final double BASE_LAT = 32.78;
+    private static final double BASE_LNG = 34.98;
+
+    private PoiSpatialIndex index;
+    private List<Poi> pois;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        pois = new ArrayList<>();
+        for (int i = 1; i <= 100_000; i++) {
+            double lat = BASE_LAT + random.nextDouble() * 0.1;
+            double lng = BASE_LNG + random.nextDouble() * 0.1;
+            pois.add(new Poi(i, CITY_ID, "POI " + i, lat + "," + lng, "Beach", "", i % 2 == 0));
+        }
+        // Free-text locations must be ignored, not rejected
+        pois.add(new Poi(200_001, CITY_ID, "Described", "Near the port", "Historic", "", false));
+
+        index = new PoiSpatialIndex();
+        index.load(pois);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("parseLocation accepts lat,lng pairs and rejects free text")
+    void parseLocation_handlesPairsAndText() {
+        double[] coords = PoiSpatialIndex.parseLocation(" 32.7940 , 34.9896 ");
+        assertNotNull(coords);
+        assertEquals(32.7940, coords[0], 1e-9);
+        assertEquals(34.9896, coords[1], 1e-9);
+
+        assertNull(PoiSpatialIndex.parseLocation("Near the port"));
+        assertNull(PoiSpatialIndex.parseLocation("1,2,3"));
+        assertNull(PoiSpatialIndex.parseLocation(null));
+
+        assertTrue(PoiSpatialIndex.isValidCoordinate(32.79, 34.98));
+        assertFalse(PoiSpatialIndex.isValidCoordinate(91, 34.98));
+        assertFalse(PoiSpatialIndex.isValidCoordinate(32.79, -181));
+
+        System.out.println("✓ Test 1 passed: Location parsing works");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("findNearest matches a brute-force scan")
+    void findNearest_matchesBruteForce() {
+        Random random = new Random(7);
+        for (int q = 0; q < 50; q++) {
+            double lat = BASE_LAT + random.nextDouble() * 0.12 - 0.01;
+            double lng = BASE_LNG + random.nextDouble() * 0.12 - 0.01;
+
+            List<Poi> expected = bruteForceNearest(lat, lng, 10);
+            List<Poi> actual = index.findNearest(CITY_ID, lat, lng, 10);
+
+            assertEquals(10, actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), actual.get(i).getId(), "Rank " + i + " of query " + q);
+            }
+        }
+        System.out.println("✓ Test 2 passed: k-nearest results are exact");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("findInBox returns exactly the POIs inside the box")
+    void findInBox_matchesBruteForce() {
+        double minLat = BASE_LAT + 0.02, maxLat = BASE_LAT + 0.025;
+        double minLng = BASE_LNG + 0.05, maxLng = BASE_LNG + 0.056;
+
+        long expected = pois.stream().filter(p -> {
+            double[] c = PoiSpatialIndex.parseLocation(p.getLocation());
+            return c != null && c[0] >= minLat && c[0] <= maxLat && c[1] >= minLng && c[1] <= maxLng;
+        }).count();
+
+        List<Poi> actual = index.findInBox(CITY_ID, minLat, minLng, maxLat, maxLng, 100_000);
+        assertEquals(expected, actual.size());
+        assertTrue(index.findInBox(CITY_ID, 10, 10, 11, 11, 0).isEmpty());
+
+        System.out.println("✓ Test 3 passed: Bounding box results are exact");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("upsert and remove update the city grid")
+    void upsertAndRemove_updateGrid() {
+        Poi moved = new Poi(500_000, CITY_ID, "New Pier", "33.5,35.5", "Beach", "", true);
+        index.upsert(moved);
+        assertEquals(500_000, index.findNearest(CITY_ID, 33.5, 35.5, 1).get(0).getId());
+
+        index.remove(500_000);
+        assertNotEquals(500_000, index.findNearest(CITY_ID, 33.5, 35.5, 1).get(0).getId());
+
+        // Moving a POI to another city removes it from the old grid
+        Poi other = new Poi(1, 2, "POI 1", "10.0,10.0", "Beach", "", true);
+        index.upsert(other);
+        assertEquals(1, index.findNearest(2, 10.0, 10.0, 5).size());
+        assertTrue(index.findNearest(CITY_ID, 10.0, 10.0, 100).stream().noneMatch(p -> p.getId() == 1));
+
+        System.out.println("✓ Test 4 passed: Incremental updates work");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Queries over 100k POIs average well under a millisecond")
+    void queries_areSubMillisecond() {
+        Random random = new Random(99);
+        int queries = 2000;
+
+        // Warm up the JIT
+        for (int i = 0; i < queries; i++) {
+            index.findNearest(CITY_ID, BASE_LAT + random.nextDouble() * 0.1, BASE_LNG + random.nextDouble() * 0.1, 10);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            double lat = BASE_LAT + random.nextDouble() * 0.1;
+            double lng = BASE_LNG + random.nextDouble() * 0.1;
+            index.findNearest(CITY_ID, lat, lng, 10);
+            index.findInBox(CITY_ID, lat, lng, lat + 0.002, lng + 0.002, 0);
+        }
+        double avgMicros = (System.nanoTime() - start) / 1000.0 / (queries * 2);
+
+        System.out.println("  Average query time: " + String.format("%.1f", avgMicros) + " µs");
+        assertTrue(avgMicros < 1000, "Average query should be under 1 ms, was " + avgMicros + " µs");
+
+        System.out.println("✓ Test 5 passed: Query latency is sub-millisecond");
+    }
+
+    private List<Poi> bruteForceNearest(double lat, double lng, int k) {
+        double cosLat = Math.cos(Math.toRadians(lat));
+        List<Poi> located = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        for (Poi p : pois) {
+            double[] c = PoiSpatialIndex.parseLocation(p.getLocation());
+            if (c != null) {
+                double dLat = c[0] - lat;
+                double dLng = (c[1] - lng) * cosLat;
+                located.add(p);
+                distances.add(dLat * dLat + dLng * dLng);
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < located.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble(distances::get));
+        List<Poi> result = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            result.add(located.get(order.get(i)));
+        }
+        return result;
+    }
+}
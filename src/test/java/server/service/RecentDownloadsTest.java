@@ -0,0 +1,57 @@
+package server.service;
+
+import common.dto.MapPackageManifest;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for download resume detection (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class RecentDownloadsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final RecentDownloads downloads = new RecentDownloads(2, 60_000, now::get);
+
+    private static List<MapPackageManifest> packages(String... ids) {
+        MapPackageManifest[] manifests = new MapPackageManifest[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            manifests[i] = new MapPackageManifest(ids[i], 1, i, "Map " + i, null, 100, "hash", 1024);
+        }
+        return Arrays.asList(manifests);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Asking again for the same packages is a resume")
+    void samePackages_isResume() {
+        assertTrue(downloads.isNewDownload(7, 1, packages("c1-m1-v3", "c1-m2-v5")));
+        now.addAndGet(30_000);
+        assertFalse(downloads.isNewDownload(7, 1, packages("c1-m1-v3", "c1-m2-v5")));
+        assertTrue(downloads.isNewDownload(8, 1, packages("c1-m1-v3", "c1-m2-v5")), "another user");
+
+        System.out.println("✓ Test 1 passed: Resumes are not counted");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("New content or an expired window counts again")
+    void changedOrExpired_isNew() {
+        assertTrue(downloads.isNewDownload(7, 1, packages("c1-m1-v3")));
+        assertTrue(downloads.isNewDownload(7, 1, packages("c1-m1-v4")), "new version");
+
+        now.addAndGet(59_000);
+        assertFalse(downloads.isNewDownload(7, 1, packages("c1-m1-v4")));
+        now.addAndGet(59_000);
+        assertFalse(downloads.isNewDownload(7, 1, packages("c1-m1-v4")), "window runs from the last call");
+        now.addAndGet(61_000);
+        assertTrue(downloads.isNewDownload(7, 1, packages("c1-m1-v4")));
+
+        System.out.println("✓ Test 2 passed: Changed or expired downloads count");
+    }
+}
@@ -0,0 +1,125 @@
+package server.service;
+
+import common.DailyStat;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import server.service.ReportRangePlanner.Granularity;
+import server.service.ReportRangePlanner.Segment;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the closed-period report cache (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReportCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 18); // A Wednesday
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Stand-in for the rollup tables: every period has 2 views in city 1
+     * and 3 views in city 2. Records the segments it is asked for.
+     */
+    private final List<Segment> loads = new ArrayList<>();
+    private int viewsCity1 = 2;
+
+    private List<DailyStat> load(Segment segment) {
+        loads.add(segment);
+        List<DailyStat> rows = new ArrayList<>();
+        for (LocalDate start = segment.start; !start.isAfter(segment.end); start = segment.granularity.next(start)) {
+            rows.add(new DailyStat(start, 1, 0, 0, 0, 0, viewsCity1, 0));
+            rows.add(new DailyStat(start, 2, 0, 0, 0, 0, 3, 1));
+        }
+        return rows;
+    }
+
+    private ReportCache cache(Path spillDir) {
+        return new ReportCache(this::load, spillDir, () -> TODAY, 1000);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Closed periods are loaded once; only the open day is read again")
+    void getStats_readsClosedPeriodsOnce() throws Exception {
+        ReportCache cache = cache(null);
+        List<Segment> plan = ReportRangePlanner.plan(LocalDate.of(2025, 11, 20), TODAY);
+
+        List<DailyStat> first = cache.getStats(plan, null);
+        int firstLoads = loads.size();
+        assertEquals(plan.size(), firstLoads, "one query per segment when cold");
+        assertEquals(5, first.get(0).getViews(), "cities summed per period");
+
+        loads.clear();
+        List<DailyStat> second = cache.getStats(plan, 2);
+        assertEquals(1, loads.size(), "only the open day is read");
+        assertEquals(new Segment(Granularity.DAY, TODAY, TODAY), loads.get(0));
+        assertEquals(first.size(), second.size());
+        assertEquals(3, second.get(0).getViews());
+
+        // An overlapping range reuses the same periods
+        loads.clear();
+        cache.getStats(ReportRangePlanner.plan(LocalDate.of(2025, 12, 1), LocalDate.of(2026, 2, 28)), null);
+        assertTrue(loads.isEmpty(), "fully cached: " + loads);
+
+        System.out.println("✓ Test 1 passed: " + cache.getStats());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("A late write to a closed day drops its day, week and month")
+    void invalidate_dropsContainingPeriods() throws Exception {
+        ReportCache cache = cache(null);
+        LocalDate from = LocalDate.of(2026, 2, 1);
+        LocalDate to = LocalDate.of(2026, 3, 17);
+        List<Segment> plan = ReportRangePlanner.plan(from, to);
+        cache.getStats(plan, 1);
+
+        viewsCity1 = 10;
+        cache.invalidate(LocalDate.of(2026, 2, 10));
+        loads.clear();
+        List<DailyStat> stats = cache.getStats(plan, 1);
+
+        assertEquals(1, loads.size(), "only February is reloaded: " + loads);
+        assertEquals(Granularity.MONTH, loads.get(0).granularity);
+        assertEquals(10, stats.get(0).getViews());
+
+        cache.invalidate(TODAY); // Open, nothing cached
+        loads.clear();
+        cache.getStats(plan, 1);
+        assertTrue(loads.isEmpty());
+
+        System.out.println("✓ Test 2 passed: Invalidation reloads one period");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Disk copies survive a restart and are removed on invalidation")
+    void spill_survivesRestart() throws Exception {
+        List<Segment> plan = ReportRangePlanner.plan(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 2, 28));
+        List<DailyStat> before = cache(dir).getStats(plan, null);
+
+        loads.clear();
+        ReportCache restarted = cache(dir);
+        List<DailyStat> after = restarted.getStats(plan, null);
+        assertTrue(loads.isEmpty(), "served from disk");
+        assertEquals(before.size(), after.size());
+        assertEquals(before.get(1).getViews(), after.get(1).getViews());
+        assertEquals(before.get(1).getDownloads(), after.get(1).getDownloads());
+
+        restarted.invalidate(LocalDate.of(2026, 1, 5));
+        ReportCache again = cache(dir);
+        loads.clear();
+        again.getStats(plan, null);
+        assertEquals(1, loads.size(), "January reloaded");
+
+        System.out.println("✓ Test 3 passed: " + again.getStats());
+    }
+}
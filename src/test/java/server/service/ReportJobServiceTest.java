@@ -0,0 +1,187 @@
+package server.service;
+
+import common.DailyStat;
+import common.dto.ReportJobUpdate;
+import common.dto.ReportRequest;
+import org.junit.jupiter.api.*;
+import server.service.ReportRangePlanner.Segment;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for asynchronous report jobs (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReportJobServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 10);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 18);
+
+    private final BlockingQueue<ReportJobUpdate> frames = new LinkedBlockingQueue<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * One view per day of every chunk it is asked for.
+     */
+    private static ReportGenerator viewsPerDay() {
+        return (from, to, cityId) -> Collections.singletonList(
+                new DailyStat(from, 0, 0, 0, 0, 0, (int) (to.toEpochDay() - from.toEpochDay() + 1), 0));
+    }
+
+    /**
+     * Like viewsPerDay, but every chunk signals started and waits for release.
+     */
+    private ReportGenerator blocking() {
+        return (from, to, cityId) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return viewsPerDay().generate(from, to, cityId);
+        };
+    }
+
+    private ReportJobUpdate next() throws InterruptedException {
+        ReportJobUpdate frame = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frame, "frame expected");
+        return frame;
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("A job pushes progress and rows chunk by chunk until complete")
+    void submit_streamsChunks() throws Exception {
+        ReportJobService service = new ReportJobService(request -> viewsPerDay(), 2, 4);
+        ReportJobUpdate queued = service.submit(new ReportRequest(FROM, TO, (Integer) null), "client-1",
+                frames::add);
+        assertEquals(ReportJobUpdate.STATUS_QUEUED, queued.getStatus());
+        int chunks = queued.getTotalChunks();
+        assertTrue(chunks > 1);
+
+        ReportJobUpdate running = next();
+        assertEquals(ReportJobUpdate.STATUS_RUNNING, running.getStatus());
+        assertEquals(0, running.getCompletedChunks());
+
+        int views = 0;
+        ReportJobUpdate frame;
+        do {
+            frame = next();
+            assertEquals(queued.getJobId(), frame.getJobId());
+            views += frame.getRows().stream().mapToInt(DailyStat::getViews).sum();
+        } while (!frame.isFinished());
+
+        assertEquals(ReportJobUpdate.STATUS_COMPLETED, frame.getStatus());
+        assertEquals(chunks, frame.getCompletedChunks());
+        assertEquals(TO.toEpochDay() - FROM.toEpochDay() + 1, views, "every day counted once");
+        assertEquals(0, service.getActiveJobs());
+        service.shutdown();
+
+        System.out.println("✓ Test 1 passed: " + chunks + " chunks streamed");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("A cancelled job stops before its next chunk")
+    void cancel_stopsRunningJob() throws Exception {
+        ReportJobService service = new ReportJobService(request -> blocking(), 1, 1);
+        ReportJobUpdate queued = service.submit(new ReportRequest(FROM, TO, (Integer) null), "client-1",
+                frames::add);
+        assertEquals(ReportJobUpdate.STATUS_RUNNING, next().getStatus());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(service.cancel(queued.getJobId(), "client-2"), "only the owner can cancel");
+        assertTrue(service.cancel(queued.getJobId(), "client-1"));
+        release.countDown();
+
+        ReportJobUpdate frame;
+        do {
+            frame = next();
+        } while (!frame.isFinished());
+        assertEquals(ReportJobUpdate.STATUS_CANCELLED, frame.getStatus());
+        assertEquals(1, frame.getCompletedChunks(), "the chunk in progress finishes, no more");
+        service.shutdown();
+
+        System.out.println("✓ Test 2 passed: Cancelled after " + frame.getCompletedChunks() + "/"
+                + frame.getTotalChunks());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("The executor is bounded and queued jobs can be cancelled")
+    void submit_rejectsBeyondQueue() throws Exception {
+        ReportJobService service = new ReportJobService(request -> blocking(), 1, 1);
+        List<ReportJobUpdate> queuedFrames = new ArrayList<>();
+        ReportRequest request = new ReportRequest(FROM, TO, (Integer) null);
+
+        service.submit(request, "client-1", frames::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ReportJobUpdate waiting = service.submit(request, "client-2", queuedFrames::add);
+        assertThrows(IllegalStateException.class, () -> service.submit(request, "client-3", u -> {
+        }));
+
+        assertTrue(service.cancel(waiting.getJobId(), "client-2"));
+        assertEquals(1, queuedFrames.size());
+        assertEquals(ReportJobUpdate.STATUS_CANCELLED, queuedFrames.get(0).getStatus());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(new ReportRequest(TO, FROM, (Integer) null), "client-1", frames::add));
+
+        release.countDown();
+        service.shutdown();
+
+        System.out.println("✓ Test 3 passed: " + service.getStats());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("An unreachable client cancels its job")
+    void send_failureCancels() throws Exception {
+        ReportJobService service = new ReportJobService(request -> viewsPerDay(), 1, 1);
+        CountDownLatch attempted = new CountDownLatch(1);
+        service.submit(new ReportRequest(FROM, TO, (Integer) null), "client-1", update -> {
+            attempted.countDown();
+            throw new IOException("connection reset");
+        });
+
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && service.getActiveJobs() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getActiveJobs());
+        service.shutdown();
+
+        System.out.println("✓ Test 4 passed: " + service.getStats());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Chunks cover the plan with a bounded number of periods each")
+    void chunks_coverPlan() {
+        List<Segment> plan = ReportRangePlanner.plan(FROM, TO);
+        List<Segment> chunks = ReportJobService.chunks(plan);
+
+        LocalDate next = FROM;
+        for (Segment chunk : chunks) {
+            assertEquals(next, chunk.start);
+            assertTrue(ReportRangePlanner.periodCount(Collections.singletonList(chunk)) <= 8, chunk.toString());
+            next = chunk.end.plusDays(1);
+        }
+        assertEquals(TO.plusDays(1), next);
+        assertEquals(ReportRangePlanner.periodCount(plan), ReportRangePlanner.periodCount(chunks));
+
+        System.out.println("✓ Test 5 passed: " + plan.size() + " segments in " + chunks.size() + " chunks");
+    }
+}
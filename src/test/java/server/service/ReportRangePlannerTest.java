@@ -0,0 +1,100 @@
+package server.service;
+
+import org.junit.jupiter.api.*;
+import server.service.ReportRangePlanner.Granularity;
+import server.service.ReportRangePlanner.Segment;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for splitting report ranges into rollup periods (no database
+ * required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReportRangePlannerTest {
+
+    private static Segment seg(Granularity g, String start, String end) {
+        return new Segment(g, LocalDate.parse(start), LocalDate.parse(end));
+    }
+
+    /**
+     * The plan must cover every day of the range exactly once, with
+     * periods aligned to their granularity.
+     */
+    private static void assertCovers(List<Segment> plan, LocalDate from, LocalDate to) {
+        LocalDate next = from;
+        for (Segment segment : plan) {
+            assertEquals(next, segment.start, "segments are contiguous");
+            assertEquals(segment.start, segment.granularity.periodStart(segment.start), "aligned start");
+            LocalDate after = segment.end.plusDays(1);
+            assertEquals(after, segment.granularity.periodStart(after), "segment ends on a period boundary");
+            next = segment.end.plusDays(1);
+        }
+        assertEquals(to.plusDays(1), next, "range fully covered");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("A range spanning months uses days, weeks and months")
+    void plan_mixesGranularities() {
+        // Wed 2026-01-14 .. Tue 2026-06-16
+        LocalDate from = LocalDate.of(2026, 1, 14);
+        LocalDate to = LocalDate.of(2026, 6, 16);
+        List<Segment> plan = ReportRangePlanner.plan(from, to);
+
+        assertEquals(Arrays.asList(
+                seg(Granularity.DAY, "2026-01-14", "2026-01-18"),
+                seg(Granularity.WEEK, "2026-01-19", "2026-01-25"),
+                seg(Granularity.DAY, "2026-01-26", "2026-01-31"),
+                seg(Granularity.MONTH, "2026-02-01", "2026-05-31"),
+                seg(Granularity.WEEK, "2026-06-01", "2026-06-14"),
+                seg(Granularity.DAY, "2026-06-15", "2026-06-16")), plan);
+        assertCovers(plan, from, to);
+        assertEquals(5 + 1 + 6 + 4 + 2 + 2, ReportRangePlanner.periodCount(plan));
+
+        System.out.println("✓ Test 1 passed: " + plan);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("A week crossing a month boundary is skipped when the month is cheaper")
+    void plan_prefersWholeMonthOverStraddlingWeek() {
+        // Mon 2026-06-29 .. Fri 2026-07-31: the week of Jun 29 would break July
+        LocalDate from = LocalDate.of(2026, 6, 29);
+        LocalDate to = LocalDate.of(2026, 7, 31);
+        List<Segment> plan = ReportRangePlanner.plan(from, to);
+
+        assertEquals(Arrays.asList(
+                seg(Granularity.DAY, "2026-06-29", "2026-06-30"),
+                seg(Granularity.MONTH, "2026-07-01", "2026-07-31")), plan);
+        assertEquals(3, ReportRangePlanner.periodCount(plan));
+
+        System.out.println("✓ Test 2 passed: Month kept whole");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Plans are minimal and stay small for multi-year ranges")
+    void plan_longRangeIsSmall() {
+        LocalDate from = LocalDate.of(2019, 3, 13);
+        LocalDate to = LocalDate.of(2026, 10, 19);
+        List<Segment> plan = ReportRangePlanner.plan(from, to);
+
+        assertCovers(plan, from, to);
+        assertTrue(plan.size() <= 7, "few range scans: " + plan);
+        assertTrue(ReportRangePlanner.periodCount(plan) < 120,
+                "rows read instead of " + (ChronoUnit.DAYS.between(from, to) + 1));
+
+        assertEquals(Arrays.asList(seg(Granularity.DAY, "2026-10-19", "2026-10-19")),
+                ReportRangePlanner.plan(to, to));
+        assertTrue(ReportRangePlanner.plan(to, from).isEmpty());
+
+        System.out.println("✓ Test 3 passed: " + ReportRangePlanner.periodCount(plan) + " periods over "
+                + plan.size() + " segments");
+    }
+}
@@ -0,0 +1,180 @@
+package server.service;
+
+import common.MessageType;
+import common.dto.CitySearchResult;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the search result cache (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SearchResultCacheTest {
+
+    private static final MessageType CITY = MessageType.SEARCH_BY_CITY_NAME;
+    private static final MessageType POI = MessageType.SEARCH_BY_POI_NAME;
+
+    private SearchResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache(3, 60_000, 60_000);
+        loads = new AtomicInteger();
+    }
+
+    private List<CitySearchResult> city(int cityId) {
+        loads.incrementAndGet();
+        List<CitySearchResult> results = new ArrayList<>();
+        results.add(new CitySearchResult(cityId, "City " + cityId, "", 10));
+        return results;
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Normalized keys share one entry")
+    void normalizedKeys_shareEntry() {
+        String a = SearchResultCache.key(CITY, SearchResultCache.normalize("Tel Aviv"), null);
+        String b = SearchResultCache.key(CITY, SearchResultCache.normalize("  tel   AVIV "), null);
+        assertEquals(a, b);
+        assertNull(SearchResultCache.normalize("   "));
+
+        cache.get(CITY, a, () -> city(1));
+        cache.get(CITY, b, () -> city(1));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+
+        System.out.println("✓ Test 1 passed: Key normalization works");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Negative results are cached")
+    void negativeResults_areCached() {
+        String key = SearchResultCache.key(CITY, "atlantis", null);
+        cache.get(CITY, key, () -> {
+            loads.incrementAndGet();
+            return Collections.emptyList();
+        });
+        assertTrue(cache.get(CITY, key, () -> city(9)).isEmpty());
+        assertEquals(1, loads.get());
+
+        System.out.println("✓ Test 2 passed: Negative caching works");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("LRU evicts the least recently used entry")
+    void lru_evictsEldest() {
+        cache.get(CITY, "a", () -> city(1));
+        cache.get(CITY, "b", () -> city(2));
+        cache.get(CITY, "c", () -> city(3));
+        cache.get(CITY, "a", () -> city(1)); // touch a
+        cache.get(CITY, "d", () -> city(4)); // evicts b
+
+        cache.get(CITY, "a", () -> city(1));
+        assertEquals(4, loads.get(), "a should still be cached");
+        cache.get(CITY, "b", () -> city(2));
+        assertEquals(5, loads.get(), "b should have been evicted");
+
+        System.out.println("✓ Test 3 passed: LRU eviction works");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Concurrent identical misses run the query once")
+    void concurrentMisses_areCoalesced() throws Exception {
+        int threads = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<CitySearchResult>>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> cache.get(CITY, "tel aviv", () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return city(1);
+            })));
+        }
+
+        // Let every thread reach the cache before the single load finishes
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getCoalescedCount() < threads - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<List<CitySearchResult>> f : futures) {
+            assertEquals(1, f.get(5, TimeUnit.SECONDS).get(0).getCityId());
+        }
+        pool.shutdown();
+
+        assertEquals(1, loads.get());
+        assertEquals(threads - 1, cache.getCoalescedCount());
+
+        System.out.println("✓ Test 4 passed: Single-flight coalescing works");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("POI invalidation drops POI searches and entries showing the city")
+    void invalidatePoi_isScoped() {
+        cache.get(CITY, "haifa", () -> city(1));
+        cache.get(CITY, "tel aviv", () -> city(2));
+        cache.get(POI, "beach", () -> city(2));
+        assertEquals(3, loads.get());
+
+        cache.invalidatePoi(1);
+
+        cache.get(CITY, "tel aviv", () -> city(2));
+        assertEquals(3, loads.get(), "Unrelated city entry survives");
+        cache.get(CITY, "haifa", () -> city(1));
+        cache.get(POI, "beach", () -> city(2));
+        assertEquals(5, loads.get());
+
+        System.out.println("✓ Test 5 passed: Scoped invalidation works");
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("A load that started before invalidation is not cached")
+    void staleLoad_isNotCached() {
+        cache.get(CITY, "haifa", () -> {
+            cache.invalidateAll();
+            return city(1);
+        });
+        cache.get(CITY, "haifa", () -> city(1));
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 6 passed: Stale loads are discarded");
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("A failed load is returned but not cached")
+    void failedLoad_isNotCached() {
+        assertNull(cache.get(CITY, "haifa", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, cache.get(CITY, "haifa", () -> city(1)).size());
+        cache.get(CITY, "haifa", () -> city(1));
+        assertEquals(2, loads.get());
+
+        System.out.println("✓ Test 7 passed: Failed loads are retried");
+    }
+}
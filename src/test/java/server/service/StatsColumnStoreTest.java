@@ -0,0 +1,143 @@
+package server.service;
+
+import common.DailyStat;
+import org.junit.jupiter.api.*;
+import server.dao.DailyStatsDAO.Delta;
+import server.dao.DailyStatsDAO.Metric;
+import server.service.ReportRangePlanner.Granularity;
+import server.service.ReportRangePlanner.Segment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory Fenwick-tree stats store (no database required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class StatsColumnStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 18);
+    private static final LocalDate FIRST = LocalDate.of(2025, 1, 1);
+
+    private final List<DailyStat> rows = new ArrayList<>();
+
+    private StatsColumnStore store() throws Exception {
+        StatsColumnStore store = new StatsColumnStore(handler -> {
+            for (DailyStat row : rows) {
+                handler.row(row.getDate(), row.getCityId(), counts(row));
+            }
+            return rows.size();
+        }, () -> TODAY);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Random activity for cities 1..5 over FIRST..TODAY.
+     */
+    private void randomRows(long seed) {
+        Random random = new Random(seed);
+        for (LocalDate day = FIRST; !day.isAfter(TODAY); day = day.plusDays(1)) {
+            for (int city = 1; city <= 5; city++) {
+                if (random.nextInt(3) > 0) {
+                    rows.add(new DailyStat(day, city, random.nextInt(3), random.nextInt(5), random.nextInt(4),
+                            random.nextInt(2), random.nextInt(500), random.nextInt(50)));
+                }
+            }
+        }
+    }
+
+    private static int[] counts(DailyStat row) {
+        return new int[] { row.getMapsCount(), row.getOneTimePurchases(), row.getSubscriptions(),
+                row.getRenewals(), row.getViews(), row.getDownloads() };
+    }
+
+    private int bruteForce(Integer cityId, Metric metric, LocalDate from, LocalDate to) {
+        int sum = 0;
+        for (DailyStat row : rows) {
+            if ((cityId == null || row.getCityId() == cityId) && !row.getDate().isBefore(from)
+                    && !row.getDate().isAfter(to)) {
+                sum += counts(row)[metric.ordinal()];
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Range sums match a scan of the rows for any city, metric and range")
+    void sum_matchesBruteForce() throws Exception {
+        randomRows(42);
+        StatsColumnStore store = store();
+        Random random = new Random(7);
+        int days = (int) (TODAY.toEpochDay() - FIRST.toEpochDay());
+
+        for (int i = 0; i < 500; i++) {
+            LocalDate a = FIRST.plusDays(random.nextInt(days + 40) - 20);
+            LocalDate b = a.plusDays(random.nextInt(400));
+            int city = random.nextInt(6); // 0 = all cities
+            Metric metric = Metric.values()[random.nextInt(Metric.values().length)];
+            assertEquals(bruteForce(city == 0 ? null : city, metric, a, b), store.sum(city, metric, a, b),
+                    city + " " + metric + " " + a + ".." + b);
+        }
+        assertEquals(0, store.sum(99, Metric.VIEW, FIRST, TODAY), "unknown city");
+
+        System.out.println("✓ Test 1 passed: " + store.getStats());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Report rows match the planned periods")
+    void getStats_matchesPlan() throws Exception {
+        randomRows(3);
+        StatsColumnStore store = store();
+        LocalDate from = LocalDate.of(2025, 2, 12);
+        List<Segment> plan = ReportRangePlanner.plan(from, TODAY);
+
+        List<DailyStat> all = store.getStats(plan, null);
+        assertEquals(ReportRangePlanner.periodCount(plan), all.size());
+        DailyStat firstPeriod = all.get(0);
+        assertEquals(from, firstPeriod.getDate());
+        assertEquals(bruteForce(null, Metric.VIEW, from, from), firstPeriod.getViews());
+
+        int total = all.stream().mapToInt(DailyStat::getDownloads).sum();
+        assertEquals(bruteForce(null, Metric.DOWNLOAD, from, TODAY), total);
+
+        List<DailyStat> perCity = store.getTotalsPerCity(new Segment(Granularity.MONTH, LocalDate.of(2025, 3, 1),
+                LocalDate.of(2025, 5, 31)));
+        assertEquals(5, perCity.size());
+        assertEquals(bruteForce(4, Metric.PURCHASE_ONE_TIME, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 5, 31)),
+                perCity.get(3).getOneTimePurchases());
+
+        System.out.println("✓ Test 2 passed: " + all.size() + " periods");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Increments are added after load and grow the store both ways")
+    void add_growsStore() throws Exception {
+        StatsColumnStore unloaded = new StatsColumnStore(handler -> 0, () -> TODAY);
+        unloaded.add(TODAY, 1, Metric.VIEW, 5);
+        assertFalse(unloaded.isLoaded());
+
+        rows.add(new DailyStat(TODAY, 1, 0, 0, 0, 0, 10, 0));
+        StatsColumnStore store = store();
+
+        Delta delta = new Delta(TODAY, 1);
+        delta.counts[Metric.VIEW.ordinal()] = 3;
+        store.add(Collections.singletonList(delta));
+        store.add(TODAY.plusYears(3), 2, Metric.DOWNLOAD, 4);
+        store.add(LocalDate.of(2020, 6, 1), 1, Metric.VIEW, 7);
+
+        assertEquals(13, store.sum(1, Metric.VIEW, TODAY, TODAY));
+        assertEquals(20, store.sum(1, Metric.VIEW, LocalDate.of(2020, 1, 1), TODAY));
+        assertEquals(4, store.sum(0, Metric.DOWNLOAD, TODAY, TODAY.plusYears(5)));
+
+        System.out.println("✓ Test 3 passed: " + store.getStats());
+    }
+}
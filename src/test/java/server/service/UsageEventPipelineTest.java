@@ -0,0 +1,217 @@
+package server.service;
+
+import org.junit.jupiter.api.*;
+import server.dao.UsageEventDAO.UsageEvent;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ring buffer and the batched usage event writer (no database
+ * required).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class UsageEventPipelineTest {
+
+    private final List<List<UsageEvent>> batches = new CopyOnWriteArrayList<>();
+
+    // The pipeline reuses its batch list, so keep a copy
+    private final UsageEventPipeline.BatchWriter recorder = batch -> batches.add(new ArrayList<>(batch));
+
+    private int writtenCount() {
+        return batches.stream().mapToInt(List::size).sum();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Ring buffer delivers every element once to the consumer and refuses when full")
+    void ringBuffer_multiProducer() throws Exception {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(1000);
+        assertEquals(1024, ring.capacity());
+
+        int producers = 4;
+        int perProducer = 50_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        List<Integer> chunk = new ArrayList<>();
+        while (seen.size() < producers * perProducer) {
+            chunk.clear();
+            ring.drainTo(chunk, 256);
+            for (int value : chunk) {
+                assertTrue(seen.add(value), "duplicate " + value);
+                int producer = value / perProducer;
+                assertTrue(value > lastPerProducer[producer], "per-producer order kept");
+                lastPerProducer[producer] = value;
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(ring.isEmpty());
+
+        EventRingBuffer<Integer> small = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(small.offer(i));
+        }
+        assertFalse(small.offer(4));
+        assertEquals(0, small.poll());
+        assertTrue(small.offer(4));
+
+        System.out.println("✓ Test 1 passed: Ring buffer is exact under concurrent producers");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Events are group-committed by size and by time")
+    void pipeline_groupCommits() throws Exception {
+        UsageEventPipeline pipeline = new UsageEventPipeline(recorder, 8192, 1000, 50, 200);
+        pipeline.start();
+
+        for (int i = 0; i < 2500; i++) {
+            assertTrue(pipeline.submit(UsageEvent.view(1, 2, 3, i)));
+        }
+        waitFor(() -> writtenCount() == 2500);
+        assertTrue(batches.size() <= 5, "expected few large batches, got " + batches.size());
+        assertTrue(batches.stream().allMatch(b -> b.size() <= 1000));
+
+        int before = batches.size();
+        pipeline.submit(UsageEvent.download(1, 2, 0));
+        pipeline.submit(UsageEvent.download(1, 2, 0));
+        waitFor(() -> writtenCount() == 2502);
+        assertEquals(before + 1, batches.size(), "a partial batch is flushed after the interval");
+
+        pipeline.stop();
+        assertEquals(0, pipeline.getDropped());
+
+        System.out.println("✓ Test 2 passed: Group commit by size and time");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Stopping writes everything still queued")
+    void stop_flushesQueue() {
+        UsageEventPipeline pipeline = new UsageEventPipeline(recorder, 1024, 1000, 60_000, 200);
+        pipeline.start();
+        for (int i = 0; i < 10; i++) {
+            pipeline.recordView(1, 2, 3);
+        }
+        pipeline.stop();
+
+        assertEquals(10, writtenCount());
+        assertEquals(10, pipeline.getWritten());
+
+        System.out.println("✓ Test 3 passed: Queue flushed on stop");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("A full buffer makes producers wait, then drop; failed batches are retried")
+    void backpressureAndRetry() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger(1);
+        UsageEventPipeline pipeline = new UsageEventPipeline(batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failures.getAndDecrement() > 0) {
+                throw new SQLException("deadlock");
+            }
+            batches.add(new ArrayList<>(batch));
+        }, 4, 2, 1, 20);
+        pipeline.start();
+
+        // Writer takes the first batch and blocks; the buffer then fills up
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (pipeline.submit(UsageEvent.view(1, 2, 3, i))) {
+                accepted++;
+            }
+        }
+        assertTrue(pipeline.getDropped() > 0, "events beyond capacity are dropped after waiting");
+        assertTrue(accepted <= 4 + 2, "memory stays bounded");
+
+        release.countDown();
+        pipeline.stop();
+        assertEquals(accepted, writtenCount(), "the failed batch was retried");
+
+        System.out.println("✓ Test 4 passed: Backpressure and retry");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Events offered while stopping are each written exactly once")
+    void stop_racesWithProducers() throws Exception {
+        UsageEventPipeline pipeline = new UsageEventPipeline(recorder, 1024, 16, 1, 200);
+        pipeline.start();
+
+        int producers = 4;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * 5000;
+            threads[p] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 5000; i++) {
+                    if (pipeline.submit(UsageEvent.view(1, 2, 3, base + i))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        go.countDown();
+        Thread.sleep(2);
+        pipeline.stop();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(0, pipeline.getDropped());
+        assertEquals(accepted.get(), writtenCount(), "nothing left in the buffer");
+        assertEquals(0, pipeline.getQueued());
+        Set<Long> seen = new HashSet<>();
+        batches.forEach(b -> b.forEach(e -> assertTrue(seen.add(e.atMillis), "written twice")));
+
+        System.out.println("✓ Test 5 passed: " + writtenCount() + " events written across stop()");
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}